@@ -0,0 +1,91 @@
+package org.chain.benchmarks;
+
+import org.chain.filters.HashStrategy;
+import org.chain.filters.ManySelector;
+import org.chain.filters.Selector;
+import org.chain.filters.WhereComparator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds the inputs and the filters shared by the benchmarks.
+ */
+final class BenchmarkData
+{
+    private static final long SEED = 42L;
+
+    static final Comparator<Object> NATURAL = new Comparator<Object>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public int compare(Object o1, Object o2) {
+            return ((Comparable<Object>) o1).compareTo(o2);
+        }
+    };
+
+    static final Selector<Object, Integer> HASH_CODE = new Selector<Object, Integer>() {
+        @Override
+        public Integer select(Object obj) {
+            return obj.hashCode();
+        }
+    };
+
+    static final HashStrategy<Object> EQUALS = new HashStrategy<Object>() {
+        @Override
+        public int hash(Object obj) {
+            return obj.hashCode();
+        }
+
+        @Override
+        public boolean areEqual(Object obj1, Object obj2) {
+            return obj1.equals(obj2);
+        }
+    };
+
+    static final ManySelector<Object, Object> TWICE = new ManySelector<Object, Object>() {
+        @Override
+        public Collection<Object> select(Object obj) {
+            return Arrays.asList(obj, obj);
+        }
+    };
+
+    private BenchmarkData(){}
+
+    /**
+     * @param type The kind of elements to build.
+     * @param size How many elements to build.
+     * @param duplicateRatio The share of elements that repeat an earlier key, from 0 for all distinct to close to 1 for very few keys.
+     * @param offset Added to every key, so two inputs can be made to overlap only partly.
+     * @return The elements, in random order.
+     */
+    static List<Object> elements(ElementType type, int size, double duplicateRatio, int offset) {
+        final int distinct = Math.max(1, (int) Math.round(size * (1 - duplicateRatio)));
+        final Random random = new Random(SEED + offset);
+        final ArrayList<Object> elements = new ArrayList<Object>(size);
+        for (int i = 0; i < size; i++) {
+            final int key = i < distinct ? i : random.nextInt(distinct);
+            elements.add(type.create(key + offset));
+        }
+        Collections.shuffle(elements, random);
+        return elements;
+    }
+
+    /**
+     * @param selectivity The share of elements that should meet the condition.
+     * @return A condition that roughly the given share of elements meet.
+     */
+    static WhereComparator<Object> selecting(double selectivity) {
+        final int threshold = (int) Math.round(selectivity * 1000);
+        return new WhereComparator<Object>() {
+            @Override
+            public boolean meetsCondition(Object obj) {
+                return (obj.hashCode() & 0x7fffffff) % 1000 < threshold;
+            }
+        };
+    }
+}
@@ -0,0 +1,311 @@
+package org.chain.benchmarks;
+
+import org.chain.Chain;
+import org.chain.SetOperationStrategy;
+import org.chain.filters.Action;
+import org.chain.filters.WhereComparator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures every {@link org.chain.ChainBuilder} operation that runs in linear or n log n time.
+ * <br/>Each invocation wraps the prepared input with {@link Chain#wrap(java.util.Collection)}, so the copy made by
+ * the Chain constructor is not part of the measurement.
+ * <br/>Each benchmark takes the state holding only the parameters it depends on, so JMH runs it over that grid alone:
+ * the duplicate ratio for the set operations and distinct, the selectivity for the operations given a condition.
+ * <br/>The comparator set operations using {@link SetOperationStrategy#NESTED_LOOP} are in {@link NestedLoopBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChainBenchmark
+{
+    /**
+     * Distinct elements, for the operations that neither compare elements nor take a condition.
+     */
+    @State(Scope.Benchmark)
+    public static class Input
+    {
+        @Param({ "100", "10000", "1000000", "10000000" })
+        public int size;
+
+        @Param({ "INTEGER", "STRING", "POJO" })
+        public ElementType type;
+
+        List<Object> elements;
+        List<Object> others;
+
+        @Setup
+        public void setup() {
+            elements = BenchmarkData.elements(type, size, 0, 0);
+            others = BenchmarkData.elements(type, size, 0, size / 2);
+        }
+
+        Chain<Object> chain() {
+            return Chain.wrap(elements);
+        }
+    }
+
+    /**
+     * Two partly overlapping inputs with duplicates, for the set operations and distinct.
+     */
+    @State(Scope.Benchmark)
+    public static class SetInput
+    {
+        @Param({ "100", "10000", "1000000", "10000000" })
+        public int size;
+
+        @Param({ "INTEGER", "STRING", "POJO" })
+        public ElementType type;
+
+        @Param({ "0.0", "0.5", "0.9" })
+        public double duplicateRatio;
+
+        List<Object> elements;
+        List<Object> others;
+
+        @Setup
+        public void setup() {
+            elements = BenchmarkData.elements(type, size, duplicateRatio, 0);
+            others = BenchmarkData.elements(type, size, duplicateRatio, size / 2);
+        }
+
+        Chain<Object> chain() {
+            return Chain.wrap(elements);
+        }
+    }
+
+    /**
+     * Distinct elements and a condition met by the given share of them.
+     */
+    @State(Scope.Benchmark)
+    public static class ConditionInput
+    {
+        @Param({ "100", "10000", "1000000", "10000000" })
+        public int size;
+
+        @Param({ "INTEGER", "STRING", "POJO" })
+        public ElementType type;
+
+        @Param({ "0.01", "0.5", "0.99" })
+        public double selectivity;
+
+        List<Object> elements;
+        WhereComparator<Object> condition;
+
+        @Setup
+        public void setup() {
+            elements = BenchmarkData.elements(type, size, 0, 0);
+            condition = BenchmarkData.selecting(selectivity);
+        }
+
+        Chain<Object> chain() {
+            return Chain.wrap(elements);
+        }
+    }
+
+    @Benchmark
+    public void each(final Input input, final Blackhole blackhole) {
+        input.chain().each(new Action<Object>() {
+            @Override
+            public void perform(Object obj) {
+                blackhole.consume(obj);
+            }
+        });
+    }
+
+    @Benchmark
+    public List<Object> toList(final Input input) {
+        return input.chain().toList();
+    }
+
+    @Benchmark
+    public List<Object> sort(final Input input) {
+        return input.chain().sort(BenchmarkData.NATURAL).toList();
+    }
+
+    @Benchmark
+    public List<Object> reverse(final Input input) {
+        return input.chain().reverse().toList();
+    }
+
+    @Benchmark
+    public List<Object> concatenate(final Input input) {
+        return input.chain().concatenate(input.others).toList();
+    }
+
+    @Benchmark
+    public List<Object> unionSortMerge(final SetInput input) {
+        return input.chain().union(input.others, BenchmarkData.NATURAL, SetOperationStrategy.SORT_MERGE).toList();
+    }
+
+    @Benchmark
+    public List<Object> unionBySelector(final SetInput input) {
+        return input.chain().union(input.others, BenchmarkData.HASH_CODE).toList();
+    }
+
+    @Benchmark
+    public List<Object> unionByHashStrategy(final SetInput input) {
+        return input.chain().union(input.others, BenchmarkData.EQUALS).toList();
+    }
+
+    @Benchmark
+    public List<Object> intersectSortMerge(final SetInput input) {
+        return input.chain().intersect(input.others, BenchmarkData.NATURAL, SetOperationStrategy.SORT_MERGE).toList();
+    }
+
+    @Benchmark
+    public List<Object> intersectBySelector(final SetInput input) {
+        return input.chain().intersect(input.others, BenchmarkData.HASH_CODE).toList();
+    }
+
+    @Benchmark
+    public List<Object> intersectByHashStrategy(final SetInput input) {
+        return input.chain().intersect(input.others, BenchmarkData.EQUALS).toList();
+    }
+
+    @Benchmark
+    public List<Object> divergeSortMerge(final SetInput input) {
+        return input.chain().diverge(input.others, BenchmarkData.NATURAL, SetOperationStrategy.SORT_MERGE).toList();
+    }
+
+    @Benchmark
+    public List<Object> divergeBySelector(final SetInput input) {
+        return input.chain().diverge(input.others, BenchmarkData.HASH_CODE).toList();
+    }
+
+    @Benchmark
+    public List<Object> divergeByHashStrategy(final SetInput input) {
+        return input.chain().diverge(input.others, BenchmarkData.EQUALS).toList();
+    }
+
+    @Benchmark
+    public List<Object> distinctSortMerge(final SetInput input) {
+        return input.chain().distinct(BenchmarkData.NATURAL, SetOperationStrategy.SORT_MERGE).toList();
+    }
+
+    @Benchmark
+    public List<Object> distinctBySelector(final SetInput input) {
+        return input.chain().distinct(BenchmarkData.HASH_CODE).toList();
+    }
+
+    @Benchmark
+    public List<Object> distinctByHashStrategy(final SetInput input) {
+        return input.chain().distinct(BenchmarkData.EQUALS).toList();
+    }
+
+    @Benchmark
+    public List<Integer> select(final Input input) {
+        return input.chain().select(BenchmarkData.HASH_CODE).toList();
+    }
+
+    @Benchmark
+    public List<Object> selectMany(final Input input) {
+        return input.chain().selectMany(BenchmarkData.TWICE).toList();
+    }
+
+    @Benchmark
+    public List<Object> where(final ConditionInput input) {
+        return input.chain().where(input.condition).toList();
+    }
+
+    @Benchmark
+    public List<Object> skip(final Input input) {
+        return input.chain().skip(input.size / 2).toList();
+    }
+
+    @Benchmark
+    public List<Object> take(final Input input) {
+        return input.chain().take(input.size / 2).toList();
+    }
+
+    @Benchmark
+    public List<Object> top(final Input input) {
+        return input.chain().top(50, BenchmarkData.NATURAL).toList();
+    }
+
+    @Benchmark
+    public List<Object> sortThenTake(final Input input) {
+        return input.chain().sort(BenchmarkData.NATURAL).take(Math.min(50, input.size)).toList();
+    }
+
+    @Benchmark
+    public Boolean isNullOrEmpty(final Input input) {
+        return input.chain().isNullOrEmpty();
+    }
+
+    @Benchmark
+    public Boolean all(final ConditionInput input) {
+        return input.chain().all(input.condition);
+    }
+
+    @Benchmark
+    public Boolean any(final Input input) {
+        return input.chain().any();
+    }
+
+    @Benchmark
+    public Boolean anyMatching(final ConditionInput input) {
+        return input.chain().any(input.condition);
+    }
+
+    @Benchmark
+    public Boolean none(final Input input) {
+        return input.chain().none();
+    }
+
+    @Benchmark
+    public Boolean noneMatching(final ConditionInput input) {
+        return input.chain().none(input.condition);
+    }
+
+    @Benchmark
+    public Integer count(final Input input) {
+        return input.chain().count();
+    }
+
+    @Benchmark
+    public Integer countMatching(final ConditionInput input) {
+        return input.chain().count(input.condition);
+    }
+
+    @Benchmark
+    public Object first(final Input input) {
+        return input.chain().first();
+    }
+
+    @Benchmark
+    public Object firstOrNull(final Input input) {
+        return input.chain().firstOrNull();
+    }
+
+    @Benchmark
+    public Object firstMatching(final ConditionInput input) {
+        return input.chain().firstOrNull(input.condition);
+    }
+
+    @Benchmark
+    public Object last(final Input input) {
+        return input.chain().last();
+    }
+
+    @Benchmark
+    public Object lastOrNull(final Input input) {
+        return input.chain().lastOrNull();
+    }
+
+    @Benchmark
+    public Object lastMatching(final ConditionInput input) {
+        return input.chain().lastOrNull(input.condition);
+    }
+
+    @Benchmark
+    public Object at(final Input input) {
+        return input.chain().at(input.size / 2);
+    }
+}
@@ -0,0 +1,33 @@
+package org.chain.benchmarks;
+
+/**
+ * The kinds of elements the benchmarks are run over, each built from an int key.
+ * <br/>The hashCode of every element is its key, or close to uniform for strings, so the same predicates work for all of them.
+ */
+public enum ElementType
+{
+    INTEGER {
+        @Override
+        Object create(int key) {
+            return Integer.valueOf(key);
+        }
+    },
+    STRING {
+        @Override
+        Object create(int key) {
+            return "item-" + key;
+        }
+    },
+    POJO {
+        @Override
+        Object create(int key) {
+            return new Item(key, "item-" + key);
+        }
+    };
+
+    /**
+     * @param key The key to build the element from.
+     * @return A new element, equal to any other element built from the same key.
+     */
+    abstract Object create(int key);
+}
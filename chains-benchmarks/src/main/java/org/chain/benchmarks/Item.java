@@ -0,0 +1,38 @@
+package org.chain.benchmarks;
+
+/**
+ * A plain object with a number and a string, like the objects most chains are built over.
+ */
+public final class Item implements Comparable<Item>
+{
+    private final int num;
+    private final String string;
+
+    public Item(int num, String string) {
+        this.num = num;
+        this.string = string;
+    }
+
+    public int getNum() {
+        return num;
+    }
+
+    public String getString() {
+        return string;
+    }
+
+    @Override
+    public int compareTo(Item o) {
+        return num < o.num ? -1 : (num == o.num ? 0 : 1);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Item && ((Item) o).num == num;
+    }
+
+    @Override
+    public int hashCode() {
+        return num;
+    }
+}
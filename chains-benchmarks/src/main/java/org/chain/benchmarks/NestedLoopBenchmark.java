@@ -0,0 +1,63 @@
+package org.chain.benchmarks;
+
+import org.chain.Chain;
+import org.chain.SetOperationStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the comparator set operations using {@link SetOperationStrategy#NESTED_LOOP}.
+ * <br/>They compare every pair of elements, so they are kept apart from {@link ChainBenchmark} and run over smaller sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NestedLoopBenchmark
+{
+    @Param({ "100", "1000", "10000" })
+    public int size;
+
+    @Param({ "INTEGER", "STRING", "POJO" })
+    public ElementType type;
+
+    @Param({ "0.0", "0.5", "0.9" })
+    public double duplicateRatio;
+
+    private List<Object> elements;
+    private List<Object> others;
+
+    @Setup
+    public void setup() {
+        elements = BenchmarkData.elements(type, size, duplicateRatio, 0);
+        others = BenchmarkData.elements(type, size, duplicateRatio, size / 2);
+    }
+
+    private Chain<Object> chain() {
+        return Chain.wrap(elements);
+    }
+
+    @Benchmark
+    public List<Object> union() {
+        return chain().union(others, BenchmarkData.NATURAL).toList();
+    }
+
+    @Benchmark
+    public List<Object> intersect() {
+        return chain().intersect(others, BenchmarkData.NATURAL).toList();
+    }
+
+    @Benchmark
+    public List<Object> diverge() {
+        return chain().diverge(others, BenchmarkData.NATURAL).toList();
+    }
+
+    @Benchmark
+    public List<Object> distinct() {
+        return chain().distinct(BenchmarkData.NATURAL).toList();
+    }
+}
@@ -0,0 +1,77 @@
+package org.chain.benchmarks;
+
+import org.chain.NumberChain;
+import org.chain.NumberSummaryStatistics;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures every {@link org.chain.NumberChainBuilder} operation.
+ * <br/>The numbers are kept as a raw list so one benchmark can cover every {@link NumberType}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class NumberChainBenchmark
+{
+    @Param({ "100", "10000", "1000000", "10000000" })
+    public int size;
+
+    @Param({ "INTEGER", "LONG", "DOUBLE", "BIG_DECIMAL" })
+    public NumberType type;
+
+    private List numbers;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42L);
+        numbers = new ArrayList(size);
+        for (int i = 0; i < size; i++) {
+            numbers.add(type.create(random.nextInt(size)));
+        }
+    }
+
+    private NumberChain chain() {
+        return NumberChain.wrap(numbers);
+    }
+
+    @Benchmark
+    public Object min() {
+        return chain().min();
+    }
+
+    @Benchmark
+    public Object max() {
+        return chain().max();
+    }
+
+    @Benchmark
+    public BigDecimal sum() {
+        return chain().sum();
+    }
+
+    @Benchmark
+    public BigDecimal average() {
+        return chain().average();
+    }
+
+    @Benchmark
+    public BigDecimal averageDecimal64() {
+        return chain().average(MathContext.DECIMAL64);
+    }
+
+    @Benchmark
+    public NumberSummaryStatistics summaryStatistics() {
+        return chain().summaryStatistics();
+    }
+}
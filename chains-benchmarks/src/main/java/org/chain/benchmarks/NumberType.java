@@ -0,0 +1,40 @@
+package org.chain.benchmarks;
+
+import java.math.BigDecimal;
+
+/**
+ * The kinds of {@link Number}s the {@link NumberChainBenchmark} is run over, each built from an int key.
+ */
+public enum NumberType
+{
+    INTEGER {
+        @Override
+        Number create(int key) {
+            return Integer.valueOf(key);
+        }
+    },
+    LONG {
+        @Override
+        Number create(int key) {
+            return Long.valueOf(key * 1000003L);
+        }
+    },
+    DOUBLE {
+        @Override
+        Number create(int key) {
+            return Double.valueOf(key / 7.0);
+        }
+    },
+    BIG_DECIMAL {
+        @Override
+        Number create(int key) {
+            return BigDecimal.valueOf(key, 2);
+        }
+    };
+
+    /**
+     * @param key The key to build the number from.
+     * @return A new number, which is also {@link Comparable} to the other numbers of its type.
+     */
+    abstract Number create(int key);
+}
@@ -0,0 +1,193 @@
+package org.chain;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link ChainListener} that adds up the calls, element counts, time and allocations of each operation,
+ * along with a latency histogram to read percentiles from.
+ * <br/>Recording never locks, so one instance can be shared by chains on any number of threads.
+ */
+public final class AggregatingChainListener implements ChainListener
+{
+    private final ConcurrentHashMap<String, OperationStatistics> statistics = new ConcurrentHashMap<String, OperationStatistics>();
+
+    @Override
+    public void operationCompleted(String operation, int inputSize, int outputSize, long elapsedNanos, long allocatedBytes) {
+        OperationStatistics operationStatistics = statistics.get(operation);
+        if (operationStatistics == null) {
+            final OperationStatistics created = new OperationStatistics(operation);
+            operationStatistics = statistics.putIfAbsent(operation, created);
+            if (operationStatistics == null) {
+                operationStatistics = created;
+            }
+        }
+        operationStatistics.record(inputSize, outputSize, elapsedNanos, allocatedBytes);
+    }
+
+    /**
+     * @param operation The name of the operation, such as where, sort or first.
+     * @return The statistics of the operation, or null if it has not been performed.
+     */
+    public OperationStatistics getStatistics(String operation) {
+        return statistics.get(operation);
+    }
+
+    /**
+     * @return The statistics of every operation performed so far, by operation name.
+     */
+    public Map<String, OperationStatistics> getStatistics() {
+        return Collections.unmodifiableMap(new TreeMap<String, OperationStatistics>(statistics));
+    }
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    public void reset() {
+        statistics.clear();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        for (OperationStatistics operationStatistics : getStatistics().values()) {
+            builder.append(operationStatistics).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The totals and latency histogram of one operation.
+     * <br/>Latencies are counted in power of two buckets, so percentiles are accurate to within a factor of two.
+     */
+    public static final class OperationStatistics
+    {
+        private static final int BUCKETS = 64;
+
+        private final String operation;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder inputElements = new LongAdder();
+        private final LongAdder outputElements = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        OperationStatistics(String operation) {
+            this.operation = operation;
+        }
+
+        void record(int inputSize, int outputSize, long elapsedNanos, long allocated) {
+            final long nanos = Math.max(0L, elapsedNanos);
+            count.increment();
+            totalNanos.add(nanos);
+            if (inputSize > 0) {
+                inputElements.add(inputSize);
+            }
+            if (outputSize > 0) {
+                outputElements.add(outputSize);
+            }
+            if (allocated > 0) {
+                allocatedBytes.add(allocated);
+            }
+            // Bucket b holds the latencies from 2^(b-1) up to 2^b - 1.
+            histogram.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(nanos));
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        /**
+         * @return The name of the operation.
+         */
+        public String getOperation() {
+            return operation;
+        }
+
+        /**
+         * @return How many times the operation was performed.
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @return The time spent in the operation, in nanoseconds.
+         */
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        /**
+         * @return The average time the operation took, in nanoseconds, or 0 if it was never performed.
+         */
+        public long getMeanNanos() {
+            final long count = getCount();
+            return count == 0 ? 0 : getTotalNanos() / count;
+        }
+
+        /**
+         * @return The longest time the operation took, in nanoseconds.
+         */
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * @param percentile The percentile to find, from 0 to 100.
+         * @return The time that the given percent of calls completed within, in nanoseconds, rounded up to a power of two.
+         */
+        public long getPercentileNanos(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("percentile = " + percentile);
+            }
+            final long count = getCount();
+            if (count == 0) {
+                return 0;
+            }
+            final long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += histogram.get(bucket);
+                if (seen >= rank) {
+                    return Math.min((1L << bucket) - 1, getMaxNanos());
+                }
+            }
+            return getMaxNanos();
+        }
+
+        /**
+         * @return How many elements the operation was given in total, leaving out lazy stages that were not counted.
+         */
+        public long getInputElements() {
+            return inputElements.sum();
+        }
+
+        /**
+         * @return How many elements the operation produced in total, leaving out lazy stages that were not counted.
+         */
+        public long getOutputElements() {
+            return outputElements.sum();
+        }
+
+        /**
+         * @return An estimate of the bytes allocated by the operation in total.
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes.sum();
+        }
+
+        @Override
+        public String toString() {
+            return operation + "{count=" + getCount() + ", meanNanos=" + getMeanNanos() + ", p50Nanos=" + getPercentileNanos(50)
+                    + ", p99Nanos=" + getPercentileNanos(99) + ", maxNanos=" + getMaxNanos() + ", inputElements=" + getInputElements()
+                    + ", outputElements=" + getOutputElements() + ", allocatedBytes=" + getAllocatedBytes() + "}";
+        }
+    }
+}
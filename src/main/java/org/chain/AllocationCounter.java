@@ -0,0 +1,37 @@
+package org.chain;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Reads how many bytes the current thread has allocated so far, on JVMs that keep count.
+ */
+final class AllocationCounter
+{
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private AllocationCounter(){}
+
+    /**
+     * @return The bytes allocated by the current thread since it started, or -1 if the JVM cannot tell.
+     */
+    static long allocatedBytes() {
+        return THREADS == null ? -1L : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        try {
+            final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+                ((com.sun.management.ThreadMXBean) threads).setThreadAllocatedMemoryEnabled(true);
+                return (com.sun.management.ThreadMXBean) threads;
+            }
+        } catch (LinkageError e) {
+            // Not a HotSpot based JVM.
+        } catch (UnsupportedOperationException e) {
+            // Allocation counting cannot be enabled.
+        }
+        return null;
+    }
+}
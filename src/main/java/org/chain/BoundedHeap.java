@@ -0,0 +1,141 @@
+package org.chain;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Keeps the lowest elements offered to it according to a {@link Comparator}, holding no more than a fixed number at once.
+ * <br/>The elements are kept in a binary max heap so that the highest element kept can be swapped out in logarithmic time.
+ * <br/>Equal elements keep the order they were offered in, so the result matches a stable sort followed by a take.
+ * @param <T> The type of the elements.
+ */
+final class BoundedHeap<T> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int limit;
+    private final Comparator<T> comparator;
+    private Object[] elements;
+    private long[] sequences;
+    private int size;
+    private long offered;
+
+    /**
+     * @param limit The most elements to keep.
+     * @param comparator Defines the order of the elements.
+     */
+    BoundedHeap(int limit, Comparator<T> comparator) {
+        if (limit < 0) {
+            throw new IndexOutOfBoundsException("numberToTake = " + limit);
+        }
+        this.limit = limit;
+        this.comparator = comparator;
+        final int capacity = Math.min(limit, INITIAL_CAPACITY);
+        this.elements = new Object[capacity];
+        this.sequences = new long[capacity];
+    }
+
+    /**
+     * Keeps the element if it is lower than the highest element kept, or if fewer than the limit are kept.
+     * @param t The element to offer.
+     */
+    void offer(T t) {
+        final long sequence = offered++;
+        if (size < limit) {
+            if (size == elements.length) {
+                grow();
+            }
+            elements[size] = t;
+            sequences[size] = sequence;
+            siftUp(size++);
+        } else if (limit > 0 && comparator.compare(t, elementAt(0)) < 0) {
+            elements[0] = t;
+            sequences[0] = sequence;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Empties the heap.
+     * @return The elements kept, from lowest to highest.
+     */
+    List<T> drainSorted() {
+        final Object[] sorted = new Object[size];
+        for (int i = size - 1; i >= 0; i--) {
+            sorted[i] = elements[0];
+            size--;
+            elements[0] = elements[size];
+            sequences[0] = sequences[size];
+            elements[size] = null;
+            siftDown(0);
+        }
+        final ArrayList<T> ts = new ArrayList<T>(sorted.length);
+        for (Object o : sorted) {
+            ts.add(cast(o));
+        }
+        return ts;
+    }
+
+    private void grow() {
+        final int capacity = (int) Math.min(limit, Math.max(INITIAL_CAPACITY, elements.length * 2L));
+        final Object[] grownElements = new Object[capacity];
+        final long[] grownSequences = new long[capacity];
+        System.arraycopy(elements, 0, grownElements, 0, size);
+        System.arraycopy(sequences, 0, grownSequences, 0, size);
+        elements = grownElements;
+        sequences = grownSequences;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (compare(i, parent) <= 0) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            final int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            final int right = left + 1;
+            final int highest = right < size && compare(right, left) > 0 ? right : left;
+            if (compare(highest, i) <= 0) {
+                return;
+            }
+            swap(i, highest);
+            i = highest;
+        }
+    }
+
+    private int compare(int i, int j) {
+        final int compared = comparator.compare(elementAt(i), elementAt(j));
+        if (compared != 0) {
+            return compared;
+        }
+        return sequences[i] < sequences[j] ? -1 : (sequences[i] == sequences[j] ? 0 : 1);
+    }
+
+    private void swap(int i, int j) {
+        final Object element = elements[i];
+        elements[i] = elements[j];
+        elements[j] = element;
+        final long sequence = sequences[i];
+        sequences[i] = sequences[j];
+        sequences[j] = sequence;
+    }
+
+    private T elementAt(int i) {
+        return cast(elements[i]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T cast(Object o) {
+        return (T) o;
+    }
+}
@@ -0,0 +1,247 @@
+package org.chain;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Loads an input into memory one hash partition at a time, so an operation that needs equal elements or keys together
+ * never holds more than a {@link SpillBudget} of them at once.
+ * <br/>The whole input is loaded first. If it goes over the budget, what was loaded and the rest of the input are written to
+ * {@link SpillBudget#FAN_OUT} files by hash, and each file is then loaded in turn the same way, with the hash mixed differently
+ * at each depth so a partition still over the budget splits further.
+ * <br/>A partition that cannot split is loaded in memory whatever its size: one whose elements all went to a single partition
+ * when it was spilled, or one the operation reports as unsplittable through {@link #canSplit()}, such as a group with a single key.
+ * <br/>The partition files are unlinked as soon as they are written, so an operation abandoned before loading every partition,
+ * such as a first or any that stops early, leaves no files behind; their space is given back once {@link #close()} runs
+ * or the abandoned channels are collected.
+ * <br/>Elements with equal hashes always land in the same partition, so an operation that finishes each partition on its own
+ * sees every element that is equal to, or has the same key as, any element of the partition.
+ * @param <T> The type of the elements.
+ */
+abstract class BudgetedPartitions<T> implements Closeable {
+    private final SpillBudget<T> budget;
+    private Iterator<T> source;
+    private final Deque<Pending<T>> pending = new ArrayDeque<Pending<T>>();
+
+    /**
+     * @param budget The most elements to hold in memory, and where to count what is spilled.
+     * @param source The input, read once.
+     */
+    BudgetedPartitions(SpillBudget<T> budget, Iterator<T> source) {
+        this.budget = budget;
+        this.source = source;
+    }
+
+    /**
+     * Drops what was loaded and starts an empty partition in memory.
+     */
+    protected abstract void reset();
+
+    /**
+     * @param t An element of the partition being loaded.
+     * @return False if the partition in memory is now over the budget.
+     */
+    protected abstract boolean add(T t);
+
+    /**
+     * @return The elements held in memory, to be written to disk when the partition turns out to be over the budget.
+     */
+    protected abstract Collection<T> loaded();
+
+    /**
+     * @param t An element.
+     * @return The hash that decides the partition of the element.
+     */
+    protected abstract int hash(T t);
+
+    /**
+     * @return False if partitioning the elements held in memory again would keep them all together,
+     * so they are loaded in memory whatever their size.
+     */
+    protected boolean canSplit() {
+        return true;
+    }
+
+    /**
+     * Loads the next partition into memory, for the operation to finish before asking for the next.
+     * @return False once every partition was loaded.
+     * @throws UncheckedIOException If a partition cannot be written or read.
+     */
+    final boolean loadNext() {
+        try {
+            while (true) {
+                if (source != null) {
+                    final Iterator<T> input = source;
+                    source = null;
+                    if (load(input, 0)) {
+                        return true;
+                    }
+                    continue;
+                }
+                final Pending<T> partition = pending.pollFirst();
+                if (partition == null) {
+                    return false;
+                }
+                try {
+                    if (load(partition.open(), partition.depth)) {
+                        return true;
+                    }
+                } finally {
+                    partition.delete();
+                }
+            }
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return True if the whole input fit in memory, false if it was partitioned to disk instead.
+     */
+    private boolean load(Iterator<T> input, int depth) throws IOException {
+        reset();
+        boolean fits = true;
+        while (input.hasNext()) {
+            if (!add(input.next()) && depth < SpillBudget.MAX_DEPTH && canSplit()) {
+                fits = false;
+                break;
+            }
+        }
+        if (fits) {
+            return true;
+        }
+
+        budget.recordSpill();
+        final List<SpillFile<T>> partitions = new ArrayList<SpillFile<T>>(SpillBudget.FAN_OUT);
+        boolean written = false;
+        try {
+            for (int i = 0; i < SpillBudget.FAN_OUT; i++) {
+                partitions.add(SpillFile.create(budget.getCodec()));
+            }
+            for (T t : loaded()) {
+                partitions.get(partitionOf(hash(t), depth)).write(t);
+            }
+            reset();
+            while (input.hasNext()) {
+                final T t = input.next();
+                partitions.get(partitionOf(hash(t), depth)).write(t);
+            }
+            for (SpillFile<T> partition : partitions) {
+                partition.finishUnlinked();
+            }
+            written = true;
+        } finally {
+            if (!written) {
+                for (SpillFile<T> partition : partitions) {
+                    partition.delete();
+                }
+            }
+        }
+        int filled = 0;
+        for (SpillFile<T> partition : partitions) {
+            if (partition.count() > 0) {
+                filled++;
+            }
+        }
+        // Every element went to the same partition, so no depth would split them.
+        final int next = filled == 1 ? SpillBudget.MAX_DEPTH : depth + 1;
+        for (int i = partitions.size() - 1; i >= 0; i--) {
+            final SpillFile<T> partition = partitions.get(i);
+            if (partition.count() == 0) {
+                partition.delete();
+            }
+            else {
+                budget.recordSpill(partition);
+                pending.addFirst(new Pending<T>(partition, next));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mixes the hash with the depth, so elements that shared a partition at one depth spread out at the next.
+     */
+    static int partitionOf(int hash, int depth) {
+        int h = hash + depth * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return (h & 0x7FFFFFFF) % SpillBudget.FAN_OUT;
+    }
+
+    /**
+     * Closes the input if it was not read yet, and deletes every partition not loaded yet.
+     */
+    @Override
+    public void close() {
+        LazyCollection.close(source);
+        source = null;
+        for (Pending<T> partition : pending) {
+            partition.delete();
+        }
+        pending.clear();
+    }
+
+    /**
+     * A partition on disk waiting to be loaded.
+     */
+    private static final class Pending<T> {
+        private final SpillFile<T> file;
+        private final int depth;
+        private SpillFile<T>.Reader reader;
+
+        Pending(SpillFile<T> file, int depth) {
+            this.file = file;
+            this.depth = depth;
+        }
+
+        Iterator<T> open() throws IOException {
+            reader = file.open();
+            return new Iterator<T>() {
+                @Override
+                public boolean hasNext() {
+                    return reader.hasNext();
+                }
+
+                @Override
+                public T next() {
+                    try {
+                        return reader.next();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        void delete() {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    // Deleting anyway.
+                }
+                reader = null;
+            }
+            file.delete();
+        }
+    }
+}
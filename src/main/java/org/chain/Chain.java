@@ -1,6 +1,9 @@
 package org.chain;
 
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Provides a fluent API to operate on a any kind of collection.
@@ -14,4 +17,98 @@ public final class Chain<T> extends ChainBuilderBase<T,ChainEngine<T>> {
     public Chain(Collection<T> collection){
         super(new ChainEngineImpl<T>(), collection);
     }
+
+    /**
+     * @param engine The {@link ChainEngine} that will be used to perform all actions or modifications
+     * @param collection The {@link Collection} that actions or modifications will be made on.
+     * @param copy False if the chain can take ownership of the {@link Collection} instead of copying it.
+     */
+    Chain(ChainEngine<T> engine, Collection<T> collection, boolean copy){
+        super(engine, collection, copy);
+    }
+
+    /**
+     * Builds a chain that reads the {@link Collection} directly instead of copying it first.
+     * <br/>Modifications never change the {@link Collection}, they build their own results as usual,
+     * but changes made to the {@link Collection} are seen by the chain until a modification gives the chain its own result.
+     * <br/>skip and take copy the part they keep, so the {@link Collection} can still be changed afterwards.
+     * @param collection The {@link Collection} that actions or modifications will be made on.
+     * @param <T> The type found in the {@link Collection} in the chain.
+     * @return A {@link Chain} over the {@link Collection} itself.
+     */
+    public static <T> Chain<T> wrap(Collection<T> collection){
+        final Chain<T> chain = new Chain<T>(new ChainEngineImpl<T>(), collection, false);
+        chain.borrowed = collection;
+        return chain;
+    }
+
+    /**
+     * Builds a chain that records its modifications instead of performing them right away.
+     * <br/>Nothing is evaluated until an action or query such as toList, first, count or any is called,
+     * at which point all recorded modifications run together in a single pass over the {@link Collection},
+     * stopping as soon as the answer is known.
+     * <br/>skip and take on a lazy chain never fail when the {@link Collection} is shorter than requested.
+     * @param collection The {@link Collection} that actions or modifications will be made on.
+     * @param <T> The type found in the {@link Collection} in the chain.
+     * @return A {@link Chain} that evaluates lazily.
+     */
+    public static <T> Chain<T> lazy(Collection<T> collection){
+        return new Chain<T>(new LazyChainEngineImpl<T>(), collection, true);
+    }
+
+    /**
+     * Builds a chain that reads its elements from the {@link Iterable} each time it is queried, instead of copying them first.
+     * <br/>Modifications are recorded and evaluated lazily, as with lazy.
+     * @param iterable The source of the elements.
+     * @param <T> The type found in the {@link Collection} in the chain.
+     * @return A {@link Chain} that evaluates lazily.
+     */
+    public static <T> Chain<T> from(Iterable<T> iterable){
+        return new Chain<T>(new LazyChainEngineImpl<T>(), LazyChainEngineImpl.source(iterable), false);
+    }
+
+    /**
+     * Builds a chain that reads its elements from the {@link Iterator} as it is queried, so it can only be queried once.
+     * <br/>where, select, skip, take, first and any need only as many elements as they produce, so they run in constant memory.
+     * @param iterator The source of the elements.
+     * @param <T> The type found in the {@link Collection} in the chain.
+     * @return A {@link Chain} that evaluates lazily.
+     */
+    public static <T> Chain<T> from(Iterator<T> iterator){
+        return new Chain<T>(new LazyChainEngineImpl<T>(), LazyChainEngineImpl.source(iterator), false);
+    }
+
+    /**
+     * Builds a chain that reads its elements from the {@link Spliterator} as it is queried, so it can only be queried once.
+     * <br/>A {@link Spliterator} that is not SIZED and estimates its size as Long.MAX_VALUE is treated as unbounded,
+     * so sort, reverse, last, count and toList fail fast with an {@link IllegalStateException} until a take bounds it.
+     * @param spliterator The source of the elements.
+     * @param <T> The type found in the {@link Collection} in the chain.
+     * @return A {@link Chain} that evaluates lazily.
+     */
+    public static <T> Chain<T> from(Spliterator<T> spliterator){
+        return new Chain<T>(new LazyChainEngineImpl<T>(), LazyChainEngineImpl.source(spliterator), false);
+    }
+
+    /**
+     * Builds a chain that runs where, select, selectMany, count, all, any, first and sort across the threads of the common {@link ForkJoinPool}.
+     * @param collection The {@link Collection} that actions or modifications will be made on.
+     * @param <T> The type found in the {@link Collection} in the chain.
+     * @return A {@link Chain} that evaluates in parallel.
+     */
+    public static <T> Chain<T> parallel(Collection<T> collection){
+        return parallel(collection, ForkJoinPool.commonPool(), ParallelChainEngineImpl.DEFAULT_SPLIT_THRESHOLD);
+    }
+
+    /**
+     * Builds a chain that runs where, select, selectMany, count, all, any, first and sort across the threads of the given {@link ForkJoinPool}.
+     * @param collection The {@link Collection} that actions or modifications will be made on.
+     * @param pool The {@link ForkJoinPool} to run on.
+     * @param splitThreshold The smallest number of elements worth handing to a separate thread.
+     * @param <T> The type found in the {@link Collection} in the chain.
+     * @return A {@link Chain} that evaluates in parallel.
+     */
+    public static <T> Chain<T> parallel(Collection<T> collection, ForkJoinPool pool, int splitThreshold){
+        return new Chain<T>(new ParallelChainEngineImpl<T>(pool, splitThreshold), collection, true);
+    }
 }
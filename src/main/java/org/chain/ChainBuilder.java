@@ -1,6 +1,10 @@
 package org.chain;
 
 import org.chain.filters.Action;
+import org.chain.filters.BatchAction;
+import org.chain.filters.BatchSelector;
+import org.chain.filters.ElementCodec;
+import org.chain.filters.HashStrategy;
 import org.chain.filters.ManySelector;
 import org.chain.filters.Selector;
 import org.chain.filters.WhereComparator;
@@ -9,12 +13,19 @@ import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
 
 public interface ChainBuilder<T> {
     /**
      * @return The result of the {@link Collection} chain as an {@link List}.
      */
     List<T> toList();
+    /**
+     * Hands over the list built by the chain instead of copying it, when the chain owns one.
+     * <br/>The chain lets go of its result, so it cannot be used again afterwards.
+     * @return The result of the {@link Collection} chain as an {@link List} that belongs to the caller.
+     */
+    List<T> releaseList();
 
     //mod
     /**
@@ -22,6 +33,24 @@ public interface ChainBuilder<T> {
      * @param action The action or modification to perform on each element.
      */
     void each(final Action<T> action);
+    /**
+     * Performs an action on the elements of the {@link Collection} a batch at a time,
+     * handing each batch over once it is full and the last one at the end of the input.
+     * <br/>{ [ 1, 2, 3 ] } eachBatch(2) => perform([ 1, 2 ]), perform([ 3 ])
+     * @param size The most elements in a batch.
+     * @param action The action to perform on each batch, which must not keep the list it is given.
+     */
+    void eachBatch(final int size, final BatchAction<T> action);
+    /**
+     * Performs an action on the elements of the {@link Collection} a batch at a time, handing each batch over once it is full
+     * or once the oldest element in it has waited the given delay, and the last one at the end of the input, for slow streaming sources.
+     * <br/>{ [ 1, 2, 3 ] } eachBatch(2, 1, SECONDS) => perform([ 1, 2 ]), perform([ 3 ])
+     * @param size The most elements in a batch.
+     * @param maxDelay The longest an element may wait for its batch to be handed over.
+     * @param unit The unit of the delay.
+     * @param action The action to perform on each batch, which must not keep the list it is given.
+     */
+    void eachBatch(final int size, final long maxDelay, final TimeUnit unit, final BatchAction<T> action);
     /**
      * Sorts the {@link Collection} based on the {@link Comparator} that is passed in.
      * <br/>{ [ 3, 1, 4, 2 ] } => { [ 1, 2, 3, 4 ] }
@@ -29,6 +58,20 @@ public interface ChainBuilder<T> {
      * @return A {@link ChainBuilder} that contains a new sorted version of the {@link Collection}.
      */
     ChainBuilder<T> sort(final Comparator<T> comparator);
+    /**
+     * Sorts the {@link Collection} based on the {@link Comparator} that is passed in, holding no more than the given number of elements in memory
+     * and spilling sorted runs to temporary files through the codec, for collections too large to sort on the heap.
+     * <br/>On a lazy chain the sorted elements stream into the rest of the chain as the runs are merged, and each pass over the chain sorts again;
+     * on any other chain the runs are merged once into the chain.
+     * <br/>Only chains built with lazy or from keep memory within the budget: any other chain already holds the whole {@link Collection}
+     * on the heap and builds the sorted result beside it, so sorting there only saves the sort itself.
+     * <br/>{ [ 3, 1, 4, 2 ] } sort(a, codec, 2) => { [ 1, 2, 3, 4 ] }
+     * @param comparator Defines the order to sort the list by.
+     * @param codec Writes elements to and reads them back from the temporary files.
+     * @param maxElementsInMemory The most elements to hold in memory while sorting.
+     * @return A {@link ChainBuilder} that contains a sorted version of the {@link Collection}.
+     */
+    ChainBuilder<T> sort(final Comparator<T> comparator, final ElementCodec<T> codec, final int maxElementsInMemory);
     /**
      * Reverses the order of the {@link Collection}.
      * <br/>{ [ 1, 2, 3, 4 ] } => { [ 4, 3, 2, 1 ] }
@@ -50,6 +93,33 @@ public interface ChainBuilder<T> {
      * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all distinct elements from both {@link Collection}s.
      */
     ChainBuilder<T> union(Collection<T> collection2, final Comparator<T> comparator);
+    /**
+     * Builds a new {@link Collection} that contains all distinct elements from both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } union { [ 2, 3, 4 ] } => { [ 1, 2, 3, 4 ] }
+     * @param collection2 The {@link Collection} to union with the contained {@link Collection}.
+     * @param selector Defines the key to compare elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all distinct elements from both {@link Collection}s.
+     */
+    <K> ChainBuilder<T> union(Collection<T> collection2, final Selector<T, K> selector);
+    /**
+     * Builds a new {@link Collection} that contains all distinct elements from both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } union { [ 2, 3, 4 ] } => { [ 1, 2, 3, 4 ] }
+     * @param collection2 The {@link Collection} to union with the contained {@link Collection}.
+     * @param strategy Defines how to hash elements and check if they are equal.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all distinct elements from both {@link Collection}s.
+     */
+    ChainBuilder<T> union(Collection<T> collection2, final HashStrategy<T> strategy);
+    /**
+     * Builds a {@link Collection} that contains all distinct elements from both {@link Collection}s,
+     * holding no more than the budget of distinct elements in memory and hash partitioning the rest to disk.
+     * <br/>Once the budget is reached, the elements come out in the order first seen within each partition rather than overall.
+     * <br/>{ [ 1, 2, 3 ] } union { [ 2, 3, 4 ] } => { [ 1, 2, 3, 4 ] }
+     * @param collection2 The {@link Collection} to union with the contained {@link Collection}.
+     * @param budget Defines how many elements to hold in memory and how to spill the rest, and counts what is spilled.
+     * @return A {@link ChainBuilder} that contains all distinct elements from both {@link Collection}s.
+     */
+    ChainBuilder<T> union(Collection<T> collection2, final SpillBudget<T> budget);
     /**
      * Builds a new {@link Collection} that contains all elements found in both {@link Collection}s.
      * <br/>{ [ 1, 2, 3 ] } intersect { [ 2, 3, 4 ] } => { [ 2, 3 ] }
@@ -58,6 +128,23 @@ public interface ChainBuilder<T> {
      * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all elements found in both {@link Collection}s.
      */
     ChainBuilder<T> intersect(Collection<T> collection2, final Comparator<T> comparator);
+    /**
+     * Builds a new {@link Collection} that contains all elements found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } intersect { [ 2, 3, 4 ] } => { [ 2, 3 ] }
+     * @param collection2 The {@link Collection} to intersect with the contained {@link Collection}.
+     * @param selector Defines the key to compare elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all elements found in both {@link Collection}s.
+     */
+    <K> ChainBuilder<T> intersect(Collection<T> collection2, final Selector<T, K> selector);
+    /**
+     * Builds a new {@link Collection} that contains all elements found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } intersect { [ 2, 3, 4 ] } => { [ 2, 3 ] }
+     * @param collection2 The {@link Collection} to intersect with the contained {@link Collection}.
+     * @param strategy Defines how to hash elements and check if they are equal.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all elements found in both {@link Collection}s.
+     */
+    ChainBuilder<T> intersect(Collection<T> collection2, final HashStrategy<T> strategy);
     /**
      * Builds a new {@link Collection} that contains all elements not found in both {@link Collection}s.
      * <br/>{ [ 1, 2, 3 ] } diverge { [ 2, 3, 4 ] } => { [ 1, 4 ] }
@@ -66,6 +153,23 @@ public interface ChainBuilder<T> {
      * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all elements not found in both {@link Collection}s.
      */
     ChainBuilder<T> diverge(Collection<T> collection2, Comparator<T> comparator);
+    /**
+     * Builds a new {@link Collection} that contains all elements not found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } diverge { [ 2, 3, 4 ] } => { [ 1, 4 ] }
+     * @param collection2 The {@link Collection} to diverge with the contained {@link Collection}.
+     * @param selector Defines the key to compare elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all elements not found in both {@link Collection}s.
+     */
+    <K> ChainBuilder<T> diverge(Collection<T> collection2, final Selector<T, K> selector);
+    /**
+     * Builds a new {@link Collection} that contains all elements not found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } diverge { [ 2, 3, 4 ] } => { [ 1, 4 ] }
+     * @param collection2 The {@link Collection} to diverge with the contained {@link Collection}.
+     * @param strategy Defines how to hash elements and check if they are equal.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all elements not found in both {@link Collection}s.
+     */
+    ChainBuilder<T> diverge(Collection<T> collection2, final HashStrategy<T> strategy);
     /**
      * Removes all elements found in the {@link Collection} already.
      * <br/>{ [ 1, 1, 2, 2, 3 ] } => { [ 1, 2, 3 ] }
@@ -73,6 +177,78 @@ public interface ChainBuilder<T> {
      * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all elements not found in the {@link Collection} already.
      */
     ChainBuilder<T> distinct(final Comparator<T> comparator);
+    /**
+     * Sets how union, intersect, diverge and distinct use a {@link Comparator} to find equal elements in this chain.
+     * <br/>Defaults to {@link SetOperationStrategy#NESTED_LOOP}.
+     * @param strategy Defines how the {@link Comparator} is used to find equal elements.
+     * @return This {@link ChainBuilder}, using the given strategy.
+     */
+    ChainBuilder<T> withSetOperationStrategy(final SetOperationStrategy strategy);
+    /**
+     * Reports every operation this chain performs from now on to the listener, including operations on chains made by select.
+     * @param listener Told about every operation, or null to stop measuring.
+     * @return This {@link ChainBuilder}, reporting to the given listener.
+     */
+    ChainBuilder<T> withListener(final ChainListener listener);
+    /**
+     * Builds a new {@link Collection} that contains all distinct elements from both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } union { [ 2, 3, 4 ] } => { [ 1, 2, 3, 4 ] }
+     * @param collection2 The {@link Collection} to union with the contained {@link Collection}.
+     * @param comparator Defines how to check if an element is distinct.
+     * @param strategy Defines how the {@link Comparator} is used to find equal elements.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all distinct elements from both {@link Collection}s.
+     */
+    ChainBuilder<T> union(Collection<T> collection2, final Comparator<T> comparator, final SetOperationStrategy strategy);
+    /**
+     * Builds a new {@link Collection} that contains all elements found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } intersect { [ 2, 3, 4 ] } => { [ 2, 3 ] }
+     * @param collection2 The {@link Collection} to intersect with the contained {@link Collection}.
+     * @param comparator Defines how to check if an element is found in both {@link Collection}s.
+     * @param strategy Defines how the {@link Comparator} is used to find equal elements.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all elements found in both {@link Collection}s.
+     */
+    ChainBuilder<T> intersect(Collection<T> collection2, final Comparator<T> comparator, final SetOperationStrategy strategy);
+    /**
+     * Builds a new {@link Collection} that contains all elements not found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } diverge { [ 2, 3, 4 ] } => { [ 1, 4 ] }
+     * @param collection2 The {@link Collection} to diverge with the contained {@link Collection}.
+     * @param comparator Defines how to check if an element is found in both {@link Collection}s.
+     * @param strategy Defines how the {@link Comparator} is used to find equal elements.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all elements not found in both {@link Collection}s.
+     */
+    ChainBuilder<T> diverge(Collection<T> collection2, final Comparator<T> comparator, final SetOperationStrategy strategy);
+    /**
+     * Removes all elements found in the {@link Collection} already.
+     * <br/>{ [ 1, 1, 2, 2, 3 ] } => { [ 1, 2, 3 ] }
+     * @param comparator Defines how to check if an element is found in the {@link Collection} already.
+     * @param strategy Defines how the {@link Comparator} is used to find equal elements.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all elements not found in the {@link Collection} already.
+     */
+    ChainBuilder<T> distinct(final Comparator<T> comparator, final SetOperationStrategy strategy);
+    /**
+     * Removes all elements whose key is found in the {@link Collection} already, keeping the first occurrence.
+     * <br/>{ [ {a:1}, {a:1}, {a:2} ] } distinct(a) => { [ {a:1}, {a:2} ] }
+     * @param selector Defines the key to compare elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all elements whose key is not found in the {@link Collection} already.
+     */
+    <K> ChainBuilder<T> distinct(final Selector<T, K> selector);
+    /**
+     * Removes all elements found in the {@link Collection} already, keeping the first occurrence.
+     * <br/>{ [ 1, 1, 2, 2, 3 ] } => { [ 1, 2, 3 ] }
+     * @param strategy Defines how to hash elements and check if they are equal.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all elements not found in the {@link Collection} already.
+     */
+    ChainBuilder<T> distinct(final HashStrategy<T> strategy);
+    /**
+     * Removes all elements found in the {@link Collection} already,
+     * holding no more than the budget of distinct elements in memory and hash partitioning the rest to disk.
+     * <br/>Once the budget is reached, the elements come out in the order first seen within each partition rather than overall.
+     * <br/>{ [ 1, 1, 2, 2, 3 ] } => { [ 1, 2, 3 ] }
+     * @param budget Defines how many elements to hold in memory and how to spill the rest, and counts what is spilled.
+     * @return A {@link ChainBuilder} that contains all elements not found in the {@link Collection} already.
+     */
+    ChainBuilder<T> distinct(final SpillBudget<T> budget);
 
     //query
     /**
@@ -83,6 +259,37 @@ public interface ChainBuilder<T> {
      * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all of the fields that were selected from each element.
      */
     <TD> ChainBuilder<TD> select(final Selector<T, TD> selector);
+    /**
+     * Selects a field from each element, running up to the given number of selector calls at once on virtual threads,
+     * for selectors that block on a cache, disk or network lookup.
+     * <br/>The fields keep the order of the elements. The first selector to fail interrupts the rest and its exception is thrown.
+     * <br/>{ [ {a:1}, {a:2}, {a:3}, {a:4} ]  } selectAsync(a, 2) => { [ 1, 2, 3, 4 ] }
+     * @param selector Defines which field to select from each element.
+     * @param maxConcurrency The most selector calls to run at once.
+     * @param <TD> The type of the field to be selected from each element.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all of the fields that were selected from each element.
+     */
+    <TD> ChainBuilder<TD> selectAsync(final Selector<T, TD> selector, final int maxConcurrency);
+    /**
+     * Selects a field from each element, handing the selector the elements a batch at a time so it can fetch the fields in bulk.
+     * <br/>{ [ {a:1}, {a:2}, {a:3} ]  } selectBatched(a, 2) => { [ 1, 2, 3 ] }
+     * @param selector Selects one field for each element of a batch, in the order of the batch.
+     * @param batchSize The most elements to hand the selector at once.
+     * @param <TD> The type of the field to be selected from each element.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all of the fields that were selected from each element.
+     */
+    <TD> ChainBuilder<TD> selectBatched(final BatchSelector<T, TD> selector, final int batchSize);
+    /**
+     * Selects a field from each element, handing the selector the elements a batch at a time so it can fetch the fields in bulk,
+     * and optionally each distinct element of a batch only once.
+     * <br/>{ [ {a:1}, {a:1}, {a:2} ]  } selectBatched(a, 3, true) => { [ 1, 1, 2 ] }, with the selector given [ {a:1}, {a:2} ]
+     * @param selector Selects one field for each element of a batch, in the order of the batch.
+     * @param batchSize The most elements to hand the selector at once.
+     * @param collapseDuplicates True to hand the selector each distinct element of a batch once, and share its field with the equal elements.
+     * @param <TD> The type of the field to be selected from each element.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all of the fields that were selected from each element.
+     */
+    <TD> ChainBuilder<TD> selectBatched(final BatchSelector<T, TD> selector, final int batchSize, final boolean collapseDuplicates);
     /**
      * Selects a field containing a {@link Collection} from each element and concatenates all subelements into a new {@link Collection}.
      * <br/>{ [ {a:[1,  2]}, {a:[3, 4]} ] } select(a) => { [ 1, 2, 3, 4 ] }
@@ -248,4 +455,81 @@ public interface ChainBuilder<T> {
      * @return A {@link ChainBuilder} that contains a new {@link Collection} containing the given number of elements from the front of the {@link Collection}.
      */
     ChainBuilder<T> take(final int numberToTake);
+    /**
+     * Takes the given number of lowest elements according to the {@link Comparator}, in sorted order.
+     * <br/>Gives the same result as sort followed by take without sorting the whole {@link Collection}.
+     * <br/>{ [ 3, 1, 4, 2 ] } top(2) => { [ 1, 2 ] }
+     * @param numberToTake The most elements to take.
+     * @param comparator Defines the order to sort the list by.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing the lowest elements in sorted order.
+     */
+    ChainBuilder<T> top(final int numberToTake, final Comparator<T> comparator);
+    /**
+     * Groups the elements by a key, to build a chain per key or to aggregate per key in a single hash pass.
+     * <br/>Aggregations such as count and sum keep only a running value per key, without building the groups.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2}, {a:1, b:3} ] } groupBy(a) count => { 1: 2, 2: 1 }
+     * @param keySelector Defines the key to group elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A {@link GroupedChain} over the elements of this chain.
+     */
+    <K> GroupedChain<K, T> groupBy(final Selector<T, K> keySelector);
+    /**
+     * Groups the elements by a key, holding no more than the budget of elements in memory,
+     * and hands the groups to the action a hash partition of keys at a time.
+     * <br/>Each {@link GroupedChain} holds every element of the keys in its partition, and no key is in two partitions,
+     * so aggregating each one and writing out the results aggregates the whole chain.
+     * If every element fits in the budget, the action is performed once with all of them.
+     * <br/>A single key with more elements than the budget is still grouped in memory.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2}, {a:1, b:3} ] } groupBy(a, budget) => perform(groupBy(a) over [ {a:1, b:1}, {a:1, b:3} ]), perform(groupBy(a) over [ {a:2, b:2} ])
+     * @param keySelector Defines the key to group elements by, using its hashCode and equals.
+     * @param budget Defines how many elements to hold in memory and how to spill the rest, and counts what is spilled.
+     * @param action The action to perform on the {@link GroupedChain} of each partition.
+     * @param <K> The type of the key selected from each element.
+     */
+    <K> void groupBy(final Selector<T, K> keySelector, final SpillBudget<T> budget, final Action<GroupedChain<K, T>> action);
+    /**
+     * Indexes the elements by a key once, so that looking up elements by an equal key takes constant time.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2}, {a:1, b:3} ] } index(a) where(1) => { [ {a:1, b:1}, {a:1, b:3} ] }
+     * @param keySelector Defines the key to index elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A {@link ChainIndex} over a snapshot of the elements of this chain.
+     */
+    <K> ChainIndex<K, T> index(final Selector<T, K> keySelector);
+    /**
+     * Indexes the elements by a key once, so that looking up elements by an equal key takes constant time
+     * and looking up elements by a range of keys takes logarithmic time.
+     * <br/>{ [ {a:3, b:1}, {a:1, b:2}, {a:2, b:3} ] } index(a) where(1, 3) => { [ {a:1, b:2}, {a:2, b:3} ] }
+     * @param keySelector Defines the key to index elements by, using its hashCode and equals.
+     * @param comparator Defines the order of the keys, consistent with their equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A {@link ChainIndex} over a snapshot of the elements of this chain.
+     */
+    <K> ChainIndex<K, T> index(final Selector<T, K> keySelector, final Comparator<K> comparator);
+    /**
+     * Indexes the elements by a key that belongs to a single element, so that looking up an element by its key takes constant time.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2} ] } uniqueIndex(a) first(2) => { {a:2, b:2} }
+     * <br/>{ [ {a:1, b:1}, {a:1, b:2} ] } uniqueIndex(a) => IllegalArgumentException
+     * @param keySelector Defines the key to index elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A {@link ChainIndex} over a snapshot of the elements of this chain.
+     * @throws IllegalArgumentException If two elements have equal keys.
+     */
+    <K> ChainIndex<K, T> uniqueIndex(final Selector<T, K> keySelector);
+    /**
+     * Indexes the elements by a key that belongs to a single element, so that looking up an element by its key takes constant time
+     * and looking up elements by a range of keys takes logarithmic time.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2} ] } uniqueIndex(a) first(2) => { {a:2, b:2} }
+     * @param keySelector Defines the key to index elements by, using its hashCode and equals.
+     * @param comparator Defines the order of the keys, consistent with their equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A {@link ChainIndex} over a snapshot of the elements of this chain.
+     * @throws IllegalArgumentException If two elements have equal keys.
+     */
+    <K> ChainIndex<K, T> uniqueIndex(final Selector<T, K> keySelector, final Comparator<K> comparator);
+    /**
+     * Describes the recorded plan and the plan after it was optimized, with estimated costs, to find out why a chain is slow.
+     * <br/>Only lazy chains record a plan, other chains have already run every operation.
+     * @return A readable description of the original and the optimized plan.
+     */
+    String explain();
 }
@@ -2,11 +2,16 @@ package org.chain;
 
 
 import org.chain.filters.Action;
+import org.chain.filters.BatchAction;
+import org.chain.filters.BatchSelector;
+import org.chain.filters.ElementCodec;
+import org.chain.filters.HashStrategy;
 import org.chain.filters.ManySelector;
 import org.chain.filters.Selector;
 import org.chain.filters.WhereComparator;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Provides a fluent API to operate on any kind of collection.
@@ -16,15 +21,35 @@ import java.util.*;
 public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements ChainBuilder<T> {
     protected final E engine;
     protected Collection<T> collection;
+    protected SetOperationStrategy setOperationStrategy = SetOperationStrategy.NESTED_LOOP;
+    /**
+     * A {@link Collection} the chain reads but does not own, such as a wrapped source.
+     */
+    protected Collection<T> borrowed;
+    /**
+     * Told about every operation, or null so that nothing is measured.
+     */
+    protected ChainListener listener;
+    private long allocatedAtStart;
 
     /**
      * @param engine The {@link ChainEngine} that will be used to perform all actions or modifications
      * @param collection The {@link Collection} that actions or modifications will be made on.
      */
     protected ChainBuilderBase(E engine, Collection<T> collection)
+    {
+        this(engine, collection, true);
+    }
+
+    /**
+     * @param engine The {@link ChainEngine} that will be used to perform all actions or modifications
+     * @param collection The {@link Collection} that actions or modifications will be made on.
+     * @param copy False if the chain can take ownership of the {@link Collection} instead of copying it.
+     */
+    protected ChainBuilderBase(E engine, Collection<T> collection, boolean copy)
     {
         this.engine = engine;
-        this.collection = collection == null ? null : new ArrayList<T>(collection);
+        this.collection = collection == null || !copy ? collection : new ArrayList<T>(collection);
     }
 
     /**
@@ -32,7 +57,29 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public List<T> toList() {
-        return new ArrayList<T>(collection);
+        final long started = started();
+        final List<T> list = new ArrayList<T>(collection);
+        finished("toList", collection, list, started);
+        return list;
+    }
+
+    /**
+     * Hands over the list built by the chain when the chain owns it, and copies the result otherwise.
+     * <br/>The chain lets go of its result, so it cannot be used again afterwards.
+     * @return The result of the {@link Collection} chain as an {@link List} that belongs to the caller.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<T> releaseList() {
+        final long started = started();
+        final Collection<T> input = collection;
+        final List<T> list = input != null && input != borrowed && input.getClass() == ArrayList.class
+                ? (List<T>) input
+                : new ArrayList<T>(input);
+        collection = null;
+        borrowed = null;
+        finished("releaseList", input, list, started);
+        return list;
     }
 
     /**
@@ -41,7 +88,94 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public void each(Action<T> action) {
+        final long started = started();
         engine.each(collection,action);
+        finished("each", collection, null, started);
+    }
+
+    /**
+     * Sets how union, intersect, diverge and distinct use a {@link Comparator} to find equal elements in this chain.
+     * <br/>Defaults to {@link SetOperationStrategy#NESTED_LOOP}.
+     * @param strategy Defines how the {@link Comparator} is used to find equal elements.
+     * @return This {@link ChainBuilder}, using the given strategy.
+     */
+    @Override
+    public ChainBuilder<T> withSetOperationStrategy(SetOperationStrategy strategy) {
+        setOperationStrategy = strategy;
+        return this;
+    }
+
+    /**
+     * Reports every operation this chain performs from now on to the listener, including operations on chains made by select.
+     * @param listener Told about every operation, or null to stop measuring.
+     * @return This {@link ChainBuilder}, reporting to the given listener.
+     */
+    @Override
+    public ChainBuilder<T> withListener(ChainListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Starts measuring an operation, if a listener is registered.
+     * @return The time the operation started, to pass to {@link #finished(String, Collection, Collection, long)}.
+     */
+    protected final long started() {
+        if (listener == null) {
+            return 0L;
+        }
+        allocatedAtStart = AllocationCounter.allocatedBytes();
+        return System.nanoTime();
+    }
+
+    /**
+     * Reports an operation to the listener, if one is registered.
+     * @param operation The name of the operation.
+     * @param input The {@link Collection} the operation was given.
+     * @param output The {@link Collection} the operation produced, or null if it produced a single value.
+     * @param started The time returned by {@link #started()}.
+     */
+    protected final void finished(String operation, Collection<?> input, Collection<?> output, long started) {
+        if (listener == null) {
+            return;
+        }
+        final long elapsedNanos = System.nanoTime() - started;
+        final long allocatedBytes = allocatedAtStart < 0 ? -1L : AllocationCounter.allocatedBytes() - allocatedAtStart;
+        listener.operationCompleted(operation, sizeOf(input), sizeOf(output), elapsedNanos, allocatedBytes);
+    }
+
+    private static int sizeOf(Collection<?> collection) {
+        return collection == null || collection instanceof LazyCollection ? -1 : collection.size();
+    }
+
+    /**
+     * Performs an action on the elements of the {@link Collection} a batch at a time,
+     * handing each batch over once it is full and the last one at the end of the input.
+     * <br/>{ [ 1, 2, 3 ] } eachBatch(2) => perform([ 1, 2 ]), perform([ 3 ])
+     * @param size The most elements in a batch.
+     * @param action The action to perform on each batch, which must not keep the list it is given.
+     */
+    @Override
+    public void eachBatch(int size, BatchAction<T> action) {
+        final long started = started();
+        engine.eachBatch(collection, size, Long.MAX_VALUE, action);
+        finished("eachBatch", collection, null, started);
+    }
+
+    /**
+     * Performs an action on the elements of the {@link Collection} a batch at a time, handing each batch over once it is full
+     * or once the oldest element in it has waited the given delay, and the last one at the end of the input, for slow streaming sources.
+     * <br/>{ [ 1, 2, 3 ] } eachBatch(2, 1, SECONDS) => perform([ 1, 2 ]), perform([ 3 ])
+     * @param size The most elements in a batch.
+     * @param maxDelay The longest an element may wait for its batch to be handed over.
+     * @param unit The unit of the delay.
+     * @param action The action to perform on each batch, which must not keep the list it is given.
+     */
+    @Override
+    public void eachBatch(int size, long maxDelay, TimeUnit unit, BatchAction<T> action) {
+        final long started = started();
+        engine.eachBatch(collection, size, unit.toNanos(maxDelay), action);
+        finished("eachBatch", collection, null, started);
     }
 
     /**
@@ -52,7 +186,32 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public ChainBuilder<T> sort(Comparator<T> comparator) {
-        collection = engine.sort(collection, comparator);
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.sort(input, comparator);
+        finished("sort", input, collection, started);
+        return this;
+    }
+
+    /**
+     * Sorts the {@link Collection} based on the {@link Comparator} that is passed in, holding no more than the given number of elements in memory
+     * and spilling sorted runs to temporary files through the codec, for collections too large to sort on the heap.
+     * <br/>On a lazy chain the sorted elements stream into the rest of the chain as the runs are merged, and each pass over the chain sorts again;
+     * on any other chain the runs are merged once into the chain.
+     * <br/>Only chains built with lazy or from keep memory within the budget: any other chain already holds the whole {@link Collection}
+     * on the heap and builds the sorted result beside it, so sorting there only saves the sort itself.
+     * <br/>{ [ 3, 1, 4, 2 ] } sort(a, codec, 2) => { [ 1, 2, 3, 4 ] }
+     * @param comparator Defines the order to sort the list by.
+     * @param codec Writes elements to and reads them back from the temporary files.
+     * @param maxElementsInMemory The most elements to hold in memory while sorting.
+     * @return A {@link ChainBuilder} that contains a sorted version of the {@link Collection}.
+     */
+    @Override
+    public ChainBuilder<T> sort(Comparator<T> comparator, ElementCodec<T> codec, int maxElementsInMemory) {
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.sort(input, comparator, codec, maxElementsInMemory);
+        finished("sort", input, collection, started);
         return this;
     }
 
@@ -63,7 +222,10 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public ChainBuilder<T> reverse() {
-        collection = engine.reverse(collection);
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.reverse(input);
+        finished("reverse", input, collection, started);
         return this;
     }
 
@@ -75,7 +237,10 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public ChainBuilder<T> concatenate(Collection<T> collection2) {
-        collection = engine.concatenate(collection, collection2);
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.concatenate(input, collection2);
+        finished("concatenate", input, collection, started);
         return this;
     }
 
@@ -88,7 +253,78 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public ChainBuilder<T> union(Collection<T> collection2,Comparator<T> comparator) {
-        collection = engine.union(collection, collection2, comparator);
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.union(input, collection2, comparator, setOperationStrategy);
+        finished("union", input, collection, started);
+        return this;
+    }
+
+    /**
+     * Builds a new {@link Collection} that contains all distinct elements from both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } union { [ 2, 3, 4 ] } => { [ 1, 2, 3, 4 ] }
+     * @param collection2 The {@link Collection} to union with the contained {@link Collection}.
+     * @param comparator Defines how to check if an element is distinct.
+     * @param strategy Defines how the {@link Comparator} is used to find equal elements.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all distinct elements from both {@link Collection}s.
+     */
+    @Override
+    public ChainBuilder<T> union(Collection<T> collection2, Comparator<T> comparator, SetOperationStrategy strategy) {
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.union(input, collection2, comparator, strategy);
+        finished("union", input, collection, started);
+        return this;
+    }
+
+    /**
+     * Builds a new {@link Collection} that contains all distinct elements from both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } union { [ 2, 3, 4 ] } => { [ 1, 2, 3, 4 ] }
+     * @param collection2 The {@link Collection} to union with the contained {@link Collection}.
+     * @param selector Defines the key to compare elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all distinct elements from both {@link Collection}s.
+     */
+    @Override
+    public <K> ChainBuilder<T> union(Collection<T> collection2, Selector<T, K> selector) {
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.union(input, collection2, selector);
+        finished("union", input, collection, started);
+        return this;
+    }
+
+    /**
+     * Builds a new {@link Collection} that contains all distinct elements from both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } union { [ 2, 3, 4 ] } => { [ 1, 2, 3, 4 ] }
+     * @param collection2 The {@link Collection} to union with the contained {@link Collection}.
+     * @param strategy Defines how to hash elements and check if they are equal.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all distinct elements from both {@link Collection}s.
+     */
+    @Override
+    public ChainBuilder<T> union(Collection<T> collection2, HashStrategy<T> strategy) {
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.union(input, collection2, strategy);
+        finished("union", input, collection, started);
+        return this;
+    }
+
+    /**
+     * Builds a {@link Collection} that contains all distinct elements from both {@link Collection}s,
+     * holding no more than the budget of distinct elements in memory and hash partitioning the rest to disk.
+     * <br/>Once the budget is reached, the elements come out in the order first seen within each partition rather than overall.
+     * <br/>{ [ 1, 2, 3 ] } union { [ 2, 3, 4 ] } => { [ 1, 2, 3, 4 ] }
+     * @param collection2 The {@link Collection} to union with the contained {@link Collection}.
+     * @param budget Defines how many elements to hold in memory and how to spill the rest, and counts what is spilled.
+     * @return A {@link ChainBuilder} that contains all distinct elements from both {@link Collection}s.
+     */
+    @Override
+    public ChainBuilder<T> union(Collection<T> collection2, SpillBudget<T> budget) {
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.union(input, collection2, budget);
+        finished("union", input, collection, started);
         return this;
     }
 
@@ -101,7 +337,60 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public ChainBuilder<T> intersect(Collection<T> collection2,Comparator<T> comparator) {
-        collection = engine.intersect(collection, collection2, comparator);
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.intersect(input, collection2, comparator, setOperationStrategy);
+        finished("intersect", input, collection, started);
+        return this;
+    }
+
+    /**
+     * Builds a new {@link Collection} that contains all elements found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } intersect { [ 2, 3, 4 ] } => { [ 2, 3 ] }
+     * @param collection2 The {@link Collection} to intersect with the contained {@link Collection}.
+     * @param comparator Defines how to check if an element is found in both {@link Collection}s.
+     * @param strategy Defines how the {@link Comparator} is used to find equal elements.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all elements found in both {@link Collection}s.
+     */
+    @Override
+    public ChainBuilder<T> intersect(Collection<T> collection2, Comparator<T> comparator, SetOperationStrategy strategy) {
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.intersect(input, collection2, comparator, strategy);
+        finished("intersect", input, collection, started);
+        return this;
+    }
+
+    /**
+     * Builds a new {@link Collection} that contains all elements found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } intersect { [ 2, 3, 4 ] } => { [ 2, 3 ] }
+     * @param collection2 The {@link Collection} to intersect with the contained {@link Collection}.
+     * @param selector Defines the key to compare elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all elements found in both {@link Collection}s.
+     */
+    @Override
+    public <K> ChainBuilder<T> intersect(Collection<T> collection2, Selector<T, K> selector) {
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.intersect(input, collection2, selector);
+        finished("intersect", input, collection, started);
+        return this;
+    }
+
+    /**
+     * Builds a new {@link Collection} that contains all elements found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } intersect { [ 2, 3, 4 ] } => { [ 2, 3 ] }
+     * @param collection2 The {@link Collection} to intersect with the contained {@link Collection}.
+     * @param strategy Defines how to hash elements and check if they are equal.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all elements found in both {@link Collection}s.
+     */
+    @Override
+    public ChainBuilder<T> intersect(Collection<T> collection2, HashStrategy<T> strategy) {
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.intersect(input, collection2, strategy);
+        finished("intersect", input, collection, started);
         return this;
     }
 
@@ -114,7 +403,60 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public ChainBuilder<T> diverge(Collection<T> collection2, Comparator<T> comparator) {
-        collection = engine.diverge(collection, collection2, comparator);
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.diverge(input, collection2, comparator, setOperationStrategy);
+        finished("diverge", input, collection, started);
+        return this;
+    }
+
+    /**
+     * Builds a new {@link Collection} that contains all elements not found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } diverge { [ 2, 3, 4 ] } => { [ 1, 4 ] }
+     * @param collection2 The {@link Collection} to diverge with the contained {@link Collection}.
+     * @param comparator Defines how to check if an element is found in both {@link Collection}s.
+     * @param strategy Defines how the {@link Comparator} is used to find equal elements.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all elements not found in both {@link Collection}s.
+     */
+    @Override
+    public ChainBuilder<T> diverge(Collection<T> collection2, Comparator<T> comparator, SetOperationStrategy strategy) {
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.diverge(input, collection2, comparator, strategy);
+        finished("diverge", input, collection, started);
+        return this;
+    }
+
+    /**
+     * Builds a new {@link Collection} that contains all elements not found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } diverge { [ 2, 3, 4 ] } => { [ 1, 4 ] }
+     * @param collection2 The {@link Collection} to diverge with the contained {@link Collection}.
+     * @param selector Defines the key to compare elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all elements not found in both {@link Collection}s.
+     */
+    @Override
+    public <K> ChainBuilder<T> diverge(Collection<T> collection2, Selector<T, K> selector) {
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.diverge(input, collection2, selector);
+        finished("diverge", input, collection, started);
+        return this;
+    }
+
+    /**
+     * Builds a new {@link Collection} that contains all elements not found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } diverge { [ 2, 3, 4 ] } => { [ 1, 4 ] }
+     * @param collection2 The {@link Collection} to diverge with the contained {@link Collection}.
+     * @param strategy Defines how to hash elements and check if they are equal.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all elements not found in both {@link Collection}s.
+     */
+    @Override
+    public ChainBuilder<T> diverge(Collection<T> collection2, HashStrategy<T> strategy) {
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.diverge(input, collection2, strategy);
+        finished("diverge", input, collection, started);
         return this;
     }
 
@@ -126,7 +468,74 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public ChainBuilder<T> distinct(Comparator<T> comparator) {
-        collection = engine.distinct(collection, comparator);
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.distinct(input, comparator, setOperationStrategy);
+        finished("distinct", input, collection, started);
+        return this;
+    }
+
+    /**
+     * Removes all elements found in the {@link Collection} already.
+     * <br/>{ [ 1, 1, 2, 2, 3 ] } => { [ 1, 2, 3 ] }
+     * @param comparator Defines how to check if an element is found in the {@link Collection} already.
+     * @param strategy Defines how the {@link Comparator} is used to find equal elements.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all elements not found in the {@link Collection} already.
+     */
+    @Override
+    public ChainBuilder<T> distinct(Comparator<T> comparator, SetOperationStrategy strategy) {
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.distinct(input, comparator, strategy);
+        finished("distinct", input, collection, started);
+        return this;
+    }
+
+    /**
+     * Removes all elements whose key is found in the {@link Collection} already, keeping the first occurrence.
+     * <br/>{ [ {a:1}, {a:1}, {a:2} ] } distinct(a) => { [ {a:1}, {a:2} ] }
+     * @param selector Defines the key to compare elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all elements whose key is not found in the {@link Collection} already.
+     */
+    @Override
+    public <K> ChainBuilder<T> distinct(Selector<T, K> selector) {
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.distinct(input, selector);
+        finished("distinct", input, collection, started);
+        return this;
+    }
+
+    /**
+     * Removes all elements found in the {@link Collection} already, keeping the first occurrence.
+     * <br/>{ [ 1, 1, 2, 2, 3 ] } => { [ 1, 2, 3 ] }
+     * @param strategy Defines how to hash elements and check if they are equal.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all elements not found in the {@link Collection} already.
+     */
+    @Override
+    public ChainBuilder<T> distinct(HashStrategy<T> strategy) {
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.distinct(input, strategy);
+        finished("distinct", input, collection, started);
+        return this;
+    }
+
+    /**
+     * Removes all elements found in the {@link Collection} already,
+     * holding no more than the budget of distinct elements in memory and hash partitioning the rest to disk.
+     * <br/>Once the budget is reached, the elements come out in the order first seen within each partition rather than overall.
+     * <br/>{ [ 1, 1, 2, 2, 3 ] } => { [ 1, 2, 3 ] }
+     * @param budget Defines how many elements to hold in memory and how to spill the rest, and counts what is spilled.
+     * @return A {@link ChainBuilder} that contains all elements not found in the {@link Collection} already.
+     */
+    @Override
+    public ChainBuilder<T> distinct(SpillBudget<T> budget) {
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.distinct(input, budget);
+        finished("distinct", input, collection, started);
         return this;
     }
 
@@ -139,7 +548,65 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public <TD> ChainBuilder<TD> select(Selector<T, TD> selector) {
-        return new Chain<TD>(engine.select(collection, selector));
+        final long started = started();
+        final Collection<TD> selected = engine.select(collection, selector);
+        finished("select", collection, selected, started);
+        return new Chain<TD>(engine.<TD>derive(), selected, false)
+                .withSetOperationStrategy(setOperationStrategy)
+                .withListener(listener);
+    }
+
+    /**
+     * Selects a field from each element, running up to the given number of selector calls at once on virtual threads,
+     * for selectors that block on a cache, disk or network lookup.
+     * <br/>The fields keep the order of the elements. The first selector to fail interrupts the rest and its exception is thrown.
+     * <br/>{ [ {a:1}, {a:2}, {a:3}, {a:4} ]  } selectAsync(a, 2) => { [ 1, 2, 3, 4 ] }
+     * @param selector Defines which field to select from each element.
+     * @param maxConcurrency The most selector calls to run at once.
+     * @param <TD> The type of the field to be selected from each element.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all of the fields that were selected from each element.
+     */
+    @Override
+    public <TD> ChainBuilder<TD> selectAsync(Selector<T, TD> selector, int maxConcurrency) {
+        final long started = started();
+        final Collection<TD> selected = engine.selectAsync(collection, selector, maxConcurrency);
+        finished("selectAsync", collection, selected, started);
+        return new Chain<TD>(engine.<TD>derive(), selected, false)
+                .withSetOperationStrategy(setOperationStrategy)
+                .withListener(listener);
+    }
+
+    /**
+     * Selects a field from each element, handing the selector the elements a batch at a time so it can fetch the fields in bulk.
+     * <br/>{ [ {a:1}, {a:2}, {a:3} ]  } selectBatched(a, 2) => { [ 1, 2, 3 ] }
+     * @param selector Selects one field for each element of a batch, in the order of the batch.
+     * @param batchSize The most elements to hand the selector at once.
+     * @param <TD> The type of the field to be selected from each element.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all of the fields that were selected from each element.
+     */
+    @Override
+    public <TD> ChainBuilder<TD> selectBatched(BatchSelector<T, TD> selector, int batchSize) {
+        return selectBatched(selector, batchSize, false);
+    }
+
+    /**
+     * Selects a field from each element, handing the selector the elements a batch at a time so it can fetch the fields in bulk,
+     * and optionally each distinct element of a batch only once.
+     * <br/>{ [ {a:1}, {a:1}, {a:2} ]  } selectBatched(a, 3, true) => { [ 1, 1, 2 ] }, with the selector given [ {a:1}, {a:2} ]
+     * @param selector Selects one field for each element of a batch, in the order of the batch.
+     * @param batchSize The most elements to hand the selector at once.
+     * @param collapseDuplicates True to hand the selector each distinct element of a batch once, and share its field with the equal elements.
+     * @param <TD> The type of the field to be selected from each element.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing all of the fields that were selected from each element.
+     */
+    @Override
+    public <TD> ChainBuilder<TD> selectBatched(BatchSelector<T, TD> selector, int batchSize, boolean collapseDuplicates) {
+        final long started = started();
+        final Collection<TD> selected = engine.selectBatched(collection, selector, batchSize, collapseDuplicates);
+        finished("selectBatched", collection, selected, started);
+        return new Chain<TD>(engine.<TD>derive(), selected, false)
+                .withSetOperationStrategy(setOperationStrategy)
+                .withListener(listener);
     }
 
     /**
@@ -151,7 +618,12 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public <TD> ChainBuilder<TD> selectMany(ManySelector<T, TD> selector) {
-        return new Chain<TD>(engine.selectMany(collection, selector));
+        final long started = started();
+        final Collection<TD> selected = engine.selectMany(collection, selector);
+        finished("selectMany", collection, selected, started);
+        return new Chain<TD>(engine.<TD>derive(), selected, false)
+                .withSetOperationStrategy(setOperationStrategy)
+                .withListener(listener);
     }
 
     /**
@@ -162,7 +634,10 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public ChainBuilder<T> where(WhereComparator<T> comparator) {
-        collection = engine.where(collection, comparator);
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.where(input, comparator);
+        finished("where", input, collection, started);
         return this;
     }
 
@@ -175,7 +650,10 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public Boolean isNullOrEmpty() {
-        return engine.isNullOrEmpty(collection);
+        final long started = started();
+        final Boolean result = engine.isNullOrEmpty(collection);
+        finished("isNullOrEmpty", collection, null, started);
+        return result;
     }
 
     /**
@@ -187,7 +665,10 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public Boolean all(WhereComparator<T> comparator) {
-        return engine.all(collection, comparator);
+        final long started = started();
+        final Boolean result = engine.all(collection, comparator);
+        finished("all", collection, null, started);
+        return result;
     }
 
     /**
@@ -199,7 +680,10 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public Boolean any(WhereComparator<T> comparator) {
-        return engine.any(collection, comparator);
+        final long started = started();
+        final Boolean result = engine.any(collection, comparator);
+        finished("any", collection, null, started);
+        return result;
     }
 
     /**
@@ -210,7 +694,10 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public Boolean any() {
-        return engine.any(collection);
+        final long started = started();
+        final Boolean result = engine.any(collection);
+        finished("any", collection, null, started);
+        return result;
     }
 
     /**
@@ -222,7 +709,10 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public Boolean none(WhereComparator<T> comparator) {
-        return engine.none(collection, comparator);
+        final long started = started();
+        final Boolean result = engine.none(collection, comparator);
+        finished("none", collection, null, started);
+        return result;
     }
 
     /**
@@ -233,7 +723,10 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public Boolean none() {
-        return engine.none(collection);
+        final long started = started();
+        final Boolean result = engine.none(collection);
+        finished("none", collection, null, started);
+        return result;
     }
 
     /**
@@ -245,7 +738,10 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public Integer count(WhereComparator<T> comparator) {
-        return engine.count(collection, comparator);
+        final long started = started();
+        final Integer result = engine.count(collection, comparator);
+        finished("count", collection, null, started);
+        return result;
     }
 
     /**
@@ -255,7 +751,10 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public Integer count() {
-        return engine.count(collection);
+        final long started = started();
+        final Integer result = engine.count(collection);
+        finished("count", collection, null, started);
+        return result;
     }
 
     /**
@@ -267,7 +766,10 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public T first(){
-        return engine.first(collection);
+        final long started = started();
+        final T result = engine.first(collection);
+        finished("first", collection, null, started);
+        return result;
     }
 
     /**
@@ -278,7 +780,10 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
     @Override
     public T firstOrNull()
     {
-        return engine.firstOrNull(collection);
+        final long started = started();
+        final T result = engine.firstOrNull(collection);
+        finished("firstOrNull", collection, null, started);
+        return result;
     }
 
     /**
@@ -294,7 +799,10 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
     @Override
     public T first(WhereComparator<T> comparator)
     {
-        return engine.first(collection, comparator);
+        final long started = started();
+        final T result = engine.first(collection, comparator);
+        finished("first", collection, null, started);
+        return result;
     }
 
     /**
@@ -308,7 +816,10 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
     @Override
     public T firstOrNull(WhereComparator<T> comparator)
     {
-        return engine.firstOrNull(collection,comparator);
+        final long started = started();
+        final T result = engine.firstOrNull(collection,comparator);
+        finished("firstOrNull", collection, null, started);
+        return result;
     }
 
     /**
@@ -320,7 +831,10 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public T last() {
-        return engine.last(collection);
+        final long started = started();
+        final T result = engine.last(collection);
+        finished("last", collection, null, started);
+        return result;
     }
 
     /**
@@ -331,7 +845,10 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
     @Override
     public T lastOrNull()
     {
-        return engine.lastOrNull(collection);
+        final long started = started();
+        final T result = engine.lastOrNull(collection);
+        finished("lastOrNull", collection, null, started);
+        return result;
     }
 
     /**
@@ -347,7 +864,10 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
     @Override
     public T last(WhereComparator<T> comparator)
     {
-        return engine.last(collection,comparator);
+        final long started = started();
+        final T result = engine.last(collection,comparator);
+        finished("last", collection, null, started);
+        return result;
     }
 
     /**
@@ -361,7 +881,10 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
     @Override
     public T lastOrNull(WhereComparator<T> comparator)
     {
-        return engine.lastOrNull(collection,comparator);
+        final long started = started();
+        final T result = engine.lastOrNull(collection,comparator);
+        finished("lastOrNull", collection, null, started);
+        return result;
     }
 
     /**
@@ -371,7 +894,10 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public T at(int index) {
-        return engine.at(collection, index);
+        final long started = started();
+        final T result = engine.at(collection, index);
+        finished("at", collection, null, started);
+        return result;
     }
 
     /**
@@ -381,7 +907,13 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public ChainBuilder<T> skip(int numberToSkip) {
-        collection = engine.skip(collection, numberToSkip);
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.skip(input, numberToSkip);
+        if (input == borrowed) {
+            collection = new ArrayList<T>(collection);
+        }
+        finished("skip", input, collection, started);
         return this;
     }
 
@@ -392,7 +924,191 @@ public abstract class ChainBuilderBase<T,E extends ChainEngine<T>> implements Ch
      */
     @Override
     public ChainBuilder<T> take(int numberToTake) {
-        collection = engine.take(collection, numberToTake);
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.take(input, numberToTake);
+        if (input == borrowed) {
+            collection = new ArrayList<T>(collection);
+        }
+        finished("take", input, collection, started);
+        return this;
+    }
+
+    /**
+     * Takes the given number of lowest elements according to the {@link Comparator}, in sorted order.
+     * <br/>Gives the same result as sort followed by take without sorting the whole {@link Collection}.
+     * <br/>{ [ 3, 1, 4, 2 ] } top(2) => { [ 1, 2 ] }
+     * @param numberToTake The most elements to take.
+     * @param comparator Defines the order to sort the list by.
+     * @return A {@link ChainBuilder} that contains a new {@link Collection} containing the lowest elements in sorted order.
+     */
+    @Override
+    public ChainBuilder<T> top(int numberToTake, Comparator<T> comparator) {
+        final long started = started();
+        final Collection<T> input = collection;
+        collection = engine.top(input, numberToTake, comparator);
+        finished("top", input, collection, started);
         return this;
     }
+
+    /**
+     * Groups the elements by a key, to build a chain per key or to aggregate per key in a single hash pass.
+     * <br/>Aggregations such as count and sum keep only a running value per key, without building the groups.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2}, {a:1, b:3} ] } groupBy(a) count => { 1: 2, 2: 1 }
+     * @param keySelector Defines the key to group elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A {@link GroupedChain} over the elements of this chain.
+     */
+    @Override
+    public <K> GroupedChain<K, T> groupBy(Selector<T, K> keySelector) {
+        return new GroupedChain<K, T>(engine, collection, keySelector, setOperationStrategy, listener);
+    }
+
+    /**
+     * Groups the elements by a key, holding no more than the budget of elements in memory,
+     * and hands the groups to the action a hash partition of keys at a time.
+     * <br/>Each {@link GroupedChain} holds every element of the keys in its partition, and no key is in two partitions,
+     * so aggregating each one and writing out the results aggregates the whole chain.
+     * If every element fits in the budget, the action is performed once with all of them.
+     * <br/>A single key with more elements than the budget is still grouped in memory.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2}, {a:1, b:3} ] } groupBy(a, budget) => perform(groupBy(a) over [ {a:1, b:1}, {a:1, b:3} ]), perform(groupBy(a) over [ {a:2, b:2} ])
+     * @param keySelector Defines the key to group elements by, using its hashCode and equals.
+     * @param budget Defines how many elements to hold in memory and how to spill the rest, and counts what is spilled.
+     * @param action The action to perform on the {@link GroupedChain} of each partition.
+     * @param <K> The type of the key selected from each element.
+     */
+    @Override
+    public <K> void groupBy(final Selector<T, K> keySelector, final SpillBudget<T> budget, final Action<GroupedChain<K, T>> action) {
+        LazyCollection.throwIfUnbounded(collection, "groupBy");
+        final long started = started();
+        final BudgetedPartitions<T> partitions = new BudgetedPartitions<T>(budget,
+                collection == null ? Collections.<T>emptyList().iterator() : collection.iterator()) {
+            private ArrayList<T> elements;
+            private K firstKey;
+            private boolean oneKey;
+
+            @Override
+            protected void reset() {
+                elements = new ArrayList<T>();
+                oneKey = true;
+            }
+
+            @Override
+            protected boolean add(T t) {
+                if (oneKey) {
+                    final K key = keySelector.select(t);
+                    if (elements.isEmpty()) {
+                        firstKey = key;
+                    }
+                    else if (firstKey == null ? key != null : !firstKey.equals(key)) {
+                        oneKey = false;
+                        firstKey = null;
+                    }
+                }
+                elements.add(t);
+                return elements.size() <= budget.getMaxElementsInMemory();
+            }
+
+            @Override
+            protected boolean canSplit() {
+                return !oneKey;
+            }
+
+            @Override
+            protected Collection<T> loaded() {
+                return elements;
+            }
+
+            @Override
+            protected int hash(T t) {
+                final K key = keySelector.select(t);
+                return key == null ? 0 : key.hashCode();
+            }
+        };
+        try {
+            while (partitions.loadNext()) {
+                action.perform(new GroupedChain<K, T>(engine, partitions.loaded(), keySelector, setOperationStrategy, listener));
+            }
+        } finally {
+            partitions.close();
+        }
+        finished("groupBy", collection, null, started);
+    }
+
+    /**
+     * Indexes the elements by a key once, so that looking up elements by an equal key takes constant time.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2}, {a:1, b:3} ] } index(a) where(1) => { [ {a:1, b:1}, {a:1, b:3} ] }
+     * @param keySelector Defines the key to index elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A {@link ChainIndex} over a snapshot of the elements of this chain.
+     */
+    @Override
+    public <K> ChainIndex<K, T> index(Selector<T, K> keySelector) {
+        final long started = started();
+        final ChainIndex<K, T> index = new ChainIndex<K, T>(engine, collection, keySelector, null, false, setOperationStrategy, listener);
+        finished("index", collection, null, started);
+        return index;
+    }
+
+    /**
+     * Indexes the elements by a key once, so that looking up elements by an equal key takes constant time
+     * and looking up elements by a range of keys takes logarithmic time.
+     * <br/>{ [ {a:3, b:1}, {a:1, b:2}, {a:2, b:3} ] } index(a) where(1, 3) => { [ {a:1, b:2}, {a:2, b:3} ] }
+     * @param keySelector Defines the key to index elements by, using its hashCode and equals.
+     * @param comparator Defines the order of the keys, consistent with their equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A {@link ChainIndex} over a snapshot of the elements of this chain.
+     */
+    @Override
+    public <K> ChainIndex<K, T> index(Selector<T, K> keySelector, Comparator<K> comparator) {
+        final long started = started();
+        final ChainIndex<K, T> index = new ChainIndex<K, T>(engine, collection, keySelector, comparator, false, setOperationStrategy, listener);
+        finished("index", collection, null, started);
+        return index;
+    }
+
+    /**
+     * Indexes the elements by a key that belongs to a single element, so that looking up an element by its key takes constant time.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2} ] } uniqueIndex(a) first(2) => { {a:2, b:2} }
+     * <br/>{ [ {a:1, b:1}, {a:1, b:2} ] } uniqueIndex(a) => IllegalArgumentException
+     * @param keySelector Defines the key to index elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A {@link ChainIndex} over a snapshot of the elements of this chain.
+     * @throws IllegalArgumentException If two elements have equal keys.
+     */
+    @Override
+    public <K> ChainIndex<K, T> uniqueIndex(Selector<T, K> keySelector) {
+        final long started = started();
+        final ChainIndex<K, T> index = new ChainIndex<K, T>(engine, collection, keySelector, null, true, setOperationStrategy, listener);
+        finished("uniqueIndex", collection, null, started);
+        return index;
+    }
+
+    /**
+     * Indexes the elements by a key that belongs to a single element, so that looking up an element by its key takes constant time
+     * and looking up elements by a range of keys takes logarithmic time.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2} ] } uniqueIndex(a) first(2) => { {a:2, b:2} }
+     * @param keySelector Defines the key to index elements by, using its hashCode and equals.
+     * @param comparator Defines the order of the keys, consistent with their equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A {@link ChainIndex} over a snapshot of the elements of this chain.
+     * @throws IllegalArgumentException If two elements have equal keys.
+     */
+    @Override
+    public <K> ChainIndex<K, T> uniqueIndex(Selector<T, K> keySelector, Comparator<K> comparator) {
+        final long started = started();
+        final ChainIndex<K, T> index = new ChainIndex<K, T>(engine, collection, keySelector, comparator, true, setOperationStrategy, listener);
+        finished("uniqueIndex", collection, null, started);
+        return index;
+    }
+
+    /**
+     * Describes the recorded plan and the plan after it was optimized, with estimated costs, to find out why a chain is slow.
+     * <br/>Only lazy chains record a plan, other chains have already run every operation.
+     * @return A readable description of the original and the optimized plan.
+     */
+    @Override
+    public String explain() {
+        return engine.explain(collection);
+    }
 }
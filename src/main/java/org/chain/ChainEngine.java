@@ -1,6 +1,10 @@
 package org.chain;
 
 import org.chain.filters.Action;
+import org.chain.filters.BatchAction;
+import org.chain.filters.BatchSelector;
+import org.chain.filters.ElementCodec;
+import org.chain.filters.HashStrategy;
 import org.chain.filters.ManySelector;
 import org.chain.filters.Selector;
 import org.chain.filters.WhereComparator;
@@ -11,6 +15,13 @@ import java.util.NoSuchElementException;
 
 interface ChainEngine<T>
 {
+    /**
+     * Creates an engine of the same kind to operate on the elements produced by a select.
+     * @param <TD> The type of the elements the new engine will operate on.
+     * @return A new {@link ChainEngine} that behaves the same way as this one.
+     */
+    <TD> ChainEngine<TD> derive();
+
     //mod
     /**
      * Performs an action using each element in the {@link Collection}.
@@ -18,6 +29,16 @@ interface ChainEngine<T>
      * @param action The action or modification to perform on each element.
      */
     void each(final Collection<T> collection, final Action<T> action);
+    /**
+     * Performs an action on the elements of the {@link Collection} a batch at a time.
+     * <br/>A batch is handed over once it is full, once the oldest element in it has waited the given delay, and at the end of the input.
+     * <br/>{ [ 1, 2, 3 ] } eachBatch(2) => perform([ 1, 2 ]), perform([ 3 ])
+     * @param collection The collection to operate on.
+     * @param size The most elements in a batch.
+     * @param maxDelayNanos The longest an element may wait for its batch to be handed over, or {@link Long#MAX_VALUE} to wait until the batch is full.
+     * @param action The action to perform on each batch, which must not keep the list it is given.
+     */
+    void eachBatch(final Collection<T> collection, final int size, final long maxDelayNanos, final BatchAction<T> action);
     /**
      * Sorts the {@link Collection} based on the {@link Comparator} that is passed in.
      * <br/>{ [ 3, 1, 4, 2 ] } => { [ 1, 2, 3, 4 ] }
@@ -26,6 +47,17 @@ interface ChainEngine<T>
      * @return A new sorted version of the {@link Collection}.
      */
     Collection<T> sort(final Collection<T> collection, final Comparator<T> comparator);
+    /**
+     * Sorts the {@link Collection} based on the {@link Comparator} that is passed in, holding no more than the given number of elements in memory
+     * and spilling sorted runs to temporary files through the codec, for collections too large to sort on the heap.
+     * <br/>{ [ 3, 1, 4, 2 ] } sort(a, codec, 2) => { [ 1, 2, 3, 4 ] }
+     * @param collection The collection to operate on.
+     * @param comparator Defines the order to sort the list by.
+     * @param codec Writes elements to and reads them back from the temporary files.
+     * @param maxElementsInMemory The most elements to hold in memory while sorting.
+     * @return A sorted version of the {@link Collection}, or for a lazy engine a {@link Collection} that streams the merged runs when it is iterated.
+     */
+    Collection<T> sort(final Collection<T> collection, final Comparator<T> comparator, final ElementCodec<T> codec, final int maxElementsInMemory);
     /**
      * Reverses the order of the {@link Collection}.
      * <br/>{ [ 1, 2, 3, 4 ] } => { [ 4, 3, 2, 1 ] }
@@ -50,6 +82,35 @@ interface ChainEngine<T>
      * @return A new {@link Collection} containing all distinct elements from both {@link Collection}s.
      */
     Collection<T> union(final Collection<T> collection1, final Collection<T> collection2, final Comparator<T> comparator);
+    /**
+     * Builds a new {@link Collection} that contains all distinct elements from both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } union { [ 2, 3, 4 ] } => { [ 1, 2, 3, 4 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to union with the contained {@link Collection}.
+     * @param selector Defines the key to compare elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A new {@link Collection} containing all distinct elements from both {@link Collection}s.
+     */
+    <K> Collection<T> union(final Collection<T> collection1, final Collection<T> collection2, final Selector<T, K> selector);
+    /**
+     * Builds a new {@link Collection} that contains all distinct elements from both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } union { [ 2, 3, 4 ] } => { [ 1, 2, 3, 4 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to union with the contained {@link Collection}.
+     * @param strategy Defines how to hash elements and check if they are equal.
+     * @return A new {@link Collection} containing all distinct elements from both {@link Collection}s.
+     */
+    Collection<T> union(final Collection<T> collection1, final Collection<T> collection2, final HashStrategy<T> strategy);
+    /**
+     * Builds a {@link Collection} that contains all distinct elements from both {@link Collection}s,
+     * holding no more than the budget of distinct elements in memory and hash partitioning the rest to disk.
+     * <br/>{ [ 1, 2, 3 ] } union { [ 2, 3, 4 ] } => { [ 1, 2, 3, 4 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to union with the contained {@link Collection}.
+     * @param budget Defines how many elements to hold in memory and how to spill the rest, and counts what is spilled.
+     * @return A {@link Collection} containing all distinct elements from both {@link Collection}s.
+     */
+    Collection<T> union(final Collection<T> collection1, final Collection<T> collection2, final SpillBudget<T> budget);
     /**
      * Builds a new {@link Collection} that contains all elements found in both {@link Collection}s.
      * <br/>{ [ 1, 2, 3 ] } intersect { [ 2, 3, 4 ] } => { [ 2, 3 ] }
@@ -59,6 +120,25 @@ interface ChainEngine<T>
      * @return A new {@link Collection} containing all elements found in both {@link Collection}s.
      */
     Collection<T> intersect(final Collection<T> collection1, final Collection<T> collection2, final Comparator<T> comparator);
+    /**
+     * Builds a new {@link Collection} that contains all elements found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } intersect { [ 2, 3, 4 ] } => { [ 2, 3 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to intersect with the contained {@link Collection}.
+     * @param selector Defines the key to compare elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A new {@link Collection} containing all elements found in both {@link Collection}s.
+     */
+    <K> Collection<T> intersect(final Collection<T> collection1, final Collection<T> collection2, final Selector<T, K> selector);
+    /**
+     * Builds a new {@link Collection} that contains all elements found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } intersect { [ 2, 3, 4 ] } => { [ 2, 3 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to intersect with the contained {@link Collection}.
+     * @param strategy Defines how to hash elements and check if they are equal.
+     * @return A new {@link Collection} containing all elements found in both {@link Collection}s.
+     */
+    Collection<T> intersect(final Collection<T> collection1, final Collection<T> collection2, final HashStrategy<T> strategy);
     /**
      * Builds a new {@link Collection} that contains all elements not found in both {@link Collection}s.
      * <br/>{ [ 1, 2, 3 ] } diverge { [ 2, 3, 4 ] } => { [ 1, 4 ] }
@@ -68,6 +148,25 @@ interface ChainEngine<T>
      * @return A new {@link Collection} containing all elements not found in both {@link Collection}s.
      */
     Collection<T> diverge(Collection<T> collection1, Collection<T> collection2, Comparator<T> comparator);
+    /**
+     * Builds a new {@link Collection} that contains all elements not found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } diverge { [ 2, 3, 4 ] } => { [ 1, 4 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to diverge with the contained {@link Collection}.
+     * @param selector Defines the key to compare elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A new {@link Collection} containing all elements not found in both {@link Collection}s.
+     */
+    <K> Collection<T> diverge(final Collection<T> collection1, final Collection<T> collection2, final Selector<T, K> selector);
+    /**
+     * Builds a new {@link Collection} that contains all elements not found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } diverge { [ 2, 3, 4 ] } => { [ 1, 4 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to diverge with the contained {@link Collection}.
+     * @param strategy Defines how to hash elements and check if they are equal.
+     * @return A new {@link Collection} containing all elements not found in both {@link Collection}s.
+     */
+    Collection<T> diverge(final Collection<T> collection1, final Collection<T> collection2, final HashStrategy<T> strategy);
     /**
      * Removes all elements found in the {@link Collection} already.
      * <br/>{ [ 1, 1, 2, 2, 3 ] } => { [ 1, 2, 3 ] }
@@ -76,6 +175,71 @@ interface ChainEngine<T>
      * @return A new {@link Collection} containing all elements not found in the {@link Collection} already.
      */
     Collection<T> distinct(final Collection<T> collection, final Comparator<T> comparator);
+    /**
+     * Builds a new {@link Collection} that contains all distinct elements from both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } union { [ 2, 3, 4 ] } => { [ 1, 2, 3, 4 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to union with the contained {@link Collection}.
+     * @param comparator Defines how to check if an element is distinct.
+     * @param strategy Defines how the {@link Comparator} is used to find equal elements.
+     * @return A new {@link Collection} containing all distinct elements from both {@link Collection}s.
+     */
+    Collection<T> union(final Collection<T> collection1, final Collection<T> collection2, final Comparator<T> comparator, final SetOperationStrategy strategy);
+    /**
+     * Builds a new {@link Collection} that contains all elements found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } intersect { [ 2, 3, 4 ] } => { [ 2, 3 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to intersect with the contained {@link Collection}.
+     * @param comparator Defines how to check if an element is found in both {@link Collection}s.
+     * @param strategy Defines how the {@link Comparator} is used to find equal elements.
+     * @return A new {@link Collection} containing all elements found in both {@link Collection}s.
+     */
+    Collection<T> intersect(final Collection<T> collection1, final Collection<T> collection2, final Comparator<T> comparator, final SetOperationStrategy strategy);
+    /**
+     * Builds a new {@link Collection} that contains all elements not found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } diverge { [ 2, 3, 4 ] } => { [ 1, 4 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to diverge with the contained {@link Collection}.
+     * @param comparator Defines how to check if an element is found in both {@link Collection}s.
+     * @param strategy Defines how the {@link Comparator} is used to find equal elements.
+     * @return A new {@link Collection} containing all elements not found in both {@link Collection}s.
+     */
+    Collection<T> diverge(final Collection<T> collection1, final Collection<T> collection2, final Comparator<T> comparator, final SetOperationStrategy strategy);
+    /**
+     * Removes all elements found in the {@link Collection} already.
+     * <br/>{ [ 1, 1, 2, 2, 3 ] } => { [ 1, 2, 3 ] }
+     * @param collection The collection to operate on.
+     * @param comparator Defines how to check if an element is found in the {@link Collection} already.
+     * @param strategy Defines how the {@link Comparator} is used to find equal elements.
+     * @return A new {@link Collection} containing all elements not found in the {@link Collection} already.
+     */
+    Collection<T> distinct(final Collection<T> collection, final Comparator<T> comparator, final SetOperationStrategy strategy);
+    /**
+     * Removes all elements whose key is found in the {@link Collection} already, keeping the first occurrence.
+     * <br/>{ [ {a:1}, {a:1}, {a:2} ] } distinct(a) => { [ {a:1}, {a:2} ] }
+     * @param collection The collection to operate on.
+     * @param selector Defines the key to compare elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A new {@link Collection} containing all elements whose key is not found in the {@link Collection} already.
+     */
+    <K> Collection<T> distinct(final Collection<T> collection, final Selector<T, K> selector);
+    /**
+     * Removes all elements found in the {@link Collection} already, keeping the first occurrence.
+     * <br/>{ [ 1, 1, 2, 2, 3 ] } => { [ 1, 2, 3 ] }
+     * @param collection The collection to operate on.
+     * @param strategy Defines how to hash elements and check if they are equal.
+     * @return A new {@link Collection} containing all elements not found in the {@link Collection} already.
+     */
+    Collection<T> distinct(final Collection<T> collection, final HashStrategy<T> strategy);
+    /**
+     * Removes all elements found in the {@link Collection} already,
+     * holding no more than the budget of distinct elements in memory and hash partitioning the rest to disk.
+     * <br/>{ [ 1, 1, 2, 2, 3 ] } => { [ 1, 2, 3 ] }
+     * @param collection The collection to operate on.
+     * @param budget Defines how many elements to hold in memory and how to spill the rest, and counts what is spilled.
+     * @return A {@link Collection} containing all elements not found in the {@link Collection} already.
+     */
+    Collection<T> distinct(final Collection<T> collection, final SpillBudget<T> budget);
 
     //query
     /**
@@ -87,6 +251,27 @@ interface ChainEngine<T>
      * @return A new {@link Collection} containing all of the fields that were selected from each element.
      */
     <TD> Collection<TD> select(final Collection<T> collection, final Selector<T, TD> selector);
+    /**
+     * Selects a field from each element, running up to the given number of selector calls at once, each on its own thread.
+     * <br/>{ [ {a:1}, {a:2}, {a:3}, {a:4} ]  } selectAsync(a, 2) => { [ 1, 2, 3, 4 ] }
+     * @param collection The collection to operate on.
+     * @param selector Defines which field to select from each element.
+     * @param maxConcurrency The most selector calls to run at once.
+     * @param <TD> The type of the field to be selected from each element.
+     * @return A new {@link Collection} containing all of the fields that were selected from each element, in the order of the elements.
+     */
+    <TD> Collection<TD> selectAsync(final Collection<T> collection, final Selector<T, TD> selector, final int maxConcurrency);
+    /**
+     * Selects a field from each element, handing the selector the elements a batch at a time so it can fetch the fields in bulk.
+     * <br/>{ [ {a:1}, {a:2}, {a:3} ]  } selectBatched(a, 2) => { [ 1, 2, 3 ] }
+     * @param collection The collection to operate on.
+     * @param selector Selects one field for each element of a batch, in the order of the batch.
+     * @param batchSize The most elements to hand the selector at once.
+     * @param collapseDuplicates True to hand the selector each distinct element of a batch once, and share its field with the equal elements.
+     * @param <TD> The type of the field to be selected from each element.
+     * @return A new {@link Collection} containing all of the fields that were selected from each element, in the order of the elements.
+     */
+    <TD> Collection<TD> selectBatched(final Collection<T> collection, final BatchSelector<T, TD> selector, final int batchSize, final boolean collapseDuplicates);
     /**
      * Selects a field containing a {@link Collection} from each element and concatenates all subelements into a new {@link Collection}.
      * <br/>{ [ {a:[1,  2]}, {a:[3, 4]} ] } select(a) => { [ 1, 2, 3, 4 ] }
@@ -272,4 +457,20 @@ interface ChainEngine<T>
      * @return A new {@link Collection} containing the given number of elements from the front of the {@link Collection}.
      */
     Collection<T> take(final Collection<T> collection, final int numberToTake);
+    /**
+     * Takes the given number of lowest elements according to the {@link Comparator}, in sorted order.
+     * <br/>Gives the same result as a sort followed by a take without sorting the whole {@link Collection}.
+     * <br/>{ [ 3, 1, 4, 2 ] } top(2) => { [ 1, 2 ] }
+     * @param collection The collection to operate on.
+     * @param numberToTake The most elements to take.
+     * @param comparator Defines the order to sort the list by.
+     * @return A new {@link Collection} containing the lowest elements in sorted order.
+     */
+    Collection<T> top(final Collection<T> collection, final int numberToTake, final Comparator<T> comparator);
+    /**
+     * Describes how the {@link Collection} will be produced, with estimated costs, to find out why a chain is slow.
+     * @param collection The collection to operate on.
+     * @return A readable description of the plan.
+     */
+    String explain(final Collection<T> collection);
 }
@@ -1,11 +1,23 @@
 package org.chain;
 
 import org.chain.filters.Action;
+import org.chain.filters.BatchAction;
+import org.chain.filters.BatchSelector;
+import org.chain.filters.ElementCodec;
+import org.chain.filters.HashStrategy;
 import org.chain.filters.ManySelector;
 import org.chain.filters.Selector;
 import org.chain.filters.WhereComparator;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Provides all the logic that is used to operate on a {@link Collection}.
@@ -13,11 +25,21 @@ import java.util.*;
  */
 class ChainEngineImpl<T> implements ChainEngine<T> {
 
-    private final String noMatchingElementsInCollection = "No element matching given comparator was found in the collection.";
-    private final String noElementsInCollection = "No elements found in the collection.";
+    protected final String noMatchingElementsInCollection = "No element matching given comparator was found in the collection.";
+    protected final String noElementsInCollection = "No elements found in the collection.";
 
     ChainEngineImpl(){}
 
+    /**
+     * Creates an engine of the same kind to operate on the elements produced by a select.
+     * @param <TD> The type of the elements the new engine will operate on.
+     * @return A new {@link ChainEngine} that behaves the same way as this one.
+     */
+    @Override
+    public <TD> ChainEngine<TD> derive() {
+        return new ChainEngineImpl<TD>();
+    }
+
     /**
      * Performs an action using each element in the {@link Collection}.
      * @param collection The collection to operate on.
@@ -30,6 +52,49 @@ class ChainEngineImpl<T> implements ChainEngine<T> {
         }
     }
 
+    /**
+     * Performs an action on the elements of the {@link Collection} a batch at a time.
+     * <br/>A batch is handed over once it is full, once the oldest element in it has waited the given delay, and at the end of the input.
+     * <br/>The delay is checked as each element arrives, so it bounds how long a slow source such as a lazy stream
+     * holds elements back, but cannot hand a batch over while the source itself is waiting for its next element.
+     * <br/>Every batch is handed over in the same list, which is cleared once the action returns.
+     * <br/>{ [ 1, 2, 3 ] } eachBatch(2) => perform([ 1, 2 ]), perform([ 3 ])
+     * @param collection The collection to operate on.
+     * @param size The most elements in a batch.
+     * @param maxDelayNanos The longest an element may wait for its batch to be handed over, or {@link Long#MAX_VALUE} to wait until the batch is full.
+     * @param action The action to perform on each batch, which must not keep the list it is given.
+     * @throws IllegalArgumentException If size is less than 1 or maxDelayNanos is negative.
+     */
+    @Override
+    public void eachBatch(final Collection<T> collection, final int size, final long maxDelayNanos, final BatchAction<T> action) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size = " + size);
+        }
+        if (maxDelayNanos < 0) {
+            throw new IllegalArgumentException("maxDelayNanos = " + maxDelayNanos);
+        }
+        if (collection == null) {
+            return;
+        }
+        final boolean timed = maxDelayNanos != Long.MAX_VALUE;
+        final ArrayList<T> batch = new ArrayList<T>(Math.min(size, 1 << 16));
+        long oldest = 0;
+        for (T t : collection) {
+            if (timed && batch.isEmpty()) {
+                oldest = System.nanoTime();
+            }
+            batch.add(t);
+            if (batch.size() == size || (timed && System.nanoTime() - oldest >= maxDelayNanos)) {
+                action.perform(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            action.perform(batch);
+            batch.clear();
+        }
+    }
+
     /**
      * Sorts the {@link Collection} based on the {@link Comparator} that is passed in.
      * <br/>{ [ 3, 1, 4, 2 ] } => { [ 1, 2, 3, 4 ] }
@@ -44,6 +109,27 @@ class ChainEngineImpl<T> implements ChainEngine<T> {
         return ts;
     }
 
+    /**
+     * Sorts the {@link Collection} based on the {@link Comparator} that is passed in, holding no more than the given number of elements in memory
+     * while sorting.
+     * <br/>The elements are read in chunks of the budget, each chunk is sorted and written to a temporary file,
+     * and the files are merged once into the new {@link Collection}. A collection that fits in the budget is sorted in memory.
+     * <br/>The new {@link Collection} is built on the heap next to the one given, so only the lazy engine, which streams the merged runs, keeps memory within the budget.
+     * <br/>{ [ 3, 1, 4, 2 ] } sort(a, codec, 2) => { [ 1, 2, 3, 4 ] }
+     * @param collection The collection to operate on.
+     * @param comparator Defines the order to sort the list by.
+     * @param codec Writes elements to and reads them back from the temporary files.
+     * @param maxElementsInMemory The most elements to hold in memory while sorting.
+     * @return A new sorted version of the {@link Collection}.
+     * @throws IllegalArgumentException If maxElementsInMemory is less than 1.
+     */
+    @Override
+    public Collection<T> sort(final Collection<T> collection, final Comparator<T> comparator, final ElementCodec<T> codec, final int maxElementsInMemory) {
+        LazyCollection.throwIfUnbounded(collection, "sort");
+        return drain(new ExternalSortedCollection<T>(
+                collection == null ? new ArrayList<T>() : collection, comparator, codec, maxElementsInMemory));
+    }
+
     /**
      * Reverses the order of the {@link Collection}.
      * <br/>{ [ 1, 2, 3, 4 ] } => { [ 4, 3, 2, 1 ] }
@@ -84,6 +170,65 @@ class ChainEngineImpl<T> implements ChainEngine<T> {
         return distinct(concatenate(collection1, collection2), comparator);
     }
 
+    /**
+     * Builds a new {@link Collection} that contains all distinct elements from both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } union { [ 2, 3, 4 ] } => { [ 1, 2, 3, 4 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to union with the contained {@link Collection}.
+     * @param comparator Defines how to check if an element is distinct.
+     * @param strategy Defines how the {@link Comparator} is used to find equal elements.
+     * @return A new {@link Collection} containing all distinct elements from both {@link Collection}s.
+     */
+    @Override
+    public Collection<T> union(final Collection<T> collection1, final Collection<T> collection2, final Comparator<T> comparator, final SetOperationStrategy strategy) {
+        return distinct(concatenate(collection1, collection2), comparator, strategy);
+    }
+
+    /**
+     * Builds a new {@link Collection} that contains all distinct elements from both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } union { [ 2, 3, 4 ] } => { [ 1, 2, 3, 4 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to union with the contained {@link Collection}.
+     * @param selector Defines the key to compare elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A new {@link Collection} containing all distinct elements from both {@link Collection}s.
+     */
+    @Override
+    public <K> Collection<T> union(final Collection<T> collection1, final Collection<T> collection2, final Selector<T, K> selector) {
+        return hashUnion(collection1, collection2, selector, OpenHashSet.<K>equalsStrategy());
+    }
+
+    /**
+     * Builds a new {@link Collection} that contains all distinct elements from both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } union { [ 2, 3, 4 ] } => { [ 1, 2, 3, 4 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to union with the contained {@link Collection}.
+     * @param strategy Defines how to hash elements and check if they are equal.
+     * @return A new {@link Collection} containing all distinct elements from both {@link Collection}s.
+     */
+    @Override
+    public Collection<T> union(final Collection<T> collection1, final Collection<T> collection2, final HashStrategy<T> strategy) {
+        return hashUnion(collection1, collection2, ChainEngineImpl.<T>identity(), strategy);
+    }
+
+    /**
+     * Builds a {@link Collection} that contains all distinct elements from both {@link Collection}s,
+     * holding no more than the budget of distinct elements in memory.
+     * <br/>Once the budget is reached, the elements are hash partitioned to temporary files and each partition is made distinct in turn,
+     * so the elements come out in the order first seen within each partition rather than overall.
+     * <br/>{ [ 1, 2, 3 ] } union { [ 2, 3, 4 ] } => { [ 1, 2, 3, 4 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to union with the contained {@link Collection}.
+     * @param budget Defines how many elements to hold in memory and how to spill the rest, and counts what is spilled.
+     * @return A new {@link Collection} containing all distinct elements from both {@link Collection}s.
+     */
+    @Override
+    public Collection<T> union(final Collection<T> collection1, final Collection<T> collection2, final SpillBudget<T> budget) {
+        LazyCollection.throwIfUnbounded(collection1, "union");
+        LazyCollection.throwIfUnbounded(collection2, "union");
+        return drain(new SpillingDistinctCollection<T>(Arrays.asList(collection1, collection2), budget));
+    }
+
     /**
      * Builds a new {@link Collection} that contains all elements found in both {@link Collection}s.
      * <br/>{ [ 1, 2, 3 ] } intersect { [ 2, 3, 4 ] } => { [ 2, 3 ] }
@@ -95,13 +240,14 @@ class ChainEngineImpl<T> implements ChainEngine<T> {
     @Override
     public Collection<T> intersect(final Collection<T> collection1, final Collection<T> collection2, final Comparator<T> comparator) {
         final ArrayList<T> ts = new ArrayList<T>();
+        final Collection<T> ts2 = replayable(collection2, "intersect");
 
         each(collection1, new Action<T>()
         {
             @Override
             public void perform(final T t1)
             {
-                Boolean any = any(collection2, new WhereComparator<T>() {
+                Boolean any = any(ts2, new WhereComparator<T>() {
                     @Override
                     public boolean meetsCondition(final T t2) {
                         return comparator.compare(t1, t2) == 0;
@@ -117,6 +263,54 @@ class ChainEngineImpl<T> implements ChainEngine<T> {
         return ts;
     }
 
+    /**
+     * Builds a new {@link Collection} that contains all elements found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } intersect { [ 2, 3, 4 ] } => { [ 2, 3 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to intersect with the contained {@link Collection}.
+     * @param comparator Defines how to check if an element is found in both {@link Collection}s.
+     * @param strategy Defines how the {@link Comparator} is used to find equal elements.
+     * @return A new {@link Collection} containing all elements found in both {@link Collection}s.
+     */
+    @Override
+    public Collection<T> intersect(final Collection<T> collection1, final Collection<T> collection2, final Comparator<T> comparator, final SetOperationStrategy strategy) {
+        if (strategy == SetOperationStrategy.NESTED_LOOP) {
+            return intersect(collection1, collection2, comparator);
+        }
+        final SortedRun<T> run1 = new SortedRun<T>(collection1, comparator);
+        final SortedRun<T> run2 = new SortedRun<T>(collection2, comparator);
+        run1.markMatches(run2);
+
+        return run1.select(true, strategy == SetOperationStrategy.STABLE_SORT_MERGE, new ArrayList<T>());
+    }
+
+    /**
+     * Builds a new {@link Collection} that contains all elements found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } intersect { [ 2, 3, 4 ] } => { [ 2, 3 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to intersect with the contained {@link Collection}.
+     * @param selector Defines the key to compare elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A new {@link Collection} containing all elements found in both {@link Collection}s.
+     */
+    @Override
+    public <K> Collection<T> intersect(final Collection<T> collection1, final Collection<T> collection2, final Selector<T, K> selector) {
+        return hashIntersect(collection1, collection2, selector, OpenHashSet.<K>equalsStrategy());
+    }
+
+    /**
+     * Builds a new {@link Collection} that contains all elements found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } intersect { [ 2, 3, 4 ] } => { [ 2, 3 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to intersect with the contained {@link Collection}.
+     * @param strategy Defines how to hash elements and check if they are equal.
+     * @return A new {@link Collection} containing all elements found in both {@link Collection}s.
+     */
+    @Override
+    public Collection<T> intersect(final Collection<T> collection1, final Collection<T> collection2, final HashStrategy<T> strategy) {
+        return hashIntersect(collection1, collection2, ChainEngineImpl.<T>identity(), strategy);
+    }
+
     /**
      * Builds a new {@link Collection} that contains all elements not found in both {@link Collection}s.
      * <br/>{ [ 1, 2, 3 ] } diverge { [ 2, 3, 4 ] } => { [ 1, 4 ] }
@@ -128,13 +322,15 @@ class ChainEngineImpl<T> implements ChainEngine<T> {
     @Override
     public Collection<T> diverge(final Collection<T> collection1, final Collection<T> collection2, final Comparator<T> comparator) {
         final ArrayList<T> ts = new ArrayList<T>();
+        final Collection<T> ts1 = replayable(collection1, "diverge");
+        final Collection<T> ts2 = replayable(collection2, "diverge");
 
-        each(collection1, new Action<T>()
+        each(ts1, new Action<T>()
         {
             @Override
             public void perform(final T t1)
             {
-                Boolean none = none(collection2, new WhereComparator<T>()
+                Boolean none = none(ts2, new WhereComparator<T>()
                 {
                     @Override
                     public boolean meetsCondition(final T t2)
@@ -148,10 +344,10 @@ class ChainEngineImpl<T> implements ChainEngine<T> {
                 }
             }
         });
-        each(collection2,new Action<T>() {
+        each(ts2,new Action<T>() {
             @Override
             public void perform(final T t2) {
-                Boolean none = none(collection1, new WhereComparator<T>() {
+                Boolean none = none(ts1, new WhereComparator<T>() {
                     @Override
                     public boolean meetsCondition(final T t1) {
                         return comparator.compare(t1, t2) == 0;
@@ -166,6 +362,72 @@ class ChainEngineImpl<T> implements ChainEngine<T> {
         return ts;
     }
 
+    /**
+     * Builds a new {@link Collection} that contains all elements not found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } diverge { [ 2, 3, 4 ] } => { [ 1, 4 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to diverge with the contained {@link Collection}.
+     * @param comparator Defines how to check if an element is found in both {@link Collection}s.
+     * @param strategy Defines how the {@link Comparator} is used to find equal elements.
+     * @return A new {@link Collection} containing all elements not found in both {@link Collection}s.
+     */
+    @Override
+    public Collection<T> diverge(final Collection<T> collection1, final Collection<T> collection2, final Comparator<T> comparator, final SetOperationStrategy strategy) {
+        if (strategy == SetOperationStrategy.NESTED_LOOP) {
+            return diverge(collection1, collection2, comparator);
+        }
+        final SortedRun<T> run1 = new SortedRun<T>(collection1, comparator);
+        final SortedRun<T> run2 = new SortedRun<T>(collection2, comparator);
+        run1.markMatches(run2);
+
+        if (strategy == SetOperationStrategy.STABLE_SORT_MERGE) {
+            return run2.select(false, true, run1.select(false, true, new ArrayList<T>()));
+        }
+        final List<T> unmatched1 = run1.select(false, false, new ArrayList<T>());
+        final List<T> unmatched2 = run2.select(false, false, new ArrayList<T>());
+        final ArrayList<T> ts = new ArrayList<T>(unmatched1.size() + unmatched2.size());
+        int i = 0;
+        int j = 0;
+        while (i < unmatched1.size() && j < unmatched2.size()) {
+            if (comparator.compare(unmatched1.get(i), unmatched2.get(j)) <= 0) {
+                ts.add(unmatched1.get(i++));
+            }
+            else {
+                ts.add(unmatched2.get(j++));
+            }
+        }
+        ts.addAll(unmatched1.subList(i, unmatched1.size()));
+        ts.addAll(unmatched2.subList(j, unmatched2.size()));
+        return ts;
+    }
+
+    /**
+     * Builds a new {@link Collection} that contains all elements not found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } diverge { [ 2, 3, 4 ] } => { [ 1, 4 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to diverge with the contained {@link Collection}.
+     * @param selector Defines the key to compare elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A new {@link Collection} containing all elements not found in both {@link Collection}s.
+     */
+    @Override
+    public <K> Collection<T> diverge(final Collection<T> collection1, final Collection<T> collection2, final Selector<T, K> selector) {
+        return hashDiverge(collection1, collection2, selector, OpenHashSet.<K>equalsStrategy());
+    }
+
+    /**
+     * Builds a new {@link Collection} that contains all elements not found in both {@link Collection}s.
+     * <br/>{ [ 1, 2, 3 ] } diverge { [ 2, 3, 4 ] } => { [ 1, 4 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to diverge with the contained {@link Collection}.
+     * @param strategy Defines how to hash elements and check if they are equal.
+     * @return A new {@link Collection} containing all elements not found in both {@link Collection}s.
+     */
+    @Override
+    public Collection<T> diverge(final Collection<T> collection1, final Collection<T> collection2, final HashStrategy<T> strategy) {
+        return hashDiverge(collection1, collection2, ChainEngineImpl.<T>identity(), strategy);
+    }
+
     /**
      * Removes all elements found in the {@link Collection} already.
      * <br/>{ [ 1, 1, 2, 2, 3 ] } => { [ 1, 2, 3 ] }
@@ -177,26 +439,96 @@ class ChainEngineImpl<T> implements ChainEngine<T> {
     public Collection<T> distinct(final Collection<T> collection, final Comparator<T> comparator) {
         final ArrayList<T> ts = new ArrayList<T>();
 
-        each(collection, new Action<T>() {
-            @Override
-            public void perform(final T t1) {
-                Boolean none = none(ts, new WhereComparator<T>()
-                {
-                    @Override
-                    public boolean meetsCondition(final T t2)
-                    {
-                        return comparator.compare(t1, t2) == 0;
-                    }
-                });
-                if (none){
-                    ts.add(t1);
-                }
+        for (final T t1 : collection) {
+            boolean none = true;
+            for (int i = 0; i < ts.size() && none; i++) {
+                none = comparator.compare(t1, ts.get(i)) != 0;
             }
-        });
+            if (none){
+                ts.add(t1);
+            }
+        }
+
+        return ts;
+    }
+
+    /**
+     * Removes all elements found in the {@link Collection} already.
+     * <br/>{ [ 1, 1, 2, 2, 3 ] } => { [ 1, 2, 3 ] }
+     * @param collection The collection to operate on.
+     * @param comparator Defines how to check if an element is found in the {@link Collection} already.
+     * @param strategy Defines how the {@link Comparator} is used to find equal elements.
+     * @return A new {@link Collection} containing all elements not found in the {@link Collection} already.
+     */
+    @Override
+    public Collection<T> distinct(final Collection<T> collection, final Comparator<T> comparator, final SetOperationStrategy strategy) {
+        if (strategy == SetOperationStrategy.NESTED_LOOP) {
+            return distinct(collection, comparator);
+        }
+        final SortedRun<T> run = new SortedRun<T>(collection, comparator);
+        run.markFirstOfEach();
+
+        return run.select(true, strategy == SetOperationStrategy.STABLE_SORT_MERGE, new ArrayList<T>());
+    }
+
+    /**
+     * Removes all elements whose key is found in the {@link Collection} already, keeping the first occurrence.
+     * <br/>{ [ {a:1}, {a:1}, {a:2} ] } distinct(a) => { [ {a:1}, {a:2} ] }
+     * @param collection The collection to operate on.
+     * @param selector Defines the key to compare elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A new {@link Collection} containing all elements whose key is not found in the {@link Collection} already.
+     */
+    @Override
+    public <K> Collection<T> distinct(final Collection<T> collection, final Selector<T, K> selector) {
+        final ArrayList<T> ts = new ArrayList<T>();
+        final OpenHashSet<K> keys = new OpenHashSet<K>(OpenHashSet.<K>equalsStrategy(), collection.size());
+
+        for (final T t : collection) {
+            if (keys.add(selector.select(t))){
+                ts.add(t);
+            }
+        }
 
         return ts;
     }
 
+    /**
+     * Removes all elements found in the {@link Collection} already, keeping the first occurrence.
+     * <br/>{ [ 1, 1, 2, 2, 3 ] } => { [ 1, 2, 3 ] }
+     * @param collection The collection to operate on.
+     * @param strategy Defines how to hash elements and check if they are equal.
+     * @return A new {@link Collection} containing all elements not found in the {@link Collection} already.
+     */
+    @Override
+    public Collection<T> distinct(final Collection<T> collection, final HashStrategy<T> strategy) {
+        final ArrayList<T> ts = new ArrayList<T>();
+        final OpenHashSet<T> seen = new OpenHashSet<T>(strategy, collection.size());
+
+        for (final T t : collection) {
+            if (seen.add(t)){
+                ts.add(t);
+            }
+        }
+
+        return ts;
+    }
+
+    /**
+     * Removes all elements found in the {@link Collection} already, holding no more than the budget of distinct elements in memory.
+     * <br/>Once the budget is reached, the elements are hash partitioned to temporary files and each partition is made distinct in turn,
+     * so the elements come out in the order first seen within each partition rather than overall.
+     * <br/>{ [ 1, 1, 2, 2, 3 ] } => { [ 1, 2, 3 ] }
+     * @param collection The collection to operate on.
+     * @param budget Defines how many elements to hold in memory and how to spill the rest, and counts what is spilled.
+     * @return A new {@link Collection} containing all elements not found in the {@link Collection} already.
+     */
+    @Override
+    public Collection<T> distinct(final Collection<T> collection, final SpillBudget<T> budget) {
+        LazyCollection.throwIfUnbounded(collection, "distinct");
+        return drain(new SpillingDistinctCollection<T>(Collections.singletonList(collection), budget));
+    }
+
     /**
      * Selects a field from each element and concatenates them all into a new {@link Collection}.
      * <br/>{ [ {a:1}, {a:2}, {a:3}, {a:4} ]  } select(a) => { [ 1, 2, 3, 4 ] }
@@ -218,6 +550,159 @@ class ChainEngineImpl<T> implements ChainEngine<T> {
         return tds;
     }
 
+    /**
+     * Selects a field from each element, running up to the given number of selector calls at once, each on its own virtual thread
+     * where the JVM has them, so selectors that block on a cache or disk lookup overlap their waits.
+     * <br/>Each thread takes the next element not yet taken until none are left, and stores its field at the element's position.
+     * <br/>The first selector to fail stops any more calls from starting and interrupts the calls still running, and its exception is thrown.
+     * <br/>{ [ {a:1}, {a:2}, {a:3}, {a:4} ]  } selectAsync(a, 2) => { [ 1, 2, 3, 4 ] }
+     * @param collection The collection to operate on.
+     * @param selector Defines which field to select from each element.
+     * @param maxConcurrency The most selector calls to run at once.
+     * @param <TD> The type of the field to be selected from each element.
+     * @return A new {@link Collection} containing all of the fields that were selected from each element, in the order of the elements.
+     * @throws IllegalArgumentException If maxConcurrency is less than 1.
+     * @throws CancellationException If the calling thread is interrupted while waiting, which interrupts the selector calls too.
+     */
+    @Override
+    public <TD> Collection<TD> selectAsync(final Collection<T> collection, final Selector<T, TD> selector, final int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency = " + maxConcurrency);
+        }
+        LazyCollection.throwIfUnbounded(collection, "selectAsync");
+        final Object[] elements = collection == null ? new Object[0] : collection.toArray();
+        final Object[] selected = new Object[elements.length];
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final AtomicBoolean failed = new AtomicBoolean();
+        final Callable<Void> worker = new Callable<Void>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Void call() {
+                int i;
+                while (!failed.get() && (i = nextIndex.getAndIncrement()) < elements.length) {
+                    try {
+                        selected[i] = selector.select((T) elements[i]);
+                    } catch (RuntimeException e) {
+                        failed.set(true);
+                        throw e;
+                    } catch (Error e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                }
+                return null;
+            }
+        };
+
+        final int workers = Math.min(maxConcurrency, elements.length);
+        final ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor();
+        final List<Future<Void>> futures = new ArrayList<Future<Void>>(workers);
+        final ExecutorCompletionService<Void> completion = new ExecutorCompletionService<Void>(executor);
+        Throwable failure = null;
+        try {
+            for (int i = 0; i < workers; i++) {
+                futures.add(completion.submit(worker));
+            }
+            for (int i = 0; i < workers && failure == null; i++) {
+                try {
+                    completion.take().get();
+                } catch (ExecutionException e) {
+                    failure = e.getCause();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = new CancellationException("selectAsync was interrupted");
+        } finally {
+            if (failure != null) {
+                failed.set(true);
+                for (Future<Void> future : futures) {
+                    future.cancel(true);
+                }
+            }
+            executor.shutdown();
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+
+        final ArrayList<TD> tds = new ArrayList<TD>(selected.length);
+        for (Object o : selected) {
+            @SuppressWarnings("unchecked")
+            final TD td = (TD) o;
+            tds.add(td);
+        }
+        return tds;
+    }
+
+    /**
+     * Selects a field from each element, handing the selector the elements a batch at a time so it can fetch the fields in bulk.
+     * <br/>Each batch is a view over a single snapshot of the elements, so no list is copied per batch unless duplicates are collapsed.
+     * <br/>{ [ {a:1}, {a:2}, {a:3} ]  } selectBatched(a, 2) => { [ 1, 2, 3 ] }
+     * <br/>{ [ {a:1}, {a:1}, {a:2} ]  } selectBatched(a, 3, true) => { [ 1, 1, 2 ] }, with the selector given [ {a:1}, {a:2} ]
+     * @param collection The collection to operate on.
+     * @param selector Selects one field for each element of a batch, in the order of the batch.
+     * @param batchSize The most elements to hand the selector at once.
+     * @param collapseDuplicates True to hand the selector each distinct element of a batch once, and share its field with the equal elements.
+     * @param <TD> The type of the field to be selected from each element.
+     * @return A new {@link Collection} containing all of the fields that were selected from each element, in the order of the elements.
+     * @throws IllegalArgumentException If batchSize is less than 1.
+     * @throws IllegalStateException If the selector returns a different number of fields than it was given elements.
+     */
+    @Override
+    public <TD> Collection<TD> selectBatched(final Collection<T> collection, final BatchSelector<T, TD> selector, final int batchSize, final boolean collapseDuplicates) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize = " + batchSize);
+        }
+        LazyCollection.throwIfUnbounded(collection, "selectBatched");
+        if (collection == null) {
+            return new ArrayList<TD>();
+        }
+        @SuppressWarnings("unchecked")
+        final List<T> elements = (List<T>) Arrays.asList(collection.toArray());
+        if (elements.isEmpty()) {
+            return new ArrayList<TD>();
+        }
+        final ArrayList<TD> tds = new ArrayList<TD>(elements.size());
+        final int[] ids = collapseDuplicates ? new int[Math.min(batchSize, elements.size())] : null;
+        for (int from = 0; from < elements.size(); from += batchSize) {
+            final List<T> batch = elements.subList(from, Math.min(from + batchSize, elements.size()));
+            if (!collapseDuplicates) {
+                tds.addAll(selectBatch(selector, batch));
+                continue;
+            }
+            final OpenHashIndex<T> index = new OpenHashIndex<T>(OpenHashSet.<T>equalsStrategy(), batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                ids[i] = index.indexOf(batch.get(i));
+            }
+            if (index.size() == batch.size()) {
+                tds.addAll(selectBatch(selector, batch));
+                continue;
+            }
+            final List<T> distinct = new ArrayList<T>(index.size());
+            for (int id = 0; id < index.size(); id++) {
+                distinct.add(index.keyAt(id));
+            }
+            final List<TD> selected = selectBatch(selector, distinct);
+            for (int i = 0; i < batch.size(); i++) {
+                tds.add(selected.get(ids[i]));
+            }
+        }
+        return tds;
+    }
+
+    private static <T, TD> List<TD> selectBatch(final BatchSelector<T, TD> selector, final List<T> batch) {
+        final List<TD> selected = selector.select(batch);
+        if (selected == null || selected.size() != batch.size()) {
+            throw new IllegalStateException("BatchSelector returned " + (selected == null ? "null" : selected.size() + " fields")
+                    + " for a batch of " + batch.size());
+        }
+        return selected;
+    }
+
     /**
      * Selects a field containing a {@link Collection} from each element and concatenates all subelements into a new {@link Collection}.
      * <br/>{ [ {a:[1,  2]}, {a:[3, 4]} ] } select(a) => { [ 1, 2, 3, 4 ] }
@@ -385,7 +870,7 @@ class ChainEngineImpl<T> implements ChainEngine<T> {
 
     /**
      * <br/>{ [ 1, 2, 3, 4 ] } first => { 1 }
-     * <br/>{ [ ] } first => IndexOutOfBoundsException
+     * <br/>{ [ ] } first => NoSuchElementException
      * @param collection The collection to operate on.
      * @return The first element from the collection.
      * @throws NoSuchElementException
@@ -394,14 +879,11 @@ class ChainEngineImpl<T> implements ChainEngine<T> {
     public T first(final Collection<T> collection){
 
         throwNoSuchElementIfNullOrEmpty(collection, noElementsInCollection);
-        try
-        {
-            return new ArrayList<T>(collection).get(0);
-        }
-        catch (IndexOutOfBoundsException indexOutOfBoundsException)
+        if (collection instanceof List)
         {
-            throw new NoSuchElementException();
+            return ((List<T>) collection).get(0);
         }
+        return collection.iterator().next();
     }
 
     /**
@@ -479,14 +961,21 @@ class ChainEngineImpl<T> implements ChainEngine<T> {
     public T last(final Collection<T> collection)
     {
         throwNoSuchElementIfNullOrEmpty(collection, noElementsInCollection);
-        try
+        if (collection instanceof List)
         {
-            return new ArrayList<T>(collection).get(collection.size() - 1);
+            return ((List<T>) collection).get(collection.size() - 1);
         }
-        catch (NoSuchElementException e)
+        if (collection instanceof Deque)
+        {
+            return ((Deque<T>) collection).getLast();
+        }
+        final Iterator<T> iterator = collection.iterator();
+        T last = iterator.next();
+        while (iterator.hasNext())
         {
-            throw new NoSuchElementException(noElementsInCollection);
+            last = iterator.next();
         }
+        return last;
     }
 
     /**
@@ -510,7 +999,8 @@ class ChainEngineImpl<T> implements ChainEngine<T> {
 
     /**
      * Selects {@link Collection} for the last element that meets the condition.
-     * <br/>{ [ 1, 2, 3, 4 ] } last(a > 2) => { 3 }
+     * <br/>Lists and deques are searched from the back, so only the elements after the match are checked.
+     * <br/>{ [ 1, 2, 3, 4 ] } last(a > 2) => { 4 }
      * <br/>{ [ 1, 2, 3, 4 ] } last(a > 200) => NoSuchElementException
      * <br/>{ [ ] } last(a > 2) => NoSuchElementException
      * @param collection The collection to operate on.
@@ -522,14 +1012,40 @@ class ChainEngineImpl<T> implements ChainEngine<T> {
     public T last(Collection<T> collection, WhereComparator<T> comparator) throws NoSuchElementException
     {
         throwNoSuchElementIfNullOrEmpty(collection, noMatchingElementsInCollection);
+        if (collection instanceof List)
+        {
+            final ListIterator<T> iterator = ((List<T>) collection).listIterator(collection.size());
+            while (iterator.hasPrevious())
+            {
+                final T t = iterator.previous();
+                if (comparator.meetsCondition(t)){
+                    return t;
+                }
+            }
+            throw new NoSuchElementException(noMatchingElementsInCollection);
+        }
+        if (collection instanceof Deque)
+        {
+            final Iterator<T> iterator = ((Deque<T>) collection).descendingIterator();
+            while (iterator.hasNext())
+            {
+                final T t = iterator.next();
+                if (comparator.meetsCondition(t)){
+                    return t;
+                }
+            }
+            throw new NoSuchElementException(noMatchingElementsInCollection);
+        }
+        boolean found = false;
         T result = null;
         for (T t : collection)
         {
             if (comparator.meetsCondition(t)){
+                found = true;
                 result =  t;
             }
         }
-        if (result == null)
+        if (!found)
         {
             throw new NoSuchElementException(noMatchingElementsInCollection);
         }
@@ -566,29 +1082,244 @@ class ChainEngineImpl<T> implements ChainEngine<T> {
      */
     @Override
     public T at(final Collection<T> collection, final int index) {
-        return new ArrayList<T>(collection).get(index);
+        if (collection instanceof List) {
+            return ((List<T>) collection).get(index);
+        }
+        if (index >= 0) {
+            int i = 0;
+            for (T t : collection) {
+                if (i++ == index) {
+                    return t;
+                }
+            }
+        }
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + collection.size());
     }
 
     /**
-     * Skips the given number of elements in the {@link Collection} and returns the rest in a new {@link Collection}.
+     * Skips the given number of elements in the {@link Collection} and returns the rest.
+     * <br/>Lists are not copied, the rest is a view of the list.
      * <br/>{ [ 1, 2, 3, 4 ] } skip(2) => { [ 3, 4 ] }
      * @param collection The collection to operate on.
-     * @return A new {@link Collection} containing all elements with the specified number removed from the front of the array.
+     * @return A {@link Collection} containing all elements with the specified number removed from the front of the array.
      */
     @Override
     public Collection<T> skip(Collection<T> collection, int numberToSkip) {
-        return new ArrayList<T>(collection).subList(numberToSkip, collection.size());
+        return range(collection, numberToSkip, collection.size());
     }
 
     /**
      * Takes the given number of elements from the front of the {@link Collection}.
+     * <br/>Lists are not copied, the elements taken are a view of the list.
      * <br/>{ [ 1, 2, 3, 4 ] } take(2) => { [ 1, 2 ] }
      * @param collection The collection to operate on.
-     * @return A new {@link Collection} containing the given number of elements from the front of the {@link Collection}.
+     * @return A {@link Collection} containing the given number of elements from the front of the {@link Collection}.
      */
     @Override
     public Collection<T> take(Collection<T> collection, int numberToTake) {
-        return new ArrayList<T>(collection).subList(0, numberToTake);
+        return range(collection, 0, numberToTake);
+    }
+
+    /**
+     * Takes the given number of lowest elements according to the {@link Comparator}, in sorted order.
+     * <br/>Only the elements taken so far are kept, in a heap, so this runs in O(n log k) time and O(k) memory.
+     * <br/>{ [ 3, 1, 4, 2 ] } top(2) => { [ 1, 2 ] }
+     * @param collection The collection to operate on.
+     * @param numberToTake The most elements to take.
+     * @param comparator Defines the order to sort the list by.
+     * @return A new {@link Collection} containing the lowest elements in sorted order.
+     */
+    @Override
+    public Collection<T> top(final Collection<T> collection, final int numberToTake, final Comparator<T> comparator) {
+        final BoundedHeap<T> heap = new BoundedHeap<T>(numberToTake, comparator);
+        for (T t : collection) {
+            heap.offer(t);
+        }
+        return heap.drainSorted();
+    }
+
+    /**
+     * Every operation has already run by the time this is called, so there is no plan left to describe.
+     * @param collection The collection to operate on.
+     * @return A description of the {@link Collection} that was produced.
+     */
+    @Override
+    public String explain(final Collection<T> collection) {
+        return PlanExplainer.explain(collection, collection);
+    }
+
+    /**
+     * @param <T> The type of the elements.
+     * @return A {@link Selector} that selects each element itself, for using elements as their own keys.
+     */
+    static <T> Selector<T, T> identity() {
+        return new Selector<T, T>() {
+            @Override
+            public T select(T obj) {
+                return obj;
+            }
+        };
+    }
+
+    /**
+     * Reads a stage that works when it is iterated exactly once, so the later queries on the chain do not repeat its work.
+     * @param stage The stage to read.
+     * @return A new {@link Collection} containing the elements the stage produced.
+     */
+    private static <T> ArrayList<T> drain(final Collection<T> stage) {
+        final ArrayList<T> ts = new ArrayList<T>();
+        for (T t : stage) {
+            ts.add(t);
+        }
+        return ts;
+    }
+
+    private List<T> range(final Collection<T> collection, final int from, final int to) {
+        if (collection instanceof List) {
+            return ((List<T>) collection).subList(from, to);
+        }
+        final int size = collection.size();
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("fromIndex = " + from + ", toIndex = " + to + ", size = " + size);
+        }
+        final ArrayList<T> ts = new ArrayList<T>(to - from);
+        final Iterator<T> iterator = collection.iterator();
+        for (int i = 0; i < to; i++) {
+            final T t = iterator.next();
+            if (i >= from) {
+                ts.add(t);
+            }
+        }
+        return ts;
+    }
+
+    /**
+     * Reads a lazy {@link Collection} into a list once, for set operations that need its size or read it more than once,
+     * so a source that can only be read once is not read again and the stages before it do not run again.
+     */
+    private static <T> Collection<T> replayable(final Collection<T> collection, final String operation) {
+        if (collection instanceof LazyCollection) {
+            LazyCollection.throwIfUnbounded(collection, operation);
+            return new ArrayList<T>(collection);
+        }
+        return collection;
+    }
+
+    private <K> Collection<T> hashUnion(final Collection<T> source1, final Collection<T> source2, final Selector<T, K> selector, final HashStrategy<K> strategy) {
+        final ArrayList<T> ts = new ArrayList<T>();
+        final Collection<T> collection1 = replayable(source1, "union");
+        final Collection<T> collection2 = replayable(source2, "union");
+        final OpenHashSet<K> seen = new OpenHashSet<K>(strategy, Math.max(collection1.size(), collection2.size()));
+
+        for (final T t : collection1) {
+            if (seen.add(selector.select(t))){
+                ts.add(t);
+            }
+        }
+        for (final T t : collection2) {
+            if (seen.add(selector.select(t))){
+                ts.add(t);
+            }
+        }
+
+        return ts;
+    }
+
+    private <K> Collection<T> hashIntersect(final Collection<T> source1, final Collection<T> source2, final Selector<T, K> selector, final HashStrategy<K> strategy) {
+        final ArrayList<T> ts = new ArrayList<T>();
+        final Collection<T> collection1 = replayable(source1, "intersect");
+        final Collection<T> collection2 = replayable(source2, "intersect");
+
+        if (collection2.size() <= collection1.size()) {
+            final OpenHashSet<K> keys2 = keys(collection2, selector, strategy, null);
+            for (final T t1 : collection1) {
+                if (keys2.contains(selector.select(t1))){
+                    ts.add(t1);
+                }
+            }
+        }
+        else {
+            final ArrayList<K> selected1 = new ArrayList<K>(collection1.size());
+            final OpenHashSet<K> keys1 = keys(collection1, selector, strategy, selected1);
+            final OpenHashSet<K> matched = new OpenHashSet<K>(strategy, keys1.size());
+            for (final T t2 : collection2) {
+                final K key = selector.select(t2);
+                if (keys1.contains(key)){
+                    matched.add(key);
+                }
+            }
+            int i = 0;
+            for (final T t1 : collection1) {
+                if (matched.contains(selected1.get(i++))){
+                    ts.add(t1);
+                }
+            }
+        }
+
+        return ts;
+    }
+
+    private <K> Collection<T> hashDiverge(final Collection<T> source1, final Collection<T> source2, final Selector<T, K> selector, final HashStrategy<K> strategy) {
+        final ArrayList<T> ts = new ArrayList<T>();
+        final Collection<T> collection1 = replayable(source1, "diverge");
+        final Collection<T> collection2 = replayable(source2, "diverge");
+
+        if (collection2.size() <= collection1.size()) {
+            final ArrayList<K> selected2 = new ArrayList<K>(collection2.size());
+            final OpenHashSet<K> keys2 = keys(collection2, selector, strategy, selected2);
+            final OpenHashSet<K> matched = new OpenHashSet<K>(strategy, keys2.size());
+            for (final T t1 : collection1) {
+                final K key = selector.select(t1);
+                if (keys2.contains(key)){
+                    matched.add(key);
+                }
+                else {
+                    ts.add(t1);
+                }
+            }
+            int i = 0;
+            for (final T t2 : collection2) {
+                if (!matched.contains(selected2.get(i++))){
+                    ts.add(t2);
+                }
+            }
+        }
+        else {
+            final ArrayList<K> selected1 = new ArrayList<K>(collection1.size());
+            final OpenHashSet<K> keys1 = keys(collection1, selector, strategy, selected1);
+            final OpenHashSet<K> matched = new OpenHashSet<K>(strategy, keys1.size());
+            final ArrayList<T> unmatched2 = new ArrayList<T>();
+            for (final T t2 : collection2) {
+                final K key = selector.select(t2);
+                if (keys1.contains(key)){
+                    matched.add(key);
+                }
+                else {
+                    unmatched2.add(t2);
+                }
+            }
+            int i = 0;
+            for (final T t1 : collection1) {
+                if (!matched.contains(selected1.get(i++))){
+                    ts.add(t1);
+                }
+            }
+            ts.addAll(unmatched2);
+        }
+
+        return ts;
+    }
+
+    private <K> OpenHashSet<K> keys(final Collection<T> collection, final Selector<T, K> selector, final HashStrategy<K> strategy, final List<K> selected) {
+        final OpenHashSet<K> keys = new OpenHashSet<K>(strategy, collection.size());
+        for (final T t : collection) {
+            final K key = selector.select(t);
+            keys.add(key);
+            if (selected != null){
+                selected.add(key);
+            }
+        }
+        return keys;
     }
 
     private void throwNoSuchElementIfNullOrEmpty(Collection<T> collection, String message) {
@@ -596,4 +1327,85 @@ class ChainEngineImpl<T> implements ChainEngine<T> {
             throw new NoSuchElementException(message);
         }
     }
+
+    /**
+     * The elements of a {@link Collection} along with the order the {@link Comparator} puts them in,
+     * so they can be merged with another {@link SortedRun} and then returned in either order.
+     * @param <T> The type of the elements.
+     */
+    static final class SortedRun<T> {
+        private final List<T> elements;
+        private final Integer[] order;
+        private final boolean[] marked;
+        private final Comparator<T> comparator;
+
+        SortedRun(Collection<T> collection, final Comparator<T> comparator) {
+            this.elements = new ArrayList<T>(collection);
+            this.comparator = comparator;
+            this.order = new Integer[elements.size()];
+            this.marked = new boolean[elements.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            // Arrays.sort is stable, so equal elements keep the order they were found in.
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return comparator.compare(elements.get(o1), elements.get(o2));
+                }
+            });
+        }
+
+        /**
+         * Marks the first element of every group of equal elements.
+         */
+        void markFirstOfEach() {
+            for (int k = 0; k < order.length; k++) {
+                marked[order[k]] = k == 0 || comparator.compare(elements.get(order[k - 1]), elements.get(order[k])) != 0;
+            }
+        }
+
+        /**
+         * Walks both runs together, marking the elements in each run that are equal to an element in the other.
+         * @param other The run to merge with.
+         */
+        void markMatches(SortedRun<T> other) {
+            int i = 0;
+            int j = 0;
+            while (i < order.length && j < other.order.length) {
+                final T t1 = elements.get(order[i]);
+                final int compared = comparator.compare(t1, other.elements.get(other.order[j]));
+                if (compared < 0) {
+                    i++;
+                }
+                else if (compared > 0) {
+                    j++;
+                }
+                else {
+                    while (i < order.length && comparator.compare(elements.get(order[i]), t1) == 0) {
+                        marked[order[i++]] = true;
+                    }
+                    while (j < other.order.length && comparator.compare(other.elements.get(other.order[j]), t1) == 0) {
+                        other.marked[other.order[j++]] = true;
+                    }
+                }
+            }
+        }
+
+        /**
+         * @param marked True to add the marked elements, false to add the unmarked ones.
+         * @param stable True to add the elements in the order they were found, false for the order of the {@link Comparator}.
+         * @param ts The {@link List} to add the elements to.
+         * @return The {@link List} that was passed in.
+         */
+        List<T> select(boolean marked, boolean stable, List<T> ts) {
+            for (int k = 0; k < order.length; k++) {
+                final int index = stable ? k : order[k];
+                if (this.marked[index] == marked) {
+                    ts.add(elements.get(index));
+                }
+            }
+            return ts;
+        }
+    }
 }
@@ -0,0 +1,270 @@
+package org.chain;
+
+import org.chain.filters.Selector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The elements of a chain indexed by a key, built once so that repeated lookups do not scan the {@link Collection}.
+ * <br/>Lookups by an equal key use a hash table and take constant time.
+ * <br/>Lookups by a range of keys use a sorted array and take logarithmic time,
+ * and are only available when the index was built with a {@link Comparator} for the key.
+ * <br/>The index is built from a snapshot of the chain, so later changes to the source are not seen.
+ * @param <K> The type of the key selected from each element.
+ * @param <T> The type found in the {@link Collection} in the chain.
+ */
+public final class ChainIndex<K, T>
+{
+    private final ChainEngine<T> engine;
+    private final SetOperationStrategy setOperationStrategy;
+    private final ChainListener listener;
+    private final boolean unique;
+    private final OpenHashIndex<K> keys;
+    /** The elements grouped by key, each group in the order the elements were in the {@link Collection}. */
+    private final List<T> grouped;
+    /** Where the group of each key starts in grouped, with one extra entry for the end of the last group. */
+    private final int[] offsets;
+    private final Comparator<K> comparator;
+    /** The keys in sorted order, next to the elements they were selected from, or null if there is no comparator. */
+    private final Object[] sortedKeys;
+    private final List<T> sorted;
+
+    /**
+     * @param engine The {@link ChainEngine} of the chain that was indexed.
+     * @param collection The {@link Collection} to index.
+     * @param keySelector Defines the key to index elements by, using its hashCode and equals.
+     * @param comparator Defines the order of the keys for range lookups, or null if only equal keys are looked up.
+     * @param unique True if every key must belong to a single element.
+     * @param setOperationStrategy The strategy of the chain that was indexed, passed on to the chains that are looked up.
+     * @param listener The listener of the chain that was indexed, or null.
+     * @throws IllegalArgumentException If the index is unique and two elements have equal keys.
+     */
+    ChainIndex(ChainEngine<T> engine, Collection<T> collection, Selector<T, K> keySelector, Comparator<K> comparator,
+               boolean unique, SetOperationStrategy setOperationStrategy, ChainListener listener) {
+        LazyCollection.throwIfUnbounded(collection, unique ? "uniqueIndex" : "index");
+        this.engine = engine;
+        this.setOperationStrategy = setOperationStrategy;
+        this.listener = listener;
+        this.unique = unique;
+        this.comparator = comparator;
+
+        final List<T> elements = collection == null ? Collections.<T>emptyList() : new ArrayList<T>(collection);
+        final int size = elements.size();
+        final Object[] keyOf = new Object[size];
+        final int[] idOf = new int[size];
+        this.keys = new OpenHashIndex<K>(OpenHashSet.<K>equalsStrategy(), 16);
+        int[] counts = new int[16];
+        for (int i = 0; i < size; i++) {
+            final K key = keySelector.select(elements.get(i));
+            final int id = keys.indexOf(key);
+            if (id == counts.length) {
+                counts = Arrays.copyOf(counts, id * 2);
+            }
+            if (++counts[id] > 1 && unique) {
+                throw new IllegalArgumentException("Duplicate key in unique index: " + key);
+            }
+            keyOf[i] = key;
+            idOf[i] = id;
+        }
+
+        // Counting sort by key id keeps the elements of each group in their original order.
+        this.offsets = new int[keys.size() + 1];
+        for (int id = 0; id < keys.size(); id++) {
+            offsets[id + 1] = offsets[id] + counts[id];
+        }
+        final int[] next = Arrays.copyOf(offsets, keys.size());
+        final Object[] groupedElements = new Object[size];
+        for (int i = 0; i < size; i++) {
+            groupedElements[next[idOf[i]]++] = elements.get(i);
+        }
+        this.grouped = ChainIndex.<T>asList(groupedElements);
+
+        if (comparator == null) {
+            this.sortedKeys = null;
+            this.sorted = null;
+        }
+        else {
+            final Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            // Arrays.sort on objects is stable, so equal keys keep the order their elements were in.
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return ChainIndex.this.comparator.compare(ChainIndex.<K>cast(keyOf[o1]), ChainIndex.<K>cast(keyOf[o2]));
+                }
+            });
+            this.sortedKeys = new Object[size];
+            final Object[] sortedElements = new Object[size];
+            for (int i = 0; i < size; i++) {
+                sortedKeys[i] = keyOf[order[i]];
+                sortedElements[i] = elements.get(order[i]);
+            }
+            this.sorted = ChainIndex.<T>asList(sortedElements);
+        }
+    }
+
+    /**
+     * @return True if every key belongs to a single element.
+     */
+    public boolean isUnique() {
+        return unique;
+    }
+
+    /**
+     * @return How many elements were indexed.
+     */
+    public int size() {
+        return grouped.size();
+    }
+
+    /**
+     * Looks up all elements with a key equal to the one given, in constant time.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2}, {a:1, b:3} ] } index(a) where(1) => { [ {a:1, b:1}, {a:1, b:3} ] }
+     * @param key The key to look up.
+     * @return A {@link ChainBuilder} that contains the elements with the key, in the order they were in the {@link Collection}.
+     */
+    public ChainBuilder<T> where(K key) {
+        final int id = idOf(key);
+        return chain(id < 0 ? Collections.<T>emptyList() : grouped.subList(offsets[id], offsets[id + 1]));
+    }
+
+    /**
+     * Looks up the first element with a key equal to the one given, in constant time.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2}, {a:1, b:3} ] } index(a) first(1) => { {a:1, b:1} }
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2}, {a:1, b:3} ] } index(a) first(3) => NoSuchElementException
+     * @param key The key to look up.
+     * @return The first element with the key.
+     * @throws NoSuchElementException If no element has the key.
+     */
+    public T first(K key) throws NoSuchElementException {
+        final int id = idOf(key);
+        if (id < 0) {
+            throw new NoSuchElementException("No element has the key: " + key);
+        }
+        return grouped.get(offsets[id]);
+    }
+
+    /**
+     * Looks up the first element with a key equal to the one given, in constant time.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2}, {a:1, b:3} ] } index(a) firstOrNull(3) => { null }
+     * @param key The key to look up.
+     * @return The first element with the key, or null if no element has the key.
+     */
+    public T firstOrNull(K key) {
+        final int id = idOf(key);
+        return id < 0 ? null : grouped.get(offsets[id]);
+    }
+
+    /**
+     * Counts the elements with a key equal to the one given, in constant time.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2}, {a:1, b:3} ] } index(a) count(1) => { 2 }
+     * @param key The key to look up.
+     * @return How many elements have the key.
+     */
+    public int count(K key) {
+        final int id = idOf(key);
+        return id < 0 ? 0 : offsets[id + 1] - offsets[id];
+    }
+
+    /**
+     * Checks if any element has a key equal to the one given, in constant time.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2}, {a:1, b:3} ] } index(a) any(2) => { true }
+     * @param key The key to look up.
+     * @return True if any element has the key.
+     */
+    public boolean any(K key) {
+        return idOf(key) >= 0;
+    }
+
+    /**
+     * Looks up all elements with a key from fromKey, inclusive, to toKey, exclusive, in logarithmic time.
+     * <br/>{ [ {a:3, b:1}, {a:1, b:2}, {a:2, b:3} ] } index(a) where(1, 3) => { [ {a:1, b:2}, {a:2, b:3} ] }
+     * @param fromKey The lowest key to look up.
+     * @param toKey The key above the highest key to look up.
+     * @return A {@link ChainBuilder} that contains the elements with keys in the range, in key order,
+     * and in the order they were in the {@link Collection} for equal keys.
+     * @throws IllegalStateException If the index was built without a {@link Comparator}.
+     */
+    public ChainBuilder<T> where(K fromKey, K toKey) {
+        final int from = lowerBound(fromKey);
+        return chain(sorted.subList(from, Math.max(from, lowerBound(toKey))));
+    }
+
+    /**
+     * Counts the elements with a key from fromKey, inclusive, to toKey, exclusive, in logarithmic time.
+     * <br/>{ [ {a:3, b:1}, {a:1, b:2}, {a:2, b:3} ] } index(a) count(1, 3) => { 2 }
+     * @param fromKey The lowest key to look up.
+     * @param toKey The key above the highest key to look up.
+     * @return How many elements have keys in the range.
+     * @throws IllegalStateException If the index was built without a {@link Comparator}.
+     */
+    public int count(K fromKey, K toKey) {
+        return Math.max(0, lowerBound(toKey) - lowerBound(fromKey));
+    }
+
+    /**
+     * Looks up the element with the lowest key from fromKey, inclusive, to toKey, exclusive, in logarithmic time.
+     * <br/>{ [ {a:3, b:1}, {a:1, b:2}, {a:2, b:3} ] } index(a) first(2, 4) => { {a:2, b:3} }
+     * @param fromKey The lowest key to look up.
+     * @param toKey The key above the highest key to look up.
+     * @return The element with the lowest key in the range.
+     * @throws NoSuchElementException If no element has a key in the range.
+     * @throws IllegalStateException If the index was built without a {@link Comparator}.
+     */
+    public T first(K fromKey, K toKey) throws NoSuchElementException {
+        final int from = lowerBound(fromKey);
+        if (from >= lowerBound(toKey)) {
+            throw new NoSuchElementException("No element has a key from " + fromKey + " to " + toKey);
+        }
+        return sorted.get(from);
+    }
+
+    private int idOf(K key) {
+        return keys.find(key);
+    }
+
+    /**
+     * @return The position of the first key that is not lower than the key given.
+     */
+    private int lowerBound(K key) {
+        if (comparator == null) {
+            throw new IllegalStateException("Range lookups need an index built with a Comparator for the key");
+        }
+        int low = 0;
+        int high = sortedKeys.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (comparator.compare(ChainIndex.<K>cast(sortedKeys[middle]), key) < 0) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private ChainBuilder<T> chain(List<T> elements) {
+        return new Chain<T>(engine.<T>derive(), Collections.unmodifiableList(elements), false)
+                .withSetOperationStrategy(setOperationStrategy)
+                .withListener(listener);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> asList(Object[] elements) {
+        return (List<T>) Arrays.asList(elements);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> K cast(Object o) {
+        return (K) o;
+    }
+}
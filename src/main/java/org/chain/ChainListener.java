@@ -0,0 +1,18 @@
+package org.chain;
+
+/**
+ * Is told about every operation a chain performs, so slow stages can be found in production.
+ * <br/>Register one with {@link ChainBuilder#withListener(ChainListener)}. Chains without a listener skip all measuring.
+ */
+public interface ChainListener
+{
+    /**
+     * Called after each operation completes on the thread that performed it.
+     * @param operation The name of the operation, such as where, sort or first.
+     * @param inputSize How many elements the operation was given, or -1 if counting them would run a lazy stage.
+     * @param outputSize How many elements the operation produced, or -1 if it produced a single value or a lazy stage.
+     * @param elapsedNanos How long the operation took, in nanoseconds.
+     * @param allocatedBytes An estimate of the bytes allocated by the thread during the operation, or -1 if the JVM cannot tell.
+     */
+    void operationCompleted(String operation, int inputSize, int outputSize, long elapsedNanos, long allocatedBytes);
+}
@@ -0,0 +1,479 @@
+package org.chain;
+
+import org.chain.filters.ManySelector;
+import org.chain.filters.Selector;
+import org.chain.filters.WhereComparator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs where, select, selectMany, distinct and take over elements pushed by a {@link Flow.Publisher},
+ * passing the results on to a single {@link Flow.Subscriber} no faster than it requests them.
+ * <br/>Elements are requested from the publisher in batches, topped up once half a batch is left outstanding,
+ * and only while the subscriber has demand and fewer than a batch of results are waiting,
+ * so at most one batch of elements and the results they produce are ever held on the heap.
+ * <br/>Reactive Streams forbids passing null on, so a stage that produces null cancels the publisher and fails the subscriber
+ * with a {@link NullPointerException}, after the results produced before it.
+ * <br/>Build the stages first, then subscribe. Each stage builds a new processor and leaves the one it was called on unusable.
+ * <br/>{ publisher of [ 1, 2, 3, 4 ] } where(a >= 2) take(2) => { subscriber gets 2, 3, then onComplete }
+ * @param <T> The type of the elements pushed by the publisher.
+ * @param <R> The type of the results passed on to the subscriber.
+ */
+public final class ChainProcessor<T, R> implements Flow.Processor<T, R>
+{
+    /** How many elements are requested from the publisher at a time, unless another batch size is given. */
+    public static final int DEFAULT_BATCH_SIZE = 64;
+    private static final Object NULL_RESULT = new Object();
+
+    private final int batchSize;
+    private final List<Stage> stages;
+    private boolean superseded;
+
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    private volatile Flow.Subscription upstream;
+    private volatile Flow.Subscriber<? super R> downstream;
+    private final AtomicLong requested = new AtomicLong();
+    private final ConcurrentLinkedQueue<Object> queue = new ConcurrentLinkedQueue<Object>();
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile boolean done;
+    private volatile boolean cancelled;
+    private Throwable error;
+    /** How many elements were requested from the publisher, only touched by the thread draining. */
+    private long upstreamRequested;
+    private Stage head;
+
+    private ChainProcessor(int batchSize, List<Stage> stages) {
+        this.batchSize = batchSize;
+        this.stages = stages;
+    }
+
+    /**
+     * @param <T> The type of the elements pushed by the publisher.
+     * @return A {@link ChainProcessor} that passes every element on, requesting {@link #DEFAULT_BATCH_SIZE} elements at a time.
+     */
+    public static <T> ChainProcessor<T, T> create() {
+        return create(DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param batchSize How many elements to request from the publisher at a time.
+     * @param <T> The type of the elements pushed by the publisher.
+     * @return A {@link ChainProcessor} that passes every element on.
+     */
+    public static <T> ChainProcessor<T, T> create(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize = " + batchSize);
+        }
+        return new ChainProcessor<T, T>(batchSize, new ArrayList<Stage>());
+    }
+
+    /**
+     * Passes on only the results that meet the condition.
+     * <br/>{ [ 1, 2, 3, 4 ] } where(a >= 2) => { [ 2, 3, 4 ] }
+     * @param comparator Defines the condition to be met for each result.
+     * @return A {@link ChainProcessor} that takes over from this one.
+     */
+    public ChainProcessor<T, R> where(final WhereComparator<R> comparator) {
+        return then(new Stage() {
+            @Override
+            void push(Object value) {
+                if (comparator.meetsCondition(ChainProcessor.<R>cast(value))) {
+                    next.push(value);
+                }
+            }
+        });
+    }
+
+    /**
+     * Selects a field from each result.
+     * <br/>{ [ {a:1}, {a:2} ] } select(a) => { [ 1, 2 ] }
+     * @param selector Defines which field to select from each result.
+     * @param <RD> The type of the field selected.
+     * @return A {@link ChainProcessor} that takes over from this one.
+     */
+    public <RD> ChainProcessor<T, RD> select(final Selector<R, RD> selector) {
+        return then(new Stage() {
+            @Override
+            void push(Object value) {
+                next.push(selector.select(ChainProcessor.<R>cast(value)));
+            }
+        });
+    }
+
+    /**
+     * Selects a field containing a {@link Collection} from each result and passes on each of its elements.
+     * <br/>{ [ {a:[1, 2]}, {a:[3, 4]} ] } selectMany(a) => { [ 1, 2, 3, 4 ] }
+     * @param selector Defines which field to select from each result.
+     * @param <RD> The type of the elements of the field selected.
+     * @return A {@link ChainProcessor} that takes over from this one.
+     */
+    public <RD> ChainProcessor<T, RD> selectMany(final ManySelector<R, RD> selector) {
+        return then(new Stage() {
+            @Override
+            void push(Object value) {
+                final Collection<RD> selected = selector.select(ChainProcessor.<R>cast(value));
+                if (selected != null) {
+                    for (RD rd : selected) {
+                        next.push(rd);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Drops results equal to one of the most recently passed distinct results.
+     * <br/>An endless stream cannot remember every result, so a result seen longer ago than the window passes again.
+     * <br/>{ [ 1, 2, 2, 3, 1 ] } distinct(2) => { [ 1, 2, 3, 1 ] }
+     * @param window How many distinct results to remember.
+     * @return A {@link ChainProcessor} that takes over from this one.
+     */
+    public ChainProcessor<T, R> distinct(final int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("window = " + window);
+        }
+        return then(new Stage() {
+            private final LinkedHashMap<Object, Boolean> seen = new LinkedHashMap<Object, Boolean>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, Boolean> eldest) {
+                    return size() > window;
+                }
+            };
+
+            @Override
+            void push(Object value) {
+                if (seen.put(value == null ? NULL_RESULT : value, Boolean.TRUE) == null) {
+                    next.push(value);
+                }
+            }
+        });
+    }
+
+    /**
+     * Passes on the given number of results, then cancels the publisher and completes.
+     * <br/>{ [ 1, 2, 3, 4 ] } take(2) => { [ 1, 2 ] }
+     * @param numberToTake The most results to pass on.
+     * @return A {@link ChainProcessor} that takes over from this one.
+     */
+    public ChainProcessor<T, R> take(final long numberToTake) {
+        if (numberToTake < 0) {
+            throw new IndexOutOfBoundsException("numberToTake = " + numberToTake);
+        }
+        return then(new Stage() {
+            private long taken;
+
+            @Override
+            boolean isExhausted() {
+                return taken >= numberToTake;
+            }
+
+            @Override
+            void push(Object value) {
+                if (taken < numberToTake) {
+                    taken++;
+                    next.push(value);
+                }
+                if (taken >= numberToTake) {
+                    owner.complete();
+                }
+            }
+        });
+    }
+
+    /**
+     * Subscribes to the publisher and returns this processor, so a chain can be attached to a publisher in one expression.
+     * @param publisher The publisher of the elements.
+     * @return This {@link ChainProcessor}.
+     */
+    public ChainProcessor<T, R> attach(Flow.Publisher<? extends T> publisher) {
+        publisher.subscribe(this);
+        return this;
+    }
+
+    /**
+     * Subscribes to this processor and gathers every result into a {@link Chain}, for publishers that complete.
+     * <br/>Results are requested a batch at a time, but all of them are kept until the publisher completes,
+     * so take a bounded number of results first when the publisher may not complete.
+     * @return A {@link CompletableFuture} completed with a {@link Chain} of the results, or with the error of the publisher or a stage.
+     */
+    public CompletableFuture<ChainBuilder<R>> toChain() {
+        final CompletableFuture<ChainBuilder<R>> future = new CompletableFuture<ChainBuilder<R>>();
+        subscribe(new Flow.Subscriber<R>() {
+            private final ArrayList<R> results = new ArrayList<R>();
+            private Flow.Subscription subscription;
+            private long outstanding;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                outstanding = batchSize;
+                subscription.request(batchSize);
+            }
+
+            @Override
+            public void onNext(R item) {
+                results.add(item);
+                if (--outstanding == 0) {
+                    outstanding = batchSize;
+                    subscription.request(batchSize);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                future.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                future.complete(new Chain<R>(new ChainEngineImpl<R>(), results, false));
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super R> subscriber) {
+        throwIfSuperseded();
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("A ChainProcessor can only have one subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    final Flow.Subscription subscription = upstream;
+                    if (subscription != null) {
+                        subscription.cancel();
+                    }
+                    fail(new IllegalArgumentException("Non-positive request: " + n));
+                    return;
+                }
+                long current;
+                long next;
+                do {
+                    current = requested.get();
+                    next = current + n < 0 ? Long.MAX_VALUE : current + n;
+                } while (!requested.compareAndSet(current, next));
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                final Flow.Subscription subscription = upstream;
+                if (subscription != null) {
+                    subscription.cancel();
+                }
+            }
+        });
+        downstream = subscriber;
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        throwIfSuperseded();
+        if (upstream != null) {
+            subscription.cancel();
+            return;
+        }
+        Stage next = new Stage() {
+            @Override
+            void push(Object value) {
+                if (value == null) {
+                    throw new NullPointerException("A stage produced null, which cannot be passed on to the subscriber");
+                }
+                queue.offer(value);
+                queued.incrementAndGet();
+            }
+        };
+        for (int i = stages.size() - 1; i >= 0; i--) {
+            stages.get(i).owner = this;
+            stages.get(i).next = next;
+            next = stages.get(i);
+        }
+        head = next;
+        upstream = subscription;
+        for (Stage stage : stages) {
+            if (stage.isExhausted()) {
+                complete();
+            }
+        }
+        drain();
+    }
+
+    @Override
+    public void onNext(T item) {
+        if (done) {
+            return;
+        }
+        received.incrementAndGet();
+        try {
+            head.push(item);
+        } catch (Throwable t) {
+            upstream.cancel();
+            fail(t);
+            return;
+        }
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        fail(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        done = true;
+        drain();
+    }
+
+    private <RD> ChainProcessor<T, RD> then(Stage stage) {
+        throwIfSuperseded();
+        if (subscribed.get() || upstream != null) {
+            throw new IllegalStateException("Stages must be added before subscribing");
+        }
+        final List<Stage> next = new ArrayList<Stage>(stages);
+        next.add(stage);
+        superseded = true;
+        return new ChainProcessor<T, RD>(batchSize, next);
+    }
+
+    private void complete() {
+        if (!done) {
+            done = true;
+            upstream.cancel();
+        }
+    }
+
+    private void fail(Throwable throwable) {
+        if (done) {
+            return;
+        }
+        error = throwable;
+        done = true;
+        drain();
+    }
+
+    /**
+     * Passes queued results on as far as the subscriber's demand allows, then tops up the demand on the publisher.
+     * <br/>Only one thread drains at a time; a thread that finds another draining leaves it another round to run.
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        while (true) {
+            final Flow.Subscriber<? super R> subscriber = downstream;
+            if (subscriber != null) {
+                if (cancelled) {
+                    queue.clear();
+                    return;
+                }
+                final long demand = requested.get();
+                long emitted = 0;
+                while (emitted != demand) {
+                    final boolean finished = done;
+                    final Object result = queue.poll();
+                    if (result == null) {
+                        if (finished) {
+                            terminate(subscriber);
+                            return;
+                        }
+                        break;
+                    }
+                    queued.decrementAndGet();
+                    subscriber.onNext(ChainProcessor.<R>cast(result));
+                    emitted++;
+                    if (cancelled) {
+                        queue.clear();
+                        return;
+                    }
+                }
+                if (done && queue.isEmpty()) {
+                    terminate(subscriber);
+                    return;
+                }
+                if (emitted != 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+                final Flow.Subscription subscription = upstream;
+                final long outstanding = upstreamRequested - received.get();
+                if (subscription != null && !done && requested.get() > 0
+                        && queued.get() < batchSize && outstanding <= batchSize / 2) {
+                    final long batch = batchSize - outstanding;
+                    upstreamRequested += batch;
+                    subscription.request(batch);
+                }
+            }
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    private void terminate(Flow.Subscriber<? super R> subscriber) {
+        cancelled = true;
+        if (error != null) {
+            subscriber.onError(error);
+        }
+        else {
+            subscriber.onComplete();
+        }
+    }
+
+    private void throwIfSuperseded() {
+        if (superseded) {
+            throw new IllegalStateException("This processor was extended by another stage; use the processor that was returned");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V cast(Object o) {
+        return (V) o;
+    }
+
+    /**
+     * One stage of the processor, handing what it produces to the stage after it.
+     */
+    private abstract static class Stage
+    {
+        ChainProcessor<?, ?> owner;
+        Stage next;
+
+        /**
+         * @return True if the stage will never pass anything on again.
+         */
+        boolean isExhausted() {
+            return false;
+        }
+
+        abstract void push(Object value);
+    }
+}
@@ -0,0 +1,327 @@
+package org.chain;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the results of chain queries over sources that do not change, so that a query built again
+ * over the same source returns the result it returned before instead of running again.
+ * <br/>A result is found again by the identity and version of its source and by the signature of the query,
+ * which should hold everything the result depends on, such as the comparators and selectors used and the terminal operation.
+ * Comparators and selectors made from anonymous classes are only equal to themselves, so keep them in fields to hit the cache.
+ * <br/>Once the cache holds more results than its maximum entries, or results weighing more than its maximum weight,
+ * the least recently used results are evicted. A {@link Collection} or {@link Map} weighs as much as its size, any other result weighs 1.
+ * <br/>The cache only holds on to a source while it remembers a result for it or a query over it is running, so sources that are done with can be collected.
+ * <br/>Results are shared by every caller that hits them, so they must not be modified.
+ * <br/>Lookups hold a lock only to read or update the entries, never while a query runs, so one instance can be shared by any number of threads.
+ */
+public final class ChainQueryCache
+{
+    private static final Object NULL_RESULT = new Object();
+
+    private final int maximumEntries;
+    private final long maximumWeight;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+    /** The latest version seen of each source that has results remembered or a query running. */
+    private final Map<IdentityKey, Source> sources = new HashMap<IdentityKey, Source>();
+    private long weight;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * A query to run when its result is not in the cache.
+     * @param <V> The type of the result.
+     */
+    public interface Query<V>
+    {
+        /**
+         * @return The result of the query.
+         */
+        V run();
+    }
+
+    /**
+     * @param maximumEntries The most results to keep.
+     * @param maximumWeight The most total weight of results to keep.
+     */
+    public ChainQueryCache(int maximumEntries, long maximumWeight) {
+        if (maximumEntries < 0) {
+            throw new IllegalArgumentException("maximumEntries = " + maximumEntries);
+        }
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("maximumWeight = " + maximumWeight);
+        }
+        this.maximumEntries = maximumEntries;
+        this.maximumWeight = maximumWeight;
+    }
+
+    /**
+     * Returns the result remembered for the source, version and signature, running the query and remembering its result if there is none.
+     * <br/>Seeing a newer version of a source evicts every result remembered for its older versions.
+     * <br/>{ cache } get(count, source, 1, isEven, "count") => { runs count }
+     * <br/>{ cache } get(count, source, 1, isEven, "count") => { remembered result }
+     * @param query Builds and runs the chain when the result is not remembered.
+     * @param source The source the chain is built over, compared by identity.
+     * @param version The version of the source, to be increased whenever the source changes.
+     * @param signature Everything else the result depends on, compared with equals.
+     * @param <V> The type of the result.
+     * @return The result of the query.
+     */
+    public <V> V get(Query<V> query, Object source, long version, Object... signature) {
+        final Key key = new Key(source, version, signature);
+        final Source running;
+        synchronized (this) {
+            running = retire(key.source, version);
+            final Entry entry = entries.get(key);
+            if (entry != null) {
+                hits.increment();
+                return ChainQueryCache.<V>unmask(entry.result);
+            }
+            running.running++;
+        }
+        misses.increment();
+        final V result;
+        try {
+            result = query.run();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                finished(key.source, running);
+            }
+            throw e;
+        }
+        final Entry entry = new Entry(result == null ? NULL_RESULT : result, weigh(result));
+        synchronized (this) {
+            final Source current = sources.get(key.source);
+            if (current != null && current.version == version) {
+                if (entry.weight <= maximumWeight && maximumEntries > 0) {
+                    final Entry replaced = entries.put(key, entry);
+                    if (replaced != null) {
+                        weight -= replaced.weight;
+                    }
+                    else {
+                        current.entries++;
+                    }
+                    weight += entry.weight;
+                    evict();
+                }
+            }
+            finished(key.source, running);
+        }
+        return result;
+    }
+
+    /**
+     * Forgets every result remembered for a source, to be called when the source changes without a new version.
+     * @param source The source the results were built over, compared by identity.
+     */
+    public synchronized void invalidate(Object source) {
+        final IdentityKey identity = new IdentityKey(source);
+        sources.remove(identity);
+        for (Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator(); iterator.hasNext(); ) {
+            final Map.Entry<Key, Entry> entry = iterator.next();
+            if (entry.getKey().source.equals(identity)) {
+                weight -= entry.getValue().weight;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Forgets every result.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        sources.clear();
+        weight = 0;
+    }
+
+    /**
+     * @return How many lookups found a remembered result.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return How many lookups had to run their query.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return How many results were evicted to stay within the maximum entries and weight, or because a newer version of their source was seen.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return How many results are remembered.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The total weight of the results remembered.
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return How many sources the cache holds on to.
+     */
+    synchronized int sourceCount() {
+        return sources.size();
+    }
+
+    @Override
+    public String toString() {
+        return "ChainQueryCache{size=" + size() + ", weight=" + getWeight() + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "}";
+    }
+
+    /**
+     * @return The latest version seen of the source, after evicting the results of its older versions.
+     */
+    private Source retire(IdentityKey source, long version) {
+        final Source latest = sources.get(source);
+        if (latest == null) {
+            final Source added = new Source(version);
+            sources.put(source, added);
+            return added;
+        }
+        if (latest.version < version) {
+            latest.version = version;
+            for (Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator(); iterator.hasNext() && latest.entries > 0; ) {
+                final Map.Entry<Key, Entry> entry = iterator.next();
+                if (entry.getKey().source.equals(source) && entry.getKey().version < version) {
+                    weight -= entry.getValue().weight;
+                    evictions.increment();
+                    iterator.remove();
+                    latest.entries--;
+                }
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Counts a query over the source as done, and lets go of the source if nothing else needs it.
+     */
+    private void finished(IdentityKey identity, Source source) {
+        source.running--;
+        if (source.entries == 0 && source.running == 0 && sources.get(identity) == source) {
+            sources.remove(identity);
+        }
+    }
+
+    private void evict() {
+        final Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maximumEntries || weight > maximumWeight) && eldest.hasNext()) {
+            final Map.Entry<Key, Entry> entry = eldest.next();
+            weight -= entry.getValue().weight;
+            evictions.increment();
+            eldest.remove();
+            final Source source = sources.get(entry.getKey().source);
+            if (source != null && --source.entries == 0 && source.running == 0) {
+                sources.remove(entry.getKey().source);
+            }
+        }
+    }
+
+    private static long weigh(Object result) {
+        if (result instanceof Collection) {
+            return Math.max(1, ((Collection<?>) result).size());
+        }
+        if (result instanceof Map) {
+            return Math.max(1, ((Map<?, ?>) result).size());
+        }
+        return 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V unmask(Object result) {
+        return result == NULL_RESULT ? null : (V) result;
+    }
+
+    private static final class Entry
+    {
+        final Object result;
+        final long weight;
+
+        Entry(Object result, long weight) {
+            this.result = result;
+            this.weight = weight;
+        }
+    }
+
+    private static final class Source
+    {
+        long version;
+        /** How many results are remembered for the source, across its versions. */
+        int entries;
+        /** How many queries over the source are running, whose results may still be remembered. */
+        int running;
+
+        Source(long version) {
+            this.version = version;
+        }
+    }
+
+    private static final class IdentityKey
+    {
+        final Object source;
+
+        IdentityKey(Object source) {
+            this.source = source;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IdentityKey && ((IdentityKey) o).source == source;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(source);
+        }
+    }
+
+    private static final class Key
+    {
+        final IdentityKey source;
+        final long version;
+        final Object[] signature;
+        final int hash;
+
+        Key(Object source, long version, Object[] signature) {
+            this.source = new IdentityKey(source);
+            this.version = version;
+            this.signature = signature == null ? new Object[0] : signature;
+            this.hash = 31 * (31 * this.source.hashCode() + (int) (version ^ (version >>> 32))) + Arrays.hashCode(this.signature);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return hash == key.hash && version == key.version && source.equals(key.source) && Arrays.equals(signature, key.signature);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.chain;
+
+/**
+ * Is told about every element added to or removed from a source, so results built from it can be kept up to date.
+ * <br/>Subscribe one to an {@link ObservableCollection}, or call it directly from any source that knows its own changes.
+ * @param <T> The type of the elements of the source.
+ */
+public interface DeltaListener<T>
+{
+    /**
+     * Called after an element was added to the source.
+     * @param element The element that was added.
+     */
+    void added(T element);
+
+    /**
+     * Called after an element was removed from the source.
+     * @param element The element that was removed.
+     */
+    void removed(T element);
+}
@@ -0,0 +1,449 @@
+package org.chain;
+
+import org.chain.filters.DoubleAction;
+import org.chain.filters.DoubleSelector;
+import org.chain.filters.DoubleWhereComparator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Provides a fluent API to operate on double values stored in a double array, without boxing them.
+ * <br/>Values are ordered and compared the way {@link Double#compare(double, double)} does, so NaN is the highest value and equal to itself.
+ * <br/>The chain owns its array, so modifications are made in place wherever the size does not grow.
+ */
+public final class DoubleChain implements DoubleChainBuilder
+{
+    private double[] values;
+    private int from;
+    private int to;
+
+    /**
+     * @param values The values that actions or modifications will be made on. They are copied, so the array passed in is never modified.
+     */
+    public DoubleChain(double... values){
+        this.values = values == null ? new double[0] : values.clone();
+        this.from = 0;
+        this.to = this.values.length;
+    }
+
+    /**
+     * @return The result of the chain as a new double array.
+     */
+    @Override
+    public double[] toArray() {
+        return Arrays.copyOfRange(values, from, to);
+    }
+
+    /**
+     * @return The result of the chain as a {@link List} of boxed values.
+     */
+    @Override
+    public List<Double> toList() {
+        final ArrayList<Double> list = new ArrayList<Double>(to - from);
+        for (int i = from; i < to; i++) {
+            list.add(values[i]);
+        }
+        return list;
+    }
+
+    /**
+     * @return A {@link NumberChain} containing the boxed values of the chain.
+     */
+    @Override
+    public NumberChain<Double> boxed() {
+        return new NumberChain<Double>(new NumberChainEngineImpl<Double>(), toList(), false);
+    }
+
+    /**
+     * Performs an action using each value in the chain.
+     * @param action The action to perform on each value.
+     */
+    @Override
+    public void each(DoubleAction action) {
+        for (int i = from; i < to; i++) {
+            action.perform(values[i]);
+        }
+    }
+
+    /**
+     * Sorts the values in ascending order.
+     * <br/>{ [ 3, 1, 4, 2 ] } => { [ 1, 2, 3, 4 ] }
+     * @return A {@link DoubleChainBuilder} that contains the sorted values.
+     */
+    @Override
+    public DoubleChainBuilder sort() {
+        Arrays.sort(values, from, to);
+        return this;
+    }
+
+    /**
+     * Reverses the order of the values.
+     * <br/>{ [ 1, 2, 3, 4 ] } => { [ 4, 3, 2, 1 ] }
+     * @return A {@link DoubleChainBuilder} that contains the values in reverse order.
+     */
+    @Override
+    public DoubleChainBuilder reverse() {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            final double value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+        return this;
+    }
+
+    /**
+     * Appends values to the end of the chain.
+     * <br/>{ [ 1, 2 ] } concatenate { [ 3, 4 ] } => { [ 1, 2, 3, 4 ] }
+     * @param values The values to append.
+     * @return A {@link DoubleChainBuilder} that contains the values of the chain followed by the values passed in.
+     */
+    @Override
+    public DoubleChainBuilder concatenate(double... values) {
+        final double[] concatenated = Arrays.copyOfRange(this.values, from, to + values.length);
+        System.arraycopy(values, 0, concatenated, to - from, values.length);
+        this.values = concatenated;
+        this.from = 0;
+        this.to = concatenated.length;
+        return this;
+    }
+
+    /**
+     * Removes all values found in the chain already, keeping the first occurrence.
+     * <br/>Finds each value in a sorted copy, so it takes n log n time without boxing.
+     * <br/>{ [ 1, 1, 2, 2, 3 ] } => { [ 1, 2, 3 ] }
+     * @return A {@link DoubleChainBuilder} that contains each value only once.
+     */
+    @Override
+    public DoubleChainBuilder distinct() {
+        final double[] unique = toArray();
+        Arrays.sort(unique);
+        int uniqueCount = 0;
+        for (int i = 0; i < unique.length; i++) {
+            if (i == 0 || !same(unique[i], unique[uniqueCount - 1])) {
+                unique[uniqueCount++] = unique[i];
+            }
+        }
+        final boolean[] seen = new boolean[uniqueCount];
+        int kept = from;
+        for (int i = from; i < to; i++) {
+            final int index = Arrays.binarySearch(unique, 0, uniqueCount, values[i]);
+            if (!seen[index]) {
+                seen[index] = true;
+                values[kept++] = values[i];
+            }
+        }
+        to = kept;
+        return this;
+    }
+
+    /**
+     * Maps each value to a new value.
+     * <br/>{ [ 1, 2, 3, 4 ] } select(a * 2) => { [ 2, 4, 6, 8 ] }
+     * @param selector Defines the new value for each value.
+     * @return A {@link DoubleChainBuilder} that contains the new values.
+     */
+    @Override
+    public DoubleChainBuilder select(DoubleSelector selector) {
+        for (int i = from; i < to; i++) {
+            values[i] = selector.select(values[i]);
+        }
+        return this;
+    }
+
+    /**
+     * Selects all values that meet the condition specified.
+     * <br/>{ [ 1, 2, 3, 4 ] } where(a >= 2) => { [ 2, 3, 4 ] }
+     * @param comparator Defines the condition to be met for each value.
+     * @return A {@link DoubleChainBuilder} that contains all values that meet the condition specified.
+     */
+    @Override
+    public DoubleChainBuilder where(DoubleWhereComparator comparator) {
+        int kept = from;
+        for (int i = from; i < to; i++) {
+            if (comparator.meetsCondition(values[i])) {
+                values[kept++] = values[i];
+            }
+        }
+        to = kept;
+        return this;
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } isNullOrEmpty => { false }
+     * <br/>{ [ ] } isNullOrEmpty => { true }
+     * @return True if the chain contains zero values.
+     */
+    @Override
+    public boolean isNullOrEmpty() {
+        return to == from;
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } all(a >= 0) => { true }
+     * <br/>{ [ 1, 2, 3, 4 ] } all(a >= 2) => { false }
+     * @param comparator Defines the condition to be met for each value.
+     * @return True if all values meet the condition specified.
+     */
+    @Override
+    public boolean all(DoubleWhereComparator comparator) {
+        for (int i = from; i < to; i++) {
+            if (!comparator.meetsCondition(values[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } any(a >= 2) => { true }
+     * <br/>{ [ 1, 2, 3, 4 ] } any(a >= 200) => { false }
+     * @param comparator Defines the condition to be met for each value.
+     * @return True if any value meets the condition specified.
+     */
+    @Override
+    public boolean any(DoubleWhereComparator comparator) {
+        for (int i = from; i < to; i++) {
+            if (comparator.meetsCondition(values[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } any => { true }
+     * <br/>{ [ ] } any => { false }
+     * @return True if the chain contains any values.
+     */
+    @Override
+    public boolean any() {
+        return to > from;
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } none(a >= 2) => { false }
+     * <br/>{ [ 1, 2, 3, 4 ] } none(a >= 200) => { true }
+     * @param comparator Defines the condition to be met for each value.
+     * @return True if no values meet the condition specified.
+     */
+    @Override
+    public boolean none(DoubleWhereComparator comparator) {
+        return !any(comparator);
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } none => { false }
+     * <br/>{ [ ] } none => { true }
+     * @return True if the chain contains no values.
+     */
+    @Override
+    public boolean none() {
+        return !any();
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } count(a >= 2) => { 3 }
+     * @param comparator Defines the condition to be met for each value.
+     * @return How many values meet the condition specified.
+     */
+    @Override
+    public int count(DoubleWhereComparator comparator) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (comparator.meetsCondition(values[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } count => { 4 }
+     * @return How many values are in the chain.
+     */
+    @Override
+    public int count() {
+        return to - from;
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } first => { 1 }
+     * <br/>{ [ ] } first => NoSuchElementException
+     * @return The first value in the chain.
+     * @throws NoSuchElementException If the chain is empty.
+     */
+    @Override
+    public double first() {
+        throwNoSuchElementIfEmpty();
+        return values[from];
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } first(a > 2) => { 3 }
+     * <br/>{ [ 1, 2, 3, 4 ] } first(a > 200) => NoSuchElementException
+     * @param comparator Defines the condition to be met for the value to be found.
+     * @return The first value that meets the condition specified.
+     * @throws NoSuchElementException If no matching value found.
+     */
+    @Override
+    public double first(DoubleWhereComparator comparator) {
+        for (int i = from; i < to; i++) {
+            if (comparator.meetsCondition(values[i])) {
+                return values[i];
+            }
+        }
+        throw new NoSuchElementException("No value matching given comparator was found in the chain.");
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } last => { 4 }
+     * <br/>{ [ ] } last => NoSuchElementException
+     * @return The last value in the chain.
+     * @throws NoSuchElementException If the chain is empty.
+     */
+    @Override
+    public double last() {
+        throwNoSuchElementIfEmpty();
+        return values[to - 1];
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } last(a > 2) => { 4 }
+     * <br/>{ [ 1, 2, 3, 4 ] } last(a > 200) => NoSuchElementException
+     * @param comparator Defines the condition to be met for the value to be found.
+     * @return The last value that meets the condition specified.
+     * @throws NoSuchElementException If no matching value found.
+     */
+    @Override
+    public double last(DoubleWhereComparator comparator) {
+        for (int i = to - 1; i >= from; i--) {
+            if (comparator.meetsCondition(values[i])) {
+                return values[i];
+            }
+        }
+        throw new NoSuchElementException("No value matching given comparator was found in the chain.");
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } at(2) => { 3 }
+     * @param index The position of the value.
+     * @return The value at the given index.
+     * @throws IndexOutOfBoundsException If the index is not in the chain.
+     */
+    @Override
+    public double at(int index) {
+        if (index < 0 || index >= to - from) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+        }
+        return values[from + index];
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } skip(2) => { [ 3, 4 ] }
+     * @param numberToSkip How many values to remove from the front of the chain.
+     * @return A {@link DoubleChainBuilder} that contains the remaining values.
+     */
+    @Override
+    public DoubleChainBuilder skip(int numberToSkip) {
+        if (numberToSkip < 0 || numberToSkip > to - from) {
+            throw new IndexOutOfBoundsException("numberToSkip = " + numberToSkip + ", Size: " + (to - from));
+        }
+        from += numberToSkip;
+        return this;
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } take(2) => { [ 1, 2 ] }
+     * @param numberToTake How many values to keep from the front of the chain.
+     * @return A {@link DoubleChainBuilder} that contains the given number of values from the front of the chain.
+     */
+    @Override
+    public DoubleChainBuilder take(int numberToTake) {
+        if (numberToTake < 0 || numberToTake > to - from) {
+            throw new IndexOutOfBoundsException("numberToTake = " + numberToTake + ", Size: " + (to - from));
+        }
+        to = from + numberToTake;
+        return this;
+    }
+
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 2 }
+     * @return The lowest value in the chain.
+     * @throws NoSuchElementException If the chain is empty.
+     */
+    @Override
+    public double min() {
+        throwNoSuchElementIfEmpty();
+        double min = values[from];
+        for (int i = from + 1; i < to; i++) {
+            if (Double.compare(values[i], min) < 0) {
+                min = values[i];
+            }
+        }
+        return min;
+    }
+
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 4 }
+     * @return The highest value in the chain.
+     * @throws NoSuchElementException If the chain is empty.
+     */
+    @Override
+    public double max() {
+        throwNoSuchElementIfEmpty();
+        double max = values[from];
+        for (int i = from + 1; i < to; i++) {
+            if (Double.compare(values[i], max) > 0) {
+                max = values[i];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 9 }
+     * <br/>Uses compensated (Neumaier) summation, so the rounding error does not grow with the number of values.
+     * @return The sum of all the values in the chain.
+     */
+    @Override
+    public double sum() {
+        double sum = 0;
+        double compensation = 0;
+        for (int i = from; i < to; i++) {
+            final double value = values[i];
+            final double total = sum + value;
+            if (Math.abs(sum) >= Math.abs(value)) {
+                compensation += (sum - total) + value;
+            }
+            else {
+                compensation += (value - total) + sum;
+            }
+            sum = total;
+        }
+        return sum + compensation;
+    }
+
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 3 }
+     * @return The average of all the values in the chain.
+     * @throws NoSuchElementException If the chain is empty.
+     */
+    @Override
+    public double average() {
+        throwNoSuchElementIfEmpty();
+        return sum() / (to - from);
+    }
+
+    private void throwNoSuchElementIfEmpty() {
+        if (to == from) {
+            throw new NoSuchElementException("No values found in the chain.");
+        }
+    }
+
+    private static boolean same(double value1, double value2) {
+        return Double.compare(value1, value2) == 0;
+    }
+}
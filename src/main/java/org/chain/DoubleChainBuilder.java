@@ -0,0 +1,201 @@
+package org.chain;
+
+import org.chain.filters.DoubleAction;
+import org.chain.filters.DoubleSelector;
+import org.chain.filters.DoubleWhereComparator;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Provides a fluent API to operate on double values without boxing them.
+ */
+public interface DoubleChainBuilder
+{
+    /**
+     * @return The result of the chain as a new double array.
+     */
+    double[] toArray();
+    /**
+     * @return The result of the chain as a {@link List} of boxed values.
+     */
+    List<Double> toList();
+    /**
+     * @return A {@link NumberChain} containing the boxed values of the chain.
+     */
+    NumberChain<Double> boxed();
+
+    //mod
+    /**
+     * Performs an action using each value in the chain.
+     * @param action The action to perform on each value.
+     */
+    void each(final DoubleAction action);
+    /**
+     * Sorts the values in ascending order.
+     * <br/>{ [ 3, 1, 4, 2 ] } => { [ 1, 2, 3, 4 ] }
+     * @return A {@link DoubleChainBuilder} that contains the sorted values.
+     */
+    DoubleChainBuilder sort();
+    /**
+     * Reverses the order of the values.
+     * <br/>{ [ 1, 2, 3, 4 ] } => { [ 4, 3, 2, 1 ] }
+     * @return A {@link DoubleChainBuilder} that contains the values in reverse order.
+     */
+    DoubleChainBuilder reverse();
+    /**
+     * Appends values to the end of the chain.
+     * <br/>{ [ 1, 2 ] } concatenate { [ 3, 4 ] } => { [ 1, 2, 3, 4 ] }
+     * @param values The values to append.
+     * @return A {@link DoubleChainBuilder} that contains the values of the chain followed by the values passed in.
+     */
+    DoubleChainBuilder concatenate(final double... values);
+    /**
+     * Removes all values found in the chain already, keeping the first occurrence.
+     * <br/>{ [ 1, 1, 2, 2, 3 ] } => { [ 1, 2, 3 ] }
+     * @return A {@link DoubleChainBuilder} that contains each value only once.
+     */
+    DoubleChainBuilder distinct();
+
+    //query
+    /**
+     * Maps each value to a new value.
+     * <br/>{ [ 1, 2, 3, 4 ] } select(a * 2) => { [ 2, 4, 6, 8 ] }
+     * @param selector Defines the new value for each value.
+     * @return A {@link DoubleChainBuilder} that contains the new values.
+     */
+    DoubleChainBuilder select(final DoubleSelector selector);
+    /**
+     * Selects all values that meet the condition specified.
+     * <br/>{ [ 1, 2, 3, 4 ] } where(a >= 2) => { [ 2, 3, 4 ] }
+     * @param comparator Defines the condition to be met for each value.
+     * @return A {@link DoubleChainBuilder} that contains all values that meet the condition specified.
+     */
+    DoubleChainBuilder where(final DoubleWhereComparator comparator);
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } isNullOrEmpty => { false }
+     * <br/>{ [ ] } isNullOrEmpty => { true }
+     * @return True if the chain contains zero values.
+     */
+    boolean isNullOrEmpty();
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } all(a >= 0) => { true }
+     * <br/>{ [ 1, 2, 3, 4 ] } all(a >= 2) => { false }
+     * @param comparator Defines the condition to be met for each value.
+     * @return True if all values meet the condition specified.
+     */
+    boolean all(final DoubleWhereComparator comparator);
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } any(a >= 2) => { true }
+     * <br/>{ [ 1, 2, 3, 4 ] } any(a >= 200) => { false }
+     * @param comparator Defines the condition to be met for each value.
+     * @return True if any value meets the condition specified.
+     */
+    boolean any(final DoubleWhereComparator comparator);
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } any => { true }
+     * <br/>{ [ ] } any => { false }
+     * @return True if the chain contains any values.
+     */
+    boolean any();
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } none(a >= 2) => { false }
+     * <br/>{ [ 1, 2, 3, 4 ] } none(a >= 200) => { true }
+     * @param comparator Defines the condition to be met for each value.
+     * @return True if no values meet the condition specified.
+     */
+    boolean none(final DoubleWhereComparator comparator);
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } none => { false }
+     * <br/>{ [ ] } none => { true }
+     * @return True if the chain contains no values.
+     */
+    boolean none();
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } count(a >= 2) => { 3 }
+     * @param comparator Defines the condition to be met for each value.
+     * @return How many values meet the condition specified.
+     */
+    int count(final DoubleWhereComparator comparator);
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } count => { 4 }
+     * @return How many values are in the chain.
+     */
+    int count();
+
+    //access
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } first => { 1 }
+     * <br/>{ [ ] } first => NoSuchElementException
+     * @return The first value in the chain.
+     * @throws NoSuchElementException If the chain is empty.
+     */
+    double first();
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } first(a > 2) => { 3 }
+     * <br/>{ [ 1, 2, 3, 4 ] } first(a > 200) => NoSuchElementException
+     * @param comparator Defines the condition to be met for the value to be found.
+     * @return The first value that meets the condition specified.
+     * @throws NoSuchElementException If no matching value found.
+     */
+    double first(final DoubleWhereComparator comparator);
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } last => { 4 }
+     * <br/>{ [ ] } last => NoSuchElementException
+     * @return The last value in the chain.
+     * @throws NoSuchElementException If the chain is empty.
+     */
+    double last();
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } last(a > 2) => { 4 }
+     * <br/>{ [ 1, 2, 3, 4 ] } last(a > 200) => NoSuchElementException
+     * @param comparator Defines the condition to be met for the value to be found.
+     * @return The last value that meets the condition specified.
+     * @throws NoSuchElementException If no matching value found.
+     */
+    double last(final DoubleWhereComparator comparator);
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } at(2) => { 3 }
+     * @param index The position of the value.
+     * @return The value at the given index.
+     * @throws IndexOutOfBoundsException If the index is not in the chain.
+     */
+    double at(final int index);
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } skip(2) => { [ 3, 4 ] }
+     * @param numberToSkip How many values to remove from the front of the chain.
+     * @return A {@link DoubleChainBuilder} that contains the remaining values.
+     */
+    DoubleChainBuilder skip(final int numberToSkip);
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } take(2) => { [ 1, 2 ] }
+     * @param numberToTake How many values to keep from the front of the chain.
+     * @return A {@link DoubleChainBuilder} that contains the given number of values from the front of the chain.
+     */
+    DoubleChainBuilder take(final int numberToTake);
+
+    //aggregate
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 2 }
+     * @return The lowest value in the chain.
+     * @throws NoSuchElementException If the chain is empty.
+     */
+    double min();
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 4 }
+     * @return The highest value in the chain.
+     * @throws NoSuchElementException If the chain is empty.
+     */
+    double max();
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 9 }
+     * @return The sum of all the values in the chain.
+     */
+    double sum();
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 3 }
+     * @return The average of all the values in the chain.
+     * @throws NoSuchElementException If the chain is empty.
+     */
+    double average();
+}
@@ -0,0 +1,235 @@
+package org.chain;
+
+import org.chain.filters.ElementCodec;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts more elements than fit in memory, holding no more than a budget of them on the heap at once.
+ * <br/>Iterating reads the source in chunks of the budget, sorts each chunk and writes it to a temporary file as a sorted run,
+ * then merges the runs, reading each through its own buffer, so the sorted elements stream out one at a time.
+ * <br/>A source that fits in the budget is sorted in memory without touching the disk.
+ * <br/>Like {@link java.util.Collections#sort(List, Comparator)} the sort is stable: equal elements keep their order.
+ * <br/>Each run file is unlinked as soon as it is opened for the merge where the file system allows it,
+ * and otherwise deleted once the iterator is exhausted or closed.
+ * @param <T> The type of the elements sorted.
+ */
+final class ExternalSortedCollection<T> extends LazyCollection<T> {
+    /** The most runs merged at once, so a huge input does not open a file for every run. */
+    static final int MAX_FAN_IN = 64;
+
+    final Collection<T> source;
+    final Comparator<T> comparator;
+    final ElementCodec<T> codec;
+    final int maxElementsInMemory;
+
+    /**
+     * @throws IllegalArgumentException If maxElementsInMemory is less than 1.
+     */
+    ExternalSortedCollection(Collection<T> source, Comparator<T> comparator, ElementCodec<T> codec, int maxElementsInMemory) {
+        if (maxElementsInMemory < 1) {
+            throw new IllegalArgumentException("maxElementsInMemory = " + maxElementsInMemory);
+        }
+        this.source = source;
+        this.comparator = comparator;
+        this.codec = codec;
+        this.maxElementsInMemory = maxElementsInMemory;
+    }
+
+    @Override
+    boolean isUnbounded() {
+        return LazyCollection.isUnbounded(source);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        throwIfUnbounded(source, "sort");
+        final ArrayList<T> buffer = new ArrayList<T>(Math.min(maxElementsInMemory, 1 << 16));
+        List<SpillFile<T>> runs = new ArrayList<SpillFile<T>>();
+        try {
+            for (T t : source) {
+                buffer.add(t);
+                if (buffer.size() == maxElementsInMemory) {
+                    runs.add(spill(buffer));
+                    buffer.clear();
+                }
+            }
+            if (runs.isEmpty()) {
+                Collections.sort(buffer, comparator);
+                return buffer.iterator();
+            }
+            if (!buffer.isEmpty()) {
+                runs.add(spill(buffer));
+                buffer.clear();
+            }
+            while (runs.size() > MAX_FAN_IN) {
+                runs = mergePass(runs);
+            }
+            return new MergeIterator<T>(runs, comparator);
+        } catch (IOException e) {
+            deleteAll(runs);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            deleteAll(runs);
+            throw e;
+        }
+    }
+
+    private static void deleteAll(List<? extends SpillFile<?>> runs) {
+        for (SpillFile<?> run : runs) {
+            run.delete();
+        }
+    }
+
+    private SpillFile<T> spill(ArrayList<T> buffer) throws IOException {
+        Collections.sort(buffer, comparator);
+        final SpillFile<T> run = SpillFile.create(codec);
+        boolean written = false;
+        try {
+            for (T t : buffer) {
+                run.write(t);
+            }
+            run.finish();
+            written = true;
+        } finally {
+            if (!written) {
+                run.delete();
+            }
+        }
+        return run;
+    }
+
+    /**
+     * Merges each group of up to {@link #MAX_FAN_IN} runs into one longer run, keeping the groups in order so the sort stays stable.
+     */
+    private List<SpillFile<T>> mergePass(List<SpillFile<T>> runs) throws IOException {
+        final List<SpillFile<T>> merged = new ArrayList<SpillFile<T>>((runs.size() + MAX_FAN_IN - 1) / MAX_FAN_IN);
+        for (int from = 0; from < runs.size(); from += MAX_FAN_IN) {
+            final List<SpillFile<T>> group = runs.subList(from, Math.min(from + MAX_FAN_IN, runs.size()));
+            final MergeIterator<T> iterator = new MergeIterator<T>(new ArrayList<SpillFile<T>>(group), comparator);
+            final SpillFile<T> run;
+            try {
+                run = SpillFile.create(codec);
+            } catch (IOException e) {
+                iterator.close();
+                deleteAll(merged);
+                throw e;
+            }
+            boolean written = false;
+            try {
+                while (iterator.hasNext()) {
+                    run.write(iterator.next());
+                }
+                run.finish();
+                written = true;
+            } finally {
+                if (!written) {
+                    iterator.close();
+                    run.delete();
+                    deleteAll(merged);
+                }
+            }
+            merged.add(run);
+        }
+        return merged;
+    }
+
+    /**
+     * Merges sorted runs by always handing over the smallest head of any run, taking the earliest run on a tie.
+     */
+    static final class MergeIterator<T> extends LookaheadIterator<T> {
+        private final List<SpillFile<T>> runs;
+        private final List<SpillFile<T>.Reader> readers;
+        private final PriorityQueue<Head<T>> heads;
+
+        MergeIterator(List<SpillFile<T>> runs, final Comparator<T> comparator) throws IOException {
+            this.runs = runs;
+            this.readers = new ArrayList<SpillFile<T>.Reader>(runs.size());
+            this.heads = new PriorityQueue<Head<T>>(Math.max(1, runs.size()), new Comparator<Head<T>>() {
+                @Override
+                public int compare(Head<T> o1, Head<T> o2) {
+                    final int compared = comparator.compare(o1.value, o2.value);
+                    return compared != 0 ? compared : Integer.compare(o1.run, o2.run);
+                }
+            });
+            boolean opened = false;
+            try {
+                for (int i = 0; i < runs.size(); i++) {
+                    final SpillFile<T>.Reader reader = runs.get(i).open();
+                    readers.add(reader);
+                    if (reader.hasNext()) {
+                        heads.add(new Head<T>(reader, reader.next(), i));
+                    }
+                }
+                opened = true;
+            } finally {
+                if (!opened) {
+                    close();
+                }
+            }
+        }
+
+        @Override
+        protected boolean advance() {
+            final Head<T> head = heads.poll();
+            if (head == null) {
+                close();
+                return false;
+            }
+            supply(head.value);
+            if (head.reader.hasNext()) {
+                try {
+                    head.value = head.reader.next();
+                } catch (IOException e) {
+                    close();
+                    throw new UncheckedIOException(e);
+                } catch (RuntimeException e) {
+                    close();
+                    throw e;
+                }
+                heads.add(head);
+            }
+            return true;
+        }
+
+        /**
+         * Closes every run and deletes its file.
+         */
+        @Override
+        public void close() {
+            heads.clear();
+            for (SpillFile<T>.Reader reader : readers) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    // Deleting anyway.
+                }
+            }
+            readers.clear();
+            for (SpillFile<T> run : runs) {
+                run.delete();
+            }
+            runs.clear();
+        }
+    }
+
+    private static final class Head<T> {
+        final SpillFile<T>.Reader reader;
+        final int run;
+        T value;
+
+        Head(SpillFile<T>.Reader reader, T value, int run) {
+            this.reader = reader;
+            this.value = value;
+            this.run = run;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package org.chain;
+
+import org.chain.filters.Selector;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The elements of a chain grouped by a key, ready to be turned into a chain per key or aggregated per key.
+ * <br/>Nothing is grouped until one of its methods is called, and each call makes a single pass over the elements.
+ * <br/>count, sum, min, max, average and summaryStatistics keep only the running aggregate of each key,
+ * so they never build the list of elements in a group.
+ * <br/>Every {@link Map} returned holds the keys in the order they were first seen.
+ * @param <K> The type of the key selected from each element.
+ * @param <T> The type found in the {@link Collection} in the chain.
+ */
+public final class GroupedChain<K, T>
+{
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final ChainEngine<T> engine;
+    private final Collection<T> collection;
+    private final Selector<T, K> keySelector;
+    private final SetOperationStrategy setOperationStrategy;
+    private final ChainListener listener;
+    private long allocatedAtStart;
+
+    /**
+     * @param engine The {@link ChainEngine} of the chain that was grouped.
+     * @param collection The {@link Collection} to group.
+     * @param keySelector Defines the key to group elements by, using its hashCode and equals.
+     * @param setOperationStrategy The strategy of the chain that was grouped, passed on to the chain of each group.
+     * @param listener The listener of the chain that was grouped, or null.
+     */
+    GroupedChain(ChainEngine<T> engine, Collection<T> collection, Selector<T, K> keySelector,
+                 SetOperationStrategy setOperationStrategy, ChainListener listener) {
+        this.engine = engine;
+        this.collection = collection == null ? Collections.<T>emptyList() : collection;
+        this.keySelector = keySelector;
+        this.setOperationStrategy = setOperationStrategy;
+        this.listener = listener;
+    }
+
+    /**
+     * Builds a chain of the elements of each group, in the order they were in the {@link Collection}.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2}, {a:1, b:3} ] } groupBy(a) toMap => { 1: [ {a:1, b:1}, {a:1, b:3} ], 2: [ {a:2, b:2} ] }
+     * @return The chain of each key.
+     */
+    public Map<K, ChainBuilder<T>> toMap() {
+        final long started = started();
+        final OpenHashIndex<K> index = index();
+        ArrayList<?>[] groups = new ArrayList<?>[INITIAL_CAPACITY];
+        for (T t : collection) {
+            final int id = index.indexOf(keySelector.select(t));
+            if (id == groups.length) {
+                groups = Arrays.copyOf(groups, id * 2);
+            }
+            if (groups[id] == null) {
+                groups[id] = new ArrayList<T>();
+            }
+            GroupedChain.<ArrayList<T>>cast(groups[id]).add(t);
+        }
+        final Map<K, ChainBuilder<T>> chains = newMap(index.size());
+        for (int id = 0; id < index.size(); id++) {
+            chains.put(index.keyAt(id), new Chain<T>(engine.<T>derive(), GroupedChain.<ArrayList<T>>cast(groups[id]), false)
+                    .withSetOperationStrategy(setOperationStrategy)
+                    .withListener(listener));
+        }
+        finished("groupBy", chains.size(), started);
+        return chains;
+    }
+
+    /**
+     * Counts the elements of each group.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2}, {a:1, b:3} ] } groupBy(a) count => { 1: 2, 2: 1 }
+     * @return How many elements have each key.
+     */
+    public Map<K, Integer> count() {
+        final long started = started();
+        final OpenHashIndex<K> index = index();
+        int[] counts = new int[INITIAL_CAPACITY];
+        for (T t : collection) {
+            final int id = index.indexOf(keySelector.select(t));
+            if (id == counts.length) {
+                counts = Arrays.copyOf(counts, id * 2);
+            }
+            counts[id]++;
+        }
+        final Map<K, Integer> result = newMap(index.size());
+        for (int id = 0; id < index.size(); id++) {
+            result.put(index.keyAt(id), counts[id]);
+        }
+        finished("groupBy.count", result.size(), started);
+        return result;
+    }
+
+    /**
+     * Adds up a {@link Number} selected from each element of each group, exactly.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2}, {a:1, b:3} ] } groupBy(a) sum(b) => { 1: 4, 2: 2 }
+     * @param selector Defines which {@link Number} to select from each element.
+     * @param <N> The kind of {@link Number} selected.
+     * @return The sum of each key.
+     */
+    public <N extends Number & Comparable<N>> Map<K, BigDecimal> sum(Selector<T, N> selector) {
+        final long started = started();
+        final OpenHashIndex<K> index = index();
+        final NumberAccumulator[] sums = accumulate(index, selector);
+        final Map<K, BigDecimal> result = newMap(index.size());
+        for (int id = 0; id < index.size(); id++) {
+            result.put(index.keyAt(id), sums[id].getSum());
+        }
+        finished("groupBy.sum", result.size(), started);
+        return result;
+    }
+
+    /**
+     * Averages a {@link Number} selected from each element of each group, exactly if the average terminates
+     * and rounded to {@link java.math.MathContext#DECIMAL128} otherwise.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2}, {a:1, b:3} ] } groupBy(a) average(b) => { 1: 2, 2: 2 }
+     * @param selector Defines which {@link Number} to select from each element.
+     * @param <N> The kind of {@link Number} selected.
+     * @return The average of each key.
+     */
+    public <N extends Number & Comparable<N>> Map<K, BigDecimal> average(Selector<T, N> selector) {
+        final long started = started();
+        final OpenHashIndex<K> index = index();
+        final NumberAccumulator[] sums = accumulate(index, selector);
+        final Map<K, BigDecimal> result = newMap(index.size());
+        for (int id = 0; id < index.size(); id++) {
+            result.put(index.keyAt(id), sums[id].getAverage());
+        }
+        finished("groupBy.average", result.size(), started);
+        return result;
+    }
+
+    /**
+     * Finds the lowest {@link Number} selected from the elements of each group.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2}, {a:1, b:3} ] } groupBy(a) min(b) => { 1: 1, 2: 2 }
+     * @param selector Defines which {@link Number} to select from each element.
+     * @param <N> The kind of {@link Number} selected.
+     * @return The lowest valued {@link Number} of each key.
+     */
+    public <N extends Number & Comparable<N>> Map<K, N> min(Selector<T, N> selector) {
+        final long started = started();
+        final Map<K, N> result = extreme(selector, -1);
+        finished("groupBy.min", result.size(), started);
+        return result;
+    }
+
+    /**
+     * Finds the highest {@link Number} selected from the elements of each group.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2}, {a:1, b:3} ] } groupBy(a) max(b) => { 1: 3, 2: 2 }
+     * @param selector Defines which {@link Number} to select from each element.
+     * @param <N> The kind of {@link Number} selected.
+     * @return The highest valued {@link Number} of each key.
+     */
+    public <N extends Number & Comparable<N>> Map<K, N> max(Selector<T, N> selector) {
+        final long started = started();
+        final Map<K, N> result = extreme(selector, 1);
+        finished("groupBy.max", result.size(), started);
+        return result;
+    }
+
+    /**
+     * Gathers the count, min, max, sum, average and variance of a {@link Number} selected from each element of each group,
+     * all in the same single pass.
+     * <br/>{ [ {a:1, b:1}, {a:2, b:2}, {a:1, b:3} ] } groupBy(a) summaryStatistics(b) => { 1: { count: 2, min: 1, max: 3, sum: 4, ... }, 2: { ... } }
+     * @param selector Defines which {@link Number} to select from each element.
+     * @param <N> The kind of {@link Number} selected.
+     * @return The {@link NumberSummaryStatistics} of each key.
+     */
+    public <N extends Number & Comparable<N>> Map<K, NumberSummaryStatistics<N>> summaryStatistics(Selector<T, N> selector) {
+        final long started = started();
+        final OpenHashIndex<K> index = index();
+        NumberSummaryStatistics<?>[] statistics = new NumberSummaryStatistics<?>[INITIAL_CAPACITY];
+        for (T t : collection) {
+            final int id = index.indexOf(keySelector.select(t));
+            if (id == statistics.length) {
+                statistics = Arrays.copyOf(statistics, id * 2);
+            }
+            if (statistics[id] == null) {
+                statistics[id] = new NumberSummaryStatistics<N>();
+            }
+            GroupedChain.<NumberSummaryStatistics<N>>cast(statistics[id]).accept(selector.select(t));
+        }
+        final Map<K, NumberSummaryStatistics<N>> result = newMap(index.size());
+        for (int id = 0; id < index.size(); id++) {
+            result.put(index.keyAt(id), GroupedChain.<NumberSummaryStatistics<N>>cast(statistics[id]));
+        }
+        finished("groupBy.summaryStatistics", result.size(), started);
+        return result;
+    }
+
+    private <N extends Number & Comparable<N>> NumberAccumulator[] accumulate(OpenHashIndex<K> index, Selector<T, N> selector) {
+        NumberAccumulator[] sums = new NumberAccumulator[INITIAL_CAPACITY];
+        for (T t : collection) {
+            final int id = index.indexOf(keySelector.select(t));
+            if (id == sums.length) {
+                sums = Arrays.copyOf(sums, id * 2);
+            }
+            if (sums[id] == null) {
+                sums[id] = new NumberAccumulator();
+            }
+            sums[id].add(selector.select(t));
+        }
+        return sums;
+    }
+
+    private <N extends Number & Comparable<N>> Map<K, N> extreme(Selector<T, N> selector, int sign) {
+        final OpenHashIndex<K> index = index();
+        Object[] extremes = new Object[INITIAL_CAPACITY];
+        for (T t : collection) {
+            final int id = index.indexOf(keySelector.select(t));
+            if (id == extremes.length) {
+                extremes = Arrays.copyOf(extremes, id * 2);
+            }
+            final N value = selector.select(t);
+            if (extremes[id] == null || Integer.signum(value.compareTo(GroupedChain.<N>cast(extremes[id]))) == sign) {
+                extremes[id] = value;
+            }
+        }
+        final Map<K, N> result = newMap(index.size());
+        for (int id = 0; id < index.size(); id++) {
+            result.put(index.keyAt(id), GroupedChain.<N>cast(extremes[id]));
+        }
+        return result;
+    }
+
+    private OpenHashIndex<K> index() {
+        LazyCollection.throwIfUnbounded(collection, "groupBy");
+        return new OpenHashIndex<K>(OpenHashSet.<K>equalsStrategy(), INITIAL_CAPACITY);
+    }
+
+    private long started() {
+        if (listener == null) {
+            return 0L;
+        }
+        allocatedAtStart = AllocationCounter.allocatedBytes();
+        return System.nanoTime();
+    }
+
+    private void finished(String operation, int groups, long started) {
+        if (listener == null) {
+            return;
+        }
+        final long elapsedNanos = System.nanoTime() - started;
+        final long allocatedBytes = allocatedAtStart < 0 ? -1L : AllocationCounter.allocatedBytes() - allocatedAtStart;
+        listener.operationCompleted(operation, collection instanceof LazyCollection ? -1 : collection.size(), groups, elapsedNanos, allocatedBytes);
+    }
+
+    private static <K, V> Map<K, V> newMap(int size) {
+        return new LinkedHashMap<K, V>(Math.max(INITIAL_CAPACITY, (int) (size / 0.75f) + 1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V cast(Object o) {
+        return (V) o;
+    }
+}
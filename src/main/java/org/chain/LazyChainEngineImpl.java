@@ -0,0 +1,964 @@
+package org.chain;
+
+import org.chain.filters.Action;
+import org.chain.filters.ElementCodec;
+import org.chain.filters.HashStrategy;
+import org.chain.filters.ManySelector;
+import org.chain.filters.Selector;
+import org.chain.filters.WhereComparator;
+
+import java.util.*;
+
+/**
+ * Records modifications to a {@link Collection} as {@link LazyCollection} stages instead of performing them.
+ * <br/>The stages are evaluated together, one element at a time, when the {@link Collection} is finally iterated,
+ * so queries such as first or any stop as soon as the answer is known.
+ * @param <T> The type that is contained in the {@link Collection} to be operated on.
+ */
+class LazyChainEngineImpl<T> extends ChainEngineImpl<T> {
+
+    LazyChainEngineImpl(){}
+
+    /**
+     * Creates an engine of the same kind to operate on the elements produced by a select.
+     * @param <TD> The type of the elements the new engine will operate on.
+     * @return A new {@link ChainEngine} that behaves the same way as this one.
+     */
+    @Override
+    public <TD> ChainEngine<TD> derive() {
+        return new LazyChainEngineImpl<TD>();
+    }
+
+    /**
+     * Describes the plan as recorded and as it will run after the rewrites, with estimated costs.
+     * @param collection The collection to operate on.
+     * @return The original and the optimized plan.
+     */
+    @Override
+    public String explain(final Collection<T> collection) {
+        return PlanExplainer.explain(logicalOf(collection), collection);
+    }
+
+    /**
+     * @param optimized The stage that will run.
+     * @param logical The stage as it was recorded, before any rewrite, for explain.
+     * @return The stage that will run.
+     */
+    static <C extends LazyCollection<?>> C planned(final C optimized, final LazyCollection<?> logical) {
+        optimized.logical = logical;
+        return optimized;
+    }
+
+    /**
+     * @return The {@link Collection} as it was recorded, before any rewrite.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Collection<T> logicalOf(final Collection<T> collection) {
+        if (collection instanceof LazyCollection && ((LazyCollection<T>) collection).logical != null) {
+            return (Collection<T>) ((LazyCollection<T>) collection).logical;
+        }
+        return collection;
+    }
+
+    /**
+     * Strips the sorts and reverses off the end of a plan, for queries that give the same answer in any order.
+     * @param collection The collection to operate on.
+     * @return The {@link Collection} the sorts and reverses were recorded on.
+     */
+    static <T> Collection<T> orderInsensitive(final Collection<T> collection) {
+        Collection<T> unordered = collection;
+        while (true) {
+            if (unordered instanceof SortedCollection) {
+                unordered = ((SortedCollection<T>) unordered).source;
+            }
+            else if (unordered instanceof ExternalSortedCollection) {
+                unordered = ((ExternalSortedCollection<T>) unordered).source;
+            }
+            else if (unordered instanceof ReversedCollection) {
+                unordered = ((ReversedCollection<T>) unordered).source;
+            }
+            else {
+                return unordered;
+            }
+        }
+    }
+
+    /**
+     * @param iterable The source to read elements from, each time the chain is iterated.
+     * @param <T> The type of the elements.
+     * @return A {@link Collection} that reads the elements from the source when it is iterated.
+     */
+    static <T> Collection<T> source(final Iterable<T> iterable) {
+        return new IteratedCollection<T>(iterable, false);
+    }
+
+    /**
+     * @param iterator The source to read elements from, which can only be read once.
+     * @param <T> The type of the elements.
+     * @return A {@link Collection} that reads the elements from the source when it is iterated, and fails if it is iterated again.
+     */
+    static <T> Collection<T> source(final Iterator<T> iterator) {
+        return new IteratedCollection<T>(new Iterable<T>() {
+            private boolean iterated = false;
+
+            @Override
+            public Iterator<T> iterator() {
+                if (iterated) {
+                    throw new IllegalStateException("The source can only be iterated once");
+                }
+                iterated = true;
+                return iterator;
+            }
+        }, false);
+    }
+
+    /**
+     * A {@link Spliterator} that does not know its size and estimates it as Long.MAX_VALUE is treated as unbounded.
+     * @param spliterator The source to read elements from, which can only be read once.
+     * @param <T> The type of the elements.
+     * @return A {@link Collection} that reads the elements from the source when it is iterated, and fails if it is iterated again.
+     */
+    static <T> Collection<T> source(final Spliterator<T> spliterator) {
+        final boolean unbounded = !spliterator.hasCharacteristics(Spliterator.SIZED) && spliterator.estimateSize() == Long.MAX_VALUE;
+        final IteratedCollection<T> once = (IteratedCollection<T>) source(Spliterators.iterator(spliterator));
+        return new IteratedCollection<T>(once.source, unbounded);
+    }
+
+    /**
+     * Records a sort of the {@link Collection} based on the {@link Comparator} that is passed in.
+     * <br/>{ [ 3, 1, 4, 2 ] } => { [ 1, 2, 3, 4 ] }
+     * @param collection The collection to operate on.
+     * @param comparator Defines the order to sort the list by.
+     * @return A {@link Collection} that sorts the elements when it is iterated.
+     * @throws IllegalStateException If the {@link Collection} may produce elements forever.
+     */
+    @Override
+    public Collection<T> sort(final Collection<T> collection, final Comparator<T> comparator) {
+        LazyCollection.throwIfUnbounded(collection, "sort");
+        return planned(new SortedCollection<T>(collection, comparator), new SortedCollection<T>(logicalOf(collection), comparator));
+    }
+    /**
+     * Records a sort of the {@link Collection} that holds no more than the given number of elements in memory,
+     * spilling sorted runs to temporary files through the codec.
+     * <br/>The sorted elements stream into the rest of the chain as the runs are merged, and iterating again sorts again.
+     * <br/>{ [ 3, 1, 4, 2 ] } sort(a, codec, 2) => { [ 1, 2, 3, 4 ] }
+     * @param collection The collection to operate on.
+     * @param comparator Defines the order to sort the list by.
+     * @param codec Writes elements to and reads them back from the temporary files.
+     * @param maxElementsInMemory The most elements to hold in memory while sorting.
+     * @return A {@link Collection} that sorts the elements when it is iterated, streaming them from the merged runs.
+     */
+    @Override
+    public Collection<T> sort(final Collection<T> collection, final Comparator<T> comparator, final ElementCodec<T> codec, final int maxElementsInMemory) {
+        LazyCollection.throwIfUnbounded(collection, "sort");
+        return planned(new ExternalSortedCollection<T>(collection, comparator, codec, maxElementsInMemory),
+                new ExternalSortedCollection<T>(logicalOf(collection), comparator, codec, maxElementsInMemory));
+    }
+
+
+    /**
+     * Records the union of both {@link Collection}s that holds no more than the budget of distinct elements in memory,
+     * hash partitioning the rest to temporary files.
+     * <br/>Iterating again reads both {@link Collection}s and partitions them again.
+     * <br/>{ [ 1, 2, 3 ] } union { [ 2, 3, 4 ] } => { [ 1, 2, 3, 4 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to union with the contained {@link Collection}.
+     * @param budget Defines how many elements to hold in memory and how to spill the rest, and counts what is spilled.
+     * @return A {@link Collection} that finds the distinct elements of both {@link Collection}s when it is iterated.
+     */
+    @Override
+    public Collection<T> union(final Collection<T> collection1, final Collection<T> collection2, final SpillBudget<T> budget) {
+        LazyCollection.throwIfUnbounded(collection1, "union");
+        LazyCollection.throwIfUnbounded(collection2, "union");
+        return new SpillingDistinctCollection<T>(Arrays.asList(collection1, collection2), budget);
+    }
+
+    /**
+     * Records the removal of all elements that were produced already, holding no more than the budget of distinct elements in memory
+     * and hash partitioning the rest to temporary files.
+     * <br/>Iterating again reads the {@link Collection} and partitions it again.
+     * <br/>{ [ 1, 1, 2, 2, 3 ] } => { [ 1, 2, 3 ] }
+     * @param collection The collection to operate on.
+     * @param budget Defines how many elements to hold in memory and how to spill the rest, and counts what is spilled.
+     * @return A {@link Collection} that finds the distinct elements when it is iterated.
+     */
+    @Override
+    public Collection<T> distinct(final Collection<T> collection, final SpillBudget<T> budget) {
+        LazyCollection.throwIfUnbounded(collection, "distinct");
+        return new SpillingDistinctCollection<T>(Collections.singletonList(collection), budget);
+    }
+
+    /**
+     * Records a reversal of the order of the {@link Collection}.
+     * <br/>{ [ 1, 2, 3, 4 ] } => { [ 4, 3, 2, 1 ] }
+     * @param collection The collection to operate on.
+     * @return A {@link Collection} that reverses the elements when it is iterated.
+     * @throws IllegalStateException If the {@link Collection} may produce elements forever.
+     */
+    @Override
+    public Collection<T> reverse(final Collection<T> collection) {
+        LazyCollection.throwIfUnbounded(collection, "reverse");
+        return planned(new ReversedCollection<T>(collection), new ReversedCollection<T>(logicalOf(collection)));
+    }
+
+    /**
+     * Records the appending of a {@link Collection} to the end of the contained {@link Collection}.
+     * <br/>{ [ 1, 2 ] } concatenate { [ 3, 4 ] } => { [ 1, 2, 3, 4 ] }
+     * @param collection1 The collection to operate on.
+     * @param collection2 The {@link Collection} to append to the end of the contained {@link Collection}.
+     * @return A {@link Collection} that iterates both {@link Collection}s one after the other.
+     */
+    @Override
+    public Collection<T> concatenate(final Collection<T> collection1, final Collection<T> collection2) {
+        return planned(new ConcatenatedCollection<T>(collection1, collection2),
+                new ConcatenatedCollection<T>(logicalOf(collection1), logicalOf(collection2)));
+    }
+
+    /**
+     * Records the removal of all elements whose key was produced already, keeping the first occurrence.
+     * <br/>{ [ {a:1}, {a:1}, {a:2} ] } distinct(a) => { [ {a:1}, {a:2} ] }
+     * @param collection The collection to operate on.
+     * @param selector Defines the key to compare elements by, using its hashCode and equals.
+     * @param <K> The type of the key selected from each element.
+     * @return A {@link Collection} that drops elements whose key was seen before as it is iterated.
+     */
+    @Override
+    public <K> Collection<T> distinct(final Collection<T> collection, final Selector<T, K> selector) {
+        return planned(new DistinctCollection<T, K>(collection, selector, OpenHashSet.<K>equalsStrategy()),
+                new DistinctCollection<T, K>(logicalOf(collection), selector, OpenHashSet.<K>equalsStrategy()));
+    }
+
+    /**
+     * Records the removal of all elements that were produced already, keeping the first occurrence.
+     * <br/>{ [ 1, 1, 2, 2, 3 ] } => { [ 1, 2, 3 ] }
+     * @param collection The collection to operate on.
+     * @param strategy Defines how to hash elements and check if they are equal.
+     * @return A {@link Collection} that drops elements that were seen before as it is iterated.
+     */
+    @Override
+    public Collection<T> distinct(final Collection<T> collection, final HashStrategy<T> strategy) {
+        return planned(new DistinctCollection<T, T>(collection, ChainEngineImpl.<T>identity(), strategy),
+                new DistinctCollection<T, T>(logicalOf(collection), ChainEngineImpl.<T>identity(), strategy));
+    }
+
+    /**
+     * Records the selection of a field from each element.
+     * <br/>A select right after another select is fused with it, so each element is only handed over once.
+     * <br/>{ [ {a:1}, {a:2}, {a:3}, {a:4} ]  } select(a) => { [ 1, 2, 3, 4 ] }
+     * @param collection The collection to operate on.
+     * @param selector Defines which field to select from each element.
+     * @param <TD> The type of the field to be selected from each element.
+     * @return A {@link Collection} that selects the field from each element as it is iterated.
+     */
+    @Override
+    public <TD> Collection<TD> select(final Collection<T> collection, final Selector<T, TD> selector) {
+        final SelectedCollection<T, TD> logical = new SelectedCollection<T, TD>(logicalOf(collection), selector);
+        if (collection instanceof SelectedCollection) {
+            return planned(fuse((SelectedCollection<?, T>) collection, selector), logical);
+        }
+        return planned(new SelectedCollection<T, TD>(collection, selector), logical);
+    }
+
+    private static <S, M, TD> SelectedCollection<S, TD> fuse(final SelectedCollection<S, M> selected, final Selector<M, TD> selector) {
+        return new SelectedCollection<S, TD>(selected.source, new ComposedSelector<S, M, TD>(selected.selector, selector));
+    }
+
+    /**
+     * Records the selection of a field containing a {@link Collection} from each element.
+     * <br/>{ [ {a:[1,  2]}, {a:[3, 4]} ] } select(a) => { [ 1, 2, 3, 4 ] }
+     * @param collection The collection to operate on.
+     * @param selector Defines which field to select from each element.
+     * @param <TD> The type of the field to be selected from each element.
+     * @return A {@link Collection} that selects the subelements from each element as it is iterated.
+     */
+    @Override
+    public <TD> Collection<TD> selectMany(final Collection<T> collection, final ManySelector<T, TD> selector) {
+        return planned(new SelectedManyCollection<T, TD>(collection, selector), new SelectedManyCollection<T, TD>(logicalOf(collection), selector));
+    }
+
+    /**
+     * Records the selection of all elements that meet the condition specified.
+     * <br/>The condition is moved ahead of any sort or reverse before it, so they have fewer elements to order,
+     * and is fused with a where right before it, so each element is only handed over once.
+     * <br/>{ [ 1, 2, 3, 4 ] } where(a >= 2) => { [ 2, 3, 4 ] }
+     * @param collection The collection to operate on.
+     * @param comparator Defines the condition to be met for each element.
+     * @return A {@link Collection} that drops the elements that do not meet the condition as it is iterated.
+     */
+    @Override
+    public Collection<T> where(final Collection<T> collection, final WhereComparator<T> comparator) {
+        return planned(pushDown(collection, comparator), new FilteredCollection<T>(logicalOf(collection), comparator));
+    }
+
+    private LazyCollection<T> pushDown(final Collection<T> collection, final WhereComparator<T> comparator) {
+        if (collection instanceof SortedCollection) {
+            final SortedCollection<T> sorted = (SortedCollection<T>) collection;
+            return new SortedCollection<T>(pushDown(sorted.source, comparator), sorted.comparator);
+        }
+        if (collection instanceof ReversedCollection) {
+            return new ReversedCollection<T>(pushDown(((ReversedCollection<T>) collection).source, comparator));
+        }
+        if (collection instanceof FilteredCollection) {
+            final FilteredCollection<T> filtered = (FilteredCollection<T>) collection;
+            return new FilteredCollection<T>(filtered.source, new BothConditions<T>(filtered.comparator, comparator));
+        }
+        return new FilteredCollection<T>(collection, comparator);
+    }
+
+    /**
+     * Performs an action using each element in the {@link Collection}, closing the stages even if the action fails.
+     * @param collection The collection to operate on.
+     * @param action The action or modification to perform on each element.
+     */
+    @Override
+    public void each(final Collection<T> collection, final Action<T> action) {
+        final Iterator<T> iterator = collection.iterator();
+        try {
+            while (iterator.hasNext()) {
+                action.perform(iterator.next());
+            }
+        } finally {
+            LazyCollection.close(iterator);
+        }
+    }
+
+    /**
+     * Checks if any elements are in the {@link Collection}, evaluating no further than the first element.
+     * <br/>{ [ 1, 2, 3, 4 ] } any => { true }
+     * <br/>{ [ ] } any => { false }
+     * @param collection The collection to operate on.
+     * @return True if any elements are in the {@link Collection}.
+     */
+    @Override
+    public Boolean any(final Collection<T> collection) {
+        return !orderInsensitive(collection).isEmpty();
+    }
+
+    /**
+     * Checks if any element meets the condition, skipping any sort or reverse at the end of the plan.
+     * <br/>{ [ 1, 2, 3, 4 ] } any(a >= 2) => { true }
+     * @param collection The collection to operate on.
+     * @param comparator Defines the condition to be met for each element.
+     * @return True if any element meets the condition specified in the {@link Collection}.
+     */
+    @Override
+    public Boolean any(final Collection<T> collection, final WhereComparator<T> comparator) {
+        final Iterator<T> iterator = orderInsensitive(collection).iterator();
+        try {
+            while (iterator.hasNext()) {
+                if (comparator.meetsCondition(iterator.next())) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            LazyCollection.close(iterator);
+        }
+    }
+
+    /**
+     * Checks if all elements meet the condition, skipping any sort or reverse at the end of the plan.
+     * <br/>{ [ 1, 2, 3, 4 ] } all(a >= 0) => { true }
+     * @param collection The collection to operate on.
+     * @param comparator Defines the condition to be met for each element.
+     * @return True if all elements meet the condition specified in the {@link Collection}.
+     */
+    @Override
+    public Boolean all(final Collection<T> collection, final WhereComparator<T> comparator) {
+        final Iterator<T> iterator = orderInsensitive(collection).iterator();
+        try {
+            while (iterator.hasNext()) {
+                if (!comparator.meetsCondition(iterator.next())) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            LazyCollection.close(iterator);
+        }
+    }
+
+    /**
+     * Counts the elements, skipping any sort or reverse at the end of the plan.
+     * <br/>{ [ 1, 2, 3, 4 ] } count => { 4 }
+     * @param collection The collection to operate on.
+     * @return How many elements are in the {@link Collection}.
+     * @throws IllegalStateException If the {@link Collection} may produce elements forever.
+     */
+    @Override
+    public Integer count(final Collection<T> collection) {
+        return orderInsensitive(collection).size();
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } first => { 1 }
+     * <br/>{ [ ] } first => NoSuchElementException
+     * @param collection The collection to operate on.
+     * @return The first element from the collection.
+     * @throws NoSuchElementException
+     */
+    @Override
+    public T first(final Collection<T> collection) {
+        if (collection instanceof ReversedCollection) {
+            return last(((ReversedCollection<T>) collection).source);
+        }
+        if (collection != null) {
+            final Iterator<T> iterator = collection.iterator();
+            try {
+                if (iterator.hasNext()) {
+                    return iterator.next();
+                }
+            } finally {
+                LazyCollection.close(iterator);
+            }
+        }
+        throw new NoSuchElementException(noElementsInCollection);
+    }
+
+    /**
+     * Selects {@link Collection} for the first element that meets the condition.
+     * <br/>{ [ 1, 2, 3, 4 ] } first(a > 2) => { 3 }
+     * <br/>{ [ 1, 2, 3, 4 ] } first(a > 200) => NoSuchElementException
+     * <br/>{ [ ] } first(a > 2) => NoSuchElementException
+     * @param collection The collection to operate on.
+     * @param comparator Defines the condition to be met for the element to be found.
+     * @return The first element that meets the condition specified.
+     * @throws NoSuchElementException If no matching element found.
+     */
+    @Override
+    public T first(final Collection<T> collection, final WhereComparator<T> comparator) throws NoSuchElementException {
+        if (collection instanceof ReversedCollection) {
+            return last(((ReversedCollection<T>) collection).source, comparator);
+        }
+        if (collection != null) {
+            final Iterator<T> iterator = collection.iterator();
+            try {
+                while (iterator.hasNext()) {
+                    final T t = iterator.next();
+                    if (comparator.meetsCondition(t)) {
+                        return t;
+                    }
+                }
+            } finally {
+                LazyCollection.close(iterator);
+            }
+        }
+        throw new NoSuchElementException(noMatchingElementsInCollection);
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } last => { 4 }
+     * <br/>{ [ ] } last => NoSuchElementException
+     * @param collection The collection to operate on.
+     * @return The last element from the collection.
+     * @throws NoSuchElementException
+     * @throws IllegalStateException If the {@link Collection} may produce elements forever.
+     */
+    @Override
+    public T last(final Collection<T> collection) {
+        LazyCollection.throwIfUnbounded(collection, "last");
+        if (collection instanceof ReversedCollection) {
+            return first(((ReversedCollection<T>) collection).source);
+        }
+        if (collection instanceof List || collection instanceof Deque) {
+            return super.last(collection);
+        }
+        if (collection != null) {
+            final Iterator<T> iterator = collection.iterator();
+            if (iterator.hasNext()) {
+                T last = iterator.next();
+                while (iterator.hasNext()) {
+                    last = iterator.next();
+                }
+                return last;
+            }
+        }
+        throw new NoSuchElementException(noElementsInCollection);
+    }
+
+    /**
+     * Selects {@link Collection} for the last element that meets the condition.
+     * <br/>{ [ 1, 2, 3, 4 ] } last(a > 2) => { 4 }
+     * <br/>{ [ 1, 2, 3, 4 ] } last(a > 200) => NoSuchElementException
+     * <br/>{ [ ] } last(a > 2) => NoSuchElementException
+     * @param collection The collection to operate on.
+     * @param comparator Defines the condition to be met for the element to be found.
+     * @return The last element that meets the condition specified.
+     * @throws NoSuchElementException If no matching element found.
+     * @throws IllegalStateException If the {@link Collection} may produce elements forever.
+     */
+    @Override
+    public T last(final Collection<T> collection, final WhereComparator<T> comparator) throws NoSuchElementException {
+        LazyCollection.throwIfUnbounded(collection, "last");
+        if (collection instanceof ReversedCollection) {
+            return first(((ReversedCollection<T>) collection).source, comparator);
+        }
+        if (collection instanceof List || collection instanceof Deque) {
+            return super.last(collection, comparator);
+        }
+        if (collection != null) {
+            boolean found = false;
+            T result = null;
+            for (T t : collection) {
+                if (comparator.meetsCondition(t)) {
+                    found = true;
+                    result = t;
+                }
+            }
+            if (found) {
+                return result;
+            }
+        }
+        throw new NoSuchElementException(noMatchingElementsInCollection);
+    }
+
+    /**
+     * Counts how many elements meet the condition specified in the {@link Collection}.
+     * <br/>{ [ 1, 2, 3, 4 ] } count(a >= 2) => { 3 }
+     * @param collection The collection to operate on.
+     * @param comparator Defines the condition to be met for each element.
+     * @return How many elements meet the condition specified in the {@link Collection}.
+     * @throws IllegalStateException If the {@link Collection} may produce elements forever.
+     */
+    @Override
+    public Integer count(final Collection<T> collection, final WhereComparator<T> comparator) {
+        LazyCollection.throwIfUnbounded(collection, "count");
+        return super.count(orderInsensitive(collection), comparator);
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } at(2) => { 3 }
+     * @param collection The collection to operate on.
+     * @param index
+     * @return The element from the collection at the given index.
+     */
+    @Override
+    public T at(final Collection<T> collection, final int index) {
+        if (collection instanceof List) {
+            return super.at(collection, index);
+        }
+        if (index >= 0) {
+            int i = 0;
+            for (T t : collection) {
+                if (i++ == index) {
+                    return t;
+                }
+            }
+        }
+        throw new IndexOutOfBoundsException("Index: " + index);
+    }
+
+    /**
+     * Records skipping the given number of elements in the {@link Collection}.
+     * <br/>Lists are skipped right away as a view, without iterating.
+     * <br/>{ [ 1, 2, 3, 4 ] } skip(2) => { [ 3, 4 ] }
+     * @param collection The collection to operate on.
+     * @return A {@link Collection} that drops the given number of elements from the front as it is iterated.
+     */
+    @Override
+    public Collection<T> skip(final Collection<T> collection, final int numberToSkip) {
+        if (numberToSkip < 0) {
+            throw new IndexOutOfBoundsException("numberToSkip = " + numberToSkip);
+        }
+        if (collection instanceof List) {
+            return ((List<T>) collection).subList(Math.min(numberToSkip, collection.size()), collection.size());
+        }
+        return planned(new SkippedCollection<T>(collection, numberToSkip), new SkippedCollection<T>(logicalOf(collection), numberToSkip));
+    }
+
+    /**
+     * Records taking the given number of elements from the front of the {@link Collection}.
+     * <br/>Lists are taken right away as a view, without iterating.
+     * <br/>{ [ 1, 2, 3, 4 ] } take(2) => { [ 1, 2 ] }
+     * @param collection The collection to operate on.
+     * @return A {@link Collection} that stops iterating once the given number of elements have been produced.
+     */
+    @Override
+    public Collection<T> take(final Collection<T> collection, final int numberToTake) {
+        if (numberToTake < 0) {
+            throw new IndexOutOfBoundsException("numberToTake = " + numberToTake);
+        }
+        final TakenCollection<T> logical = new TakenCollection<T>(logicalOf(collection), numberToTake);
+        if (collection instanceof SortedCollection) {
+            final SortedCollection<T> sorted = (SortedCollection<T>) collection;
+            return planned(new TopCollection<T>(sorted.source, numberToTake, sorted.comparator), logical);
+        }
+        if (collection instanceof TopCollection) {
+            final TopCollection<T> top = (TopCollection<T>) collection;
+            return planned(new TopCollection<T>(top.source, Math.min(top.numberToTake, numberToTake), top.comparator), logical);
+        }
+        if (collection instanceof List) {
+            return ((List<T>) collection).subList(0, Math.min(numberToTake, collection.size()));
+        }
+        return planned(new TakenCollection<T>(collection, numberToTake), logical);
+    }
+
+    /**
+     * Records taking the given number of lowest elements according to the {@link Comparator}, in sorted order.
+     * <br/>A sort followed by a take is recorded the same way.
+     * <br/>{ [ 3, 1, 4, 2 ] } top(2) => { [ 1, 2 ] }
+     * @param collection The collection to operate on.
+     * @param numberToTake The most elements to take.
+     * @param comparator Defines the order to sort the list by.
+     * @return A {@link Collection} that keeps only the lowest elements in a heap when it is iterated.
+     * @throws IllegalStateException If the {@link Collection} may produce elements forever.
+     */
+    @Override
+    public Collection<T> top(final Collection<T> collection, final int numberToTake, final Comparator<T> comparator) {
+        if (numberToTake < 0) {
+            throw new IndexOutOfBoundsException("numberToTake = " + numberToTake);
+        }
+        LazyCollection.throwIfUnbounded(collection, "top");
+        return planned(new TopCollection<T>(collection, numberToTake, comparator), new TopCollection<T>(logicalOf(collection), numberToTake, comparator));
+    }
+
+    static final class BothConditions<T> implements WhereComparator<T> {
+        final WhereComparator<T> first;
+        final WhereComparator<T> second;
+
+        BothConditions(WhereComparator<T> first, WhereComparator<T> second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public boolean meetsCondition(T obj) {
+            return first.meetsCondition(obj) && second.meetsCondition(obj);
+        }
+    }
+
+    static final class ComposedSelector<T, M, TD> implements Selector<T, TD> {
+        final Selector<T, M> first;
+        final Selector<M, TD> second;
+
+        ComposedSelector(Selector<T, M> first, Selector<M, TD> second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public TD select(T obj) {
+            return second.select(first.select(obj));
+        }
+    }
+
+    static final class IteratedCollection<T> extends LazyCollection<T> {
+        final Iterable<T> source;
+        final boolean unbounded;
+
+        IteratedCollection(Iterable<T> source, boolean unbounded) {
+            this.source = source;
+            this.unbounded = unbounded;
+        }
+
+        @Override
+        boolean isUnbounded() {
+            return unbounded;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return source.iterator();
+        }
+    }
+
+    static final class SortedCollection<T> extends LazyCollection<T> {
+        final Collection<T> source;
+        final Comparator<T> comparator;
+
+        SortedCollection(Collection<T> source, Comparator<T> comparator) {
+            this.source = source;
+            this.comparator = comparator;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            final ArrayList<T> ts = new ArrayList<T>(source);
+            Collections.sort(ts, comparator);
+            return ts.iterator();
+        }
+    }
+
+    static final class TopCollection<T> extends LazyCollection<T> {
+        final Collection<T> source;
+        final int numberToTake;
+        final Comparator<T> comparator;
+
+        TopCollection(Collection<T> source, int numberToTake, Comparator<T> comparator) {
+            this.source = source;
+            this.numberToTake = numberToTake;
+            this.comparator = comparator;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            final BoundedHeap<T> heap = new BoundedHeap<T>(numberToTake, comparator);
+            final Iterator<T> iterator = source.iterator();
+            try {
+                while (iterator.hasNext()) {
+                    heap.offer(iterator.next());
+                }
+            } finally {
+                close(iterator);
+            }
+            return heap.drainSorted().iterator();
+        }
+    }
+
+    static final class ReversedCollection<T> extends LazyCollection<T> {
+        final Collection<T> source;
+
+        ReversedCollection(Collection<T> source) {
+            this.source = source;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            final ArrayList<T> ts = new ArrayList<T>(source);
+            Collections.reverse(ts);
+            return ts.iterator();
+        }
+    }
+
+    static final class ConcatenatedCollection<T> extends LazyCollection<T> {
+        final Collection<T> source;
+        final Collection<T> appended;
+
+        ConcatenatedCollection(Collection<T> source, Collection<T> appended) {
+            this.source = source;
+            this.appended = appended;
+        }
+
+        @Override
+        boolean isUnbounded() {
+            return isUnbounded(source) || isUnbounded(appended);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            final Iterator<T> first = source.iterator();
+            return new LookaheadIterator<T>(first) {
+                private Iterator<T> current = first;
+
+                @Override
+                public void close() {
+                    super.close();
+                    if (current != first) {
+                        LazyCollection.close(current);
+                    }
+                }
+
+                @Override
+                protected boolean advance() {
+                    if (!current.hasNext() && current == first) {
+                        current = appended.iterator();
+                    }
+                    if (current.hasNext()) {
+                        supply(current.next());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    static final class DistinctCollection<T, K> extends LazyCollection<T> {
+        final Collection<T> source;
+        final Selector<T, K> selector;
+        final HashStrategy<K> strategy;
+
+        DistinctCollection(Collection<T> source, Selector<T, K> selector, HashStrategy<K> strategy) {
+            this.source = source;
+            this.selector = selector;
+            this.strategy = strategy;
+        }
+
+        @Override
+        boolean isUnbounded() {
+            return isUnbounded(source);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            final Iterator<T> iterator = source.iterator();
+            final OpenHashSet<K> seen = new OpenHashSet<K>(strategy, 16);
+            return new LookaheadIterator<T>(iterator) {
+                @Override
+                protected boolean advance() {
+                    while (iterator.hasNext()) {
+                        final T t = iterator.next();
+                        if (seen.add(selector.select(t))) {
+                            supply(t);
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    static final class SelectedCollection<T, TD> extends LazyCollection<TD> {
+        final Collection<T> source;
+        final Selector<T, TD> selector;
+
+        SelectedCollection(Collection<T> source, Selector<T, TD> selector) {
+            this.source = source;
+            this.selector = selector;
+        }
+
+        @Override
+        boolean isUnbounded() {
+            return isUnbounded(source);
+        }
+
+        @Override
+        public int size() {
+            return source.size();
+        }
+
+        @Override
+        public Iterator<TD> iterator() {
+            final Iterator<T> iterator = source.iterator();
+            return new StageIterator<TD>(iterator) {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public TD next() {
+                    return selector.select(iterator.next());
+                }
+            };
+        }
+    }
+
+    static final class SelectedManyCollection<T, TD> extends LazyCollection<TD> {
+        final Collection<T> source;
+        final ManySelector<T, TD> selector;
+
+        SelectedManyCollection(Collection<T> source, ManySelector<T, TD> selector) {
+            this.source = source;
+            this.selector = selector;
+        }
+
+        @Override
+        boolean isUnbounded() {
+            return isUnbounded(source);
+        }
+
+        @Override
+        public Iterator<TD> iterator() {
+            final Iterator<T> iterator = source.iterator();
+            return new LookaheadIterator<TD>(iterator) {
+                private Iterator<TD> current = Collections.<TD>emptyList().iterator();
+
+                @Override
+                protected boolean advance() {
+                    while (!current.hasNext()) {
+                        if (!iterator.hasNext()) {
+                            return false;
+                        }
+                        current = selector.select(iterator.next()).iterator();
+                    }
+                    supply(current.next());
+                    return true;
+                }
+            };
+        }
+    }
+
+    static final class FilteredCollection<T> extends LazyCollection<T> {
+        final Collection<T> source;
+        final WhereComparator<T> comparator;
+
+        FilteredCollection(Collection<T> source, WhereComparator<T> comparator) {
+            this.source = source;
+            this.comparator = comparator;
+        }
+
+        @Override
+        boolean isUnbounded() {
+            return isUnbounded(source);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            final Iterator<T> iterator = source.iterator();
+            return new LookaheadIterator<T>(iterator) {
+                @Override
+                protected boolean advance() {
+                    while (iterator.hasNext()) {
+                        final T t = iterator.next();
+                        if (comparator.meetsCondition(t)) {
+                            supply(t);
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    static final class SkippedCollection<T> extends LazyCollection<T> {
+        final Collection<T> source;
+        final int numberToSkip;
+
+        SkippedCollection(Collection<T> source, int numberToSkip) {
+            this.source = source;
+            this.numberToSkip = numberToSkip;
+        }
+
+        @Override
+        boolean isUnbounded() {
+            return isUnbounded(source);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            final Iterator<T> iterator = source.iterator();
+            for (int i = 0; i < numberToSkip && iterator.hasNext(); i++) {
+                iterator.next();
+            }
+            return iterator;
+        }
+    }
+
+    static final class TakenCollection<T> extends LazyCollection<T> {
+        final Collection<T> source;
+        final int numberToTake;
+
+        TakenCollection(Collection<T> source, int numberToTake) {
+            this.source = source;
+            this.numberToTake = numberToTake;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            final Iterator<T> iterator = source.iterator();
+            return new StageIterator<T>(iterator) {
+                private int taken = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return taken < numberToTake && iterator.hasNext();
+                }
+
+                @Override
+                public T next() {
+                    if (taken >= numberToTake) {
+                        throw new NoSuchElementException();
+                    }
+                    final T t = iterator.next();
+                    if (++taken == numberToTake) {
+                        close();
+                    }
+                    return t;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package org.chain;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A read only {@link Collection} whose elements are produced by a recorded stage every time it is iterated.
+ * <br/>Nothing is stored, so iterating it twice runs the stage and every stage before it twice.
+ * @param <T> The type of the elements produced by the stage.
+ */
+abstract class LazyCollection<T> extends AbstractCollection<T> {
+
+    /**
+     * The stage as it was recorded before the optimizer rewrote it, or null if it was not rewritten.
+     */
+    LazyCollection<?> logical;
+
+    /**
+     * @return True if the stage may produce elements forever, so it can never be run to the end.
+     */
+    boolean isUnbounded() {
+        return false;
+    }
+
+    /**
+     * @param collection The {@link Collection} to check.
+     * @return True if the {@link Collection} is a stage that may produce elements forever.
+     */
+    static boolean isUnbounded(Collection<?> collection) {
+        return collection instanceof LazyCollection && ((LazyCollection<?>) collection).isUnbounded();
+    }
+
+    /**
+     * Fails fast instead of running a stage forever.
+     * @param collection The {@link Collection} that is about to be run to the end.
+     * @param operation The name of the operation that needs every element.
+     * @throws IllegalStateException If the {@link Collection} may produce elements forever.
+     */
+    static void throwIfUnbounded(Collection<?> collection, String operation) {
+        if (isUnbounded(collection)) {
+            throw new IllegalStateException(operation + " needs every element, but the source is unbounded; take a bounded number of elements first");
+        }
+    }
+
+    /**
+     * Releases what an iterator abandoned before its end still holds, such as the partition files of a distinct under a {@link SpillBudget}.
+     * @param iterator An iterator that will not be advanced again.
+     */
+    static void close(Iterator<?> iterator) {
+        if (iterator instanceof Closeable) {
+            try {
+                ((Closeable) iterator).close();
+            } catch (IOException e) {
+                // Nothing more to release.
+            }
+        }
+    }
+
+    /**
+     * Counts the elements by running the stage to the end.
+     * @return How many elements the stage produces.
+     * @throws IllegalStateException If the stage may produce elements forever.
+     */
+    @Override
+    public int size() {
+        throwIfUnbounded(this, "size");
+        int size = 0;
+        final Iterator<T> iterator = iterator();
+        try {
+            for (; iterator.hasNext(); iterator.next()) {
+                size++;
+            }
+        } finally {
+            close(iterator);
+        }
+        return size;
+    }
+
+    /**
+     * Only runs the stage until the first element is produced.
+     * @return True if the stage produces no elements.
+     */
+    @Override
+    public boolean isEmpty() {
+        final Iterator<T> iterator = iterator();
+        try {
+            return !iterator.hasNext();
+        } finally {
+            close(iterator);
+        }
+    }
+
+    /**
+     * Runs the stage once, unlike {@link AbstractCollection#toArray()} which would also run it to find the size.
+     * @return The elements produced by the stage.
+     */
+    @Override
+    public Object[] toArray() {
+        return drain().toArray();
+    }
+
+    /**
+     * Runs the stage once, unlike {@link AbstractCollection#toArray(Object[])} which would also run it to find the size.
+     * @return The elements produced by the stage.
+     */
+    @Override
+    public <A> A[] toArray(A[] array) {
+        return drain().toArray(array);
+    }
+
+    private ArrayList<T> drain() {
+        throwIfUnbounded(this, "toArray");
+        final ArrayList<T> ts = new ArrayList<T>();
+        final Iterator<T> iterator = iterator();
+        try {
+            while (iterator.hasNext()) {
+                ts.add(iterator.next());
+            }
+        } finally {
+            close(iterator);
+        }
+        return ts;
+    }
+
+    /**
+     * An {@link Iterator} of a stage that reads another iterator, and closes it when the stage is closed,
+     * so a stage further down the chain that stops early still releases what the stages before it hold.
+     * @param <T> The type of the elements produced by the stage.
+     */
+    abstract static class StageIterator<T> implements Iterator<T>, Closeable {
+        private final Iterator<?> source;
+
+        /**
+         * @param source The iterator the stage reads, or null if it reads none.
+         */
+        StageIterator(Iterator<?> source) {
+            this.source = source;
+        }
+
+        @Override
+        public void close() {
+            LazyCollection.close(source);
+        }
+    }
+
+    /**
+     * An {@link Iterator} that finds its next element ahead of time, for stages that may drop elements.
+     * @param <T> The type of the elements produced by the stage.
+     */
+    abstract static class LookaheadIterator<T> extends StageIterator<T> {
+        private T next;
+        private boolean ready;
+        private boolean done;
+
+        LookaheadIterator() {
+            super(null);
+        }
+
+        /**
+         * @param source The iterator the stage reads, closed when the stage is closed.
+         */
+        LookaheadIterator(Iterator<?> source) {
+            super(source);
+        }
+
+        /**
+         * Finds the next element and hands it over with {@link #supply(Object)}.
+         * @return False if there are no more elements.
+         */
+        protected abstract boolean advance();
+
+        /**
+         * @param t The element that will be returned by the next call to {@link #next()}.
+         */
+        protected final void supply(T t) {
+            next = t;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!ready && !done) {
+                if (advance()) {
+                    ready = true;
+                }
+                else {
+                    done = true;
+                }
+            }
+            return ready;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final T t = next;
+            next = null;
+            ready = false;
+            return t;
+        }
+    }
+}
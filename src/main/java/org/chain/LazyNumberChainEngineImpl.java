@@ -0,0 +1,82 @@
+package org.chain;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Collection;
+
+/**
+ * Records modifications to a {@link Collection} of {@link Number}s as stages instead of performing them.
+ * <br/>min, max, sum and average do not depend on order, so they skip any sort or reverse at the end of the plan.
+ * @param <T> The type of {@link Number} that is contained in the {@link Collection} to be operated on.
+ */
+class LazyNumberChainEngineImpl<T extends Number & Comparable<T>> extends LazyChainEngineImpl<T> implements NumberChainEngine<T> {
+    private final NumberChainEngine<T> numberEngine = new NumberChainEngineImpl<T>();
+
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 2 }
+     * @param collection The collection to operate on.
+     * @return The minimum value of all the {@link Number}s in the {@link Collection}.
+     */
+    @Override
+    public T min(Collection<T> collection) {
+        LazyCollection.throwIfUnbounded(collection, "min");
+        return numberEngine.min(orderInsensitive(collection));
+    }
+
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 4 }
+     * @param collection The collection to operate on.
+     * @return The maximum value of all the {@link Number}s in the {@link Collection}.
+     */
+    @Override
+    public T max(Collection<T> collection) {
+        LazyCollection.throwIfUnbounded(collection, "max");
+        return numberEngine.max(orderInsensitive(collection));
+    }
+
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 9 }
+     * @param collection The collection to operate on.
+     * @return The sum of all the {@link Number}s in the {@link Collection}.
+     */
+    @Override
+    public BigDecimal sum(Collection<T> collection) {
+        LazyCollection.throwIfUnbounded(collection, "sum");
+        return numberEngine.sum(orderInsensitive(collection));
+    }
+
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 3 }
+     * @param collection The collection to operate on.
+     * @return The average of all the {@link Number}s in the {@link Collection}.
+     */
+    @Override
+    public BigDecimal average(Collection<T> collection) {
+        LazyCollection.throwIfUnbounded(collection, "average");
+        return numberEngine.average(orderInsensitive(collection));
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 2 ] } average(new MathContext(3)) => { 1.67 }
+     * @param collection The collection to operate on.
+     * @param mathContext The precision and rounding to divide with.
+     * @return The average of all the {@link Number}s in the {@link Collection}.
+     */
+    @Override
+    public BigDecimal average(Collection<T> collection, MathContext mathContext) {
+        LazyCollection.throwIfUnbounded(collection, "average");
+        return numberEngine.average(orderInsensitive(collection), mathContext);
+    }
+
+    /**
+     * Gathers the count, min, max, sum, average and variance in a single pass.
+     * <br/>{ [ 2, 3, 4 ] } => { count: 3, min: 2, max: 4, sum: 9, average: 3, variance: 0.667 }
+     * @param collection The collection to operate on.
+     * @return The {@link NumberSummaryStatistics} of all the {@link Number}s in the {@link Collection}.
+     */
+    @Override
+    public NumberSummaryStatistics<T> summaryStatistics(Collection<T> collection) {
+        LazyCollection.throwIfUnbounded(collection, "summaryStatistics");
+        return numberEngine.summaryStatistics(orderInsensitive(collection));
+    }
+}
@@ -0,0 +1,452 @@
+package org.chain;
+
+import org.chain.filters.LongAction;
+import org.chain.filters.LongSelector;
+import org.chain.filters.LongWhereComparator;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Provides a fluent API to operate on long values stored in a long array, without boxing them.
+ * <br/>The chain owns its array, so modifications are made in place wherever the size does not grow.
+ */
+public final class LongChain implements LongChainBuilder
+{
+    private long[] values;
+    private int from;
+    private int to;
+
+    /**
+     * @param values The values that actions or modifications will be made on. They are copied, so the array passed in is never modified.
+     */
+    public LongChain(long... values){
+        this.values = values == null ? new long[0] : values.clone();
+        this.from = 0;
+        this.to = this.values.length;
+    }
+
+    /**
+     * @return The result of the chain as a new long array.
+     */
+    @Override
+    public long[] toArray() {
+        return Arrays.copyOfRange(values, from, to);
+    }
+
+    /**
+     * @return The result of the chain as a {@link List} of boxed values.
+     */
+    @Override
+    public List<Long> toList() {
+        final ArrayList<Long> list = new ArrayList<Long>(to - from);
+        for (int i = from; i < to; i++) {
+            list.add(values[i]);
+        }
+        return list;
+    }
+
+    /**
+     * @return A {@link NumberChain} containing the boxed values of the chain.
+     */
+    @Override
+    public NumberChain<Long> boxed() {
+        return new NumberChain<Long>(new NumberChainEngineImpl<Long>(), toList(), false);
+    }
+
+    /**
+     * Performs an action using each value in the chain.
+     * @param action The action to perform on each value.
+     */
+    @Override
+    public void each(LongAction action) {
+        for (int i = from; i < to; i++) {
+            action.perform(values[i]);
+        }
+    }
+
+    /**
+     * Sorts the values in ascending order.
+     * <br/>{ [ 3, 1, 4, 2 ] } => { [ 1, 2, 3, 4 ] }
+     * @return A {@link LongChainBuilder} that contains the sorted values.
+     */
+    @Override
+    public LongChainBuilder sort() {
+        Arrays.sort(values, from, to);
+        return this;
+    }
+
+    /**
+     * Reverses the order of the values.
+     * <br/>{ [ 1, 2, 3, 4 ] } => { [ 4, 3, 2, 1 ] }
+     * @return A {@link LongChainBuilder} that contains the values in reverse order.
+     */
+    @Override
+    public LongChainBuilder reverse() {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            final long value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+        return this;
+    }
+
+    /**
+     * Appends values to the end of the chain.
+     * <br/>{ [ 1, 2 ] } concatenate { [ 3, 4 ] } => { [ 1, 2, 3, 4 ] }
+     * @param values The values to append.
+     * @return A {@link LongChainBuilder} that contains the values of the chain followed by the values passed in.
+     */
+    @Override
+    public LongChainBuilder concatenate(long... values) {
+        final long[] concatenated = Arrays.copyOfRange(this.values, from, to + values.length);
+        System.arraycopy(values, 0, concatenated, to - from, values.length);
+        this.values = concatenated;
+        this.from = 0;
+        this.to = concatenated.length;
+        return this;
+    }
+
+    /**
+     * Removes all values found in the chain already, keeping the first occurrence.
+     * <br/>Finds each value in a sorted copy, so it takes n log n time without boxing.
+     * <br/>{ [ 1, 1, 2, 2, 3 ] } => { [ 1, 2, 3 ] }
+     * @return A {@link LongChainBuilder} that contains each value only once.
+     */
+    @Override
+    public LongChainBuilder distinct() {
+        final long[] unique = toArray();
+        Arrays.sort(unique);
+        int uniqueCount = 0;
+        for (int i = 0; i < unique.length; i++) {
+            if (i == 0 || !same(unique[i], unique[uniqueCount - 1])) {
+                unique[uniqueCount++] = unique[i];
+            }
+        }
+        final boolean[] seen = new boolean[uniqueCount];
+        int kept = from;
+        for (int i = from; i < to; i++) {
+            final int index = Arrays.binarySearch(unique, 0, uniqueCount, values[i]);
+            if (!seen[index]) {
+                seen[index] = true;
+                values[kept++] = values[i];
+            }
+        }
+        to = kept;
+        return this;
+    }
+
+    /**
+     * Maps each value to a new value.
+     * <br/>{ [ 1, 2, 3, 4 ] } select(a * 2) => { [ 2, 4, 6, 8 ] }
+     * @param selector Defines the new value for each value.
+     * @return A {@link LongChainBuilder} that contains the new values.
+     */
+    @Override
+    public LongChainBuilder select(LongSelector selector) {
+        for (int i = from; i < to; i++) {
+            values[i] = selector.select(values[i]);
+        }
+        return this;
+    }
+
+    /**
+     * Selects all values that meet the condition specified.
+     * <br/>{ [ 1, 2, 3, 4 ] } where(a >= 2) => { [ 2, 3, 4 ] }
+     * @param comparator Defines the condition to be met for each value.
+     * @return A {@link LongChainBuilder} that contains all values that meet the condition specified.
+     */
+    @Override
+    public LongChainBuilder where(LongWhereComparator comparator) {
+        int kept = from;
+        for (int i = from; i < to; i++) {
+            if (comparator.meetsCondition(values[i])) {
+                values[kept++] = values[i];
+            }
+        }
+        to = kept;
+        return this;
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } isNullOrEmpty => { false }
+     * <br/>{ [ ] } isNullOrEmpty => { true }
+     * @return True if the chain contains zero values.
+     */
+    @Override
+    public boolean isNullOrEmpty() {
+        return to == from;
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } all(a >= 0) => { true }
+     * <br/>{ [ 1, 2, 3, 4 ] } all(a >= 2) => { false }
+     * @param comparator Defines the condition to be met for each value.
+     * @return True if all values meet the condition specified.
+     */
+    @Override
+    public boolean all(LongWhereComparator comparator) {
+        for (int i = from; i < to; i++) {
+            if (!comparator.meetsCondition(values[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } any(a >= 2) => { true }
+     * <br/>{ [ 1, 2, 3, 4 ] } any(a >= 200) => { false }
+     * @param comparator Defines the condition to be met for each value.
+     * @return True if any value meets the condition specified.
+     */
+    @Override
+    public boolean any(LongWhereComparator comparator) {
+        for (int i = from; i < to; i++) {
+            if (comparator.meetsCondition(values[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } any => { true }
+     * <br/>{ [ ] } any => { false }
+     * @return True if the chain contains any values.
+     */
+    @Override
+    public boolean any() {
+        return to > from;
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } none(a >= 2) => { false }
+     * <br/>{ [ 1, 2, 3, 4 ] } none(a >= 200) => { true }
+     * @param comparator Defines the condition to be met for each value.
+     * @return True if no values meet the condition specified.
+     */
+    @Override
+    public boolean none(LongWhereComparator comparator) {
+        return !any(comparator);
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } none => { false }
+     * <br/>{ [ ] } none => { true }
+     * @return True if the chain contains no values.
+     */
+    @Override
+    public boolean none() {
+        return !any();
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } count(a >= 2) => { 3 }
+     * @param comparator Defines the condition to be met for each value.
+     * @return How many values meet the condition specified.
+     */
+    @Override
+    public int count(LongWhereComparator comparator) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (comparator.meetsCondition(values[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } count => { 4 }
+     * @return How many values are in the chain.
+     */
+    @Override
+    public int count() {
+        return to - from;
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } first => { 1 }
+     * <br/>{ [ ] } first => NoSuchElementException
+     * @return The first value in the chain.
+     * @throws NoSuchElementException If the chain is empty.
+     */
+    @Override
+    public long first() {
+        throwNoSuchElementIfEmpty();
+        return values[from];
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } first(a > 2) => { 3 }
+     * <br/>{ [ 1, 2, 3, 4 ] } first(a > 200) => NoSuchElementException
+     * @param comparator Defines the condition to be met for the value to be found.
+     * @return The first value that meets the condition specified.
+     * @throws NoSuchElementException If no matching value found.
+     */
+    @Override
+    public long first(LongWhereComparator comparator) {
+        for (int i = from; i < to; i++) {
+            if (comparator.meetsCondition(values[i])) {
+                return values[i];
+            }
+        }
+        throw new NoSuchElementException("No value matching given comparator was found in the chain.");
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } last => { 4 }
+     * <br/>{ [ ] } last => NoSuchElementException
+     * @return The last value in the chain.
+     * @throws NoSuchElementException If the chain is empty.
+     */
+    @Override
+    public long last() {
+        throwNoSuchElementIfEmpty();
+        return values[to - 1];
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } last(a > 2) => { 4 }
+     * <br/>{ [ 1, 2, 3, 4 ] } last(a > 200) => NoSuchElementException
+     * @param comparator Defines the condition to be met for the value to be found.
+     * @return The last value that meets the condition specified.
+     * @throws NoSuchElementException If no matching value found.
+     */
+    @Override
+    public long last(LongWhereComparator comparator) {
+        for (int i = to - 1; i >= from; i--) {
+            if (comparator.meetsCondition(values[i])) {
+                return values[i];
+            }
+        }
+        throw new NoSuchElementException("No value matching given comparator was found in the chain.");
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } at(2) => { 3 }
+     * @param index The position of the value.
+     * @return The value at the given index.
+     * @throws IndexOutOfBoundsException If the index is not in the chain.
+     */
+    @Override
+    public long at(int index) {
+        if (index < 0 || index >= to - from) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+        }
+        return values[from + index];
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } skip(2) => { [ 3, 4 ] }
+     * @param numberToSkip How many values to remove from the front of the chain.
+     * @return A {@link LongChainBuilder} that contains the remaining values.
+     */
+    @Override
+    public LongChainBuilder skip(int numberToSkip) {
+        if (numberToSkip < 0 || numberToSkip > to - from) {
+            throw new IndexOutOfBoundsException("numberToSkip = " + numberToSkip + ", Size: " + (to - from));
+        }
+        from += numberToSkip;
+        return this;
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 3, 4 ] } take(2) => { [ 1, 2 ] }
+     * @param numberToTake How many values to keep from the front of the chain.
+     * @return A {@link LongChainBuilder} that contains the given number of values from the front of the chain.
+     */
+    @Override
+    public LongChainBuilder take(int numberToTake) {
+        if (numberToTake < 0 || numberToTake > to - from) {
+            throw new IndexOutOfBoundsException("numberToTake = " + numberToTake + ", Size: " + (to - from));
+        }
+        to = from + numberToTake;
+        return this;
+    }
+
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 2 }
+     * @return The lowest value in the chain.
+     * @throws NoSuchElementException If the chain is empty.
+     */
+    @Override
+    public long min() {
+        throwNoSuchElementIfEmpty();
+        long min = values[from];
+        for (int i = from + 1; i < to; i++) {
+            if (values[i] < min) {
+                min = values[i];
+            }
+        }
+        return min;
+    }
+
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 4 }
+     * @return The highest value in the chain.
+     * @throws NoSuchElementException If the chain is empty.
+     */
+    @Override
+    public long max() {
+        throwNoSuchElementIfEmpty();
+        long max = values[from];
+        for (int i = from + 1; i < to; i++) {
+            if (values[i] > max) {
+                max = values[i];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 9 }
+     * @return The sum of all the values in the chain.
+     * @throws ArithmeticException If the sum does not fit in a long.
+     */
+    @Override
+    public long sum() {
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+            sum = Math.addExact(sum, values[i]);
+        }
+        return sum;
+    }
+
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 3 }
+     * <br/>Falls back to a {@link BigInteger} sum when the sum does not fit in a long.
+     * @return The average of all the values in the chain.
+     * @throws NoSuchElementException If the chain is empty.
+     */
+    @Override
+    public double average() {
+        throwNoSuchElementIfEmpty();
+        try {
+            return (double) sum() / (to - from);
+        }
+        catch (ArithmeticException overflow) {
+            BigInteger sum = BigInteger.ZERO;
+            for (int i = from; i < to; i++) {
+                sum = sum.add(BigInteger.valueOf(values[i]));
+            }
+            return new BigDecimal(sum).divide(BigDecimal.valueOf(to - from), MathContext.DECIMAL64).doubleValue();
+        }
+    }
+
+    private void throwNoSuchElementIfEmpty() {
+        if (to == from) {
+            throw new NoSuchElementException("No values found in the chain.");
+        }
+    }
+
+    private static boolean same(long value1, long value2) {
+        return value1 == value2;
+    }
+}
@@ -0,0 +1,361 @@
+package org.chain;
+
+import org.chain.filters.Selector;
+import org.chain.filters.WhereComparator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the result of a where, select and distinct pipeline up to date as elements are added to and removed from its source,
+ * doing work for each change instead of running the pipeline over the whole source again.
+ * <br/>The result is kept as a count of each value produced, so adding or removing an element costs one pass of that element
+ * through the pipeline and one hash lookup.
+ * <br/>Build the pipeline first, then send changes to the last chain built. Each where, select or distinct builds a new chain
+ * from the result kept so far, takes over the subscription to the source, and leaves the chain it was called on unusable.
+ * <br/>Elements must not change while they are in the source, or removing them runs the pipeline on different values.
+ * <br/>Not thread safe: changes and queries must not run at the same time.
+ * <br/>{ [ 1, 2, 3 ] } where(a >= 2) add(4) => { [ 2, 3, 4 ] }
+ * @param <T> The type of the elements in the source.
+ * @param <R> The type of the values in the result.
+ */
+public final class MaterializedChain<T, R> implements DeltaListener<T>
+{
+    private static final Object SKIPPED = new Object();
+    private static final Object NULL_VALUE = new Object();
+
+    private final Stage stage;
+    private final boolean distinct;
+    /** How many times each value is produced, in the order the values were first produced. */
+    private final LinkedHashMap<Object, int[]> counts;
+    private int size;
+    private ObservableCollection<T> source;
+    private boolean superseded;
+    /** Told when a value joins or leaves the result, or null. */
+    DeltaListener<R> resultListener;
+
+    private MaterializedChain(Stage stage, boolean distinct, LinkedHashMap<Object, int[]> counts, int size, ObservableCollection<T> source) {
+        this.stage = stage;
+        this.distinct = distinct;
+        this.counts = counts;
+        this.size = size;
+        this.source = source;
+    }
+
+    /**
+     * Materializes the elements of a source and keeps them up to date with every change made through it.
+     * @param source The source to subscribe to.
+     * @param <T> The type of the elements in the source.
+     * @return A {@link MaterializedChain} that holds every element of the source.
+     */
+    public static <T> MaterializedChain<T, T> of(ObservableCollection<T> source) {
+        final MaterializedChain<T, T> chain = of((Collection<T>) source);
+        chain.source = source;
+        source.subscribe(chain);
+        return chain;
+    }
+
+    /**
+     * Materializes the elements of a {@link Collection}, to be kept up to date by calling added and removed for every change.
+     * @param collection The elements the source holds now.
+     * @param <T> The type of the elements in the source.
+     * @return A {@link MaterializedChain} that holds every element of the {@link Collection}.
+     */
+    public static <T> MaterializedChain<T, T> of(Collection<T> collection) {
+        final MaterializedChain<T, T> chain = new MaterializedChain<T, T>(null, false, new LinkedHashMap<Object, int[]>(), 0, null);
+        if (collection != null) {
+            for (T t : collection) {
+                chain.increment(t);
+            }
+        }
+        return chain;
+    }
+
+    /**
+     * Keeps only the values that meet the condition.
+     * <br/>{ [ 1, 2, 3, 4 ] } where(a >= 2) => { [ 2, 3, 4 ] }
+     * @param comparator Defines the condition to be met for each value.
+     * @return A {@link MaterializedChain} that takes over from this one.
+     */
+    public MaterializedChain<T, R> where(final WhereComparator<R> comparator) {
+        throwIfSuperseded();
+        final LinkedHashMap<Object, int[]> filtered = new LinkedHashMap<Object, int[]>();
+        int filteredSize = 0;
+        for (Map.Entry<Object, int[]> entry : counts.entrySet()) {
+            if (comparator.meetsCondition(MaterializedChain.<R>unmask(entry.getKey()))) {
+                filtered.put(entry.getKey(), entry.getValue());
+                filteredSize += entry.getValue()[0];
+            }
+        }
+        return handOver(new MaterializedChain<T, R>(new Stage(stage) {
+            @Override
+            Object run(Object value, boolean added) {
+                return comparator.meetsCondition(MaterializedChain.<R>cast(value)) ? value : SKIPPED;
+            }
+        }, distinct, filtered, filteredSize, source));
+    }
+
+    /**
+     * Selects a field from each value.
+     * <br/>After a distinct, selects from each distinct value once, so the result is no longer distinct.
+     * <br/>{ [ {a:1}, {a:2}, {a:3} ] } select(a) => { [ 1, 2, 3 ] }
+     * <br/>{ [ 1, 2, 2, 3 ] } distinct select(0) => { [ 0, 0, 0 ] }
+     * @param selector Defines which field to select from each value.
+     * @param <RD> The type of the field selected.
+     * @return A {@link MaterializedChain} that takes over from this one.
+     */
+    public <RD> MaterializedChain<T, RD> select(final Selector<R, RD> selector) {
+        throwIfSuperseded();
+        final LinkedHashMap<Object, int[]> selected = new LinkedHashMap<Object, int[]>();
+        for (Map.Entry<Object, int[]> entry : counts.entrySet()) {
+            final Object key = mask(selector.select(MaterializedChain.<R>unmask(entry.getKey())));
+            final int times = distinct ? 1 : entry.getValue()[0];
+            final int[] count = selected.get(key);
+            if (count == null) {
+                selected.put(key, new int[] { times });
+            }
+            else {
+                count[0] += times;
+            }
+        }
+        // The counts of the distinct values move into the pipeline, which then lets each value through only when it joins or leaves.
+        final Stage before = distinct ? new DistinctStage(stage, counts) : stage;
+        return handOver(new MaterializedChain<T, RD>(new Stage(before) {
+            @Override
+            Object run(Object value, boolean added) {
+                return selector.select(MaterializedChain.<R>cast(value));
+            }
+        }, false, selected, distinct ? counts.size() : size, source));
+    }
+
+    /**
+     * Keeps each value once, however many elements produce it.
+     * <br/>A value stays in the result until the last element that produces it is removed.
+     * <br/>{ [ 1, 2, 2, 3 ] } distinct => { [ 1, 2, 3 ] }
+     * @return A {@link MaterializedChain} that takes over from this one.
+     */
+    public MaterializedChain<T, R> distinct() {
+        throwIfSuperseded();
+        return handOver(new MaterializedChain<T, R>(stage, true, counts, size, source));
+    }
+
+    /**
+     * Keeps running aggregates of the values, which must be {@link Number}s.
+     * <br/>The sum and count follow each change in constant time, min and max in logarithmic time.
+     * @param selector Defines which {@link Number} to select from each value.
+     * @param <N> The kind of {@link Number} selected.
+     * @return A {@link MaterializedNumberChain} that takes over from this one.
+     */
+    public <N extends Number & Comparable<N>> MaterializedNumberChain<T, N> selectNumbers(final Selector<R, N> selector) {
+        return new MaterializedNumberChain<T, N>(select(selector));
+    }
+
+    /**
+     * Runs an element that was added to the source through the pipeline.
+     * @param element The element that was added.
+     */
+    @Override
+    public void added(T element) {
+        throwIfSuperseded();
+        increment(element);
+    }
+
+    /**
+     * Takes an element that was removed from the source back out of the result.
+     * @param element The element that was removed.
+     */
+    @Override
+    public void removed(T element) {
+        throwIfSuperseded();
+        final Object value = stage == null ? element : stage.apply(element, false);
+        if (value == SKIPPED) {
+            return;
+        }
+        final Object key = mask(value);
+        final int[] count = counts.get(key);
+        if (count == null) {
+            return;
+        }
+        size--;
+        if (--count[0] == 0) {
+            counts.remove(key);
+        }
+        if (resultListener != null && (!distinct || count[0] == 0)) {
+            resultListener.removed(MaterializedChain.<R>cast(value));
+        }
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 2, 3 ] } count => { 4 }
+     * <br/>{ [ 1, 2, 2, 3 ] } distinct count => { 3 }
+     * @return How many values are in the result.
+     */
+    public int count() {
+        throwIfSuperseded();
+        return distinct ? counts.size() : size;
+    }
+
+    /**
+     * @param value The value to look for.
+     * @return True if the value is in the result.
+     */
+    public boolean contains(R value) {
+        throwIfSuperseded();
+        return counts.containsKey(mask(value));
+    }
+
+    /**
+     * Lists the values in the order they were first produced, with equal values next to each other.
+     * <br/>{ [ 2, 1, 2 ] } toList => { [ 2, 2, 1 ] }
+     * @return A new {@link List} of the values in the result.
+     */
+    public List<R> toList() {
+        throwIfSuperseded();
+        final List<R> list = new ArrayList<R>(count());
+        for (Map.Entry<Object, int[]> entry : counts.entrySet()) {
+            final R value = MaterializedChain.<R>unmask(entry.getKey());
+            for (int i = distinct ? 1 : entry.getValue()[0]; i > 0; i--) {
+                list.add(value);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * @return A {@link Chain} over a copy of the values in the result, for any query not kept up to date.
+     */
+    public ChainBuilder<R> toChain() {
+        return new Chain<R>(new ChainEngineImpl<R>(), toList(), false);
+    }
+
+    /**
+     * Stops following the source, if it was built from an {@link ObservableCollection}.
+     */
+    public void close() {
+        if (source != null) {
+            source.unsubscribe(this);
+            source = null;
+        }
+    }
+
+    /**
+     * Tells a listener about every value in the result, once for each time it is in the result.
+     * @param listener Told about each value as if it was just added.
+     */
+    void replay(DeltaListener<R> listener) {
+        for (Map.Entry<Object, int[]> entry : counts.entrySet()) {
+            final R value = MaterializedChain.<R>unmask(entry.getKey());
+            for (int i = distinct ? 1 : entry.getValue()[0]; i > 0; i--) {
+                listener.added(value);
+            }
+        }
+    }
+
+    private void increment(T element) {
+        final Object value = stage == null ? element : stage.apply(element, true);
+        if (value == SKIPPED) {
+            return;
+        }
+        final Object key = mask(value);
+        int[] count = counts.get(key);
+        if (count == null) {
+            count = new int[1];
+            counts.put(key, count);
+        }
+        size++;
+        if (++count[0] == 1 || !distinct) {
+            if (resultListener != null) {
+                resultListener.added(MaterializedChain.<R>cast(value));
+            }
+        }
+    }
+
+    private <RD> MaterializedChain<T, RD> handOver(MaterializedChain<T, RD> next) {
+        if (source != null) {
+            source.unsubscribe(this);
+            source.subscribe(next);
+        }
+        superseded = true;
+        return next;
+    }
+
+    private void throwIfSuperseded() {
+        if (superseded) {
+            throw new IllegalStateException("This chain was extended by where, select or distinct; use the chain that was returned");
+        }
+    }
+
+    private static Object mask(Object value) {
+        return value == null ? NULL_VALUE : value;
+    }
+
+    private static <V> V unmask(Object key) {
+        return key == NULL_VALUE ? null : MaterializedChain.<V>cast(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V cast(Object o) {
+        return (V) o;
+    }
+
+    /**
+     * One where, select or distinct, after the stages before it.
+     */
+    private abstract static class Stage
+    {
+        private final Stage previous;
+
+        Stage(Stage previous) {
+            this.previous = previous;
+        }
+
+        /**
+         * @param element An element of the source.
+         * @param added True if the element was added to the source, false if it was removed.
+         * @return The value the element produces after this stage, or SKIPPED if a where or distinct dropped it.
+         */
+        final Object apply(Object element, boolean added) {
+            final Object value = previous == null ? element : previous.apply(element, added);
+            return value == SKIPPED ? SKIPPED : run(value, added);
+        }
+
+        abstract Object run(Object value, boolean added);
+    }
+
+    /**
+     * A distinct followed by more stages: counts each value, and only lets it through when its first copy is added or its last copy removed.
+     */
+    private static final class DistinctStage extends Stage
+    {
+        private final LinkedHashMap<Object, int[]> counts;
+
+        DistinctStage(Stage previous, LinkedHashMap<Object, int[]> counts) {
+            super(previous);
+            this.counts = counts;
+        }
+
+        @Override
+        Object run(Object value, boolean added) {
+            final Object key = mask(value);
+            int[] count = counts.get(key);
+            if (added) {
+                if (count == null) {
+                    count = new int[1];
+                    counts.put(key, count);
+                }
+                return ++count[0] == 1 ? value : SKIPPED;
+            }
+            if (count == null) {
+                return SKIPPED;
+            }
+            if (--count[0] == 0) {
+                counts.remove(key);
+                return value;
+            }
+            return SKIPPED;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.chain;
+
+import org.chain.filters.WhereComparator;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * A {@link MaterializedChain} of {@link Number}s that also keeps the count, sum, min and max of its result up to date.
+ * <br/>The sum and count follow each change in constant time. min and max are read from an ordered count of each value,
+ * which follows each change in logarithmic time.
+ * <br/>Not thread safe: changes and queries must not run at the same time.
+ * <br/>{ [ 1, 2, 3 ] } add(4) remove(1) => { count: 3, sum: 9, min: 2, max: 4 }
+ * @param <T> The type of the elements in the source.
+ * @param <N> The kind of {@link Number}s in the result.
+ */
+public final class MaterializedNumberChain<T, N extends Number & Comparable<N>> implements DeltaListener<T>
+{
+    private final MaterializedChain<T, N> chain;
+    private final NumberAccumulator sum = new NumberAccumulator();
+    private final TreeMap<N, int[]> ordered = new TreeMap<N, int[]>();
+    private boolean superseded;
+
+    /**
+     * @param chain The {@link MaterializedChain} to follow, which is left to this one.
+     */
+    MaterializedNumberChain(MaterializedChain<T, N> chain) {
+        this.chain = chain;
+        final DeltaListener<N> aggregates = new DeltaListener<N>() {
+            @Override
+            public void added(N value) {
+                sum.add(value);
+                final int[] count = ordered.get(value);
+                if (count == null) {
+                    ordered.put(value, new int[] { 1 });
+                }
+                else {
+                    count[0]++;
+                }
+            }
+
+            @Override
+            public void removed(N value) {
+                sum.subtract(value);
+                final int[] count = ordered.get(value);
+                if (--count[0] == 0) {
+                    ordered.remove(value);
+                }
+            }
+        };
+        chain.replay(aggregates);
+        chain.resultListener = aggregates;
+    }
+
+    /**
+     * Keeps only the {@link Number}s that meet the condition.
+     * <br/>{ [ 1, 2, 3, 4 ] } where(a >= 2) => { [ 2, 3, 4 ] }
+     * @param comparator Defines the condition to be met for each {@link Number}.
+     * @return A {@link MaterializedNumberChain} that takes over from this one.
+     */
+    public MaterializedNumberChain<T, N> where(WhereComparator<N> comparator) {
+        throwIfSuperseded();
+        final MaterializedNumberChain<T, N> next = new MaterializedNumberChain<T, N>(chain.where(comparator));
+        chain.resultListener = null;
+        superseded = true;
+        return next;
+    }
+
+    /**
+     * Keeps each {@link Number} once, however many elements produce it.
+     * <br/>{ [ 1, 2, 2, 3 ] } distinct => { [ 1, 2, 3 ] }
+     * @return A {@link MaterializedNumberChain} that takes over from this one.
+     */
+    public MaterializedNumberChain<T, N> distinct() {
+        throwIfSuperseded();
+        final MaterializedNumberChain<T, N> next = new MaterializedNumberChain<T, N>(chain.distinct());
+        chain.resultListener = null;
+        superseded = true;
+        return next;
+    }
+
+    /**
+     * Runs an element that was added to the source through the pipeline.
+     * @param element The element that was added.
+     */
+    @Override
+    public void added(T element) {
+        chain.added(element);
+    }
+
+    /**
+     * Takes an element that was removed from the source back out of the result.
+     * @param element The element that was removed.
+     */
+    @Override
+    public void removed(T element) {
+        chain.removed(element);
+    }
+
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 3 }
+     * @return How many {@link Number}s are in the result.
+     */
+    public int count() {
+        return chain.count();
+    }
+
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 9 }
+     * @return The sum of all the {@link Number}s in the result.
+     */
+    public BigDecimal sum() {
+        throwIfSuperseded();
+        return sum.getSum();
+    }
+
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 3 }
+     * @return The average of all the {@link Number}s in the result, rounded to {@link MathContext#DECIMAL128} if it does not terminate.
+     * @throws ArithmeticException If the result is empty.
+     */
+    public BigDecimal average() {
+        throwIfSuperseded();
+        return sum.getAverage();
+    }
+
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 2 }
+     * @return The lowest valued {@link Number} in the result, or null if it is empty.
+     */
+    public N min() {
+        throwIfSuperseded();
+        return ordered.isEmpty() ? null : ordered.firstKey();
+    }
+
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 4 }
+     * @return The highest valued {@link Number} in the result, or null if it is empty.
+     */
+    public N max() {
+        throwIfSuperseded();
+        return ordered.isEmpty() ? null : ordered.lastKey();
+    }
+
+    /**
+     * @param value The {@link Number} to look for.
+     * @return True if the {@link Number} is in the result.
+     */
+    public boolean contains(N value) {
+        return chain.contains(value);
+    }
+
+    /**
+     * Lists the {@link Number}s in the order they were first produced, with equal values next to each other.
+     * @return A new {@link List} of the {@link Number}s in the result.
+     */
+    public List<N> toList() {
+        return chain.toList();
+    }
+
+    /**
+     * @return A {@link NumberChain} over a copy of the {@link Number}s in the result, for any query not kept up to date.
+     */
+    public NumberChain<N> toChain() {
+        return new NumberChain<N>(new NumberChainEngineImpl<N>(), toList(), false);
+    }
+
+    /**
+     * Stops following the source, if it was built from an {@link ObservableCollection}.
+     */
+    public void close() {
+        chain.close();
+    }
+
+    private void throwIfSuperseded() {
+        if (superseded) {
+            throw new IllegalStateException("This chain was extended by where or distinct; use the chain that was returned");
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package org.chain;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adds up {@link Number}s exactly, picking the cheapest exact path for the runtime type of each value.
+ * <br/>Byte, Short, Integer, Long and their atomic versions are added to a long, spilling into a {@link BigInteger} on overflow.
+ * <br/>{@link BigInteger}s and {@link BigDecimal}s are added directly.
+ * <br/>Float and Double are added with Neumaier's compensated summation, so the result is as close to the
+ * sum of their binary values as a double allows. NaN and infinite values are counted apart from that sum,
+ * so they can be taken back out again.
+ * <br/>Any other kind of {@link Number} falls back to parsing its toString.
+ */
+final class NumberAccumulator
+{
+    private int count;
+    private long longSum;
+    private BigInteger bigIntegerSum;
+    private BigDecimal bigDecimalSum;
+    private int doubles;
+    private double doubleSum;
+    private double doubleCompensation;
+    private int nans;
+    private int positiveInfinities;
+    private int negativeInfinities;
+
+    /**
+     * Adds a value to the running sum.
+     * @param value The value to add.
+     */
+    void add(Number value) {
+        count++;
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof AtomicInteger || value instanceof AtomicLong) {
+            addLong(value.longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            doubles++;
+            addDouble(value.doubleValue(), 1);
+        } else if (value instanceof BigDecimal) {
+            addBigDecimal((BigDecimal) value);
+        } else if (value instanceof BigInteger) {
+            bigIntegerSum = bigIntegerSum == null ? (BigInteger) value : bigIntegerSum.add((BigInteger) value);
+        } else {
+            addBigDecimal(new BigDecimal(value.toString()));
+        }
+    }
+
+    /**
+     * Takes a value that was added back out of the running sum, so a sum can follow a {@link Collection} that shrinks.
+     * <br/>Whole numbers and decimals come out exactly, Float and Double values only as exactly as compensated summation allows.
+     * @param value The value to remove.
+     */
+    void subtract(Number value) {
+        count--;
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof AtomicInteger || value instanceof AtomicLong) {
+            final long longValue = value.longValue();
+            if (longValue == Long.MIN_VALUE) {
+                final BigInteger negated = BigInteger.valueOf(longValue).negate();
+                bigIntegerSum = bigIntegerSum == null ? negated : bigIntegerSum.add(negated);
+            } else {
+                addLong(-longValue);
+            }
+        } else if (value instanceof Double || value instanceof Float) {
+            if (--doubles == 0) {
+                doubleSum = 0;
+                doubleCompensation = 0;
+                nans = 0;
+                positiveInfinities = 0;
+                negativeInfinities = 0;
+            } else {
+                addDouble(value.doubleValue(), -1);
+            }
+        } else if (value instanceof BigDecimal) {
+            addBigDecimal(((BigDecimal) value).negate());
+        } else if (value instanceof BigInteger) {
+            bigIntegerSum = bigIntegerSum == null ? ((BigInteger) value).negate() : bigIntegerSum.subtract((BigInteger) value);
+        } else {
+            addBigDecimal(new BigDecimal(value.toString()).negate());
+        }
+    }
+
+    /**
+     * @return How many values were added.
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * @return The sum of all values added, with a scale of 0 when only whole numbers were added.
+     * @throws NumberFormatException If a Float or Double sum is infinite or NaN.
+     */
+    BigDecimal getSum() {
+        BigDecimal sum = BigDecimal.valueOf(longSum);
+        if (bigIntegerSum != null) {
+            sum = sum.add(new BigDecimal(bigIntegerSum));
+        }
+        if (bigDecimalSum != null) {
+            sum = sum.add(bigDecimalSum);
+        }
+        if (doubles > 0) {
+            final double doubleTotal;
+            if (nans > 0 || positiveInfinities > 0 && negativeInfinities > 0) {
+                doubleTotal = Double.NaN;
+            } else if (positiveInfinities > 0) {
+                doubleTotal = Double.POSITIVE_INFINITY;
+            } else if (negativeInfinities > 0) {
+                doubleTotal = Double.NEGATIVE_INFINITY;
+            } else {
+                doubleTotal = doubleSum + doubleCompensation;
+            }
+            if (Double.isNaN(doubleTotal) || Double.isInfinite(doubleTotal)) {
+                throw new NumberFormatException("Sum is not a finite number: " + doubleTotal);
+            }
+            sum = sum.add(BigDecimal.valueOf(doubleTotal));
+        }
+        return sum;
+    }
+
+    /**
+     * Divides the sum by the count exactly, rounding to {@link MathContext#DECIMAL128} only if the result does not terminate.
+     * @return The average of all values added.
+     * @throws ArithmeticException If no values were added.
+     */
+    BigDecimal getAverage() {
+        final BigDecimal sum = getSum();
+        final BigDecimal count = new BigDecimal(this.count);
+        try {
+            return sum.divide(count);
+        } catch (ArithmeticException e) {
+            if (this.count == 0) {
+                throw e;
+            }
+            return sum.divide(count, MathContext.DECIMAL128);
+        }
+    }
+
+    /**
+     * @param mathContext The precision and rounding to divide with.
+     * @return The average of all values added.
+     * @throws ArithmeticException If no values were added.
+     */
+    BigDecimal getAverage(MathContext mathContext) {
+        return getSum().divide(new BigDecimal(count), mathContext);
+    }
+
+    private void addLong(long value) {
+        final long result = longSum + value;
+        // Overflow happened if both operands have the same sign and the result has the other one.
+        if (((longSum ^ result) & (value ^ result)) < 0) {
+            final BigInteger spilled = BigInteger.valueOf(longSum);
+            bigIntegerSum = bigIntegerSum == null ? spilled : bigIntegerSum.add(spilled);
+            longSum = value;
+        } else {
+            longSum = result;
+        }
+    }
+
+    /**
+     * Counts a NaN or infinite value by itself, and adds any other value to the compensated sum.
+     * @param value The value to add or take back out.
+     * @param direction 1 when the value is added, -1 when it is taken back out.
+     */
+    private void addDouble(double value, int direction) {
+        if (Double.isNaN(value)) {
+            nans += direction;
+        } else if (value == Double.POSITIVE_INFINITY) {
+            positiveInfinities += direction;
+        } else if (value == Double.NEGATIVE_INFINITY) {
+            negativeInfinities += direction;
+        } else {
+            addDouble(direction < 0 ? -value : value);
+        }
+    }
+
+    private void addDouble(double value) {
+        final double result = doubleSum + value;
+        if (Math.abs(doubleSum) >= Math.abs(value)) {
+            doubleCompensation += (doubleSum - result) + value;
+        } else {
+            doubleCompensation += (value - result) + doubleSum;
+        }
+        doubleSum = result;
+    }
+
+    private void addBigDecimal(BigDecimal value) {
+        bigDecimalSum = bigDecimalSum == null ? value : bigDecimalSum.add(value);
+    }
+}
@@ -1,7 +1,11 @@
 package org.chain;
 
 import java.math.BigDecimal;
+import java.math.MathContext;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Provides a fluent API to operate on a collection of {@link Number}s
@@ -17,19 +21,121 @@ public final class NumberChain<T extends Number & Comparable<T>> extends ChainBu
         super(new NumberChainEngineImpl<T>(), collection);
     }
 
+    /**
+     * @param engine The {@link NumberChainEngine} that will be used to perform all actions or modifications
+     * @param collection The {@link Collection} that actions or modifications will be made on.
+     * @param copy False if the chain can take ownership of the {@link Collection} instead of copying it.
+     */
+    NumberChain(NumberChainEngine<T> engine, Collection<T> collection, boolean copy){
+        super(engine, collection, copy);
+    }
+
+    /**
+     * Builds a chain that reads the {@link Collection} directly instead of copying it first.
+     * <br/>Modifications never change the {@link Collection}, they build their own results as usual,
+     * but changes made to the {@link Collection} are seen by the chain until a modification gives the chain its own result.
+     * <br/>skip and take copy the part they keep, so the {@link Collection} can still be changed afterwards.
+     * @param collection The {@link Collection} that actions or modifications will be made on.
+     * @param <T> The kind of {@link Number}s that are contained in the collection.
+     * @return A {@link NumberChain} over the {@link Collection} itself.
+     */
+    public static <T extends Number & Comparable<T>> NumberChain<T> wrap(Collection<T> collection){
+        final NumberChain<T> chain = new NumberChain<T>(new NumberChainEngineImpl<T>(), collection, false);
+        chain.borrowed = collection;
+        return chain;
+    }
+
+    /**
+     * Builds a chain that records its modifications instead of performing them right away.
+     * <br/>Nothing is evaluated until an action or query such as toList, first, count or sum is called,
+     * at which point all recorded modifications run together in a single pass over the {@link Collection}.
+     * @param collection The {@link Collection} that actions or modifications will be made on.
+     * @param <T> The kind of {@link Number}s that are contained in the collection.
+     * @return A {@link NumberChain} that evaluates lazily.
+     */
+    public static <T extends Number & Comparable<T>> NumberChain<T> lazy(Collection<T> collection){
+        return new NumberChain<T>(new LazyNumberChainEngineImpl<T>(), collection, true);
+    }
+
+    /**
+     * Builds a chain that reads its elements from the {@link Iterable} each time it is queried, instead of copying them first.
+     * <br/>Modifications are recorded and evaluated lazily, as with lazy.
+     * @param iterable The source of the elements.
+     * @param <T> The kind of {@link Number}s that are contained in the collection.
+     * @return A {@link NumberChain} that evaluates lazily.
+     */
+    public static <T extends Number & Comparable<T>> NumberChain<T> from(Iterable<T> iterable){
+        return new NumberChain<T>(new LazyNumberChainEngineImpl<T>(), LazyChainEngineImpl.source(iterable), false);
+    }
+
+    /**
+     * Builds a chain that reads its elements from the {@link Iterator} as it is queried, so it can only be queried once.
+     * <br/>where, select, skip, take, first and any need only as many elements as they produce, so they run in constant memory.
+     * @param iterator The source of the elements.
+     * @param <T> The kind of {@link Number}s that are contained in the collection.
+     * @return A {@link NumberChain} that evaluates lazily.
+     */
+    public static <T extends Number & Comparable<T>> NumberChain<T> from(Iterator<T> iterator){
+        return new NumberChain<T>(new LazyNumberChainEngineImpl<T>(), LazyChainEngineImpl.source(iterator), false);
+    }
+
+    /**
+     * Builds a chain that reads its elements from the {@link Spliterator} as it is queried, so it can only be queried once.
+     * <br/>A {@link Spliterator} that is not SIZED and estimates its size as Long.MAX_VALUE is treated as unbounded,
+     * so sort, reverse, last, count and toList fail fast with an {@link IllegalStateException} until a take bounds it.
+     * @param spliterator The source of the elements.
+     * @param <T> The kind of {@link Number}s that are contained in the collection.
+     * @return A {@link NumberChain} that evaluates lazily.
+     */
+    public static <T extends Number & Comparable<T>> NumberChain<T> from(Spliterator<T> spliterator){
+        return new NumberChain<T>(new LazyNumberChainEngineImpl<T>(), LazyChainEngineImpl.source(spliterator), false);
+    }
+
+    /**
+     * Builds a chain that runs where, select, selectMany, count, all, any, first and sort across the threads of the common {@link ForkJoinPool}.
+     * @param collection The {@link Collection} that actions or modifications will be made on.
+     * @param <T> The kind of {@link Number}s that are contained in the collection.
+     * @return A {@link NumberChain} that evaluates in parallel.
+     */
+    public static <T extends Number & Comparable<T>> NumberChain<T> parallel(Collection<T> collection){
+        return parallel(collection, ForkJoinPool.commonPool(), ParallelChainEngineImpl.DEFAULT_SPLIT_THRESHOLD);
+    }
+
+    /**
+     * Builds a chain that runs where, select, selectMany, count, all, any, first and sort across the threads of the given {@link ForkJoinPool}.
+     * @param collection The {@link Collection} that actions or modifications will be made on.
+     * @param pool The {@link ForkJoinPool} to run on.
+     * @param splitThreshold The smallest number of elements worth handing to a separate thread.
+     * @param <T> The kind of {@link Number}s that are contained in the collection.
+     * @return A {@link NumberChain} that evaluates in parallel.
+     */
+    public static <T extends Number & Comparable<T>> NumberChain<T> parallel(Collection<T> collection, ForkJoinPool pool, int splitThreshold){
+        return new NumberChain<T>(new ParallelNumberChainEngineImpl<T>(pool, splitThreshold), collection, true);
+    }
+
     /**
      * <br/>{ [ 2, 3, 4 ] } => { 2 }
      * @return The lowest valued {@link Number} in the collection.
      */
     @Override
-    public T min() { return engine.min(collection); }
+    public T min() {
+        final long started = started();
+        final T min = engine.min(collection);
+        finished("min", collection, null, started);
+        return min;
+    }
 
     /**
      * <br/>{ [ 2, 3, 4 ] } => { 4 }
      * @return The highest valued {@link Number} in the collection.
      */
     @Override
-    public T max() { return engine.max(collection); }
+    public T max() {
+        final long started = started();
+        final T max = engine.max(collection);
+        finished("max", collection, null, started);
+        return max;
+    }
 
     /**
      * <br/>{ [ 2, 3, 4 ] } => { 9 }
@@ -37,15 +143,47 @@ public final class NumberChain<T extends Number & Comparable<T>> extends ChainBu
      */
     @Override
     public BigDecimal sum() {
-        return engine.sum(collection);
+        final long started = started();
+        final BigDecimal result = engine.sum(collection);
+        finished("sum", collection, null, started);
+        return result;
     }
 
     /**
      * <br/>{ [ 2, 3, 4 ] } => { 3 }
-     * @return The average for all the numbers in the collection.
+     * @return The average for all the numbers in the collection, rounded to {@link MathContext#DECIMAL128} if it does not terminate.
      */
     @Override
     public BigDecimal average() {
-        return engine.average(collection);
+        final long started = started();
+        final BigDecimal result = engine.average(collection);
+        finished("average", collection, null, started);
+        return result;
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 2 ] } average(new MathContext(3)) => { 1.67 }
+     * @param mathContext The precision and rounding to divide with.
+     * @return The average for all the numbers in the collection.
+     */
+    @Override
+    public BigDecimal average(MathContext mathContext) {
+        final long started = started();
+        final BigDecimal result = engine.average(collection, mathContext);
+        finished("average", collection, null, started);
+        return result;
+    }
+
+    /**
+     * Gathers the count, min, max, sum, average and variance in a single pass.
+     * <br/>{ [ 2, 3, 4 ] } => { count: 3, min: 2, max: 4, sum: 9, average: 3, variance: 0.667 }
+     * @return The {@link NumberSummaryStatistics} of all the numbers in the collection.
+     */
+    @Override
+    public NumberSummaryStatistics<T> summaryStatistics() {
+        final long started = started();
+        final NumberSummaryStatistics<T> result = engine.summaryStatistics(collection);
+        finished("summaryStatistics", collection, null, started);
+        return result;
     }
 }
@@ -1,8 +1,9 @@
 package org.chain;
 
 import java.math.BigDecimal;
+import java.math.MathContext;
 
-public interface NumberChainBuilder<T extends Number & Comparable> extends ChainBuilder<T>
+public interface NumberChainBuilder<T extends Number & Comparable<T>> extends ChainBuilder<T>
 {
     //access
     /**
@@ -22,7 +23,19 @@ public interface NumberChainBuilder<T extends Number & Comparable> extends Chain
     BigDecimal sum();
     /**
      * <br/>{ [ 2, 3, 4 ] } => { 3 }
-     * @return The average for all the numbers in the collection.
+     * @return The average for all the numbers in the collection, rounded to {@link MathContext#DECIMAL128} if it does not terminate.
      */
     BigDecimal average();
+    /**
+     * <br/>{ [ 1, 2, 2 ] } average(new MathContext(3)) => { 1.67 }
+     * @param mathContext The precision and rounding to divide with.
+     * @return The average for all the numbers in the collection.
+     */
+    BigDecimal average(MathContext mathContext);
+    /**
+     * Gathers the count, min, max, sum, average and variance in a single pass.
+     * <br/>{ [ 2, 3, 4 ] } => { count: 3, min: 2, max: 4, sum: 9, average: 3, variance: 0.667 }
+     * @return The {@link NumberSummaryStatistics} of all the numbers in the collection.
+     */
+    NumberSummaryStatistics<T> summaryStatistics();
 }
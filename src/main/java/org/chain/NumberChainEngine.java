@@ -1,9 +1,10 @@
 package org.chain;
 
 import java.math.BigDecimal;
+import java.math.MathContext;
 import java.util.Collection;
 
-interface NumberChainEngine<T extends Number & Comparable> extends ChainEngine<T>
+interface NumberChainEngine<T extends Number & Comparable<T>> extends ChainEngine<T>
 {
     //access
     /**
@@ -27,7 +28,21 @@ interface NumberChainEngine<T extends Number & Comparable> extends ChainEngine<T
     /**
      * <br/>{ [ 2, 3, 4 ] } => { 3 }
      * @param collection The collection to operate on.
-     * @return The average of all the {@link Number}s in the {@link Collection}.
+     * @return The average of all the {@link Number}s in the {@link Collection}, rounded to {@link MathContext#DECIMAL128} if it does not terminate.
      */
     BigDecimal average(final Collection<T> collection);
+    /**
+     * <br/>{ [ 1, 2, 2 ] } average(new MathContext(3)) => { 1.67 }
+     * @param collection The collection to operate on.
+     * @param mathContext The precision and rounding to divide with.
+     * @return The average of all the {@link Number}s in the {@link Collection}.
+     */
+    BigDecimal average(final Collection<T> collection, final MathContext mathContext);
+    /**
+     * Gathers the count, min, max, sum, average and variance in a single pass.
+     * <br/>{ [ 2, 3, 4 ] } => { count: 3, min: 2, max: 4, sum: 9, average: 3, variance: 0.667 }
+     * @param collection The collection to operate on.
+     * @return The {@link NumberSummaryStatistics} of all the {@link Number}s in the {@link Collection}.
+     */
+    NumberSummaryStatistics<T> summaryStatistics(final Collection<T> collection);
 }
@@ -1,9 +1,10 @@
 package org.chain;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
+import java.math.MathContext;
 import java.util.Collection;
-import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * Provides all the logic that is used to operate on a {@link Collection} of {@link Number}s.
@@ -17,12 +18,15 @@ class NumberChainEngineImpl<T extends Number & Comparable<T>> extends ChainEngin
      */
     @Override
     public T min(Collection<T> collection) {
-        return new ArrayList<T>(sort(collection, new Comparator<T>() {
-            @Override
-            public int compare(T o1, T o2) {
-                return o1.compareTo(o2);
+        final Iterator<T> iterator = firstElement(collection);
+        T min = iterator.next();
+        while (iterator.hasNext()) {
+            final T t = iterator.next();
+            if (t.compareTo(min) < 0) {
+                min = t;
             }
-        })).get(0);
+        }
+        return min;
     }
 
     /**
@@ -32,12 +36,15 @@ class NumberChainEngineImpl<T extends Number & Comparable<T>> extends ChainEngin
      */
     @Override
     public T max(Collection<T> collection) {
-        return new ArrayList<T>(sort(collection, new Comparator<T>() {
-            @Override
-            public int compare(T o1, T o2) {
-                return o2.compareTo(o1);
+        final Iterator<T> iterator = firstElement(collection);
+        T max = iterator.next();
+        while (iterator.hasNext()) {
+            final T t = iterator.next();
+            if (t.compareTo(max) > 0) {
+                max = t;
             }
-        })).get(0);
+        }
+        return max;
     }
 
     /**
@@ -47,20 +54,62 @@ class NumberChainEngineImpl<T extends Number & Comparable<T>> extends ChainEngin
      */
     @Override
     public BigDecimal sum(Collection<T> collection) {
-        BigDecimal sum = new BigDecimal(0D);
-        for (T t : collection) {
-            sum = sum.add(new BigDecimal(t.toString()));
-        }
-        return sum;
+        return accumulate(collection).getSum();
     }
 
     /**
      * <br/>{ [ 2, 3, 4 ] } => { 3 }
+     * <br/>{ [ 1, 2, 2 ] } => { 1.666666666666666666666666666666667 }
      * @param collection The collection to operate on.
-     * @return The average of all the {@link Number}s in the {@link Collection}.
+     * @return The average of all the {@link Number}s in the {@link Collection}, rounded to {@link MathContext#DECIMAL128} if it does not terminate.
      */
     @Override
     public BigDecimal average(Collection<T> collection) {
-        return sum(collection).divide(new BigDecimal(collection.size()));
+        return accumulate(collection).getAverage();
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 2 ] } average(new MathContext(3)) => { 1.67 }
+     * @param collection The collection to operate on.
+     * @param mathContext The precision and rounding to divide with.
+     * @return The average of all the {@link Number}s in the {@link Collection}.
+     */
+    @Override
+    public BigDecimal average(Collection<T> collection, MathContext mathContext) {
+        return accumulate(collection).getAverage(mathContext);
+    }
+
+    /**
+     * Gathers the count, min, max, sum, average and variance in a single pass.
+     * <br/>{ [ 2, 3, 4 ] } => { count: 3, min: 2, max: 4, sum: 9, average: 3, variance: 0.667 }
+     * @param collection The collection to operate on.
+     * @return The {@link NumberSummaryStatistics} of all the {@link Number}s in the {@link Collection}.
+     */
+    @Override
+    public NumberSummaryStatistics<T> summaryStatistics(Collection<T> collection) {
+        final NumberSummaryStatistics<T> statistics = new NumberSummaryStatistics<T>();
+        for (T t : collection) {
+            statistics.accept(t);
+        }
+        return statistics;
+    }
+
+    private NumberAccumulator accumulate(Collection<T> collection) {
+        final NumberAccumulator accumulator = new NumberAccumulator();
+        for (T t : collection) {
+            accumulator.add(t);
+        }
+        return accumulator;
+    }
+
+    /**
+     * Checks for a first element with the same {@link Iterator} that will read it, so the {@link Collection} is only iterated once.
+     */
+    private Iterator<T> firstElement(Collection<T> collection) {
+        final Iterator<T> iterator = collection.iterator();
+        if (!iterator.hasNext()) {
+            throw new NoSuchElementException(noElementsInCollection);
+        }
+        return iterator;
     }
 }
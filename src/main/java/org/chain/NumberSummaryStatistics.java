@@ -0,0 +1,96 @@
+package org.chain;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Collection;
+
+/**
+ * The count, min, max, sum, average and variance of a {@link Collection} of {@link Number}s, gathered in a single pass.
+ * @param <T> The kind of {@link Number}s that were gathered.
+ */
+public final class NumberSummaryStatistics<T extends Number & Comparable<T>>
+{
+    private int count;
+    private T min;
+    private T max;
+    private final NumberAccumulator sum = new NumberAccumulator();
+    private double mean;
+    private double squaredDeviations;
+
+    NumberSummaryStatistics(){}
+
+    /**
+     * Adds a value to the statistics.
+     * @param value The value to add.
+     */
+    void accept(T value) {
+        count++;
+        if (min == null || value.compareTo(min) < 0) {
+            min = value;
+        }
+        if (max == null || value.compareTo(max) > 0) {
+            max = value;
+        }
+        sum.add(value);
+
+        // Welford's method keeps the variance accurate without a second pass over the values.
+        final double delta = value.doubleValue() - mean;
+        mean += delta / count;
+        squaredDeviations += delta * (value.doubleValue() - mean);
+    }
+
+    /**
+     * @return How many {@link Number}s were gathered.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return The lowest valued {@link Number}, or null if there were none.
+     */
+    public T getMin() {
+        return min;
+    }
+
+    /**
+     * @return The highest valued {@link Number}, or null if there were none.
+     */
+    public T getMax() {
+        return max;
+    }
+
+    /**
+     * @return The sum of all the {@link Number}s.
+     */
+    public BigDecimal getSum() {
+        return sum.getSum();
+    }
+
+    /**
+     * @return The average of all the {@link Number}s, rounded to {@link MathContext#DECIMAL128}, or null if there were none.
+     */
+    public BigDecimal getAverage() {
+        return count == 0 ? null : sum.getAverage(MathContext.DECIMAL128);
+    }
+
+    /**
+     * @return The population variance of all the {@link Number}s, or NaN if there were none.
+     */
+    public double getVariance() {
+        return count == 0 ? Double.NaN : squaredDeviations / count;
+    }
+
+    /**
+     * @return The population standard deviation of all the {@link Number}s, or NaN if there were none.
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    @Override
+    public String toString() {
+        return "NumberSummaryStatistics{count=" + count + ", min=" + min + ", max=" + max + ", sum=" + getSum()
+                + ", average=" + getAverage() + ", variance=" + getVariance() + "}";
+    }
+}
@@ -0,0 +1,111 @@
+package org.chain;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A {@link Collection} that tells its {@link DeltaListener}s about every element added to or removed from it.
+ * <br/>Changes made through the {@link Collection} it wraps, rather than through this one, are not seen.
+ * @param <T> The type of the elements.
+ */
+public final class ObservableCollection<T> extends AbstractCollection<T>
+{
+    private final Collection<T> collection;
+    private final List<DeltaListener<? super T>> listeners = new CopyOnWriteArrayList<DeltaListener<? super T>>();
+
+    /**
+     * Starts with no elements.
+     */
+    public ObservableCollection() {
+        this(new ArrayList<T>());
+    }
+
+    /**
+     * @param collection The {@link Collection} to store the elements in, which may already hold some.
+     */
+    public ObservableCollection(Collection<T> collection) {
+        this.collection = collection;
+    }
+
+    /**
+     * @param listener Told about every change from now on.
+     */
+    public void subscribe(DeltaListener<? super T> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener No longer told about changes.
+     */
+    public void unsubscribe(DeltaListener<? super T> listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public boolean add(T t) {
+        if (!collection.add(t)) {
+            return false;
+        }
+        for (DeltaListener<? super T> listener : listeners) {
+            listener.added(t);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the first element equal to the one given, and tells the listeners about the element that was stored,
+     * which may differ from the one given when equals only compares part of an element.
+     * @param o The element to remove.
+     * @return True if an element was removed.
+     */
+    @Override
+    public boolean remove(Object o) {
+        for (Iterator<T> iterator = collection.iterator(); iterator.hasNext(); ) {
+            final T stored = iterator.next();
+            if (o == null ? stored == null : o.equals(stored)) {
+                iterator.remove();
+                for (DeltaListener<? super T> listener : listeners) {
+                    listener.removed(stored);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        final Iterator<T> iterator = collection.iterator();
+        return new Iterator<T>() {
+            private T last;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                last = iterator.next();
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+                for (DeltaListener<? super T> listener : listeners) {
+                    listener.removed(last);
+                }
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return collection.size();
+    }
+}
@@ -0,0 +1,146 @@
+package org.chain;
+
+import org.chain.filters.HashStrategy;
+
+import java.util.Arrays;
+
+/**
+ * Numbers the distinct keys it is given 0, 1, 2, ... in the order they are first seen.
+ * <br/>Keeps the numbers in a single open addressing table with linear probing, next to the hash of each key,
+ * so looking up a key allocates nothing, and the numbers can index plain arrays of per key state.
+ * <br/>{@link OpenHashSet} is built on this table.
+ * @param <K> The type of the keys.
+ */
+final class OpenHashIndex<K> {
+    private static final Object NULL_KEY = new Object();
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private final HashStrategy<K> strategy;
+    /**
+     * The number of the key in each slot plus one, so that 0 marks an empty slot.
+     */
+    private int[] slots;
+    private int[] hashes;
+    private Object[] keysById;
+    private int size;
+    private int resizeAt;
+
+    /**
+     * @param strategy Defines how keys are hashed and compared.
+     * @param expectedSize How many keys the index is expected to hold, so it can be sized without resizing.
+     */
+    OpenHashIndex(HashStrategy<K> strategy, int expectedSize) {
+        this.strategy = strategy;
+        allocate(capacityFor(expectedSize));
+        keysById = new Object[Math.max(16, Math.min(expectedSize, 1 << 16))];
+    }
+
+    /**
+     * @param key The key to look up.
+     * @return The number of the key, numbering it after all keys seen so far if it is new.
+     */
+    int indexOf(K key) {
+        final int hash = spread(strategy.hash(key));
+        final int index = probe(key, hash);
+        if (slots[index] != 0) {
+            return slots[index] - 1;
+        }
+        final int id = size;
+        slots[index] = id + 1;
+        hashes[index] = hash;
+        if (id == keysById.length) {
+            keysById = Arrays.copyOf(keysById, id * 2);
+        }
+        keysById[id] = key == null ? NULL_KEY : key;
+        if (++size > resizeAt) {
+            resize();
+        }
+        return id;
+    }
+
+    /**
+     * @param key The key to look up.
+     * @return The number of the key, or -1 if it was never numbered.
+     */
+    int find(K key) {
+        return slots[probe(key, spread(strategy.hash(key)))] - 1;
+    }
+
+    /**
+     * @param id The number of a key.
+     * @return The key that was given the number.
+     */
+    K keyAt(int id) {
+        return unmask(keysById[id]);
+    }
+
+    /**
+     * @return How many distinct keys were numbered.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The slot that holds the key, or the empty slot where it belongs.
+     */
+    private int probe(K key, int hash) {
+        final int mask = slots.length - 1;
+        int index = hash & mask;
+        int slot;
+        while ((slot = slots[index]) != 0) {
+            if (hashes[index] == hash && strategy.areEqual(unmask(keysById[slot - 1]), key)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void resize() {
+        final int[] oldSlots = slots;
+        final int[] oldHashes = hashes;
+        if (oldSlots.length == MAXIMUM_CAPACITY) {
+            throw new IllegalStateException("Too many keys to hash: " + size);
+        }
+        allocate(oldSlots.length << 1);
+        final int mask = slots.length - 1;
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] != 0) {
+                int index = oldHashes[i] & mask;
+                while (slots[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                slots[index] = oldSlots[i];
+                hashes[index] = oldHashes[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        slots = new int[capacity];
+        hashes = new int[capacity];
+        resizeAt = capacity == MAXIMUM_CAPACITY ? MAXIMUM_CAPACITY - 1 : capacity >>> 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private K unmask(Object stored) {
+        return stored == NULL_KEY ? null : (K) stored;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        if (expectedSize >= MAXIMUM_CAPACITY >>> 1) {
+            return MAXIMUM_CAPACITY;
+        }
+        int capacity = 16;
+        while (capacity >>> 1 < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int spread(int hash) {
+        final int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
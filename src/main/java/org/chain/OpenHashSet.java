@@ -0,0 +1,66 @@
+package org.chain;
+
+import org.chain.filters.HashStrategy;
+
+/**
+ * A hash set that keeps its elements in the open addressing table of an {@link OpenHashIndex}.
+ * <br/>Used by the set operations so that checking for an element already seen takes constant time
+ * without allocating an entry object per element.
+ * @param <K> The type of the elements in the set.
+ */
+final class OpenHashSet<K> {
+    private static final HashStrategy<Object> EQUALS_STRATEGY = new HashStrategy<Object>() {
+        @Override
+        public int hash(Object obj) {
+            return obj == null ? 0 : obj.hashCode();
+        }
+
+        @Override
+        public boolean areEqual(Object obj1, Object obj2) {
+            return obj1 == null ? obj2 == null : obj1.equals(obj2);
+        }
+    };
+
+    private final OpenHashIndex<K> index;
+
+    /**
+     * @param strategy Defines how elements are hashed and compared.
+     * @param expectedSize How many elements the set is expected to hold, so it can be sized without resizing.
+     */
+    OpenHashSet(HashStrategy<K> strategy, int expectedSize) {
+        this.index = new OpenHashIndex<K>(strategy, expectedSize);
+    }
+
+    /**
+     * @param <K> The type of the elements in the set.
+     * @return A {@link HashStrategy} that uses {@link Object#hashCode()} and {@link Object#equals(Object)}.
+     */
+    @SuppressWarnings("unchecked")
+    static <K> HashStrategy<K> equalsStrategy() {
+        return (HashStrategy<K>) EQUALS_STRATEGY;
+    }
+
+    /**
+     * @param key The element to add.
+     * @return True if the element was not in the set already.
+     */
+    boolean add(K key) {
+        final int size = index.size();
+        return index.indexOf(key) == size;
+    }
+
+    /**
+     * @param key The element to look for.
+     * @return True if the element is in the set.
+     */
+    boolean contains(K key) {
+        return index.find(key) >= 0;
+    }
+
+    /**
+     * @return How many elements are in the set.
+     */
+    int size() {
+        return index.size();
+    }
+}
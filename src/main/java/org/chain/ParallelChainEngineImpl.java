@@ -0,0 +1,374 @@
+package org.chain;
+
+import org.chain.filters.ManySelector;
+import org.chain.filters.Selector;
+import org.chain.filters.WhereComparator;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Performs the element by element operations on a {@link Collection} across the threads of a {@link ForkJoinPool}.
+ * <br/>The {@link Collection} is split into chunks of at least the split threshold, and the results of each chunk
+ * are put back together in the order the elements were found, so the results are the same as {@link ChainEngineImpl}.
+ * @param <T> The type that is contained in the {@link Collection} to be operated on.
+ */
+class ParallelChainEngineImpl<T> extends ChainEngineImpl<T> {
+    static final int DEFAULT_SPLIT_THRESHOLD = 4096;
+
+    protected final ForkJoinPool pool;
+    protected final int splitThreshold;
+
+    /**
+     * @param pool The {@link ForkJoinPool} that runs the chunks.
+     * @param splitThreshold The smallest number of elements worth running as a separate chunk.
+     */
+    ParallelChainEngineImpl(ForkJoinPool pool, int splitThreshold) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool must not be null");
+        }
+        if (splitThreshold < 1) {
+            throw new IllegalArgumentException("splitThreshold must be at least 1, was " + splitThreshold);
+        }
+        this.pool = pool;
+        this.splitThreshold = splitThreshold;
+    }
+
+    /**
+     * Creates an engine of the same kind to operate on the elements produced by a select.
+     * @param <TD> The type of the elements the new engine will operate on.
+     * @return A new {@link ChainEngine} that runs on the same {@link ForkJoinPool} with the same split threshold.
+     */
+    @Override
+    public <TD> ChainEngine<TD> derive() {
+        return new ParallelChainEngineImpl<TD>(pool, splitThreshold);
+    }
+
+    /**
+     * Sorts the {@link Collection} based on the {@link Comparator} that is passed in, using a parallel merge sort.
+     * <br/>{ [ 3, 1, 4, 2 ] } => { [ 1, 2, 3, 4 ] }
+     * @param collection The collection to operate on.
+     * @param comparator Defines the order to sort the list by.
+     * @return A new sorted version of the {@link Collection}.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Collection<T> sort(final Collection<T> collection, final Comparator<T> comparator) {
+        if (collection.size() <= splitThreshold) {
+            return super.sort(collection, comparator);
+        }
+        final T[] ts = (T[]) collection.toArray();
+        pool.invoke(new MergeSort<T>(ts, (T[]) new Object[ts.length], 0, ts.length, comparator, splitThreshold));
+        return new ArrayList<T>(Arrays.asList(ts));
+    }
+
+    /**
+     * Selects a field from each element and concatenates them all into a new {@link Collection}.
+     * <br/>{ [ {a:1}, {a:2}, {a:3}, {a:4} ]  } select(a) => { [ 1, 2, 3, 4 ] }
+     * @param collection The collection to operate on.
+     * @param selector Defines which field to select from each element.
+     * @param <TD> The type of the field to be selected from each element.
+     * @return A new {@link Collection} containing all of the fields that were selected from each element.
+     */
+    @Override
+    public <TD> Collection<TD> select(final Collection<T> collection, final Selector<T, TD> selector) {
+        if (collection.size() <= splitThreshold) {
+            return super.select(collection, selector);
+        }
+        return collect(collection, new ChunkCollector<T, TD>() {
+            @Override
+            public void collect(List<T> chunk, List<TD> tds) {
+                for (T t : chunk) {
+                    tds.add(selector.select(t));
+                }
+            }
+        });
+    }
+
+    /**
+     * Selects a field containing a {@link Collection} from each element and concatenates all subelements into a new {@link Collection}.
+     * <br/>{ [ {a:[1,  2]}, {a:[3, 4]} ] } select(a) => { [ 1, 2, 3, 4 ] }
+     * @param collection The collection to operate on.
+     * @param selector Defines which field to select from each element.
+     * @param <TD> The type of the field to be selected from each element.
+     * @return A new {@link Collection} containing all of the fields that were selected from each element.
+     */
+    @Override
+    public <TD> Collection<TD> selectMany(final Collection<T> collection, final ManySelector<T, TD> selector) {
+        if (collection.size() <= splitThreshold) {
+            return super.selectMany(collection, selector);
+        }
+        return collect(collection, new ChunkCollector<T, TD>() {
+            @Override
+            public void collect(List<T> chunk, List<TD> tds) {
+                for (T t : chunk) {
+                    tds.addAll(selector.select(t));
+                }
+            }
+        });
+    }
+
+    /**
+     * Selects all elements that meet the condition specified into a new {@link Collection}.
+     * <br/>{ [ 1, 2, 3, 4 ] } where(a >= 2) => { [ 2, 3, 4 ] }
+     * @param collection The collection to operate on.
+     * @param comparator Defines the condition to be met for each element.
+     * @return A new {@link Collection} containing all elements that meet the condition specified.
+     */
+    @Override
+    public Collection<T> where(final Collection<T> collection, final WhereComparator<T> comparator) {
+        if (collection.size() <= splitThreshold) {
+            return super.where(collection, comparator);
+        }
+        return collect(collection, new ChunkCollector<T, T>() {
+            @Override
+            public void collect(List<T> chunk, List<T> ts) {
+                for (T t : chunk) {
+                    if (comparator.meetsCondition(t)) {
+                        ts.add(t);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Checks if all elements meet the condition specified in the {@link Collection}, stopping every chunk once one fails.
+     * <br/>{ [ 1, 2, 3, 4 ] } all(a >= 0) => { true }
+     * <br/>{ [ 1, 2, 3, 4 ] } all(a >= 2) => { false }
+     * @param collection The collection to operate on.
+     * @param comparator Defines the condition to be met for each element.
+     * @return True if all elements meet the condition specified in the {@link Collection}.
+     */
+    @Override
+    public Boolean all(final Collection<T> collection, final WhereComparator<T> comparator) {
+        return !any(collection, new WhereComparator<T>() {
+            @Override
+            public boolean meetsCondition(T obj) {
+                return !comparator.meetsCondition(obj);
+            }
+        });
+    }
+
+    /**
+     * Checks if any element meet the condition specified in the {@link Collection}, stopping every chunk once one is found.
+     * <br/>{ [ 1, 2, 3, 4 ] } any(a >= 2) => { true }
+     * <br/>{ [ 1, 2, 3, 4 ] } any(a >= 200) => { false }
+     * @param collection The collection to operate on.
+     * @param comparator Defines the condition to be met for each element.
+     * @return True if any element meet the condition specified in the {@link Collection}.
+     */
+    @Override
+    public Boolean any(final Collection<T> collection, final WhereComparator<T> comparator) {
+        if (collection.size() <= splitThreshold) {
+            return super.any(collection, comparator);
+        }
+        final AtomicBoolean found = new AtomicBoolean();
+        run(collection, new ChunkVisitor<T>() {
+            @Override
+            public void visit(List<T> chunk, int offset) {
+                for (int i = 0; i < chunk.size() && !found.get(); i++) {
+                    if (comparator.meetsCondition(chunk.get(i))) {
+                        found.set(true);
+                    }
+                }
+            }
+        });
+        return found.get();
+    }
+
+    /**
+     * Counts how many elements meet the condition specified in the {@link Collection}.
+     * <br/>{ [ 1, 2, 3, 4 ] } count(a >= 2) => { 3 }
+     * <br/>{ [ 1, 2, 3, 4 ] } count(a >= 200) => { 0 }
+     * @param collection The collection to operate on.
+     * @param comparator Defines the condition to be met for each element.
+     * @return How many elements meet the condition specified in the {@link Collection}.
+     */
+    @Override
+    public Integer count(final Collection<T> collection, final WhereComparator<T> comparator) {
+        if (collection.size() <= splitThreshold) {
+            return super.count(collection, comparator);
+        }
+        final AtomicInteger count = new AtomicInteger();
+        run(collection, new ChunkVisitor<T>() {
+            @Override
+            public void visit(List<T> chunk, int offset) {
+                int chunkCount = 0;
+                for (T t : chunk) {
+                    if (comparator.meetsCondition(t)) {
+                        chunkCount++;
+                    }
+                }
+                count.addAndGet(chunkCount);
+            }
+        });
+        return count.get();
+    }
+
+    /**
+     * Selects {@link Collection} for the first element that meets the condition.
+     * <br/>Chunks stop as soon as an earlier chunk has found a match, since they can no longer find the first one.
+     * <br/>{ [ 1, 2, 3, 4 ] } first(a > 2) => { 3 }
+     * <br/>{ [ 1, 2, 3, 4 ] } first(a > 200) => NoSuchElementException
+     * <br/>{ [ ] } first(a > 2) => NoSuchElementException
+     * @param collection The collection to operate on.
+     * @param comparator Defines the condition to be met for the element to be found.
+     * @return The first element that meets the condition specified.
+     * @throws NoSuchElementException If no matching element found.
+     */
+    @Override
+    public T first(final Collection<T> collection, final WhereComparator<T> comparator) throws NoSuchElementException {
+        if (isNullOrEmpty(collection) || collection.size() <= splitThreshold) {
+            return super.first(collection, comparator);
+        }
+        final List<T> ts = asList(collection);
+        final AtomicInteger firstIndex = new AtomicInteger(Integer.MAX_VALUE);
+        run(ts, new ChunkVisitor<T>() {
+            @Override
+            public void visit(List<T> chunk, int offset) {
+                for (int i = 0; i < chunk.size() && offset + i < firstIndex.get(); i++) {
+                    if (comparator.meetsCondition(chunk.get(i))) {
+                        int current = firstIndex.get();
+                        while (offset + i < current && !firstIndex.compareAndSet(current, offset + i)) {
+                            current = firstIndex.get();
+                        }
+                        return;
+                    }
+                }
+            }
+        });
+        if (firstIndex.get() == Integer.MAX_VALUE) {
+            throw new NoSuchElementException(noMatchingElementsInCollection);
+        }
+        return ts.get(firstIndex.get());
+    }
+
+    private <TD> Collection<TD> collect(final Collection<T> collection, final ChunkCollector<T, TD> collector) {
+        final List<T> ts = asList(collection);
+        final int chunkSize = chunkSize(ts.size());
+        final List<List<TD>> partials = new ArrayList<List<TD>>(Collections.<List<TD>>nCopies(chunks(ts.size()), null));
+        run(ts, new ChunkVisitor<T>() {
+            @Override
+            public void visit(List<T> chunk, int offset) {
+                final ArrayList<TD> tds = new ArrayList<TD>();
+                collector.collect(chunk, tds);
+                partials.set(offset / chunkSize, tds);
+            }
+        });
+
+        int size = 0;
+        for (List<TD> partial : partials) {
+            size += partial.size();
+        }
+        final ArrayList<TD> tds = new ArrayList<TD>(size);
+        for (List<TD> partial : partials) {
+            tds.addAll(partial);
+        }
+        return tds;
+    }
+
+    private void run(Collection<T> collection, ChunkVisitor<T> visitor) {
+        final List<T> ts = asList(collection);
+        pool.invoke(new ChunkTask<T>(ts, visitor, 0, chunks(ts.size()), chunkSize(ts.size())));
+    }
+
+    private int chunks(int size) {
+        return (size + chunkSize(size) - 1) / chunkSize(size);
+    }
+
+    private int chunkSize(int size) {
+        return Math.max(splitThreshold, (size + pool.getParallelism() * 4 - 1) / (pool.getParallelism() * 4));
+    }
+
+    private List<T> asList(Collection<T> collection) {
+        return collection instanceof List && collection instanceof RandomAccess
+                ? (List<T>) collection
+                : new ArrayList<T>(collection);
+    }
+
+    interface ChunkVisitor<T> {
+        void visit(List<T> chunk, int offset);
+    }
+
+    interface ChunkCollector<T, TD> {
+        void collect(List<T> chunk, List<TD> tds);
+    }
+
+    static final class ChunkTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<T> ts;
+        private final ChunkVisitor<T> visitor;
+        private final int fromChunk;
+        private final int toChunk;
+        private final int chunkSize;
+
+        ChunkTask(List<T> ts, ChunkVisitor<T> visitor, int fromChunk, int toChunk, int chunkSize) {
+            this.ts = ts;
+            this.visitor = visitor;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (toChunk - fromChunk == 1) {
+                final int offset = fromChunk * chunkSize;
+                visitor.visit(ts.subList(offset, Math.min(offset + chunkSize, ts.size())), offset);
+            }
+            else {
+                final int middle = (fromChunk + toChunk) >>> 1;
+                invokeAll(new ChunkTask<T>(ts, visitor, fromChunk, middle, chunkSize),
+                        new ChunkTask<T>(ts, visitor, middle, toChunk, chunkSize));
+            }
+        }
+    }
+
+    static final class MergeSort<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final T[] ts;
+        private final T[] buffer;
+        private final int from;
+        private final int to;
+        private final Comparator<T> comparator;
+        private final int splitThreshold;
+
+        MergeSort(T[] ts, T[] buffer, int from, int to, Comparator<T> comparator, int splitThreshold) {
+            this.ts = ts;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.comparator = comparator;
+            this.splitThreshold = splitThreshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= splitThreshold) {
+                Arrays.sort(ts, from, to, comparator);
+                return;
+            }
+            final int middle = (from + to) >>> 1;
+            invokeAll(new MergeSort<T>(ts, buffer, from, middle, comparator, splitThreshold),
+                    new MergeSort<T>(ts, buffer, middle, to, comparator, splitThreshold));
+            if (comparator.compare(ts[middle - 1], ts[middle]) <= 0) {
+                return;
+            }
+            System.arraycopy(ts, from, buffer, from, to - from);
+            int i = from;
+            int j = middle;
+            int k = from;
+            while (i < middle && j < to) {
+                ts[k++] = comparator.compare(buffer[j], buffer[i]) < 0 ? buffer[j++] : buffer[i++];
+            }
+            System.arraycopy(buffer, i, ts, k, middle - i);
+            System.arraycopy(buffer, j, ts, k, to - j);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.chain;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Performs the element by element operations on a {@link Collection} of {@link Number}s across the threads of a {@link ForkJoinPool}.
+ * @param <T> The type of {@link Number} that is contained in the {@link Collection} to be operated on.
+ */
+class ParallelNumberChainEngineImpl<T extends Number & Comparable<T>> extends ParallelChainEngineImpl<T> implements NumberChainEngine<T> {
+    private final NumberChainEngine<T> numberEngine = new NumberChainEngineImpl<T>();
+
+    /**
+     * @param pool The {@link ForkJoinPool} that runs the chunks.
+     * @param splitThreshold The smallest number of elements worth running as a separate chunk.
+     */
+    ParallelNumberChainEngineImpl(ForkJoinPool pool, int splitThreshold) {
+        super(pool, splitThreshold);
+    }
+
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 2 }
+     * @param collection The collection to operate on.
+     * @return The minimum value of all the {@link Number}s in the {@link Collection}.
+     */
+    @Override
+    public T min(Collection<T> collection) {
+        return numberEngine.min(collection);
+    }
+
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 4 }
+     * @param collection The collection to operate on.
+     * @return The maximum value of all the {@link Number}s in the {@link Collection}.
+     */
+    @Override
+    public T max(Collection<T> collection) {
+        return numberEngine.max(collection);
+    }
+
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 9 }
+     * @param collection The collection to operate on.
+     * @return The sum of all the {@link Number}s in the {@link Collection}.
+     */
+    @Override
+    public BigDecimal sum(Collection<T> collection) {
+        return numberEngine.sum(collection);
+    }
+
+    /**
+     * <br/>{ [ 2, 3, 4 ] } => { 3 }
+     * @param collection The collection to operate on.
+     * @return The average of all the {@link Number}s in the {@link Collection}.
+     */
+    @Override
+    public BigDecimal average(Collection<T> collection) {
+        return numberEngine.average(collection);
+    }
+
+    /**
+     * <br/>{ [ 1, 2, 2 ] } average(new MathContext(3)) => { 1.67 }
+     * @param collection The collection to operate on.
+     * @param mathContext The precision and rounding to divide with.
+     * @return The average of all the {@link Number}s in the {@link Collection}.
+     */
+    @Override
+    public BigDecimal average(Collection<T> collection, MathContext mathContext) {
+        return numberEngine.average(collection, mathContext);
+    }
+
+    /**
+     * Gathers the count, min, max, sum, average and variance in a single pass.
+     * <br/>{ [ 2, 3, 4 ] } => { count: 3, min: 2, max: 4, sum: 9, average: 3, variance: 0.667 }
+     * @param collection The collection to operate on.
+     * @return The {@link NumberSummaryStatistics} of all the {@link Number}s in the {@link Collection}.
+     */
+    @Override
+    public NumberSummaryStatistics<T> summaryStatistics(Collection<T> collection) {
+        return numberEngine.summaryStatistics(collection);
+    }
+}
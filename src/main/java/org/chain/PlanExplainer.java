@@ -0,0 +1,185 @@
+package org.chain;
+
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Describes the stages recorded by a lazy chain as a tree, with the estimated number of rows each stage produces
+ * and the estimated cost of producing them.
+ * <br/>Costs count how many times an element is handed from one stage to the next or checked against a condition,
+ * assuming every where keeps half of its elements and every stage runs to the end.
+ */
+final class PlanExplainer
+{
+    private static final double SELECTIVITY = 0.5;
+
+    private PlanExplainer(){}
+
+    /**
+     * @param original The plan as it was recorded.
+     * @param optimized The plan as it will run.
+     * @return Both plans, one stage per line, with the last stage first.
+     */
+    static String explain(Collection<?> original, Collection<?> optimized) {
+        final StringBuilder builder = new StringBuilder();
+        final Estimate originalEstimate = estimate(original, 1);
+        builder.append("Original plan (cost ").append(format(originalEstimate.cost)).append("):\n").append(originalEstimate.text);
+        final Estimate optimizedEstimate = original == optimized ? originalEstimate : estimate(optimized, 1);
+        builder.append("Optimized plan (cost ").append(format(optimizedEstimate.cost)).append("):\n").append(optimizedEstimate.text);
+        return builder.toString();
+    }
+
+    private static Estimate estimate(Collection<?> collection, int depth) {
+        if (collection instanceof LazyChainEngineImpl.FilteredCollection) {
+            final LazyChainEngineImpl.FilteredCollection<?> filtered = (LazyChainEngineImpl.FilteredCollection<?>) collection;
+            final Estimate source = estimate(filtered.source, depth + 1);
+            final int conditions = conditions(filtered.comparator);
+            double checks = 0;
+            double rows = source.rows;
+            for (int i = 0; i < conditions; i++) {
+                checks += rows;
+                rows *= SELECTIVITY;
+            }
+            return new Estimate(conditions == 1 ? "where" : "where x" + conditions, rows, source.rows + checks, source, depth);
+        }
+        if (collection instanceof LazyChainEngineImpl.SelectedCollection) {
+            final LazyChainEngineImpl.SelectedCollection<?, ?> selected = (LazyChainEngineImpl.SelectedCollection<?, ?>) collection;
+            final Estimate source = estimate(selected.source, depth + 1);
+            final int selectors = selectors(selected.selector);
+            return new Estimate(selectors == 1 ? "select" : "select x" + selectors, source.rows, source.rows * (1 + selectors), source, depth);
+        }
+        if (collection instanceof LazyChainEngineImpl.SelectedManyCollection) {
+            final Estimate source = estimate(((LazyChainEngineImpl.SelectedManyCollection<?, ?>) collection).source, depth + 1);
+            return new Estimate("selectMany", source.rows, source.rows * 2, source, depth);
+        }
+        if (collection instanceof LazyChainEngineImpl.DistinctCollection) {
+            final Estimate source = estimate(((LazyChainEngineImpl.DistinctCollection<?, ?>) collection).source, depth + 1);
+            return new Estimate("distinct", source.rows, source.rows * 2, source, depth);
+        }
+        if (collection instanceof SpillingDistinctCollection) {
+            final SpillingDistinctCollection<?> distinct = (SpillingDistinctCollection<?>) collection;
+            final String budget = "(" + distinct.budget.getMaxElementsInMemory() + ")";
+            final Estimate source = estimate(distinct.sources.get(0), depth + 1);
+            if (distinct.sources.size() > 1) {
+                final Estimate appended = estimate(distinct.sources.get(1), depth + 1);
+                final double rows = source.rows + appended.rows;
+                return new Estimate("spilling union" + budget, rows, rows * 2, source, appended, depth);
+            }
+            return new Estimate("spilling distinct" + budget, source.rows, source.rows * 2, source, depth);
+        }
+        if (collection instanceof LazyChainEngineImpl.SortedCollection) {
+            final Estimate source = estimate(((LazyChainEngineImpl.SortedCollection<?>) collection).source, depth + 1);
+            return new Estimate("sort", source.rows, source.rows * (1 + log2(source.rows)), source, depth);
+        }
+        if (collection instanceof ExternalSortedCollection) {
+            final ExternalSortedCollection<?> sorted = (ExternalSortedCollection<?>) collection;
+            final Estimate source = estimate(sorted.source, depth + 1);
+            return new Estimate("external sort(" + sorted.maxElementsInMemory + ")", source.rows, source.rows * (1 + log2(source.rows)), source, depth);
+        }
+        if (collection instanceof LazyChainEngineImpl.TopCollection) {
+            final LazyChainEngineImpl.TopCollection<?> top = (LazyChainEngineImpl.TopCollection<?>) collection;
+            final Estimate source = estimate(top.source, depth + 1);
+            return new Estimate("top(" + top.numberToTake + ")", Math.min(top.numberToTake, source.rows),
+                    source.rows * (1 + log2(Math.min(top.numberToTake, source.rows))), source, depth);
+        }
+        if (collection instanceof LazyChainEngineImpl.ReversedCollection) {
+            final Estimate source = estimate(((LazyChainEngineImpl.ReversedCollection<?>) collection).source, depth + 1);
+            return new Estimate("reverse", source.rows, source.rows * 2, source, depth);
+        }
+        if (collection instanceof LazyChainEngineImpl.SkippedCollection) {
+            final LazyChainEngineImpl.SkippedCollection<?> skipped = (LazyChainEngineImpl.SkippedCollection<?>) collection;
+            final Estimate source = estimate(skipped.source, depth + 1);
+            return new Estimate("skip(" + skipped.numberToSkip + ")", Math.max(0, source.rows - skipped.numberToSkip), source.rows, source, depth);
+        }
+        if (collection instanceof LazyChainEngineImpl.TakenCollection) {
+            final LazyChainEngineImpl.TakenCollection<?> taken = (LazyChainEngineImpl.TakenCollection<?>) collection;
+            final Estimate source = estimate(taken.source, depth + 1);
+            final double rows = Math.min(taken.numberToTake, source.rows);
+            return new Estimate("take(" + taken.numberToTake + ")", rows, rows, source, depth);
+        }
+        if (collection instanceof LazyChainEngineImpl.ConcatenatedCollection) {
+            final LazyChainEngineImpl.ConcatenatedCollection<?> concatenated = (LazyChainEngineImpl.ConcatenatedCollection<?>) collection;
+            final Estimate source = estimate(concatenated.source, depth + 1);
+            final Estimate appended = estimate(concatenated.appended, depth + 1);
+            final double rows = source.rows + appended.rows;
+            return new Estimate("concatenate", rows, rows, source, appended, depth);
+        }
+        if (collection instanceof LazyChainEngineImpl.IteratedCollection) {
+            final LazyChainEngineImpl.IteratedCollection<?> iterated = (LazyChainEngineImpl.IteratedCollection<?>) collection;
+            if (iterated.unbounded) {
+                return new Estimate("source, unbounded", Double.POSITIVE_INFINITY, 0, depth);
+            }
+            if (iterated.source instanceof Collection) {
+                return new Estimate("source", ((Collection<?>) iterated.source).size(), 0, depth);
+            }
+            return new Estimate("source, size unknown", Double.NaN, 0, depth);
+        }
+        if (collection instanceof LazyCollection) {
+            return new Estimate(collection.getClass().getSimpleName(), Double.NaN, Double.NaN, depth);
+        }
+        return new Estimate("source", collection == null ? 0 : collection.size(), 0, depth);
+    }
+
+    private static int conditions(Object comparator) {
+        if (comparator instanceof LazyChainEngineImpl.BothConditions) {
+            final LazyChainEngineImpl.BothConditions<?> both = (LazyChainEngineImpl.BothConditions<?>) comparator;
+            return conditions(both.first) + conditions(both.second);
+        }
+        return 1;
+    }
+
+    private static int selectors(Object selector) {
+        if (selector instanceof LazyChainEngineImpl.ComposedSelector) {
+            final LazyChainEngineImpl.ComposedSelector<?, ?, ?> composed = (LazyChainEngineImpl.ComposedSelector<?, ?, ?>) selector;
+            return selectors(composed.first) + selectors(composed.second);
+        }
+        return 1;
+    }
+
+    private static double log2(double rows) {
+        return rows > 1 ? Math.log(rows) / Math.log(2) : 0;
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "?";
+        }
+        if (Double.isInfinite(value)) {
+            return "unbounded";
+        }
+        return String.format(Locale.ROOT, "%.0f", value);
+    }
+
+    private static final class Estimate
+    {
+        final double rows;
+        final double cost;
+        final String text;
+
+        Estimate(String stage, double rows, double cost, int depth) {
+            this.rows = rows;
+            this.cost = cost;
+            this.text = line(stage, rows, cost, depth);
+        }
+
+        Estimate(String stage, double rows, double work, Estimate source, int depth) {
+            this.rows = rows;
+            this.cost = source.cost + work;
+            this.text = line(stage, rows, cost, depth) + source.text;
+        }
+
+        Estimate(String stage, double rows, double work, Estimate source, Estimate appended, int depth) {
+            this.rows = rows;
+            this.cost = source.cost + appended.cost + work;
+            this.text = line(stage, rows, cost, depth) + source.text + appended.text;
+        }
+
+        private static String line(String stage, double rows, double cost, int depth) {
+            final StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < depth; i++) {
+                builder.append("  ");
+            }
+            return builder.append(stage).append(" [rows=").append(format(rows)).append(", cost=").append(format(cost)).append("]\n").toString();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.chain;
+
+import java.util.Comparator;
+
+/**
+ * Defines how union, intersect, diverge and distinct find equal elements when they are given a {@link Comparator}.
+ */
+public enum SetOperationStrategy {
+    /**
+     * Compares every element against every other element, keeping the elements in the order they were found.
+     * <br/>Works with any {@link Comparator}, but takes quadratic time.
+     */
+    NESTED_LOOP,
+    /**
+     * Sorts both {@link java.util.Collection}s and walks them together, returning the elements in the order of the {@link Comparator}.
+     * <br/>Requires the {@link Comparator} to define a total order, and takes n log n time.
+     */
+    SORT_MERGE,
+    /**
+     * Sorts both {@link java.util.Collection}s and walks them together, then puts the elements back in the order they were found,
+     * so the result is the same as {@link #NESTED_LOOP}.
+     * <br/>Requires the {@link Comparator} to define a total order, and takes n log n time.
+     */
+    STABLE_SORT_MERGE
+}
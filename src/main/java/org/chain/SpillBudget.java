@@ -0,0 +1,97 @@
+package org.chain;
+
+import org.chain.filters.ElementCodec;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps how many elements distinct, union and groupBy hold in memory, and counts what they spill to disk once the cap is reached.
+ * <br/>An operation that goes over the budget hash partitions its input into temporary files through the codec,
+ * then processes the partitions one at a time, partitioning again any partition that is still over the budget.
+ * <br/>The counts add up over every operation given the budget, and can be read from any thread while they run.
+ * @param <T> The type of the elements spilled.
+ */
+public final class SpillBudget<T>
+{
+    /** How many files an input over the budget is partitioned into. */
+    static final int FAN_OUT = 16;
+    /**
+     * How many times a partition is partitioned again before it is processed in memory whatever its size, for inputs whose hashes collide.
+     * <br/>A partition that cannot split at all, because it holds a single key or all went to one partition, is processed in memory at once.
+     */
+    static final int MAX_DEPTH = 8;
+
+    private final ElementCodec<T> codec;
+    private final int maxElementsInMemory;
+    private final LongAdder spills = new LongAdder();
+    private final LongAdder partitions = new LongAdder();
+    private final LongAdder spilledElements = new LongAdder();
+    private final LongAdder spilledBytes = new LongAdder();
+
+    /**
+     * @param codec Writes elements to and reads them back from the temporary files.
+     * @param maxElementsInMemory The most elements an operation holds in memory before it spills.
+     */
+    public SpillBudget(ElementCodec<T> codec, int maxElementsInMemory) {
+        if (codec == null) {
+            throw new IllegalArgumentException("codec = null");
+        }
+        if (maxElementsInMemory < 1) {
+            throw new IllegalArgumentException("maxElementsInMemory = " + maxElementsInMemory);
+        }
+        this.codec = codec;
+        this.maxElementsInMemory = maxElementsInMemory;
+    }
+
+    /**
+     * @return The codec that writes and reads the spilled elements.
+     */
+    public ElementCodec<T> getCodec() {
+        return codec;
+    }
+
+    /**
+     * @return The most elements an operation holds in memory before it spills.
+     */
+    public int getMaxElementsInMemory() {
+        return maxElementsInMemory;
+    }
+
+    /**
+     * @return How many times an input or partition went over the budget and was partitioned to disk.
+     */
+    public long getSpillCount() {
+        return spills.sum();
+    }
+
+    /**
+     * @return How many partition files were written.
+     */
+    public long getPartitionCount() {
+        return partitions.sum();
+    }
+
+    /**
+     * @return How many elements were written to partition files, counting an element again each time its partition was partitioned again.
+     */
+    public long getSpilledElementCount() {
+        return spilledElements.sum();
+    }
+
+    /**
+     * @return How many bytes were written to partition files.
+     */
+    public long getSpilledBytes() {
+        return spilledBytes.sum();
+    }
+
+    void recordSpill(SpillFile<T> partition) {
+        partitions.increment();
+        spilledElements.add(partition.count());
+        spilledBytes.add(partition.bytes());
+    }
+
+    void recordSpill() {
+        spills.increment();
+    }
+}
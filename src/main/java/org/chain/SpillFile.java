@@ -0,0 +1,180 @@
+package org.chain;
+
+import org.chain.filters.ElementCodec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A temporary file that elements are written to once, in order, through an {@link ElementCodec}, then read back in the same order.
+ * <br/>Both directions go through a {@link FileChannel} behind a large buffer, so the codec's small reads and writes never reach the disk one by one.
+ * @param <T> The type of the elements spilled.
+ */
+final class SpillFile<T> {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path path;
+    private final ElementCodec<T> codec;
+    private DataOutputStream out;
+    /** The file opened for reading before it was unlinked, until a reader takes it over. */
+    private FileChannel unlinked;
+    private long count;
+    private long bytes;
+
+    private SpillFile(Path path, ElementCodec<T> codec) throws IOException {
+        this.path = path;
+        this.codec = codec;
+        this.out = new DataOutputStream(new BufferedOutputStream(
+                Channels.newOutputStream(FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)), BUFFER_SIZE));
+    }
+
+    /**
+     * @param codec Writes and reads the elements.
+     * @param <T> The type of the elements spilled.
+     * @return A new empty {@link SpillFile} in the default temporary directory, open for writing.
+     * @throws IOException If the file cannot be created.
+     */
+    static <T> SpillFile<T> create(ElementCodec<T> codec) throws IOException {
+        return new SpillFile<T>(Files.createTempFile("chain-spill-", ".bin"), codec);
+    }
+
+    /**
+     * @param t The element to append.
+     * @throws IOException If the element cannot be written.
+     */
+    void write(T t) throws IOException {
+        codec.write(t, out);
+        count++;
+    }
+
+    /**
+     * Flushes and closes the file for writing, so it can be read.
+     * @throws IOException If the file cannot be flushed.
+     */
+    void finish() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+            bytes = Files.size(path);
+        }
+    }
+
+    /**
+     * Finishes the file, opens it for reading and unlinks it at once where the file system allows an open file to be deleted,
+     * so the file leaves nothing behind in the temporary directory even if it is never read or deleted.
+     * <br/>Keeps a file descriptor open until the file is read or deleted, so only use it for a bounded number of files at a time.
+     * @throws IOException If the file cannot be flushed or opened.
+     */
+    void finishUnlinked() throws IOException {
+        finish();
+        if (unlinked == null) {
+            unlinked = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                // Deleted again once the file is read or deleted.
+            }
+        }
+    }
+
+    /**
+     * @return How many elements were written.
+     */
+    long count() {
+        return count;
+    }
+
+    /**
+     * @return How many bytes were written, once the file is finished.
+     */
+    long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Opens the file to be read once, then unlinks it where the file system allows an open file to be deleted,
+     * so a reader that is abandoned early leaves nothing behind in the temporary directory.
+     * @return A new {@link Reader} over the elements, from the first.
+     * @throws IOException If the file cannot be opened.
+     */
+    Reader open() throws IOException {
+        finish();
+        return new Reader();
+    }
+
+    /**
+     * Closes the file if it is still open for writing and deletes it, ignoring failures.
+     */
+    void delete() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // Deleting anyway.
+            }
+            out = null;
+        }
+        if (unlinked != null) {
+            try {
+                unlinked.close();
+            } catch (IOException e) {
+                // Deleting anyway.
+            }
+            unlinked = null;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // Nothing more can be done with a temporary file that cannot be deleted.
+        }
+    }
+
+    /**
+     * Reads the elements back in the order they were written.
+     */
+    final class Reader implements Closeable {
+        private final DataInputStream in;
+        private long remaining = count;
+
+        private Reader() throws IOException {
+            final FileChannel channel = unlinked != null ? unlinked : FileChannel.open(path, StandardOpenOption.READ);
+            unlinked = null;
+            in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                // Deleted again once the reader is closed.
+            }
+        }
+
+        /**
+         * @return True if elements are left to read.
+         */
+        boolean hasNext() {
+            return remaining > 0;
+        }
+
+        /**
+         * @return The next element.
+         * @throws IOException If the element cannot be read.
+         */
+        T next() throws IOException {
+            remaining--;
+            return codec.read(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
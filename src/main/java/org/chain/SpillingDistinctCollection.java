@@ -0,0 +1,122 @@
+package org.chain;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Produces the distinct elements of one or more sources, holding no more than a {@link SpillBudget} of distinct elements in memory.
+ * <br/>Sources with fewer distinct elements than the budget keep the order the elements were first seen.
+ * Otherwise the elements are hash partitioned to disk and come out one partition at a time, in the order first seen within each partition.
+ * <br/>Elements are compared with equals and hashCode, and must keep both through the codec.
+ * <br/>Iterating it again reads the sources again. An iterator abandoned early deletes its partition files through {@link LazyCollection#close(Iterator)},
+ * which reaches it through any later stages that stopped early.
+ * @param <T> The type of the elements.
+ */
+final class SpillingDistinctCollection<T> extends LazyCollection<T> {
+    final List<Collection<T>> sources;
+    final SpillBudget<T> budget;
+
+    SpillingDistinctCollection(List<Collection<T>> sources, SpillBudget<T> budget) {
+        this.sources = sources;
+        this.budget = budget;
+    }
+
+    @Override
+    boolean isUnbounded() {
+        for (Collection<T> source : sources) {
+            if (LazyCollection.isUnbounded(source)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        throwIfUnbounded(this, "distinct");
+        final BudgetedPartitions<T> partitions = new BudgetedPartitions<T>(budget, concatenated()) {
+            private LinkedHashSet<T> distinct;
+
+            @Override
+            protected void reset() {
+                distinct = new LinkedHashSet<T>();
+            }
+
+            @Override
+            protected boolean add(T t) {
+                distinct.add(t);
+                return distinct.size() <= budget.getMaxElementsInMemory();
+            }
+
+            @Override
+            protected Collection<T> loaded() {
+                return distinct;
+            }
+
+            @Override
+            protected int hash(T t) {
+                return t == null ? 0 : t.hashCode();
+            }
+        };
+        return new DistinctIterator(partitions);
+    }
+
+    /**
+     * Hands out each partition in turn, and deletes the partitions not loaded yet once closed.
+     */
+    private final class DistinctIterator extends LookaheadIterator<T> {
+        private final BudgetedPartitions<T> partitions;
+        private Iterator<T> current = Collections.<T>emptyList().iterator();
+
+        DistinctIterator(BudgetedPartitions<T> partitions) {
+            this.partitions = partitions;
+        }
+
+        @Override
+        protected boolean advance() {
+            while (!current.hasNext()) {
+                if (!partitions.loadNext()) {
+                    return false;
+                }
+                current = partitions.loaded().iterator();
+            }
+            supply(current.next());
+            return true;
+        }
+
+        @Override
+        public void close() {
+            partitions.close();
+        }
+    }
+
+    private Iterator<T> concatenated() {
+        final Iterator<Collection<T>> remaining = sources.iterator();
+        return new LookaheadIterator<T>() {
+            private Iterator<T> current = Collections.<T>emptyList().iterator();
+
+            @Override
+            public void close() {
+                LazyCollection.close(current);
+            }
+
+            @Override
+            protected boolean advance() {
+                while (!current.hasNext()) {
+                    if (!remaining.hasNext()) {
+                        return false;
+                    }
+                    final Collection<T> source = remaining.next();
+                    if (source != null) {
+                        current = source.iterator();
+                    }
+                }
+                supply(current.next());
+                return true;
+            }
+        };
+    }
+}
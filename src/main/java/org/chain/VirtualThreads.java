@@ -0,0 +1,57 @@
+package org.chain;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates executors that start a new virtual thread per task when the JVM has them, so blocking tasks cost no platform thread.
+ * <br/>The library is built for Java 9, so virtual threads are looked up once by reflection,
+ * and older JVMs fall back to a new daemon platform thread per task.
+ */
+final class VirtualThreads
+{
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = find();
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+    private static final ThreadFactory DAEMON_THREADS = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "chain-async-" + THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    private VirtualThreads(){}
+
+    /**
+     * @return True if the executors start virtual threads.
+     */
+    static boolean isAvailable() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * @return A new {@link ExecutorService} that starts a thread per task, to be shut down once its tasks are done.
+     */
+    static ExecutorService newThreadPerTaskExecutor() {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // Fall through to platform threads.
+            }
+        }
+        return Executors.newCachedThreadPool(DAEMON_THREADS);
+    }
+
+    private static Method find() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package org.chain.filters;
+
+import java.util.List;
+
+public interface BatchAction<T>{
+    void perform(final List<T> batch);
+}
@@ -0,0 +1,7 @@
+package org.chain.filters;
+
+import java.util.List;
+
+public interface BatchSelector<T,TD>{
+    List<TD> select(final List<T> batch);
+}
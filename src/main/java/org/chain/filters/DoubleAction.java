@@ -0,0 +1,5 @@
+package org.chain.filters;
+
+public interface DoubleAction{
+    void perform(double value);
+}
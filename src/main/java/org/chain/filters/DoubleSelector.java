@@ -0,0 +1,5 @@
+package org.chain.filters;
+
+public interface DoubleSelector{
+    double select(final double value);
+}
@@ -0,0 +1,5 @@
+package org.chain.filters;
+
+public interface DoubleWhereComparator{
+    boolean meetsCondition(final double value);
+}
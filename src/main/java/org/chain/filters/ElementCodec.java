@@ -0,0 +1,10 @@
+package org.chain.filters;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public interface ElementCodec<T>{
+    void write(final T obj, final DataOutput out) throws IOException;
+    T read(final DataInput in) throws IOException;
+}
@@ -0,0 +1,6 @@
+package org.chain.filters;
+
+public interface HashStrategy<T>{
+    int hash(final T obj);
+    boolean areEqual(final T obj1, final T obj2);
+}
@@ -0,0 +1,5 @@
+package org.chain.filters;
+
+public interface IntAction{
+    void perform(int value);
+}
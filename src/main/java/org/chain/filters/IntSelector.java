@@ -0,0 +1,5 @@
+package org.chain.filters;
+
+public interface IntSelector{
+    int select(final int value);
+}
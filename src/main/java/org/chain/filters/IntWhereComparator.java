@@ -0,0 +1,5 @@
+package org.chain.filters;
+
+public interface IntWhereComparator{
+    boolean meetsCondition(final int value);
+}
@@ -0,0 +1,5 @@
+package org.chain.filters;
+
+public interface LongAction{
+    void perform(long value);
+}
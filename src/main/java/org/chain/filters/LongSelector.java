@@ -0,0 +1,5 @@
+package org.chain.filters;
+
+public interface LongSelector{
+    long select(final long value);
+}
@@ -0,0 +1,5 @@
+package org.chain.filters;
+
+public interface LongWhereComparator{
+    boolean meetsCondition(final long value);
+}
@@ -1,6 +1,7 @@
 package org.chain;
 
 import org.chain.filters.Action;
+import org.chain.filters.HashStrategy;
 import org.chain.filters.ManySelector;
 import org.chain.filters.Selector;
 import org.chain.filters.WhereComparator;
@@ -12,7 +13,9 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.NoSuchElementException;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -457,6 +460,128 @@ public class ChainEngineImplTest
                 .contains(one, two, three, four);
     }
 
+    @Test
+    public void testShouldFilterDistinctByKey() {
+        elements.add(new TestClass(3, "duplicate " + 3));
+        elements.add(0, new TestClass(5, "duplicate " + 5));
+
+        Collection<TestClass> distinct = chainEngine.distinct(elements, new Selector<TestClass, Integer>() {
+            public Integer select(TestClass obj) {
+                return obj.getNum();
+            }
+        });
+
+        ArrayList<TestClass> ts = new ArrayList<TestClass>(distinct);
+        assertThat(ts).hasSize(5);
+        assertThat(ts.get(0).getString()).isEqualTo("duplicate 5");
+        assertThat(ts.get(1).getNum()).isEqualTo(1);
+        assertThat(ts.get(3).getString()).isEqualTo("string 3");
+        assertThat(ts.get(4).getNum()).isEqualTo(4);
+    }
+
+    @Test
+    public void testShouldFilterDistinctUsingHashStrategy() {
+        ArrayList<Integer> numsWithDupes = new ArrayList<Integer>();
+        for (int i = 0; i < 1000; i++) {
+            numsWithDupes.add(i % 7 == 0 ? null : -(i % 100));
+        }
+
+        Collection<Integer> distinct = new ChainEngineImpl<Integer>().distinct(numsWithDupes, new HashStrategy<Integer>() {
+            public int hash(Integer obj) {
+                return obj == null ? 0 : Math.abs(obj);
+            }
+
+            public boolean areEqual(Integer obj1, Integer obj2) {
+                return obj1 == null ? obj2 == null : obj1.equals(obj2);
+            }
+        });
+
+        assertThat(new ArrayList<Integer>(distinct))
+                .hasSize(101)
+                .isEqualTo(new ArrayList<Integer>(new LinkedHashSet<Integer>(numsWithDupes)));
+    }
+
+    @Test
+    public void testShouldMatchComparatorSetOperationsWhenHashing() {
+        final Comparator<Integer> comparator = new Comparator<Integer>() {
+            public int compare(Integer o1, Integer o2) {
+                return o1.compareTo(o2);
+            }
+        };
+        final Selector<Integer, Integer> selector = new Selector<Integer, Integer>() {
+            public Integer select(Integer obj) {
+                return obj;
+            }
+        };
+        final ChainEngine<Integer> engine = new ChainEngineImpl<Integer>();
+        final Random random = new Random(42);
+
+        for (int sizes = 0; sizes < 2; sizes++) {
+            ArrayList<Integer> nums1 = new ArrayList<Integer>();
+            ArrayList<Integer> nums2 = new ArrayList<Integer>();
+            for (int i = 0; i < 200; i++) {
+                nums1.add(random.nextInt(100));
+            }
+            for (int i = 0; i < 50; i++) {
+                nums2.add(random.nextInt(100));
+            }
+            if (sizes == 1) {
+                ArrayList<Integer> swap = nums1;
+                nums1 = nums2;
+                nums2 = swap;
+            }
+
+            assertThat(engine.union(nums1, nums2, selector))
+                    .isEqualTo(engine.union(nums1, nums2, comparator));
+            assertThat(engine.intersect(nums1, nums2, selector))
+                    .isEqualTo(engine.intersect(nums1, nums2, comparator));
+            assertThat(engine.diverge(nums1, nums2, selector))
+                    .isEqualTo(engine.diverge(nums1, nums2, comparator));
+        }
+    }
+
+    @Test
+    public void testShouldMatchNestedLoopSetOperationsWhenSortMerging() {
+        final Comparator<Integer> comparator = new Comparator<Integer>() {
+            public int compare(Integer o1, Integer o2) {
+                return o1.compareTo(o2);
+            }
+        };
+        final ChainEngine<Integer> engine = new ChainEngineImpl<Integer>();
+        final Random random = new Random(7);
+        final SetOperationStrategy stable = SetOperationStrategy.STABLE_SORT_MERGE;
+        final SetOperationStrategy sorted = SetOperationStrategy.SORT_MERGE;
+
+        for (int round = 0; round < 10; round++) {
+            ArrayList<Integer> nums1 = new ArrayList<Integer>();
+            ArrayList<Integer> nums2 = new ArrayList<Integer>();
+            for (int i = random.nextInt(100); i > 0; i--) {
+                nums1.add(random.nextInt(50));
+            }
+            for (int i = random.nextInt(100); i > 0; i--) {
+                nums2.add(random.nextInt(50));
+            }
+
+            assertThat(engine.distinct(nums1, comparator, stable))
+                    .isEqualTo(engine.distinct(nums1, comparator));
+            assertThat(engine.union(nums1, nums2, comparator, stable))
+                    .isEqualTo(engine.union(nums1, nums2, comparator));
+            assertThat(engine.intersect(nums1, nums2, comparator, stable))
+                    .isEqualTo(engine.intersect(nums1, nums2, comparator));
+            assertThat(engine.diverge(nums1, nums2, comparator, stable))
+                    .isEqualTo(engine.diverge(nums1, nums2, comparator));
+
+            assertThat(engine.distinct(nums1, comparator, sorted))
+                    .isEqualTo(engine.sort(engine.distinct(nums1, comparator), comparator));
+            assertThat(engine.union(nums1, nums2, comparator, sorted))
+                    .isEqualTo(engine.sort(engine.union(nums1, nums2, comparator), comparator));
+            assertThat(engine.intersect(nums1, nums2, comparator, sorted))
+                    .isEqualTo(engine.sort(engine.intersect(nums1, nums2, comparator), comparator));
+            assertThat(engine.diverge(nums1, nums2, comparator, sorted))
+                    .isEqualTo(engine.sort(engine.diverge(nums1, nums2, comparator), comparator));
+        }
+    }
+
     @Test
     public void testShouldConcatenate() {
         final int one = 1;
@@ -592,4 +717,62 @@ public class ChainEngineImplTest
                 .contains(elements.get(0),
                         elements.get(1));
     }
+
+    @Test
+    public void testShouldTakeTopLikeSortAndTake() {
+        final Comparator<TestClass> byNum = new Comparator<TestClass>() {
+            public int compare(TestClass o1, TestClass o2) {
+                return Integer.valueOf(o1.getNum()).compareTo(o2.getNum());
+            }
+        };
+        Random random = new Random(9);
+        ArrayList<TestClass> testClasses = new ArrayList<TestClass>();
+        for (int i = 0; i < 500; i++) {
+            testClasses.add(new TestClass(random.nextInt(40), "string " + i));
+        }
+
+        for (int k : new int[] { 0, 1, 7, 100, 500, 1000 }) {
+            Collection<TestClass> sorted = chainEngine.sort(testClasses, byNum);
+            Collection<TestClass> expected = chainEngine.take(sorted, Math.min(k, sorted.size()));
+
+            assertThat(chainEngine.top(testClasses, k, byNum)).containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    public void testShouldSearchListsFromTheBackForLast() {
+        final int[] checked = { 0 };
+        TestClass last = chainEngine.last(elements, new WhereComparator<TestClass>() {
+            public boolean meetsCondition(TestClass obj) {
+                checked[0]++;
+                return obj.getNum() < 3;
+            }
+        });
+
+        assertThat(last).isSameAs(elements.get(1));
+        assertThat(checked[0]).isEqualTo(elements.size() - 1);
+    }
+
+    @Test
+    public void testShouldSkipAndTakeAsViewsOfLists() {
+        Collection<TestClass> page = chainEngine.take(chainEngine.skip(elements, 1), 2);
+        elements.set(1, new TestClass(9, "string 9"));
+
+        assertThat(page).containsExactly(elements.get(1), elements.get(2));
+    }
+
+    @Test
+    public void testShouldGetPositionsOfCollectionsThatAreNotLists() {
+        LinkedHashSet<TestClass> set = new LinkedHashSet<TestClass>(elements);
+
+        assertThat(chainEngine.at(set, 2)).isSameAs(elements.get(2));
+        assertThat(chainEngine.last(set)).isSameAs(elements.get(elements.size() - 1));
+        assertThat(chainEngine.skip(set, 3)).containsExactly(elements.get(3), elements.get(4));
+        assertThat(chainEngine.take(set, 2)).containsExactly(elements.get(0), elements.get(1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testShouldThrowErrorWhenTakingMoreThanCollectionThatIsNotList() {
+        chainEngine.take(new LinkedHashSet<TestClass>(elements), elements.size() + 1);
+    }
 }
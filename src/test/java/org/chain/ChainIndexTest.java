@@ -0,0 +1,103 @@
+package org.chain;
+
+import org.chain.filters.Selector;
+import org.chain.model.TestClass;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChainIndexTest
+{
+    private ArrayList<TestClass> testClasses = null;
+    private final Selector<TestClass, Integer> byNum = new Selector<TestClass, Integer>() {
+        public Integer select(TestClass obj) {
+            return obj.getNum();
+        }
+    };
+    private final Selector<TestClass, String> string = new Selector<TestClass, String>() {
+        public String select(TestClass obj) {
+            return obj.getString();
+        }
+    };
+    private final Comparator<Integer> ascending = new Comparator<Integer>() {
+        public int compare(Integer o1, Integer o2) {
+            return o1.compareTo(o2);
+        }
+    };
+
+    @Before
+    public void setup()
+    {
+        testClasses = new ArrayList<TestClass>()
+        {{
+                add(new TestClass(3, "a"));
+                add(new TestClass(1, "b"));
+                add(new TestClass(3, "c"));
+                add(new TestClass(2, "d"));
+                add(new TestClass(5, "e"));
+        }};
+    }
+
+    @Test
+    public void testShouldLookUpEqualKeys() {
+        ChainIndex<Integer, TestClass> index = new Chain<TestClass>(testClasses).index(byNum);
+
+        assertThat(index.isUnique()).isFalse();
+        assertThat(index.size()).isEqualTo(5);
+        assertThat(index.where(3).select(string).toList()).containsExactly("a", "c");
+        assertThat(index.where(4).toList()).isEmpty();
+        assertThat(index.first(3).getString()).isEqualTo("a");
+        assertThat(index.firstOrNull(4)).isNull();
+        assertThat(index.count(3)).isEqualTo(2);
+        assertThat(index.count(4)).isEqualTo(0);
+        assertThat(index.any(5)).isTrue();
+    }
+
+    @Test
+    public void testShouldLookUpRangesInKeyOrder() {
+        ChainIndex<Integer, TestClass> index = new Chain<TestClass>(testClasses).index(byNum, ascending);
+
+        assertThat(index.where(2, 5).select(string).toList()).containsExactly("d", "a", "c");
+        assertThat(index.count(1, 4)).isEqualTo(4);
+        assertThat(index.count(4, 1)).isEqualTo(0);
+        assertThat(index.first(4, 10).getString()).isEqualTo("e");
+        assertThat(index.where(6, 10).toList()).isEmpty();
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testShouldFailWhenNoKeyInRange() {
+        new Chain<TestClass>(testClasses).index(byNum, ascending).first(6, 10);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testShouldFailRangeLookupWithoutComparator() {
+        new Chain<TestClass>(testClasses).index(byNum).count(1, 3);
+    }
+
+    @Test
+    public void testShouldLookUpUniqueKeys() {
+        ChainIndex<String, TestClass> index = new Chain<TestClass>(testClasses).uniqueIndex(string);
+
+        assertThat(index.isUnique()).isTrue();
+        assertThat(index.first("d").getNum()).isEqualTo(2);
+        assertThat(index.count("z")).isEqualTo(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRejectDuplicateKeysInUniqueIndex() {
+        new Chain<TestClass>(testClasses).uniqueIndex(byNum, ascending);
+    }
+
+    @Test
+    public void testShouldNotSeeLaterChangesToSource() {
+        ChainIndex<Integer, TestClass> index = Chain.wrap(testClasses).index(byNum);
+        testClasses.add(new TestClass(3, "f"));
+
+        assertThat(index.count(3)).isEqualTo(2);
+    }
+}
@@ -0,0 +1,92 @@
+package org.chain;
+
+import org.chain.filters.Selector;
+import org.chain.filters.WhereComparator;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChainListenerTest
+{
+    private final List<String> operations = new ArrayList<String>();
+    private final List<Integer> outputSizes = new ArrayList<Integer>();
+    private final ChainListener recording = new ChainListener() {
+        public void operationCompleted(String operation, int inputSize, int outputSize, long elapsedNanos, long allocatedBytes) {
+            operations.add(operation + ":" + inputSize);
+            outputSizes.add(outputSize);
+            assertThat(elapsedNanos).isGreaterThanOrEqualTo(0);
+        }
+    };
+    private final WhereComparator<Integer> isEven = new WhereComparator<Integer>() {
+        public boolean meetsCondition(Integer obj) {
+            return obj % 2 == 0;
+        }
+    };
+
+    @Before
+    public void setup() {
+        operations.clear();
+        outputSizes.clear();
+    }
+
+    @Test
+    public void testShouldReportEveryOperation() {
+        Integer first = new Chain<Integer>(Arrays.asList(4, 3, 2, 1))
+                .withListener(recording)
+                .where(isEven)
+                .select(new Selector<Integer, Integer>() {
+                    public Integer select(Integer obj) {
+                        return obj * 10;
+                    }
+                })
+                .first();
+
+        assertThat(first).isEqualTo(40);
+        assertThat(operations).containsExactly("where:4", "select:2", "first:2");
+        assertThat(outputSizes).containsExactly(2, 2, -1);
+    }
+
+    @Test
+    public void testShouldNotCountLazyStages() {
+        Chain.lazy(Arrays.asList(4, 3, 2, 1))
+                .withListener(recording)
+                .where(isEven)
+                .count();
+
+        assertThat(operations).containsExactly("where:4", "count:-1");
+        assertThat(outputSizes).containsExactly(-1, -1);
+    }
+
+    @Test
+    public void testShouldNotReportWithoutListener() {
+        new Chain<Integer>(Arrays.asList(4, 3, 2, 1)).where(isEven).withListener(recording).count();
+
+        assertThat(operations).containsExactly("count:2");
+    }
+
+    @Test
+    public void testShouldAggregateOperations() {
+        AggregatingChainListener listener = new AggregatingChainListener();
+        for (int i = 0; i < 10; i++) {
+            NumberChain<Integer> numberChain = new NumberChain<Integer>(Arrays.asList(1, 2, 3, 4));
+            numberChain.withListener(listener).where(isEven);
+            numberChain.sum();
+        }
+
+        AggregatingChainListener.OperationStatistics where = listener.getStatistics("where");
+        assertThat(where.getCount()).isEqualTo(10);
+        assertThat(where.getInputElements()).isEqualTo(40);
+        assertThat(where.getOutputElements()).isEqualTo(20);
+        assertThat(where.getPercentileNanos(50)).isLessThanOrEqualTo(where.getPercentileNanos(100));
+        assertThat(where.getPercentileNanos(100)).isEqualTo(where.getMaxNanos());
+        assertThat(listener.getStatistics().keySet()).containsExactly("sum", "where");
+
+        listener.reset();
+        assertThat(listener.getStatistics("where")).isNull();
+    }
+}
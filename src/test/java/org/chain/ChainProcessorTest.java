@@ -0,0 +1,198 @@
+package org.chain;
+
+import org.chain.filters.ManySelector;
+import org.chain.filters.Selector;
+import org.chain.filters.WhereComparator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChainProcessorTest
+{
+    private final WhereComparator<Integer> isEven = new WhereComparator<Integer>() {
+        public boolean meetsCondition(Integer obj) {
+            return obj % 2 == 0;
+        }
+    };
+
+    /**
+     * Publishes 0, 1, 2, ... up to a limit on the thread that requests them, recording every request.
+     */
+    private static final class RangePublisher implements Flow.Publisher<Integer>
+    {
+        private final int limit;
+        private final List<Long> requests = new ArrayList<Long>();
+        private long requested;
+        private int next;
+        private boolean cancelled;
+        private boolean emitting;
+
+        RangePublisher(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void subscribe(final Flow.Subscriber<? super Integer> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                public void request(long n) {
+                    requests.add(n);
+                    requested += n;
+                    if (emitting) {
+                        return;
+                    }
+                    emitting = true;
+                    while (requested > 0 && next < limit && !cancelled) {
+                        requested--;
+                        subscriber.onNext(next++);
+                    }
+                    emitting = false;
+                    if (next == limit && !cancelled) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                    }
+                }
+
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+
+    @Test
+    public void testShouldRunStagesOverPublisher() throws Exception {
+        SubmissionPublisher<Integer> publisher = new SubmissionPublisher<Integer>();
+        ChainProcessor<Integer, String> processor = ChainProcessor.<Integer>create(8)
+                .where(isEven)
+                .select(new Selector<Integer, String>() {
+                    public String select(Integer obj) {
+                        return "n" + obj;
+                    }
+                })
+                .take(3)
+                .attach(publisher);
+        CompletableFuture<ChainBuilder<String>> chain = processor.toChain();
+        for (int i = 0; i < 10; i++) {
+            publisher.submit(i);
+        }
+
+        assertThat(chain.get(5, TimeUnit.SECONDS).toList()).containsExactly("n0", "n2", "n4");
+        publisher.close();
+    }
+
+    @Test
+    public void testShouldRequestInBatchesWithinDemand() {
+        RangePublisher publisher = new RangePublisher(1000);
+        final List<Integer> received = new ArrayList<Integer>();
+        final Flow.Subscription[] subscription = new Flow.Subscription[1];
+        ChainProcessor.<Integer>create(8).where(isEven).attach(publisher).subscribe(new Flow.Subscriber<Integer>() {
+            public void onSubscribe(Flow.Subscription s) {
+                subscription[0] = s;
+            }
+
+            public void onNext(Integer item) {
+                received.add(item);
+            }
+
+            public void onError(Throwable throwable) {
+            }
+
+            public void onComplete() {
+            }
+        });
+
+        assertThat(publisher.requests).isEmpty();
+        subscription[0].request(3);
+        assertThat(received).containsExactly(0, 2, 4);
+        assertThat(publisher.next).isLessThanOrEqualTo(16);
+        for (Long request : publisher.requests) {
+            assertThat(request).isLessThanOrEqualTo(8);
+        }
+
+        subscription[0].request(Long.MAX_VALUE);
+        assertThat(received).hasSize(500);
+    }
+
+    @Test
+    public void testShouldSelectManyAndDropRecentDuplicates() throws Exception {
+        ChainBuilder<Integer> chain = ChainProcessor.<Integer>create(4)
+                .selectMany(new ManySelector<Integer, Integer>() {
+                    public Collection<Integer> select(Integer obj) {
+                        return Arrays.asList(obj / 2, obj / 2);
+                    }
+                })
+                .distinct(2)
+                .attach(new RangePublisher(6))
+                .toChain()
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(chain.toList()).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    public void testShouldPassOnSelectorFailure() throws Exception {
+        try {
+            ChainProcessor.<Integer>create()
+                    .select(new Selector<Integer, Integer>() {
+                        public Integer select(Integer obj) {
+                            if (obj == 5) {
+                                throw new IllegalStateException("boom");
+                            }
+                            return obj;
+                        }
+                    })
+                    .attach(new RangePublisher(10))
+                    .toChain()
+                    .get(5, TimeUnit.SECONDS);
+            throw new AssertionError("Expected the selector failure");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(IllegalStateException.class).hasMessage("boom");
+        }
+    }
+
+    @Test
+    public void testShouldFailOnNullResult() throws Exception {
+        final List<Integer> received = new ArrayList<Integer>();
+        final CompletableFuture<Throwable> failed = new CompletableFuture<Throwable>();
+        RangePublisher publisher = new RangePublisher(10);
+
+        ChainProcessor.<Integer>create()
+                .select(new Selector<Integer, Integer>() {
+                    public Integer select(Integer obj) {
+                        return obj == 3 ? null : obj;
+                    }
+                })
+                .attach(publisher)
+                .subscribe(new Flow.Subscriber<Integer>() {
+                    public void onSubscribe(Flow.Subscription subscription) {
+                        subscription.request(Long.MAX_VALUE);
+                    }
+
+                    public void onNext(Integer item) {
+                        received.add(item);
+                    }
+
+                    public void onError(Throwable throwable) {
+                        failed.complete(throwable);
+                    }
+
+                    public void onComplete() {
+                        failed.complete(null);
+                    }
+                });
+
+        assertThat(failed.get(5, TimeUnit.SECONDS)).isInstanceOf(NullPointerException.class);
+        assertThat(received).containsExactly(0, 1, 2);
+        assertThat(publisher.cancelled).isTrue();
+    }
+}
@@ -0,0 +1,177 @@
+package org.chain;
+
+import org.chain.filters.WhereComparator;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChainQueryCacheTest
+{
+    private final List<Integer> source = Arrays.asList(4, 3, 2, 1);
+    private final WhereComparator<Integer> isEven = new WhereComparator<Integer>() {
+        public boolean meetsCondition(Integer obj) {
+            return obj % 2 == 0;
+        }
+    };
+    private int runs = 0;
+    private final ChainQueryCache.Query<List<Integer>> evens = new ChainQueryCache.Query<List<Integer>>() {
+        public List<Integer> run() {
+            runs++;
+            return new Chain<Integer>(source).where(isEven).toList();
+        }
+    };
+
+    @Before
+    public void setup() {
+        runs = 0;
+    }
+
+    @Test
+    public void testShouldRememberResultsBySourceVersionAndSignature() {
+        ChainQueryCache cache = new ChainQueryCache(10, 100);
+
+        assertThat(cache.get(evens, source, 1, isEven, "toList")).containsExactly(4, 2);
+        assertThat(cache.get(evens, source, 1, isEven, "toList")).containsExactly(4, 2);
+        assertThat(runs).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.getWeight()).isEqualTo(2);
+
+        cache.get(evens, source, 1, isEven, "other");
+        cache.get(evens, Arrays.asList(4, 3, 2, 1), 1, isEven, "toList");
+        assertThat(runs).isEqualTo(3);
+    }
+
+    @Test
+    public void testShouldEvictOlderVersionsAndInvalidate() {
+        ChainQueryCache cache = new ChainQueryCache(10, 100);
+        cache.get(evens, source, 1, "toList");
+        cache.get(evens, source, 2, "toList");
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+
+        cache.get(evens, source, 1, "toList");
+        assertThat(cache.size()).isEqualTo(1);
+
+        cache.invalidate(source);
+        assertThat(cache.size()).isEqualTo(0);
+        cache.get(evens, source, 2, "toList");
+        assertThat(runs).isEqualTo(4);
+    }
+
+    @Test
+    public void testShouldEvictLeastRecentlyUsedByEntriesAndWeight() {
+        ChainQueryCache cache = new ChainQueryCache(2, 5);
+        cache.get(evens, source, 1, "a");
+        cache.get(evens, source, 1, "b");
+        cache.get(evens, source, 1, "a");
+        cache.get(evens, source, 1, "c");
+
+        assertThat(cache.size()).isEqualTo(2);
+        cache.get(evens, source, 1, "a");
+        assertThat(runs).isEqualTo(3);
+
+        cache.get(new ChainQueryCache.Query<List<Integer>>() {
+            public List<Integer> run() {
+                return Arrays.asList(1, 2, 3, 4);
+            }
+        }, source, 1, "d");
+        assertThat(cache.getWeight()).isLessThanOrEqualTo(5);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testShouldForgetSourcesWithNoResultsLeft() {
+        ChainQueryCache cache = new ChainQueryCache(10, 100);
+        for (int i = 0; i < 1000; i++) {
+            cache.get(evens, Arrays.asList(i, i + 1), 1, "toList");
+            cache.get(evens, Arrays.asList(i), 1, "toList");
+        }
+
+        assertThat(cache.size()).isEqualTo(10);
+        assertThat(cache.sourceCount()).isEqualTo(10);
+        cache.get(new ChainQueryCache.Query<List<Integer>>() {
+            public List<Integer> run() {
+                return Arrays.asList(new Integer[101]);
+            }
+        }, new Object(), 1, "tooHeavy");
+        assertThat(cache.sourceCount()).isEqualTo(10);
+        cache.invalidateAll();
+        assertThat(cache.sourceCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void testShouldRememberResultWhileAnotherQueryFails() throws InterruptedException {
+        final ChainQueryCache cache = new ChainQueryCache(10, 100);
+        final CountDownLatch succeedingStarted = new CountDownLatch(1);
+        final CountDownLatch failingDone = new CountDownLatch(1);
+        Thread failing = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    cache.get(new ChainQueryCache.Query<List<Integer>>() {
+                        public List<Integer> run() {
+                            try {
+                                succeedingStarted.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            throw new IllegalStateException("failed");
+                        }
+                    }, source, 1, "failing");
+                } catch (IllegalStateException e) {
+                    failingDone.countDown();
+                }
+            }
+        });
+        Thread succeeding = new Thread(new Runnable() {
+            public void run() {
+                cache.get(new ChainQueryCache.Query<List<Integer>>() {
+                    public List<Integer> run() {
+                        succeedingStarted.countDown();
+                        try {
+                            failingDone.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return evens.run();
+                    }
+                }, source, 1, isEven, "toList");
+            }
+        });
+
+        failing.start();
+        succeeding.start();
+        failing.join();
+        succeeding.join();
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.get(evens, source, 1, isEven, "toList")).containsExactly(4, 2);
+        assertThat(runs).isEqualTo(1);
+        assertThat(cache.sourceCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testShouldRememberNullResults() {
+        ChainQueryCache cache = new ChainQueryCache(10, 100);
+        ChainQueryCache.Query<Integer> firstLarge = new ChainQueryCache.Query<Integer>() {
+            public Integer run() {
+                runs++;
+                return new Chain<Integer>(source).firstOrNull(new WhereComparator<Integer>() {
+                    public boolean meetsCondition(Integer obj) {
+                        return obj > 10;
+                    }
+                });
+            }
+        };
+
+        assertThat(cache.get(firstLarge, source, 1, "firstOrNull")).isNull();
+        assertThat(cache.get(firstLarge, source, 1, "firstOrNull")).isNull();
+        assertThat(runs).isEqualTo(1);
+    }
+}
@@ -1,6 +1,7 @@
 package org.chain;
 
 import org.chain.filters.Action;
+import org.chain.filters.HashStrategy;
 import org.chain.filters.ManySelector;
 import org.chain.filters.Selector;
 import org.chain.filters.WhereComparator;
@@ -611,6 +612,63 @@ public class ChainTest
                 .contains(one, four);
     }
 
+    @Test
+    public void testShouldIntersectByKey() {
+        ArrayList<TestClass> testClasses2 = new ArrayList<TestClass>() {{
+            add(new TestClass(4, "other " + 4));
+            add(new TestClass(2, "other " + 2));
+            add(new TestClass(9, "other " + 9));
+        }};
+
+        List<TestClass> intersect = chain
+                .intersect(testClasses2, new Selector<TestClass, Integer>() {
+                    public Integer select(TestClass obj) {
+                        return obj.getNum();
+                    }
+                })
+                .toList();
+
+        assertThat(intersect).containsExactly(testClasses.get(1), testClasses.get(3));
+    }
+
+    @Test
+    public void testShouldDivergeUsingHashStrategy() {
+        List<Integer> diverge = new Chain<Integer>(Arrays.asList(1, 2, 3, 3))
+                .diverge(Arrays.asList(-2, -4, 4), new HashStrategy<Integer>() {
+                    public int hash(Integer obj) {
+                        return Math.abs(obj);
+                    }
+
+                    public boolean areEqual(Integer obj1, Integer obj2) {
+                        return Math.abs(obj1) == Math.abs(obj2);
+                    }
+                })
+                .toList();
+
+        assertThat(diverge).containsExactly(1, 3, 3, -4, 4);
+    }
+
+    @Test
+    public void testShouldUseSetOperationStrategyOfChain() {
+        final Comparator<Integer> intComparator = new Comparator<Integer>() {
+            public int compare(Integer o1, Integer o2) {
+                return o1.compareTo(o2);
+            }
+        };
+
+        List<Integer> sorted = new Chain<Integer>(Arrays.asList(3, 2, 1, 2, 4, 1))
+                .withSetOperationStrategy(SetOperationStrategy.SORT_MERGE)
+                .distinct(intComparator)
+                .toList();
+        List<Integer> stable = new Chain<Integer>(Arrays.asList(3, 2, 1, 2, 4, 1))
+                .withSetOperationStrategy(SetOperationStrategy.SORT_MERGE)
+                .distinct(intComparator, SetOperationStrategy.STABLE_SORT_MERGE)
+                .toList();
+
+        assertThat(sorted).containsExactly(1, 2, 3, 4);
+        assertThat(stable).containsExactly(3, 2, 1, 4);
+    }
+
     @Test
     public void testShouldSkip() {
         Collection<TestClass> skip = chain.skip(2).toList();
@@ -631,4 +689,63 @@ public class ChainTest
                 .contains(testClasses.get(0),
                         testClasses.get(1));
     }
+
+    @Test
+    public void testShouldReadWrappedCollectionWithoutCopying() {
+        ChainBuilder<TestClass> wrapped = Chain.wrap(testClasses);
+        testClasses.add(new TestClass(6, "string " + 6));
+
+        assertThat(wrapped.count()).isEqualTo(6);
+        assertThat(wrapped.last()).isSameAs(testClasses.get(5));
+
+        List<TestClass> list = wrapped.toList();
+        list.clear();
+
+        assertThat(testClasses).hasSize(6);
+    }
+
+    @Test
+    public void testShouldCopyListOnEveryToList() {
+        ChainBuilder<TestClass> reversed = chain.reverse();
+        List<TestClass> first = reversed.toList();
+        first.clear();
+
+        assertThat(reversed.count()).isEqualTo(testClasses.size());
+        assertThat(reversed.toList()).hasSize(testClasses.size());
+    }
+
+    @Test
+    public void testShouldKeepWorkingAfterTakingFromListedChain() {
+        ChainBuilder<TestClass> reversed = chain.reverse();
+        List<TestClass> list = reversed.toList();
+        reversed.take(2);
+        list.add(new TestClass(6, "string " + 6));
+
+        assertThat(reversed.toList()).hasSize(2);
+    }
+
+    @Test
+    public void testShouldReleaseOwnListWithoutCopying() {
+        ChainBuilder<TestClass> reversed = chain.reverse();
+        List<TestClass> released = reversed.releaseList();
+
+        assertThat(released).hasSize(testClasses.size()).startsWith(testClasses.get(testClasses.size() - 1));
+        released.clear();
+        assertThat(testClasses).hasSize(5);
+    }
+
+    @Test
+    public void testShouldCopyWrappedCollectionOnRelease() {
+        List<TestClass> released = Chain.wrap(testClasses).releaseList();
+
+        assertThat(released).isNotSameAs(testClasses).isEqualTo(testClasses);
+    }
+
+    @Test
+    public void testShouldLetWrappedCollectionChangeAfterSkip() {
+        ChainBuilder<TestClass> skipped = Chain.wrap(testClasses).skip(1).take(2);
+        testClasses.add(new TestClass(6, "string " + 6));
+
+        assertThat(skipped.toList()).containsExactly(testClasses.get(1), testClasses.get(2));
+    }
 }
@@ -0,0 +1,43 @@
+package org.chain;
+
+import org.chain.filters.DoubleWhereComparator;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DoubleChainTest
+{
+
+    @Test
+    public void testShouldSumWithoutLosingSmallValues() {
+        double[] values = new double[10001];
+        values[0] = 1e16;
+        for (int i = 1; i < values.length; i++) {
+            values[i] = 1.0;
+        }
+
+        assertThat(new DoubleChain(values).sum()).isEqualTo(1e16 + 10000);
+    }
+
+    @Test
+    public void testShouldTreatNaNAsHighestValue() {
+        DoubleChain chain = new DoubleChain(2.5, Double.NaN, -1.0, Double.NaN, 2.5);
+
+        assertThat(chain.max()).isNaN();
+        assertThat(chain.min()).isEqualTo(-1.0);
+        assertThat(chain.distinct().count()).isEqualTo(3);
+    }
+
+    @Test
+    public void testShouldFilterAndAverage() {
+        double average = new DoubleChain(1.0, 2.0, 3.0, 4.0)
+                .where(new DoubleWhereComparator() {
+                    public boolean meetsCondition(double value) {
+                        return value >= 2;
+                    }
+                })
+                .average();
+
+        assertThat(average).isEqualTo(3.0);
+    }
+}
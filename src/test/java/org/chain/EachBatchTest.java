@@ -0,0 +1,83 @@
+package org.chain;
+
+import org.chain.filters.BatchAction;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EachBatchTest
+{
+    private final List<List<Integer>> batches = new ArrayList<List<Integer>>();
+    private final List<List<Integer>> lists = new ArrayList<List<Integer>>();
+    private final BatchAction<Integer> record = new BatchAction<Integer>() {
+        public void perform(List<Integer> batch) {
+            batches.add(new ArrayList<Integer>(batch));
+            lists.add(batch);
+        }
+    };
+
+    @Test
+    public void testShouldFlushOnSizeAndEndOfInput() {
+        new Chain<Integer>(Arrays.asList(1, 2, 3, 4, 5)).eachBatch(2, record);
+
+        assertThat(batches).hasSize(3);
+        assertThat(batches.get(0)).containsExactly(1, 2);
+        assertThat(batches.get(1)).containsExactly(3, 4);
+        assertThat(batches.get(2)).containsExactly(5);
+    }
+
+    @Test
+    public void testShouldReuseOneBuffer() {
+        new Chain<Integer>(Arrays.asList(1, 2, 3, 4, 5)).eachBatch(2, record);
+
+        assertThat(lists.get(1)).isSameAs(lists.get(0));
+        assertThat(lists.get(2)).isSameAs(lists.get(0));
+        assertThat(lists.get(0)).isEmpty();
+    }
+
+    @Test
+    public void testShouldNotPerformOnEmptyCollection() {
+        new Chain<Integer>(new ArrayList<Integer>()).eachBatch(4, record);
+
+        assertThat(batches).isEmpty();
+    }
+
+    @Test
+    public void testShouldFlushSlowStreamOnDelay() {
+        Chain.from(new Iterator<Integer>() {
+            private int next;
+
+            public boolean hasNext() {
+                return next < 4;
+            }
+
+            public Integer next() {
+                try {
+                    Thread.sleep(next == 2 ? 60 : 0);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return next++;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        }).eachBatch(100, 20, TimeUnit.MILLISECONDS, record);
+
+        assertThat(batches).hasSize(2);
+        assertThat(batches.get(0)).containsExactly(0, 1, 2);
+        assertThat(batches.get(1)).containsExactly(3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRejectSizeBelowOne() {
+        new Chain<Integer>(Arrays.asList(1, 2, 3)).eachBatch(0, record);
+    }
+}
@@ -0,0 +1,194 @@
+package org.chain;
+
+import org.chain.filters.ElementCodec;
+import org.chain.filters.Selector;
+import org.chain.filters.WhereComparator;
+import org.chain.model.TestClass;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExternalSortTest
+{
+    private final int[] writes = new int[1];
+    private final ElementCodec<Integer> intCodec = new ElementCodec<Integer>() {
+        public void write(Integer obj, DataOutput out) throws IOException {
+            writes[0]++;
+            out.writeInt(obj);
+        }
+
+        public Integer read(DataInput in) throws IOException {
+            return in.readInt();
+        }
+    };
+    private final ElementCodec<TestClass> testClassCodec = new ElementCodec<TestClass>() {
+        public void write(TestClass obj, DataOutput out) throws IOException {
+            out.writeInt(obj.getNum());
+            out.writeUTF(obj.getString());
+        }
+
+        public TestClass read(DataInput in) throws IOException {
+            return new TestClass(in.readInt(), in.readUTF());
+        }
+    };
+    private final Comparator<Integer> ascending = new Comparator<Integer>() {
+        public int compare(Integer o1, Integer o2) {
+            return o1.compareTo(o2);
+        }
+    };
+
+    private static int spillFiles() {
+        String[] names = new File(System.getProperty("java.io.tmpdir")).list(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.startsWith("chain-spill-");
+            }
+        });
+        return names == null ? 0 : names.length;
+    }
+
+    /**
+     * @return How many spill files this process holds open, read from /proc/self/fd.
+     */
+    static int openSpillChannels() throws IOException {
+        File[] fds = new File("/proc/self/fd").listFiles();
+        int open = 0;
+        for (File fd : fds == null ? new File[0] : fds) {
+            try {
+                if (Files.readSymbolicLink(fd.toPath()).toString().contains("chain-spill-")) {
+                    open++;
+                }
+            } catch (IOException e) {
+                // Closed while listing.
+            }
+        }
+        return open;
+    }
+
+    @Test
+    public void testShouldMatchInMemorySortAcrossMergePasses() {
+        List<Integer> nums = new ArrayList<Integer>();
+        Random random = new Random(5);
+        for (int i = 0; i < 20000; i++) {
+            nums.add(random.nextInt(100000) - 50000);
+        }
+        List<Integer> expected = new ArrayList<Integer>(nums);
+        Collections.sort(expected);
+        int filesBefore = spillFiles();
+
+        List<Integer> sorted = new Chain<Integer>(nums).sort(ascending, intCodec, 100).toList();
+
+        assertThat(sorted).isEqualTo(expected);
+        assertThat(spillFiles()).isEqualTo(filesBefore);
+    }
+
+    @Test
+    public void testShouldKeepEqualElementsInOrder() {
+        List<TestClass> items = new ArrayList<TestClass>();
+        for (int i = 0; i < 50; i++) {
+            items.add(new TestClass(i % 3, "s" + i));
+        }
+
+        List<TestClass> sorted = new Chain<TestClass>(items).sort(new Comparator<TestClass>() {
+            public int compare(TestClass o1, TestClass o2) {
+                return Integer.compare(o1.getNum(), o2.getNum());
+            }
+        }, testClassCodec, 7).toList();
+
+        assertThat(sorted.get(0).getString()).isEqualTo("s0");
+        assertThat(sorted.get(1).getString()).isEqualTo("s3");
+        assertThat(sorted.get(17).getString()).isEqualTo("s1");
+        assertThat(sorted.get(49).getString()).isEqualTo("s47");
+    }
+
+    @Test
+    public void testShouldStreamIntoLazyChain() {
+        List<Integer> nums = new ArrayList<Integer>();
+        for (int i = 1000; i > 0; i--) {
+            nums.add(i);
+        }
+
+        Integer first = Chain.lazy(nums).sort(ascending, intCodec, 64).where(new WhereComparator<Integer>() {
+            public boolean meetsCondition(Integer obj) {
+                return obj % 7 == 0;
+            }
+        }).first();
+
+        assertThat(first).isEqualTo(7);
+    }
+
+    @Test
+    public void testShouldCloseRunsWhenLaterStageStopsEarly() throws IOException {
+        Assume.assumeTrue(new File("/proc/self/fd").isDirectory());
+        List<Integer> nums = new ArrayList<Integer>();
+        for (int i = 10000; i > 0; i--) {
+            nums.add(i);
+        }
+        int openBefore = openSpillChannels();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(Chain.lazy(nums).sort(ascending, intCodec, 1000).take(3).toList()).containsExactly(1, 2, 3);
+            assertThat(Chain.lazy(nums).sort(ascending, intCodec, 1000).select(new Selector<Integer, Integer>() {
+                public Integer select(Integer obj) {
+                    return obj;
+                }
+            }).first()).isEqualTo(1);
+        }
+
+        assertThat(openSpillChannels()).isEqualTo(openBefore);
+    }
+
+    @Test
+    public void testShouldSortInMemoryWithinBudget() {
+        int filesBefore = spillFiles();
+        List<Integer> nums = new ArrayList<Integer>();
+        Collections.addAll(nums, 3, 1, 4, 2);
+
+        assertThat(new Chain<Integer>(nums).sort(ascending, intCodec, 10).toList()).containsExactly(1, 2, 3, 4);
+        assertThat(spillFiles()).isEqualTo(filesBefore);
+    }
+
+    @Test
+    public void testShouldSortEagerChainOnce() {
+        List<Integer> nums = new ArrayList<Integer>();
+        for (int i = 100; i > 0; i--) {
+            nums.add(i);
+        }
+
+        ChainBuilder<Integer> sorted = new Chain<Integer>(nums).sort(ascending, intCodec, 10);
+
+        assertThat(writes[0]).isEqualTo(100);
+        assertThat(sorted.first()).isEqualTo(1);
+        assertThat(sorted.last()).isEqualTo(100);
+        assertThat(sorted.count()).isEqualTo(100);
+        assertThat(writes[0]).isEqualTo(100);
+    }
+
+    @Test
+    public void testShouldSkipExternalSortForCount() {
+        List<Integer> nums = new ArrayList<Integer>();
+        for (int i = 100; i > 0; i--) {
+            nums.add(i);
+        }
+
+        assertThat(Chain.lazy(nums).sort(ascending, intCodec, 10).count()).isEqualTo(100);
+        assertThat(writes[0]).isEqualTo(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRejectBudgetBelowOne() {
+        new Chain<Integer>(new ArrayList<Integer>()).sort(ascending, intCodec, 0);
+    }
+}
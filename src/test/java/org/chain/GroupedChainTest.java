@@ -0,0 +1,96 @@
+package org.chain;
+
+import org.chain.filters.Selector;
+import org.chain.filters.WhereComparator;
+import org.chain.model.TestClass;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GroupedChainTest
+{
+    private ArrayList<TestClass> testClasses = null;
+    private final Selector<TestClass, String> byString = new Selector<TestClass, String>() {
+        public String select(TestClass obj) {
+            return obj.getString();
+        }
+    };
+    private final Selector<TestClass, Integer> num = new Selector<TestClass, Integer>() {
+        public Integer select(TestClass obj) {
+            return obj.getNum();
+        }
+    };
+
+    @Before
+    public void setup()
+    {
+        testClasses = new ArrayList<TestClass>()
+        {{
+                add(new TestClass(1, "b"));
+                add(new TestClass(2, "a"));
+                add(new TestClass(3, "b"));
+                add(new TestClass(4, null));
+                add(new TestClass(6, "b"));
+                add(new TestClass(5, "a"));
+        }};
+    }
+
+    @Test
+    public void testShouldGroupIntoChainsInFirstSeenOrder() {
+        Map<String, ChainBuilder<TestClass>> groups = new Chain<TestClass>(testClasses).groupBy(byString).toMap();
+
+        assertThat(groups.keySet()).containsExactly("b", "a", null);
+        assertThat(groups.get("b").select(num).toList()).containsExactly(1, 3, 6);
+        assertThat(groups.get("a").select(num).toList()).containsExactly(2, 5);
+        assertThat(groups.get(null).select(num).toList()).containsExactly(4);
+    }
+
+    @Test
+    public void testShouldAggregatePerGroup() {
+        GroupedChain<String, TestClass> grouped = new Chain<TestClass>(testClasses).groupBy(byString);
+
+        assertThat(grouped.count()).containsEntry("b", 3).containsEntry("a", 2).containsEntry(null, 1);
+        assertThat(grouped.sum(num)).containsEntry("b", BigDecimal.valueOf(10)).containsEntry("a", BigDecimal.valueOf(7));
+        assertThat(grouped.min(num)).containsEntry("b", 1).containsEntry("a", 2).containsEntry(null, 4);
+        assertThat(grouped.max(num)).containsEntry("b", 6).containsEntry("a", 5).containsEntry(null, 4);
+        assertThat(grouped.average(num)).containsEntry("a", new BigDecimal("3.5"));
+        assertThat(grouped.average(num).get("b").compareTo(new BigDecimal("3.333333333333333333333333333333333"))).isEqualTo(0);
+
+        NumberSummaryStatistics<Integer> statistics = grouped.summaryStatistics(num).get("b");
+        assertThat(statistics.getCount()).isEqualTo(3);
+        assertThat(statistics.getMin()).isEqualTo(1);
+        assertThat(statistics.getMax()).isEqualTo(6);
+        assertThat(statistics.getSum()).isEqualTo(BigDecimal.valueOf(10));
+    }
+
+    @Test
+    public void testShouldGroupManyKeysOverLazyChain() {
+        List<Integer> nums = new ArrayList<Integer>();
+        for (int i = 0; i < 100000; i++) {
+            nums.add(i);
+        }
+        Map<Integer, Integer> counts = Chain.lazy(nums)
+                .where(new WhereComparator<Integer>() {
+                    public boolean meetsCondition(Integer obj) {
+                        return obj % 2 == 0;
+                    }
+                })
+                .groupBy(new Selector<Integer, Integer>() {
+                    public Integer select(Integer obj) {
+                        return obj % 1000;
+                    }
+                })
+                .count();
+
+        assertThat(counts).hasSize(500);
+        assertThat(counts.keySet().iterator().next()).isEqualTo(0);
+        assertThat(counts.get(998)).isEqualTo(100);
+        assertThat(counts.get(1)).isNull();
+    }
+}
@@ -0,0 +1,111 @@
+package org.chain;
+
+import org.chain.filters.IntAction;
+import org.chain.filters.IntSelector;
+import org.chain.filters.IntWhereComparator;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IntChainTest
+{
+
+    private int[] nums = null;
+    private final IntWhereComparator greaterThan2 = new IntWhereComparator() {
+        public boolean meetsCondition(int value) {
+            return value > 2;
+        }
+    };
+
+    @Before
+    public void setup()
+    {
+        nums = new int[] { 3, 2, 1, 2, 4, 1 };
+    }
+
+    @Test
+    public void testShouldNotModifyOriginal() {
+        new IntChain(nums).sort().select(new IntSelector() {
+            public int select(int value) {
+                return value * 10;
+            }
+        });
+
+        assertThat(nums).containsExactly(3, 2, 1, 2, 4, 1);
+    }
+
+    @Test
+    public void testShouldModifyInOrder() {
+        int[] result = new IntChain(nums)
+                .distinct()
+                .concatenate(7, 5)
+                .where(greaterThan2)
+                .reverse()
+                .toArray();
+
+        assertThat(result).containsExactly(5, 7, 4, 3);
+    }
+
+    @Test
+    public void testShouldSortAndSkipAndTake() {
+        IntChainBuilder chain = new IntChain(nums).sort().skip(1).take(4);
+
+        assertThat(chain.toArray()).containsExactly(1, 2, 2, 3);
+        assertThat(chain.first()).isEqualTo(1);
+        assertThat(chain.last()).isEqualTo(3);
+        assertThat(chain.at(2)).isEqualTo(2);
+        assertThat(chain.toList()).containsExactly(1, 2, 2, 3);
+    }
+
+    @Test
+    public void testShouldQuery() {
+        IntChain chain = new IntChain(nums);
+
+        assertThat(chain.count()).isEqualTo(6);
+        assertThat(chain.count(greaterThan2)).isEqualTo(2);
+        assertThat(chain.any(greaterThan2)).isTrue();
+        assertThat(chain.all(greaterThan2)).isFalse();
+        assertThat(chain.none(greaterThan2)).isFalse();
+        assertThat(chain.first(greaterThan2)).isEqualTo(3);
+        assertThat(chain.last(greaterThan2)).isEqualTo(4);
+        assertThat(new IntChain().isNullOrEmpty()).isTrue();
+        assertThat(new IntChain().none()).isTrue();
+    }
+
+    @Test
+    public void testShouldAggregate() {
+        IntChain chain = new IntChain(nums);
+
+        assertThat(chain.min()).isEqualTo(1);
+        assertThat(chain.max()).isEqualTo(4);
+        assertThat(chain.sum()).isEqualTo(13L);
+        assertThat(chain.average()).isEqualTo(13 / 6.0);
+        assertThat(new IntChain(Integer.MAX_VALUE, Integer.MAX_VALUE).sum()).isEqualTo(2L * Integer.MAX_VALUE);
+        assertThat(chain.boxed().sum().intValue()).isEqualTo(13);
+    }
+
+    @Test
+    public void testShouldPerformEach() {
+        final int[] total = new int[1];
+        new IntChain(nums).each(new IntAction() {
+            public void perform(int value) {
+                total[0] += value;
+            }
+        });
+
+        assertThat(total[0]).isEqualTo(13);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testShouldThrowErrorWhenGettingMinOfEmpty() {
+        new IntChain().min();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testShouldThrowErrorWhenTakingTooMany() {
+        new IntChain(nums).take(7);
+    }
+}
@@ -0,0 +1,338 @@
+package org.chain;
+
+import org.chain.filters.ManySelector;
+import org.chain.filters.Selector;
+import org.chain.filters.WhereComparator;
+import org.chain.model.TestClass;
+import org.chain.model.TestWrapper;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LazyChainTest
+{
+
+    private ArrayList<TestClass> testClasses = null;
+    private int evaluated = 0;
+    private final Selector<TestClass, Integer> countingNumSelector = new Selector<TestClass, Integer>() {
+        public Integer select(TestClass obj) {
+            evaluated++;
+            return obj.getNum();
+        }
+    };
+    private final WhereComparator<Integer> greaterThan2 = new WhereComparator<Integer>() {
+        public boolean meetsCondition(Integer obj) {
+            return obj > 2;
+        }
+    };
+
+    @Before
+    public void setup()
+    {
+        evaluated = 0;
+        testClasses = new ArrayList<TestClass>()
+        {{
+                add(new TestClass(1, "string " + 1));
+                add(new TestClass(2, "string " + 2));
+                add(new TestClass(3, "string " + 3));
+                add(new TestClass(4, "string " + 4));
+                add(new TestClass(5, "string " + 5));
+            }};
+    }
+
+    @Test
+    public void testShouldNotEvaluateUntilQueried() {
+        ChainBuilder<Integer> chain = Chain.lazy(testClasses)
+                .select(countingNumSelector)
+                .where(greaterThan2);
+
+        assertThat(evaluated).isEqualTo(0);
+        assertThat(chain.toList()).containsExactly(3, 4, 5);
+        assertThat(evaluated).isEqualTo(5);
+    }
+
+    @Test
+    public void testShouldStopAtFirstMatch() {
+        Integer first = Chain.lazy(testClasses)
+                .select(countingNumSelector)
+                .where(greaterThan2)
+                .first();
+
+        assertThat(first).isEqualTo(3);
+        assertThat(evaluated).isEqualTo(3);
+    }
+
+    @Test
+    public void testShouldStopAfterTaking() {
+        List<Integer> taken = Chain.lazy(testClasses)
+                .select(countingNumSelector)
+                .take(2)
+                .toList();
+
+        assertThat(taken).containsExactly(1, 2);
+        assertThat(evaluated).isEqualTo(2);
+    }
+
+    @Test
+    public void testShouldMatchEagerChain() {
+        Comparator<Integer> descending = new Comparator<Integer>() {
+            public int compare(Integer o1, Integer o2) {
+                return o2.compareTo(o1);
+            }
+        };
+        List<Integer> eager = new Chain<TestClass>(testClasses)
+                .select(countingNumSelector)
+                .concatenate(Arrays.asList(7, 6))
+                .sort(descending)
+                .skip(1)
+                .reverse()
+                .where(greaterThan2)
+                .toList();
+        List<Integer> lazy = Chain.lazy(testClasses)
+                .select(countingNumSelector)
+                .concatenate(Arrays.asList(7, 6))
+                .sort(descending)
+                .skip(1)
+                .reverse()
+                .where(greaterThan2)
+                .toList();
+
+        assertThat(lazy).isEqualTo(eager).containsExactly(3, 4, 5, 6);
+    }
+
+    @Test
+    public void testShouldSelectManyLazily() {
+        final ArrayList<TestWrapper> testWrappers = new ArrayList<TestWrapper>() {{
+            add(new TestWrapper(new ArrayList<TestClass>()));
+            add(new TestWrapper(testClasses));
+        }};
+
+        TestClass first = Chain.lazy(testWrappers)
+                .selectMany(new ManySelector<TestWrapper, TestClass>() {
+                    public Collection<TestClass> select(TestWrapper obj) {
+                        return obj.getTestClasses();
+                    }
+                })
+                .first();
+
+        assertThat(first).isSameAs(testClasses.get(0));
+    }
+
+    @Test
+    public void testShouldQueryLazily() {
+        ChainBuilder<Integer> chain = Chain.lazy(testClasses)
+                .select(countingNumSelector)
+                .where(greaterThan2);
+
+        assertThat(chain.count()).isEqualTo(3);
+        assertThat(chain.any()).isTrue();
+        assertThat(chain.last()).isEqualTo(5);
+        assertThat(chain.at(1)).isEqualTo(4);
+        assertThat(chain.skip(5).firstOrNull()).isNull();
+        assertThat(chain.none()).isTrue();
+    }
+
+    @Test
+    public void testShouldSumLazily() {
+        NumberChain<Integer> numberChain = NumberChain.lazy(Arrays.asList(1, 2, 3, 4));
+        numberChain.where(greaterThan2);
+
+        assertThat(numberChain.sum().intValue()).isEqualTo(7);
+        assertThat(numberChain.max()).isEqualTo(4);
+    }
+
+    @Test
+    public void testShouldNotModifyOriginal() {
+        Chain.lazy(testClasses).reverse().toList();
+
+        assertThat(testClasses.get(0).getNum()).isEqualTo(1);
+        assertThat(testClasses.get(4).getNum()).isEqualTo(5);
+    }
+
+    @Test
+    public void testShouldTakeTopWhenTakingAfterSort() {
+        Comparator<Integer> descending = new Comparator<Integer>() {
+            public int compare(Integer o1, Integer o2) {
+                return o2.compareTo(o1);
+            }
+        };
+        ChainBuilder<Integer> chain = Chain.lazy(testClasses)
+                .select(countingNumSelector)
+                .sort(descending)
+                .take(2);
+
+        assertThat(((Chain<Integer>) chain).collection).isInstanceOf(LazyChainEngineImpl.TopCollection.class);
+        assertThat(chain.toList()).containsExactly(5, 4);
+        assertThat(Chain.lazy(testClasses).select(countingNumSelector).top(3, descending).take(10).toList()).containsExactly(5, 4, 3);
+    }
+
+    private Iterator<Integer> naturals() {
+        return new Iterator<Integer>() {
+            private int next = 1;
+
+            public boolean hasNext() {
+                return true;
+            }
+
+            public Integer next() {
+                return next++;
+            }
+        };
+    }
+
+    @Test
+    public void testShouldStreamFromUnboundedIterator() {
+        List<Integer> taken = Chain.from(naturals())
+                .where(greaterThan2)
+                .skip(1)
+                .take(3)
+                .toList();
+
+        assertThat(taken).containsExactly(4, 5, 6);
+        assertThat(Chain.from(naturals()).first(greaterThan2)).isEqualTo(3);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testShouldFailFastWhenSortingUnboundedSpliterator() {
+        Chain.from(Spliterators.spliteratorUnknownSize(naturals(), Spliterator.ORDERED))
+                .where(greaterThan2)
+                .sort(new Comparator<Integer>() {
+                    public int compare(Integer o1, Integer o2) {
+                        return o1.compareTo(o2);
+                    }
+                });
+    }
+
+    @Test
+    public void testShouldSortUnboundedSpliteratorAfterTaking() {
+        List<Integer> sorted = Chain.from(Spliterators.spliteratorUnknownSize(naturals(), Spliterator.ORDERED))
+                .take(4)
+                .reverse()
+                .toList();
+
+        assertThat(sorted).containsExactly(4, 3, 2, 1);
+    }
+
+    @Test
+    public void testShouldQueryIterableMoreThanOnce() {
+        ChainBuilder<Integer> chain = Chain.from((Iterable<Integer>) Arrays.asList(1, 2, 3, 4))
+                .where(greaterThan2);
+
+        assertThat(chain.count()).isEqualTo(2);
+        assertThat(chain.last()).isEqualTo(4);
+    }
+
+    @Test
+    public void testShouldRunSetOperationsOverIteratorOnce() {
+        List<Integer> other = Arrays.asList(3, 4, 5);
+        Selector<Integer, Integer> self = new Selector<Integer, Integer>() {
+            public Integer select(Integer obj) {
+                return obj;
+            }
+        };
+        Comparator<Integer> natural = new Comparator<Integer>() {
+            public int compare(Integer o1, Integer o2) {
+                return o1.compareTo(o2);
+            }
+        };
+
+        assertThat(Chain.from(Arrays.asList(1, 2, 3, 4).iterator()).union(other, self).toList()).containsExactly(1, 2, 3, 4, 5);
+        assertThat(Chain.from(Arrays.asList(1, 2, 3, 4).iterator()).intersect(other, self).toList()).containsExactly(3, 4);
+        assertThat(Chain.from(Arrays.asList(1, 2).iterator()).intersect(other, self).toList()).isEmpty();
+        assertThat(Chain.from(Arrays.asList(1, 2, 3, 4).iterator()).diverge(other, self).toList()).containsExactly(1, 2, 5);
+        assertThat(Chain.from(Arrays.asList(1, 2).iterator()).diverge(other, self).toList()).containsExactly(1, 2, 3, 4, 5);
+        assertThat(Chain.from(Arrays.asList(1, 2, 3, 4).iterator()).diverge(other, natural).toList()).containsExactly(1, 2, 5);
+        assertThat(Chain.from(other.iterator()).intersect(Chain.from(Arrays.asList(1, 2, 3, 4).iterator()).toList(), natural).toList())
+                .containsExactly(3, 4);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testShouldFailWhenQueryingIteratorTwice() {
+        NumberChain<Integer> numberChain = NumberChain.from(Arrays.asList(1, 2, 3, 4).iterator());
+
+        assertThat(numberChain.sum().intValue()).isEqualTo(10);
+        numberChain.max();
+    }
+
+    private final Comparator<Integer> descending = new Comparator<Integer>() {
+        public int compare(Integer o1, Integer o2) {
+            return o2.compareTo(o1);
+        }
+    };
+
+    @Test
+    public void testShouldFilterBeforeSorting() {
+        List<Integer> nums = Arrays.asList(5, 1, 4, 2, 3);
+        Chain<Integer> chain = Chain.lazy(nums);
+        chain.sort(descending).where(greaterThan2);
+
+        assertThat(chain.collection).isInstanceOf(LazyChainEngineImpl.SortedCollection.class);
+        assertThat(((LazyChainEngineImpl.SortedCollection<Integer>) chain.collection).source)
+                .isInstanceOf(LazyChainEngineImpl.FilteredCollection.class);
+        assertThat(chain.toList()).isEqualTo(new Chain<Integer>(nums).sort(descending).where(greaterThan2).toList());
+    }
+
+    @Test
+    public void testShouldFuseConsecutiveWheresAndSelects() {
+        final WhereComparator<Integer> isOdd = new WhereComparator<Integer>() {
+            public boolean meetsCondition(Integer obj) {
+                return obj % 2 == 1;
+            }
+        };
+        final Selector<Integer, String> toString = new Selector<Integer, String>() {
+            public String select(Integer obj) {
+                return "n" + obj;
+            }
+        };
+        Chain<Integer> chain = Chain.lazy(Arrays.asList(1, 2, 3, 4, 5));
+        ChainBuilder<String> selected = chain.where(greaterThan2).where(isOdd).select(new Selector<Integer, Integer>() {
+            public Integer select(Integer obj) {
+                return obj * 10;
+            }
+        }).select(toString);
+
+        assertThat(chain.collection).isInstanceOf(LazyChainEngineImpl.FilteredCollection.class);
+        assertThat(((LazyChainEngineImpl.FilteredCollection<Integer>) chain.collection).source).isInstanceOf(List.class);
+        assertThat(((Chain<String>) selected).collection).isInstanceOf(LazyChainEngineImpl.SelectedCollection.class);
+        assertThat(((LazyChainEngineImpl.SelectedCollection<?, String>) ((Chain<String>) selected).collection).source)
+                .isInstanceOf(LazyChainEngineImpl.FilteredCollection.class);
+        assertThat(selected.toList()).containsExactly("n30", "n50");
+    }
+
+    @Test
+    public void testShouldAnswerQueriesWithoutReordering() {
+        int[] compared = new int[1];
+        final Comparator<Integer> countingDescending = new Comparator<Integer>() {
+            public int compare(Integer o1, Integer o2) {
+                compared[0]++;
+                return o2.compareTo(o1);
+            }
+        };
+        List<Integer> nums = Arrays.asList(5, 1, 4, 2, 3);
+
+        assertThat(Chain.lazy(nums).reverse().first()).isEqualTo(3);
+        assertThat(Chain.lazy(nums).reverse().last(greaterThan2)).isEqualTo(5);
+        assertThat(Chain.lazy(nums).sort(countingDescending).count()).isEqualTo(5);
+        assertThat(Chain.lazy(nums).sort(countingDescending).count(greaterThan2)).isEqualTo(3);
+        assertThat(Chain.lazy(nums).sort(countingDescending).any(greaterThan2)).isTrue();
+        assertThat(compared[0]).isEqualTo(0);
+    }
+
+    @Test
+    public void testShouldExplainOriginalAndOptimizedPlan() {
+        String explained = Chain.lazy(Arrays.asList(5, 1, 4, 2, 3))
+                .sort(descending)
+                .take(2)
+                .explain();
+
+        assertThat(explained).contains("Original plan");
+        assertThat(explained).contains("Optimized plan");
+        String optimized = explained.substring(explained.indexOf("Optimized plan"));
+        assertThat(optimized).contains("top(2)");
+        assertThat(optimized).doesNotContain("sort");
+        assertThat(explained.substring(0, explained.indexOf("Optimized plan"))).contains("sort").contains("take(2)");
+    }
+}
@@ -0,0 +1,34 @@
+package org.chain;
+
+import org.chain.filters.LongSelector;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LongChainTest
+{
+
+    @Test
+    public void testShouldSelectAndSort() {
+        long[] result = new LongChain(3L, 1L, 2L)
+                .select(new LongSelector() {
+                    public long select(long value) {
+                        return value * 1000000000000L;
+                    }
+                })
+                .sort()
+                .toArray();
+
+        assertThat(result).containsExactly(1000000000000L, 2000000000000L, 3000000000000L);
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testShouldThrowErrorWhenSumOverflows() {
+        new LongChain(Long.MAX_VALUE, 1L).sum();
+    }
+
+    @Test
+    public void testShouldAverageWhenSumOverflows() {
+        assertThat(new LongChain(Long.MAX_VALUE, Long.MAX_VALUE).average()).isEqualTo((double) Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,219 @@
+package org.chain;
+
+import org.chain.filters.Selector;
+import org.chain.filters.WhereComparator;
+import org.chain.model.TestClass;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MaterializedChainTest
+{
+    private ObservableCollection<TestClass> source = null;
+    private final WhereComparator<TestClass> positive = new WhereComparator<TestClass>() {
+        public boolean meetsCondition(TestClass obj) {
+            return obj.getNum() > 0;
+        }
+    };
+    private final Selector<TestClass, String> string = new Selector<TestClass, String>() {
+        public String select(TestClass obj) {
+            return obj.getString();
+        }
+    };
+    private final Selector<TestClass, Integer> num = new Selector<TestClass, Integer>() {
+        public Integer select(TestClass obj) {
+            return obj.getNum();
+        }
+    };
+
+    @Before
+    public void setup()
+    {
+        source = new ObservableCollection<TestClass>();
+        source.add(new TestClass(1, "a"));
+        source.add(new TestClass(-2, "b"));
+        source.add(new TestClass(3, "a"));
+    }
+
+    @Test
+    public void testShouldFollowAddsAndRemoves() {
+        MaterializedChain<TestClass, String> strings = MaterializedChain.of(source)
+                .where(positive)
+                .select(string)
+                .distinct();
+
+        assertThat(strings.toList()).containsExactly("a");
+        TestClass c = new TestClass(4, "c");
+        source.add(c);
+        source.add(new TestClass(-5, "d"));
+        assertThat(strings.toList()).containsExactly("a", "c");
+
+        for (Iterator<TestClass> iterator = source.iterator(); iterator.hasNext(); ) {
+            if (iterator.next().getNum() == 1) {
+                iterator.remove();
+            }
+        }
+        assertThat(strings.toList()).containsExactly("a", "c");
+        assertThat(strings.count()).isEqualTo(2);
+
+        source.remove(c);
+        assertThat(strings.toList()).containsExactly("a");
+        assertThat(strings.contains("c")).isFalse();
+    }
+
+    @Test
+    public void testShouldMatchRecomputedChain() {
+        MaterializedChain<TestClass, String> strings = MaterializedChain.of(source)
+                .where(positive)
+                .select(string);
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            if (random.nextInt(3) == 0 && !source.isEmpty()) {
+                source.remove(new ArrayList<TestClass>(source).get(random.nextInt(source.size())));
+            }
+            else {
+                source.add(new TestClass(random.nextInt(20) - 10, "s" + random.nextInt(5)));
+            }
+        }
+
+        assertThat(new Chain<String>(strings.toList()).sort(new Comparator<String>() {
+            public int compare(String o1, String o2) {
+                return o1.compareTo(o2);
+            }
+        }).toList()).isEqualTo(new Chain<TestClass>(source).where(positive).select(string).sort(new Comparator<String>() {
+            public int compare(String o1, String o2) {
+                return o1.compareTo(o2);
+            }
+        }).toList());
+    }
+
+    @Test
+    public void testShouldKeepRunningAggregates() {
+        MaterializedNumberChain<TestClass, Integer> nums = MaterializedChain.of(source).selectNumbers(num);
+
+        assertThat(nums.count()).isEqualTo(3);
+        assertThat(nums.sum()).isEqualTo(BigDecimal.valueOf(2));
+        assertThat(nums.min()).isEqualTo(-2);
+        assertThat(nums.max()).isEqualTo(3);
+
+        TestClass big = new TestClass(10, "e");
+        source.add(big);
+        assertThat(nums.max()).isEqualTo(10);
+        source.remove(big);
+        assertThat(nums.max()).isEqualTo(3);
+        assertThat(nums.sum()).isEqualTo(BigDecimal.valueOf(2));
+    }
+
+    @Test
+    public void testShouldRemoveStoredElementForEqualProbe() {
+        ObservableCollection<Entity> entities = new ObservableCollection<Entity>();
+        entities.add(new Entity(1, 10));
+        entities.add(new Entity(2, 20));
+        MaterializedNumberChain<Entity, Integer> values = MaterializedChain.of(entities).selectNumbers(new Selector<Entity, Integer>() {
+            public Integer select(Entity obj) {
+                return obj.value;
+            }
+        });
+
+        entities.remove(new Entity(2, 0));
+
+        assertThat(values.count()).isEqualTo(1);
+        assertThat(values.sum()).isEqualTo(BigDecimal.valueOf(10));
+        assertThat(values.max()).isEqualTo(10);
+    }
+
+    @Test
+    public void testShouldUndoInfiniteValues() {
+        ObservableCollection<Double> doubles = new ObservableCollection<Double>();
+        doubles.add(1.0);
+        MaterializedNumberChain<Double, Double> nums = MaterializedChain.of(doubles).selectNumbers(new Selector<Double, Double>() {
+            public Double select(Double obj) {
+                return obj;
+            }
+        });
+
+        doubles.add(Double.POSITIVE_INFINITY);
+        doubles.add(Double.NaN);
+        doubles.remove(Double.NaN);
+        doubles.remove(Double.POSITIVE_INFINITY);
+        doubles.add(2.0);
+
+        assertThat(nums.sum()).isEqualTo(BigDecimal.valueOf(3.0));
+    }
+
+    @Test
+    public void testShouldAggregateDistinctValuesOnce() {
+        MaterializedNumberChain<TestClass, Integer> nums = MaterializedChain.of(source).selectNumbers(num).distinct();
+        TestClass duplicate = new TestClass(3, "f");
+
+        source.add(duplicate);
+        assertThat(nums.count()).isEqualTo(3);
+        assertThat(nums.sum()).isEqualTo(BigDecimal.valueOf(2));
+        source.remove(duplicate);
+        assertThat(nums.max()).isEqualTo(3);
+    }
+
+    @Test
+    public void testShouldSelectEachDistinctValueOnce() {
+        ObservableCollection<Integer> ints = new ObservableCollection<Integer>();
+        ints.add(1);
+        ints.add(2);
+        ints.add(3);
+        ints.add(3);
+        MaterializedChain<Integer, Integer> zeros = MaterializedChain.of(ints).distinct().select(new Selector<Integer, Integer>() {
+            public Integer select(Integer obj) {
+                return 0;
+            }
+        });
+
+        assertThat(zeros.toList()).containsExactly(0, 0, 0);
+        assertThat(zeros.count()).isEqualTo(3);
+        ints.add(2);
+        ints.add(4);
+        assertThat(zeros.count()).isEqualTo(4);
+        ints.remove(3);
+        assertThat(zeros.count()).isEqualTo(4);
+        ints.remove(3);
+        ints.remove(5);
+        assertThat(zeros.count()).isEqualTo(3);
+        assertThat(zeros.toList()).containsExactly(0, 0, 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testShouldFailWhenUsingExtendedChain() {
+        MaterializedChain<TestClass, TestClass> all = MaterializedChain.of(source);
+        all.where(positive);
+
+        all.count();
+    }
+
+    /**
+     * Equal by id only, like an entity.
+     */
+    private static final class Entity {
+        private final int id;
+        private final int value;
+
+        Entity(int id, int value) {
+            this.id = id;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entity && ((Entity) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.math.BigDecimal;
+import java.math.MathContext;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -44,6 +45,33 @@ public class NumberChainEngineImplTest
         assertThat(numberChainEngine.min(ints)).isEqualTo(min);
     }
 
+    @Test(expected = NoSuchElementException.class)
+    public void testShouldThrowErrorWhenGettingMinOfEmpty() {
+        numberChainEngine.min(new ArrayList<Integer>());
+    }
+
+    @Test
+    public void testShouldGatherSummaryStatistics() {
+        NumberSummaryStatistics<Integer> statistics = numberChainEngine.summaryStatistics(ints);
+
+        assertThat(statistics.getCount()).isEqualTo(ints.size());
+        assertThat(statistics.getMin()).isEqualTo(min);
+        assertThat(statistics.getMax()).isEqualTo(max);
+        assertThat(statistics.getSum()).isEqualTo(numberChainEngine.sum(ints));
+        assertThat(statistics.getAverage().compareTo(numberChainEngine.average(ints))).isEqualTo(0);
+        assertThat(statistics.getVariance()).isEqualTo(2.0);
+    }
+
+    @Test
+    public void testShouldGatherSummaryStatisticsOfEmpty() {
+        NumberSummaryStatistics<Integer> statistics = numberChainEngine.summaryStatistics(new ArrayList<Integer>());
+
+        assertThat(statistics.getCount()).isEqualTo(0);
+        assertThat(statistics.getMin()).isNull();
+        assertThat(statistics.getAverage()).isNull();
+        assertThat(statistics.getVariance()).isNaN();
+    }
+
     @Test
     public void testShouldSumInts() {
         assertThat(numberChainEngine.sum(ints).intValue()).isEqualTo(one+two+three+four+five);
@@ -61,6 +89,49 @@ public class NumberChainEngineImplTest
         assertThat(new NumberChainEngineImpl<Double>().sum(collection).doubleValue()).isEqualTo(1.12345D + 2.23456D + 3.34567D + 4.45678D + 5.56789D);
     }
 
+    @Test
+    public void testShouldSumLongsPastOverflow() {
+        ArrayList<Long> collection = new ArrayList<Long>() {{
+            add(Long.MAX_VALUE);
+            add(Long.MAX_VALUE);
+            add(-1L);
+        }};
+        BigDecimal expected = new BigDecimal(Long.MAX_VALUE).multiply(new BigDecimal(2)).subtract(BigDecimal.ONE);
+
+        assertThat(new NumberChainEngineImpl<Long>().sum(collection)).isEqualTo(expected);
+    }
+
+    @Test
+    public void testShouldSumBigDecimalsExactly() {
+        ArrayList<BigDecimal> collection = new ArrayList<BigDecimal>() {{
+            add(new BigDecimal("0.1"));
+            add(new BigDecimal("0.2"));
+            add(new BigDecimal("12345678901234567890.3"));
+        }};
+
+        assertThat(new NumberChainEngineImpl<BigDecimal>().sum(collection)).isEqualTo(new BigDecimal("12345678901234567890.6"));
+    }
+
+    @Test
+    public void testShouldCompensateWhenSummingDoubles() {
+        ArrayList<Double> collection = new ArrayList<Double>();
+        collection.add(1e16D);
+        for (int i = 0; i < 1000; i++) {
+            collection.add(1D);
+        }
+        collection.add(-1e16D);
+
+        assertThat(new NumberChainEngineImpl<Double>().sum(collection).doubleValue()).isEqualTo(1000D);
+    }
+
+    @Test
+    public void testShouldAverageWithoutTerminatingDecimal() {
+        List<Integer> collection = Arrays.asList(1, 2, 2);
+
+        assertThat(numberChainEngine.average(collection)).isEqualTo(new BigDecimal(5).divide(new BigDecimal(3), MathContext.DECIMAL128));
+        assertThat(numberChainEngine.average(collection, new MathContext(3))).isEqualTo(new BigDecimal("1.67"));
+    }
+
     @Test
     public void testShouldAverageInts() {
         BigDecimal average = numberChainEngine.average(ints);
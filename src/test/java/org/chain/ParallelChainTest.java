@@ -0,0 +1,124 @@
+package org.chain;
+
+import org.chain.filters.ManySelector;
+import org.chain.filters.Selector;
+import org.chain.filters.WhereComparator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParallelChainTest
+{
+
+    private ForkJoinPool pool = null;
+    private ArrayList<Integer> nums = null;
+    private final WhereComparator<Integer> isEven = new WhereComparator<Integer>() {
+        public boolean meetsCondition(Integer obj) {
+            return obj % 2 == 0;
+        }
+    };
+
+    @Before
+    public void setup()
+    {
+        pool = new ForkJoinPool(4);
+        nums = new ArrayList<Integer>();
+        Random random = new Random(11);
+        for (int i = 0; i < 10000; i++) {
+            nums.add(random.nextInt(5000));
+        }
+    }
+
+    @After
+    public void teardown()
+    {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testShouldMatchSequentialChain() {
+        Selector<Integer, String> toString = new Selector<Integer, String>() {
+            public String select(Integer obj) {
+                return "n" + obj;
+            }
+        };
+
+        assertThat(Chain.parallel(nums, pool, 16).where(isEven).select(toString).toList())
+                .isEqualTo(new Chain<Integer>(nums).where(isEven).select(toString).toList());
+        assertThat(Chain.parallel(nums, pool, 16).count(isEven))
+                .isEqualTo(new Chain<Integer>(nums).count(isEven));
+    }
+
+    @Test
+    public void testShouldSelectManyInOrder() {
+        List<Integer> selectMany = Chain.parallel(nums, pool, 16)
+                .selectMany(new ManySelector<Integer, Integer>() {
+                    public Collection<Integer> select(Integer obj) {
+                        return Arrays.asList(obj, -obj);
+                    }
+                })
+                .toList();
+
+        assertThat(selectMany).hasSize(nums.size() * 2);
+        for (int i = 0; i < nums.size(); i++) {
+            assertThat(selectMany.get(i * 2)).isEqualTo(nums.get(i));
+            assertThat(selectMany.get(i * 2 + 1)).isEqualTo(-nums.get(i));
+        }
+    }
+
+    @Test
+    public void testShouldSortStably() {
+        final Comparator<Integer> byTens = new Comparator<Integer>() {
+            public int compare(Integer o1, Integer o2) {
+                return Integer.valueOf(o1 / 10).compareTo(o2 / 10);
+            }
+        };
+
+        assertThat(Chain.parallel(nums, pool, 16).sort(byTens).toList())
+                .isEqualTo(new Chain<Integer>(nums).sort(byTens).toList());
+    }
+
+    @Test
+    public void testShouldFindFirstMatch() {
+        final int index = 7777;
+        nums.set(index, -1);
+
+        Integer first = Chain.parallel(nums, pool, 16).first(new WhereComparator<Integer>() {
+            public boolean meetsCondition(Integer obj) {
+                return obj < 0 || obj > 4990;
+            }
+        });
+
+        assertThat(first).isEqualTo(new Chain<Integer>(nums).first(new WhereComparator<Integer>() {
+            public boolean meetsCondition(Integer obj) {
+                return obj < 0 || obj > 4990;
+            }
+        }));
+        assertThat(Chain.parallel(nums, pool, 16).any(new WhereComparator<Integer>() {
+            public boolean meetsCondition(Integer obj) {
+                return obj < 0;
+            }
+        })).isTrue();
+        assertThat(Chain.parallel(nums, pool, 16).all(new WhereComparator<Integer>() {
+            public boolean meetsCondition(Integer obj) {
+                return obj >= 0;
+            }
+        })).isFalse();
+    }
+
+    @Test
+    public void testShouldSumInParallelChain() {
+        NumberChain<Integer> parallel = NumberChain.parallel(nums, pool, 16);
+        parallel.where(isEven);
+        NumberChain<Integer> sequential = new NumberChain<Integer>(nums);
+        sequential.where(isEven);
+
+        assertThat(parallel.sum()).isEqualTo(sequential.sum());
+        assertThat(parallel.max()).isEqualTo(sequential.max());
+    }
+}
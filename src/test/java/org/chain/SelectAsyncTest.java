@@ -0,0 +1,92 @@
+package org.chain;
+
+import org.chain.filters.Selector;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SelectAsyncTest
+{
+    private static List<Integer> range(int n) {
+        List<Integer> nums = new ArrayList<Integer>();
+        for (int i = 0; i < n; i++) {
+            nums.add(i);
+        }
+        return nums;
+    }
+
+    @Test
+    public void testShouldKeepOrderWithinConcurrencyLimit() {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger mostRunning = new AtomicInteger();
+        List<String> selected = new Chain<Integer>(range(40))
+                .selectAsync(new Selector<Integer, String>() {
+                    public String select(Integer obj) {
+                        int now = running.incrementAndGet();
+                        while (true) {
+                            int most = mostRunning.get();
+                            if (now <= most || mostRunning.compareAndSet(most, now)) {
+                                break;
+                            }
+                        }
+                        try {
+                            Thread.sleep((obj * 7) % 5);
+                        } catch (InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        } finally {
+                            running.decrementAndGet();
+                        }
+                        return "n" + obj;
+                    }
+                }, 4)
+                .toList();
+
+        assertThat(selected).hasSize(40);
+        for (int i = 0; i < 40; i++) {
+            assertThat(selected.get(i)).isEqualTo("n" + i);
+        }
+        assertThat(mostRunning.get()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    public void testShouldSelectEmptyCollection() {
+        assertThat(new Chain<Integer>(new ArrayList<Integer>()).selectAsync(new Selector<Integer, Integer>() {
+            public Integer select(Integer obj) {
+                return obj;
+            }
+        }, 8).toList()).isEmpty();
+    }
+
+    @Test
+    public void testShouldThrowFirstSelectorFailure() {
+        final AtomicInteger calls = new AtomicInteger();
+        try {
+            new Chain<Integer>(range(1000)).selectAsync(new Selector<Integer, Integer>() {
+                public Integer select(Integer obj) {
+                    calls.incrementAndGet();
+                    if (obj == 3) {
+                        throw new IllegalStateException("boom");
+                    }
+                    return obj;
+                }
+            }, 2);
+            throw new AssertionError("Expected the selector failure");
+        } catch (IllegalStateException e) {
+            assertThat(e).hasMessage("boom");
+        }
+        assertThat(calls.get()).isLessThan(1000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRejectConcurrencyBelowOne() {
+        new Chain<Integer>(range(3)).selectAsync(new Selector<Integer, Integer>() {
+            public Integer select(Integer obj) {
+                return obj;
+            }
+        }, 0);
+    }
+}
@@ -0,0 +1,73 @@
+package org.chain;
+
+import org.chain.filters.BatchSelector;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SelectBatchedTest
+{
+    private final List<List<Integer>> batches = new ArrayList<List<Integer>>();
+    private final BatchSelector<Integer, String> toString = new BatchSelector<Integer, String>() {
+        public List<String> select(List<Integer> batch) {
+            batches.add(new ArrayList<Integer>(batch));
+            List<String> strings = new ArrayList<String>(batch.size());
+            for (Integer i : batch) {
+                strings.add("n" + i);
+            }
+            return strings;
+        }
+    };
+
+    @Test
+    public void testShouldSelectInBatchesInOrder() {
+        List<String> selected = new Chain<Integer>(Arrays.asList(1, 2, 3, 4, 5)).selectBatched(toString, 2).toList();
+
+        assertThat(selected).containsExactly("n1", "n2", "n3", "n4", "n5");
+        assertThat(batches).hasSize(3);
+        assertThat(batches.get(2)).containsExactly(5);
+    }
+
+    @Test
+    public void testShouldReadIteratorOnce() {
+        List<String> selected = Chain.from(Arrays.asList(1, 2, 3).iterator()).selectBatched(toString, 2).toList();
+
+        assertThat(selected).containsExactly("n1", "n2", "n3");
+        assertThat(Chain.from(new ArrayList<Integer>().iterator()).selectBatched(toString, 2).toList()).isEmpty();
+        assertThat(batches).hasSize(2);
+    }
+
+    @Test
+    public void testShouldCollapseDuplicatesWithinBatch() {
+        List<String> selected = new Chain<Integer>(Arrays.asList(1, 1, 2, 1, 2, 2)).selectBatched(toString, 4, true).toList();
+
+        assertThat(selected).containsExactly("n1", "n1", "n2", "n1", "n2", "n2");
+        assertThat(batches).hasSize(2);
+        assertThat(batches.get(0)).containsExactly(1, 2);
+        assertThat(batches.get(1)).containsExactly(2);
+    }
+
+    @Test
+    public void testShouldNotCallSelectorForEmptyCollection() {
+        assertThat(new Chain<Integer>(new ArrayList<Integer>()).selectBatched(toString, 8).toList()).isEmpty();
+        assertThat(batches).isEmpty();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testShouldFailWhenSelectorDropsFields() {
+        new Chain<Integer>(Arrays.asList(1, 2, 3)).selectBatched(new BatchSelector<Integer, Integer>() {
+            public List<Integer> select(List<Integer> batch) {
+                return batch.subList(1, batch.size());
+            }
+        }, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRejectBatchSizeBelowOne() {
+        new Chain<Integer>(Arrays.asList(1, 2, 3)).selectBatched(toString, 0);
+    }
+}
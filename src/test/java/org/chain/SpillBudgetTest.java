@@ -0,0 +1,245 @@
+package org.chain;
+
+import org.chain.filters.Action;
+import org.chain.filters.ElementCodec;
+import org.chain.filters.Selector;
+import org.chain.filters.WhereComparator;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SpillBudgetTest
+{
+    private final ElementCodec<Integer> intCodec = new ElementCodec<Integer>() {
+        public void write(Integer obj, DataOutput out) throws IOException {
+            out.writeInt(obj);
+        }
+
+        public Integer read(DataInput in) throws IOException {
+            return in.readInt();
+        }
+    };
+
+    private static List<Integer> randomNums(int size, int bound) {
+        List<Integer> nums = new ArrayList<Integer>();
+        Random random = new Random(3);
+        for (int i = 0; i < size; i++) {
+            nums.add(random.nextInt(bound));
+        }
+        return nums;
+    }
+
+    private static int spillFiles() {
+        String[] names = new File(System.getProperty("java.io.tmpdir")).list(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.startsWith("chain-spill-");
+            }
+        });
+        return names == null ? 0 : names.length;
+    }
+
+    @Test
+    public void testShouldSpillDistinctOverBudget() {
+        List<Integer> nums = randomNums(20000, 5000);
+        SpillBudget<Integer> budget = new SpillBudget<Integer>(intCodec, 200);
+        int filesBefore = spillFiles();
+
+        List<Integer> distinct = new Chain<Integer>(nums).distinct(budget).toList();
+
+        assertThat(distinct).hasSize(new HashSet<Integer>(nums).size());
+        assertThat(new HashSet<Integer>(distinct)).isEqualTo(new HashSet<Integer>(nums));
+        assertThat(budget.getSpillCount()).isGreaterThan(1);
+        assertThat(budget.getPartitionCount()).isGreaterThanOrEqualTo(SpillBudget.FAN_OUT);
+        assertThat(budget.getSpilledElementCount()).isGreaterThanOrEqualTo(nums.size());
+        assertThat(budget.getSpilledBytes()).isGreaterThanOrEqualTo(budget.getSpilledElementCount() * 4);
+        assertThat(spillFiles()).isEqualTo(filesBefore);
+    }
+
+    @Test
+    public void testShouldLeaveNoFilesWhenStoppedEarly() {
+        List<Integer> nums = randomNums(20000, 5000);
+        SpillBudget<Integer> budget = new SpillBudget<Integer>(intCodec, 200);
+        int filesBefore = spillFiles();
+
+        assertThat(Chain.lazy(nums).distinct(budget).first()).isNotNull();
+        assertThat(Chain.lazy(nums).distinct(budget).any(new WhereComparator<Integer>() {
+            public boolean meetsCondition(Integer obj) {
+                return obj >= 0;
+            }
+        })).isTrue();
+        assertThat(Chain.lazy(nums).distinct(budget).where(new WhereComparator<Integer>() {
+            public boolean meetsCondition(Integer obj) {
+                return obj % 2 == 0;
+            }
+        }).first()).isNotNull();
+
+        assertThat(budget.getSpillCount()).isGreaterThanOrEqualTo(3);
+        assertThat(spillFiles()).isEqualTo(filesBefore);
+    }
+
+    @Test
+    public void testShouldCloseDistinctWhenLaterStageStopsEarly() throws IOException {
+        Assume.assumeTrue(new File("/proc/self/fd").isDirectory());
+        List<Integer> nums = randomNums(20000, 5000);
+        int openBefore = ExternalSortTest.openSpillChannels();
+        int filesBefore = spillFiles();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(Chain.lazy(nums).distinct(new SpillBudget<Integer>(intCodec, 1000)).where(new WhereComparator<Integer>() {
+                public boolean meetsCondition(Integer obj) {
+                    return true;
+                }
+            }).first()).isNotNull();
+        }
+
+        assertThat(ExternalSortTest.openSpillChannels()).isEqualTo(openBefore);
+        assertThat(spillFiles()).isEqualTo(filesBefore);
+    }
+
+    @Test
+    public void testShouldKeepOrderWithinBudget() {
+        List<Integer> nums = new ArrayList<Integer>();
+        for (int i : new int[] { 3, 1, 3, 2, 1 }) {
+            nums.add(i);
+        }
+        SpillBudget<Integer> budget = new SpillBudget<Integer>(intCodec, 3);
+
+        assertThat(new Chain<Integer>(nums).distinct(budget).toList()).containsExactly(3, 1, 2);
+        assertThat(budget.getSpillCount()).isEqualTo(0);
+        assertThat(budget.getSpilledBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void testShouldSpillUnion() {
+        List<Integer> first = randomNums(3000, 2000);
+        List<Integer> second = new ArrayList<Integer>();
+        for (int i = 1500; i < 2500; i++) {
+            second.add(i);
+        }
+        HashSet<Integer> expected = new HashSet<Integer>(first);
+        expected.addAll(second);
+        SpillBudget<Integer> budget = new SpillBudget<Integer>(intCodec, 100);
+
+        List<Integer> union = new Chain<Integer>(first).union(second, budget).toList();
+
+        assertThat(union).hasSize(expected.size());
+        assertThat(new HashSet<Integer>(union)).isEqualTo(expected);
+        assertThat(budget.getSpillCount()).isGreaterThan(0);
+    }
+
+    @Test
+    public void testShouldSpillEagerDistinctOnlyOnce() {
+        List<Integer> nums = randomNums(20000, 5000);
+        SpillBudget<Integer> budget = new SpillBudget<Integer>(intCodec, 200);
+
+        ChainBuilder<Integer> distinct = new Chain<Integer>(nums).distinct(budget);
+        long spills = budget.getSpillCount();
+
+        assertThat(distinct.count()).isEqualTo(new HashSet<Integer>(nums).size());
+        assertThat(distinct.first()).isNotNull();
+        assertThat(spills).isGreaterThan(0);
+        assertThat(budget.getSpillCount()).isEqualTo(spills);
+    }
+
+    @Test
+    public void testShouldSpillEagerUnionOnlyOnce() {
+        SpillBudget<Integer> budget = new SpillBudget<Integer>(intCodec, 100);
+
+        ChainBuilder<Integer> union = new Chain<Integer>(randomNums(3000, 2000)).union(randomNums(3000, 4000), budget);
+        long spills = budget.getSpillCount();
+        union.count();
+        union.toList();
+
+        assertThat(spills).isGreaterThan(0);
+        assertThat(budget.getSpillCount()).isEqualTo(spills);
+    }
+
+    @Test
+    public void testShouldGroupPartitionsWithDisjointKeys() {
+        List<Integer> nums = randomNums(5000, 100000);
+        final Selector<Integer, Integer> bucket = new Selector<Integer, Integer>() {
+            public Integer select(Integer obj) {
+                return obj / 100;
+            }
+        };
+        final Map<Integer, Integer> counts = new HashMap<Integer, Integer>();
+        final int[] partitions = new int[1];
+        SpillBudget<Integer> budget = new SpillBudget<Integer>(intCodec, 500);
+
+        new Chain<Integer>(nums).groupBy(bucket, budget, new Action<GroupedChain<Integer, Integer>>() {
+            public void perform(GroupedChain<Integer, Integer> grouped) {
+                partitions[0]++;
+                for (Map.Entry<Integer, Integer> entry : grouped.count().entrySet()) {
+                    assertThat(counts.put(entry.getKey(), entry.getValue())).isNull();
+                }
+            }
+        });
+
+        assertThat(counts).isEqualTo(new Chain<Integer>(nums).groupBy(bucket).count());
+        assertThat(partitions[0]).isGreaterThan(1);
+        assertThat(budget.getPartitionCount()).isGreaterThanOrEqualTo(partitions[0]);
+    }
+
+    @Test
+    public void testShouldGroupHotKeyInMemory() {
+        final List<Integer> sizes = new ArrayList<Integer>();
+
+        new Chain<Integer>(randomNums(300, 1000)).groupBy(new Selector<Integer, Integer>() {
+            public Integer select(Integer obj) {
+                return 0;
+            }
+        }, new SpillBudget<Integer>(intCodec, 10), new Action<GroupedChain<Integer, Integer>>() {
+            public void perform(GroupedChain<Integer, Integer> grouped) {
+                sizes.add(grouped.count().get(0));
+            }
+        });
+
+        assertThat(sizes).containsExactly(300);
+    }
+
+    @Test
+    public void testShouldNotPartitionSingleKeysAgain() {
+        final List<Integer> sizes = new ArrayList<Integer>();
+        List<Integer> nums = randomNums(10000, 1000);
+        SpillBudget<Integer> budget = new SpillBudget<Integer>(intCodec, 100);
+
+        new Chain<Integer>(nums).groupBy(new Selector<Integer, Integer>() {
+            public Integer select(Integer obj) {
+                return obj % 2;
+            }
+        }, budget, new Action<GroupedChain<Integer, Integer>>() {
+            public void perform(GroupedChain<Integer, Integer> grouped) {
+                for (Integer count : grouped.count().values()) {
+                    sizes.add(count);
+                }
+            }
+        });
+
+        int total = 0;
+        for (Integer size : sizes) {
+            total += size;
+        }
+        assertThat(sizes).hasSize(2);
+        assertThat(total).isEqualTo(nums.size());
+        assertThat(budget.getSpillCount()).isEqualTo(1);
+        assertThat(budget.getSpilledElementCount()).isEqualTo(nums.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRejectBudgetBelowOne() {
+        new SpillBudget<Integer>(intCodec, 0);
+    }
+}